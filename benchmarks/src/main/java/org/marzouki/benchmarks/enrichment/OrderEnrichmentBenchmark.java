@@ -0,0 +1,191 @@
+package org.marzouki.benchmarks.enrichment;
+
+import org.marzouki.orderservice.entities.Bill;
+import org.marzouki.orderservice.entities.ProductItem;
+import org.marzouki.orderservice.feign.CustomerRestClient;
+import org.marzouki.orderservice.feign.ProductRestClient;
+import org.marzouki.orderservice.model.Customer;
+import org.marzouki.orderservice.model.Product;
+import org.marzouki.orderservice.service.LookupCacheService;
+import org.marzouki.orderservice.service.OrderEnrichmentService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.cache.support.NoOpCacheManager;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.hateoas.PagedModel;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link OrderEnrichmentService#enrichOrders} over a page of orders, with the Feign clients
+ * replaced by in-process stubs answering from memory. What is measured is the enrichment itself:
+ * id collection, cache lookups, batching, fan-out on the lookup executor and the merge back into
+ * the orders.
+ * <ul>
+ *     <li>{@code warm}: every customer and product is already in the near cache</li>
+ *     <li>{@code none}: no cache, every lookup goes to the stub clients</li>
+ * </ul>
+ * Run alone from the repository root with:
+ * <pre>
+ * mvn -o -pl benchmarks -am -Pjmh process-classes -Djmh.args=OrderEnrichment
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderEnrichmentBenchmark {
+
+    private static final int CUSTOMER_COUNT = 5_000;
+
+    private static final int PRODUCT_COUNT = 10_000;
+
+    @Param({"20", "500"})
+    private int orders;
+
+    @Param({"3"})
+    private int itemsPerOrder;
+
+    @Param({"warm", "none"})
+    private String cache;
+
+    private AnnotationConfigApplicationContext context;
+
+    private OrderEnrichmentService orderEnrichmentService;
+
+    private List<Bill> page;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        CacheManager cacheManager = "warm".equals(cache)
+                ? new ConcurrentMapCacheManager(LookupCacheService.CUSTOMERS, LookupCacheService.PRODUCTS)
+                : new NoOpCacheManager();
+
+        context = new AnnotationConfigApplicationContext();
+        context.registerBean(CacheManager.class, () -> cacheManager);
+        context.registerBean(CustomerRestClient.class, StubCustomerRestClient::new);
+        context.registerBean(ProductRestClient.class, StubProductRestClient::new);
+        context.registerBean("enrichmentExecutor", ExecutorService.class, Executors::newVirtualThreadPerTaskExecutor,
+                definition -> definition.setDestroyMethodName("close"));
+        context.registerBean(LookupCacheService.class);
+        context.registerBean(OrderEnrichmentService.class, () -> new OrderEnrichmentService(2000, 64));
+        context.refresh();
+        orderEnrichmentService = context.getBean(OrderEnrichmentService.class);
+
+        Random random = new Random(42);
+        page = new ArrayList<>(orders);
+        for (int i = 0; i < orders; i++) {
+            List<ProductItem> productItems = new ArrayList<>(itemsPerOrder);
+            for (int j = 0; j < itemsPerOrder; j++) {
+                productItems.add(ProductItem.builder()
+                        .productId(String.valueOf(skewed(random, PRODUCT_COUNT)))
+                        .quantity(1)
+                        .build());
+            }
+            page.add(Bill.builder()
+                    .id((long) i)
+                    .clientId(String.valueOf(skewed(random, CUSTOMER_COUNT)))
+                    .productItems(productItems)
+                    .build());
+        }
+        // Fills the cache in the warm case
+        orderEnrichmentService.enrichOrders(page);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Bill> enrichOrders() {
+        orderEnrichmentService.enrichOrders(page);
+        return page;
+    }
+
+    /**
+     * Id in [1, count], skewed towards low ids so that pages share customers and products as they do in practice
+     */
+    private static int skewed(Random random, int count) {
+        double skew = random.nextDouble();
+        return 1 + (int) (skew * skew * count);
+    }
+
+    static class StubCustomerRestClient implements CustomerRestClient {
+
+        @Override
+        public Customer getCustomerById(Long id) {
+            Customer customer = new Customer();
+            customer.setId(id);
+            customer.setName("Customer " + id);
+            customer.setEmail("customer" + id + "@example.com");
+            return customer;
+        }
+
+        @Override
+        public List<Customer> getCustomersAfter(long after, int size) {
+            List<Customer> customers = new ArrayList<>();
+            for (long id = after + 1; id <= Math.min(after + size, CUSTOMER_COUNT); id++) {
+                customers.add(getCustomerById(id));
+            }
+            return customers;
+        }
+    }
+
+    static class StubProductRestClient implements ProductRestClient {
+
+        @Override
+        public Product getProductById(String id) {
+            Product product = new Product();
+            product.setId(id);
+            product.setName("Product " + id);
+            product.setDescription("Description of product " + id);
+            product.setPrice(10);
+            product.setQuantity(100);
+            return product;
+        }
+
+        @Override
+        public PagedModel<Product> getAllProducts() {
+            return PagedModel.empty();
+        }
+
+        @Override
+        public List<Product> getProductsByIds(Collection<String> ids) {
+            return ids.stream().map(this::getProductById).toList();
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .include(OrderEnrichmentBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
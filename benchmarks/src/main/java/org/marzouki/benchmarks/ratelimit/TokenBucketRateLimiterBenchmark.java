@@ -0,0 +1,83 @@
+package org.marzouki.benchmarks.ratelimit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.marzouki.gateweyservice.ratelimit.RateLimiterProperties;
+import org.marzouki.gateweyservice.ratelimit.TokenBucketRateLimiter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a gatewey-service {@link TokenBucketRateLimiter} decision, with 8 threads spread over
+ * many clients (distinct buckets) or all hitting the same client (one contended bucket).
+ * <p>
+ * Run alone from the repository root with:
+ * <pre>
+ * mvn -o -pl benchmarks -am -Pjmh process-classes -Djmh.args=TokenBucketRateLimiter
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class TokenBucketRateLimiterBenchmark {
+
+    @Param({"1", "10000"})
+    private int clients;
+
+    private TokenBucketRateLimiter limiter;
+
+    private String[] keys;
+
+    @Setup
+    public void setUp() {
+        limiter = new TokenBucketRateLimiter(null, new RateLimiterProperties(100_000, Duration.ofSeconds(30), 0),
+                new SimpleMeterRegistry());
+        limiter.getConfig().put("route", new TokenBucketRateLimiter.Config().setCapacity(100).setRefillRate(50));
+        keys = new String[clients];
+        for (int i = 0; i < clients; i++) {
+            keys[i] = "ip:10.0." + (i / 256) + "." + (i % 256);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        limiter.destroy();
+    }
+
+    @Benchmark
+    public RateLimiter.Response isAllowed() {
+        String key = keys[ThreadLocalRandom.current().nextInt(keys.length)];
+        return limiter.isAllowed("route", key).block();
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .include(TokenBucketRateLimiterBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
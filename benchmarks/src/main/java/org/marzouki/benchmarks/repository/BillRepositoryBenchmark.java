@@ -0,0 +1,192 @@
+package org.marzouki.benchmarks.repository;
+
+import org.marzouki.orderservice.entities.Bill;
+import org.marzouki.orderservice.repository.BillRepository;
+import org.marzouki.shared.web.ResourceVersion;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.persistence.autoconfigure.EntityScan;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * order-service {@link BillRepository} reads behind the order endpoints (keyset pages, orders
+ * with their items and conditional GET versions) against an H2 database of realistic size.
+ * Only the JPA slice of order-service is started.
+ * <p>
+ * Run alone from the repository root with:
+ * <pre>
+ * mvn -o -pl benchmarks -am -Pjmh process-classes -Djmh.args=BillRepository
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BillRepositoryBenchmark {
+
+    private static final int LOOKUP_COUNT = 1024;
+
+    private static final int PAGE_SIZE = 20;
+
+    private static final int CLIENT_COUNT = 5_000;
+
+    @Param({"100000"})
+    private int orderCount;
+
+    @Param({"3"})
+    private int itemsPerOrder;
+
+    private ConfigurableApplicationContext context;
+
+    private BillRepository billRepository;
+
+    private long[] orderIds;
+
+    private String[] clientIds;
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(OrderJpaSlice.class)
+                .properties(RepositoryBenchmarks.properties("bill-repository-benchmark"))
+                .run();
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        LocalDateTime start = LocalDateTime.now().minusDays(365);
+        Random random = new Random(42);
+        Bill.OrderStatus[] statuses = Bill.OrderStatus.values();
+
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO orders (id, date_commande, statut, client_id, montant_total, date_creation, date_modification) " +
+                        "VALUES (?, ?, ?, ?, ?, ?, ?)",
+                IntStream.rangeClosed(1, orderCount).boxed().toList(), 10_000, (statement, id) -> {
+                    // Orders spread over a year, in id order
+                    Timestamp date = Timestamp.valueOf(start.plusSeconds(id * (365L * 24 * 3600 / orderCount)));
+                    statement.setLong(1, id);
+                    statement.setTimestamp(2, date);
+                    statement.setString(3, statuses[random.nextInt(statuses.length)].name());
+                    statement.setString(4, String.valueOf(client(random)));
+                    statement.setDouble(5, 10 + random.nextInt(1_000));
+                    statement.setTimestamp(6, date);
+                    statement.setTimestamp(7, date);
+                });
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO order_items (id, product_id, order_id, quantity, unit_price, total_price) " +
+                        "VALUES (?, ?, ?, ?, ?, ?)",
+                IntStream.range(0, orderCount * itemsPerOrder).boxed().toList(), 10_000, (statement, i) -> {
+                    int quantity = 1 + random.nextInt(5);
+                    double unitPrice = 1 + random.nextInt(500);
+                    statement.setLong(1, i + 1);
+                    statement.setString(2, "product-" + random.nextInt(100_000));
+                    statement.setLong(3, 1 + i / itemsPerOrder);
+                    statement.setInt(4, quantity);
+                    statement.setDouble(5, unitPrice);
+                    statement.setDouble(6, quantity * unitPrice);
+                });
+        billRepository = context.getBean(BillRepository.class);
+
+        orderIds = new long[LOOKUP_COUNT];
+        clientIds = new String[LOOKUP_COUNT];
+        for (int i = 0; i < LOOKUP_COUNT; i++) {
+            orderIds[i] = 1 + random.nextInt(orderCount);
+            clientIds[i] = String.valueOf(client(random));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Window<Bill> clientOrdersFirstPage() {
+        return billRepository.findByClientIdOrderByDateCommandeDescIdDesc(
+                clientIds[nextLookup()], ScrollPosition.keyset(), Limit.of(PAGE_SIZE));
+    }
+
+    @Benchmark
+    public Window<Bill> statusOrdersFirstPage() {
+        return billRepository.findByStatutOrderByDateCommandeDescIdDesc(
+                Bill.OrderStatus.SHIPPED, ScrollPosition.keyset(), Limit.of(PAGE_SIZE));
+    }
+
+    @Benchmark
+    public Optional<Bill> findWithItemsById() {
+        return billRepository.findWithItemsById(orderIds[nextLookup()]);
+    }
+
+    @Benchmark
+    public List<Bill> findWithItemsByIdIn() {
+        List<Long> ids = new ArrayList<>(PAGE_SIZE);
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            ids.add(orderIds[nextLookup()]);
+        }
+        return billRepository.findWithItemsByIdIn(ids);
+    }
+
+    @Benchmark
+    public Optional<ResourceVersion> findVersionById() {
+        return billRepository.findVersionById(orderIds[nextLookup()]);
+    }
+
+    private int nextLookup() {
+        return next++ & (LOOKUP_COUNT - 1);
+    }
+
+    /**
+     * Client id skewed towards low ids, so that a few clients have many orders
+     */
+    private static int client(Random random) {
+        double skew = random.nextDouble();
+        return 1 + (int) (skew * skew * CLIENT_COUNT);
+    }
+
+    @SpringBootConfiguration
+    @EnableAutoConfiguration
+    @EntityScan(basePackageClasses = Bill.class)
+    @EnableJpaRepositories(basePackageClasses = BillRepository.class)
+    static class OrderJpaSlice {
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .include(BillRepositoryBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,153 @@
+package org.marzouki.benchmarks.repository;
+
+import org.marzouki.productservice.entities.Product;
+import org.marzouki.productservice.repository.ProductRepository;
+import org.marzouki.productservice.service.ProductCatalogService;
+import org.marzouki.productservice.service.ProductChangeService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.persistence.autoconfigure.EntityScan;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Cost of the product change outbox: bulk price updates through
+ * {@link ProductCatalogService#updateProducts}, which records one change per product in the same
+ * transaction, against the same updates without the outbox. Compaction is not scheduled, so the
+ * outbox grows over the run like it does between two compactions.
+ * <p>
+ * Run alone from the repository root with:
+ * <pre>
+ * mvn -o -pl benchmarks -am -Pjmh process-classes -Djmh.args=ProductOutbox
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductOutboxBenchmark {
+
+    private static final int CATALOG_SIZE = 10_000;
+
+    @Param({"1", "100", "1000"})
+    private int batchSize;
+
+    private ConfigurableApplicationContext context;
+
+    private ProductCatalogService productCatalogService;
+
+    private ProductRepository productRepository;
+
+    private TransactionTemplate transactionTemplate;
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(ProductOutboxSlice.class)
+                .properties(Stream.concat(Stream.of(RepositoryBenchmarks.properties("product-outbox-benchmark")), Stream.of(
+                        "spring.jpa.properties.hibernate.jdbc.batch_size=50",
+                        "spring.jpa.properties.hibernate.order_inserts=true",
+                        "spring.jpa.properties.hibernate.order_updates=true")).toArray(String[]::new))
+                .run();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        context.getBean(JdbcTemplate.class).batchUpdate(
+                "INSERT INTO product (id, name, description, price, quantity, date_creation, date_modification) " +
+                        "VALUES (?, ?, ?, ?, ?, ?, ?)",
+                IntStream.range(0, CATALOG_SIZE).boxed().toList(), 1_000, (statement, i) -> {
+                    statement.setString(1, "product-" + i);
+                    statement.setString(2, "Product " + i);
+                    statement.setString(3, "Description of product " + i);
+                    statement.setDouble(4, 1 + i % 5_000);
+                    statement.setInt(5, 100);
+                    statement.setTimestamp(6, now);
+                    statement.setTimestamp(7, now);
+                });
+        productCatalogService = context.getBean(ProductCatalogService.class);
+        productRepository = context.getBean(ProductRepository.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Product> updateWithOutbox() {
+        return productCatalogService.updateProducts(nextUpdates());
+    }
+
+    @Benchmark
+    public List<Product> updateWithoutOutbox() {
+        List<Product> updates = nextUpdates();
+        return transactionTemplate.execute(status -> {
+            List<Product> products = productRepository.findAllById(updates.stream().map(Product::getId).toList());
+            for (int i = 0; i < products.size(); i++) {
+                products.get(i).setPrice(updates.getFirst().getPrice());
+            }
+            productRepository.flush();
+            return products;
+        });
+    }
+
+    /**
+     * The next batchSize products of the catalog, with a price each one does not have yet
+     */
+    private List<Product> nextUpdates() {
+        double price = 10_000 + next;
+        List<Product> updates = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            updates.add(Product.builder().id("product-" + (next++ % CATALOG_SIZE)).price(price).quantity(-1).build());
+        }
+        return updates;
+    }
+
+    @SpringBootConfiguration
+    @EnableAutoConfiguration
+    @EntityScan(basePackageClasses = Product.class)
+    @EnableJpaRepositories(basePackageClasses = ProductRepository.class)
+    @Import({ProductCatalogService.class, ProductChangeService.class})
+    static class ProductOutboxSlice {
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .include(ProductOutboxBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,148 @@
+package org.marzouki.benchmarks.repository;
+
+import org.marzouki.productservice.entities.Product;
+import org.marzouki.productservice.model.CatalogAggregates;
+import org.marzouki.productservice.repository.ProductRepository;
+import org.marzouki.shared.web.ResourceVersion;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.persistence.autoconfigure.EntityScan;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * product-service {@link ProductRepository} reads used on the request path (single lookups,
+ * batch lookups and conditional GET versions) against an H2 catalog of realistic size.
+ * Only the JPA slice of product-service is started.
+ * <p>
+ * Run alone from the repository root with:
+ * <pre>
+ * mvn -o -pl benchmarks -am -Pjmh process-classes -Djmh.args=ProductRepository
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductRepositoryBenchmark {
+
+    private static final int LOOKUP_COUNT = 1024;
+
+    private static final int BATCH_SIZE = 100;
+
+    @Param({"100000"})
+    private int catalogSize;
+
+    private ConfigurableApplicationContext context;
+
+    private ProductRepository productRepository;
+
+    private String[] lookups;
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(ProductJpaSlice.class)
+                .properties(RepositoryBenchmarks.properties("product-repository-benchmark"))
+                .run();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        Random random = new Random(42);
+        context.getBean(JdbcTemplate.class).batchUpdate(
+                "INSERT INTO product (id, name, description, price, quantity, date_creation, date_modification) " +
+                        "VALUES (?, ?, ?, ?, ?, ?, ?)",
+                IntStream.range(0, catalogSize).boxed().toList(), 10_000, (statement, i) -> {
+                    statement.setString(1, "product-" + i);
+                    statement.setString(2, "Product " + i);
+                    statement.setString(3, "Description of product " + i);
+                    statement.setDouble(4, 1 + random.nextInt(5_000));
+                    statement.setInt(5, random.nextInt(100));
+                    statement.setTimestamp(6, now);
+                    statement.setTimestamp(7, now);
+                });
+        productRepository = context.getBean(ProductRepository.class);
+
+        lookups = new String[LOOKUP_COUNT];
+        for (int i = 0; i < lookups.length; i++) {
+            lookups[i] = "product-" + random.nextInt(catalogSize);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Optional<Product> findById() {
+        return productRepository.findById(nextLookup());
+    }
+
+    @Benchmark
+    public List<Product> findAllById() {
+        List<String> ids = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            ids.add(nextLookup());
+        }
+        return productRepository.findAllById(ids);
+    }
+
+    @Benchmark
+    public Optional<ResourceVersion> findVersionById() {
+        return productRepository.findVersionById(nextLookup());
+    }
+
+    @Benchmark
+    public CatalogAggregates findCatalogAggregates() {
+        return productRepository.findCatalogAggregates();
+    }
+
+    private String nextLookup() {
+        return lookups[next++ & (LOOKUP_COUNT - 1)];
+    }
+
+    @SpringBootConfiguration
+    @EnableAutoConfiguration
+    @EntityScan(basePackageClasses = Product.class)
+    @EnableJpaRepositories(basePackageClasses = ProductRepository.class)
+    static class ProductJpaSlice {
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .include(ProductRepositoryBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
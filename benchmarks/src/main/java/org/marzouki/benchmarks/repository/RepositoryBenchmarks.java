@@ -0,0 +1,29 @@
+package org.marzouki.benchmarks.repository;
+
+/**
+ * Settings shared by the benchmarks starting a JPA slice of a service
+ */
+public final class RepositoryBenchmarks {
+
+    private RepositoryBenchmarks() {
+    }
+
+    /**
+     * Properties of a JPA-only context on a private in-memory H2 database. The services'
+     * application.properties are not loaded, nothing is registered with Eureka or the config server
+     * and the gateway on the classpath stays off.
+     */
+    public static String[] properties(String database) {
+        return new String[]{
+                "spring.config.name=benchmarks",
+                "spring.main.web-application-type=none",
+                "spring.cloud.config.enabled=false",
+                "spring.cloud.discovery.enabled=false",
+                "eureka.client.enabled=false",
+                "spring.cloud.gateway.server.webflux.enabled=false",
+                "spring.datasource.url=jdbc:h2:mem:" + database,
+                "spring.jpa.open-in-view=false",
+                "logging.level.root=WARN"
+        };
+    }
+}
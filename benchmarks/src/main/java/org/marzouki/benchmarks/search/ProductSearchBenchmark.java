@@ -0,0 +1,197 @@
+package org.marzouki.benchmarks.search;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.marzouki.benchmarks.repository.RepositoryBenchmarks;
+import org.marzouki.productservice.entities.Product;
+import org.marzouki.productservice.search.ProductSearchIndex;
+import org.marzouki.productservice.search.SearchHits;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.persistence.autoconfigure.EntityScan;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the product-service {@link ProductSearchIndex} with the equivalent JPA {@code LIKE}
+ * query over the same synthetic catalog, and measures replacing a product in the index, whose
+ * cost is dominated by removing its previous version from the postings of common terms. Only the
+ * JPA slice of product-service is started.
+ * <p>
+ * Run alone from the repository root with:
+ * <pre>
+ * mvn -o -pl benchmarks -am -Pjmh process-classes -Djmh.args="ProductSearch -p catalogSize=1000000"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductSearchBenchmark {
+
+    private static final int VOCABULARY_SIZE = 20_000;
+
+    private static final int QUERY_COUNT = 256;
+
+    @Param({"100000"})
+    private int catalogSize;
+
+    private ProductSearchIndex index;
+
+    private ConfigurableApplicationContext context;
+
+    private EntityManagerFactory entityManagerFactory;
+
+    private String[] queries;
+
+    private List<Product> catalog;
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        String[] vocabulary = new String[VOCABULARY_SIZE];
+        for (int i = 0; i < vocabulary.length; i++) {
+            vocabulary[i] = word(random, 4 + random.nextInt(7));
+        }
+
+        catalog = new ArrayList<>(catalogSize);
+        for (int i = 0; i < catalogSize; i++) {
+            catalog.add(Product.builder()
+                    .id("product-" + i)
+                    .name(sentence(random, vocabulary, 2 + random.nextInt(2)))
+                    .description(sentence(random, vocabulary, 6 + random.nextInt(6)))
+                    .price(1 + random.nextInt(5_000))
+                    .quantity(random.nextInt(100))
+                    .build());
+        }
+
+        index = new ProductSearchIndex();
+        catalog.forEach(index::index);
+
+        context = new SpringApplicationBuilder(ProductEntitySlice.class)
+                .properties(RepositoryBenchmarks.properties("search-benchmark"))
+                .run();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        context.getBean(JdbcTemplate.class).batchUpdate(
+                "INSERT INTO product (id, name, description, price, quantity, date_creation, date_modification) " +
+                        "VALUES (?, ?, ?, ?, ?, ?, ?)",
+                catalog, 10_000, (statement, product) -> {
+                    statement.setString(1, product.getId());
+                    statement.setString(2, product.getName());
+                    statement.setString(3, product.getDescription());
+                    statement.setDouble(4, product.getPrice());
+                    statement.setInt(5, product.getQuantity());
+                    statement.setTimestamp(6, now);
+                    statement.setTimestamp(7, now);
+                });
+        entityManagerFactory = context.getBean(EntityManagerFactory.class);
+
+        // A mix of exact words, prefixes and single-typo words
+        queries = new String[QUERY_COUNT];
+        for (int i = 0; i < queries.length; i++) {
+            String term = vocabulary[random.nextInt(vocabulary.length)];
+            queries[i] = switch (i % 3) {
+                case 0 -> term;
+                case 1 -> term.substring(0, 3);
+                default -> term.substring(0, 1) + term.substring(2);
+            };
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public SearchHits indexSearch() {
+        return index.search(nextQuery(), 0, 20);
+    }
+
+    @Benchmark
+    public List<Product> jpaLikeQuery() {
+        String pattern = "%" + nextQuery() + "%";
+        try (EntityManager entityManager = entityManagerFactory.createEntityManager()) {
+            return entityManager.createQuery(
+                            "SELECT p FROM Product p WHERE LOWER(p.name) LIKE :pattern OR LOWER(p.description) LIKE :pattern",
+                            Product.class)
+                    .setParameter("pattern", pattern)
+                    .setMaxResults(20)
+                    .getResultList();
+        }
+    }
+
+    @Benchmark
+    public int indexUpdate() {
+        index.index(catalog.get(next++ % catalogSize));
+        return index.size();
+    }
+
+    private String nextQuery() {
+        return queries[next++ & (QUERY_COUNT - 1)];
+    }
+
+    private static String word(Random random, int length) {
+        StringBuilder word = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            word.append((char) ('a' + random.nextInt(26)));
+        }
+        return word.toString();
+    }
+
+    private static String sentence(Random random, String[] vocabulary, int words) {
+        StringBuilder sentence = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                sentence.append(' ');
+            }
+            // Skewed towards the first words of the vocabulary, like real catalogs
+            double skew = random.nextDouble();
+            sentence.append(vocabulary[(int) (skew * skew * vocabulary.length)]);
+        }
+        return sentence.toString();
+    }
+
+    @SpringBootConfiguration
+    @EnableAutoConfiguration
+    @EntityScan(basePackageClasses = Product.class)
+    static class ProductEntitySlice {
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .include(ProductSearchBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,127 @@
+package org.marzouki.benchmarks.serialization;
+
+import org.marzouki.orderservice.entities.Bill;
+import org.marzouki.orderservice.entities.ProductItem;
+import org.marzouki.orderservice.model.Customer;
+import org.marzouki.orderservice.model.Product;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of enriched order-service {@link Bill} graphs, as returned by the order
+ * listing and detail endpoints: each bill carries its customer and product items, each item its
+ * product.
+ * <p>
+ * Run alone from the repository root with:
+ * <pre>
+ * mvn -o -pl benchmarks -am -Pjmh process-classes -Djmh.args=BillSerialization
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BillSerializationBenchmark {
+
+    /**
+     * Bills per page: a detail view, a default page and a large export chunk
+     */
+    @Param({"1", "20", "500"})
+    private int bills;
+
+    @Param({"3", "20"})
+    private int itemsPerBill;
+
+    private JsonMapper jsonMapper;
+
+    private List<Bill> page;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        jsonMapper = JsonMapper.builder().build();
+        Random random = new Random(42);
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+
+        page = new ArrayList<>(bills);
+        for (int i = 0; i < bills; i++) {
+            Customer customer = new Customer();
+            customer.setId((long) random.nextInt(10_000));
+            customer.setName("Customer " + customer.getId());
+            customer.setEmail("customer" + customer.getId() + "@example.com");
+
+            List<ProductItem> productItems = new ArrayList<>(itemsPerBill);
+            double total = 0;
+            for (int j = 0; j < itemsPerBill; j++) {
+                Product product = new Product();
+                product.setId("product-" + random.nextInt(100_000));
+                product.setName("Product " + product.getId());
+                product.setDescription("Description of " + product.getName() + " with a few more words in it");
+                product.setPrice(1 + random.nextInt(5_000));
+                product.setQuantity(random.nextInt(100));
+
+                int quantity = 1 + random.nextInt(5);
+                productItems.add(ProductItem.builder()
+                        .id((long) i * itemsPerBill + j)
+                        .productId(product.getId())
+                        .quantity(quantity)
+                        .unitPrice(product.getPrice())
+                        .totalPrice(quantity * product.getPrice())
+                        .product(product)
+                        .build());
+                total += quantity * product.getPrice();
+            }
+
+            Bill bill = Bill.builder()
+                    .id((long) i)
+                    .dateCommande(now.minusMinutes(i))
+                    .statut(Bill.OrderStatus.values()[random.nextInt(Bill.OrderStatus.values().length)])
+                    .clientId(String.valueOf(customer.getId()))
+                    .montantTotal(total)
+                    .productItems(productItems)
+                    .customer(customer)
+                    .enriched(true)
+                    .dateCreation(now.minusMinutes(i))
+                    .dateModification(now)
+                    .build();
+            productItems.forEach(productItem -> productItem.setBill(bill));
+            page.add(bill);
+        }
+    }
+
+    @Benchmark
+    public byte[] writeBills() {
+        return jsonMapper.writeValueAsBytes(page);
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .include(BillSerializationBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,110 @@
+package org.marzouki.benchmarks.serialization;
+
+import org.marzouki.customerservice.CustomerServiceApplication;
+import org.marzouki.customerservice.web.CustomerController;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * Compares one page of customers served as HAL by Spring Data REST with the same page served as
+ * plain JSON by customer-service {@link CustomerController}, from dispatch to the serialized body.
+ * Payload sizes are printed once per trial.
+ * <p>
+ * Run alone from the repository root with:
+ * <pre>
+ * mvn -o -pl benchmarks -am -Pjmh process-classes -Djmh.args="CustomerPayload -p pageSize=1000"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CustomerPayloadBenchmark {
+
+    @Param({"20", "500"})
+    private int pageSize;
+
+    private ConfigurableApplicationContext context;
+
+    private MockMvc mockMvc;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = new SpringApplicationBuilder(CustomerServiceApplication.class)
+                .properties("spring.config.name=benchmarks",
+                        "server.port=0",
+                        "spring.cloud.config.enabled=false",
+                        "spring.cloud.discovery.enabled=false",
+                        "eureka.client.enabled=false",
+                        "spring.cloud.gateway.server.webflux.enabled=false",
+                        "spring.data.rest.base-path=/api",
+                        "global.params.p1=p1",
+                        "global.params.p2=p2",
+                        "spring.datasource.url=jdbc:h2:mem:payload-benchmark",
+                        "logging.level.root=WARN")
+                .run();
+        List<Integer> customers = IntStream.range(0, pageSize).boxed().toList();
+        context.getBean(JdbcTemplate.class).batchUpdate("INSERT INTO customer (name, email) VALUES (?, ?)",
+                customers, 1_000, (statement, i) -> {
+                    statement.setString(1, "Customer " + i);
+                    statement.setString(2, "customer" + i + "@example.com");
+                });
+        mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context).build();
+
+        System.out.printf("%nHAL page: %d bytes, plain page: %d bytes%n", hal().length, plain().length);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public byte[] hal() throws Exception {
+        return mockMvc.perform(get("/api/customers").param("size", String.valueOf(pageSize)))
+                .andReturn().getResponse().getContentAsByteArray();
+    }
+
+    @Benchmark
+    public byte[] plain() throws Exception {
+        return mockMvc.perform(get("/api/customers/all").param("size", String.valueOf(pageSize)))
+                .andReturn().getResponse().getContentAsByteArray();
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .include(CustomerPayloadBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
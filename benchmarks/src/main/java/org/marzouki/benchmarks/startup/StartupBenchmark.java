@@ -0,0 +1,238 @@
+package org.marzouki.benchmarks.startup;
+
+import tools.jackson.databind.SerializationFeature;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Cold start of the services, measured as time-to-first-request: from launching a fresh JVM to
+ * the first response (any status below 500) on a request path of the service. Each service is
+ * started several times in each {@link Mode}, one at a time, from the application extracted by
+ * its -Paot build (target/aot). Run from the repository root with:
+ * <pre>
+ * mvn -pl product-service,order-service -Paot package -DskipTests
+ * mvn -o -pl benchmarks -am -Pstartup process-classes -Dstartup.args="--runs=10"
+ * </pre>
+ * The options are described in {@link StartupOptions}. The services start without the config
+ * server and Eureka, which they only report as unreachable.
+ */
+public class StartupBenchmark {
+
+    /**
+     * Request path answered by each service once it is up
+     */
+    static final Map<String, String> PROBES = Map.of(
+            "discovery-service", "/eureka/apps",
+            "config-service", "/actuator",
+            "gatewey-service", "/actuator",
+            "product-service", "/api/products",
+            "order-service", "/api/orders/stats",
+            "customer-service", "/actuator",
+            "inventory-service", "/actuator",
+            "billing-service", "/actuator");
+
+    /**
+     * Services whose -Paot build only writes the CDS archive: the Eureka server does not run from
+     * generated bean definitions, so there it is started without them and the aot mode is skipped
+     */
+    static final Set<String> CDS_ONLY = Set.of("discovery-service");
+
+    /**
+     * How a service is started. The three modes run the same artifact.
+     */
+    public enum Mode {
+        /**
+         * Plain JVM start, bean definitions computed at startup
+         */
+        DEFAULT(false, false),
+        /**
+         * Bean definitions generated at build time, with the aot Spring profile they were generated for
+         */
+        AOT(true, false),
+        /**
+         * AOT plus the CDS archive of the training run
+         */
+        AOT_CDS(true, true);
+
+        private final boolean aot;
+
+        private final boolean cds;
+
+        Mode(boolean aot, boolean cds) {
+            this.aot = aot;
+            this.cds = cds;
+        }
+
+        static Mode of(String name) {
+            return Arrays.stream(values())
+                    .filter(mode -> mode.label().equals(name))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("Unknown mode " + name + ", expected one of "
+                            + Arrays.stream(values()).map(Mode::label).toList()));
+        }
+
+        String label() {
+            return name().toLowerCase().replace('_', '-');
+        }
+    }
+
+    /**
+     * Time-to-first-request of one service in one mode, in milliseconds
+     */
+    public record Result(String service, String mode, List<Long> runs, long min, long median, long max) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        StartupOptions options = StartupOptions.parse(args);
+        List<Result> results = new ArrayList<>();
+        try (HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(1))
+                .build()) {
+            for (String service : options.services()) {
+                Path application = application(options.root(), service);
+                System.out.printf("%s: %s%n", service, application);
+                List<Mode> modes = options.modes().stream()
+                        .filter(mode -> mode != Mode.AOT || !CDS_ONLY.contains(service))
+                        .toList();
+                Map<Mode, List<Long>> runs = new LinkedHashMap<>();
+                modes.forEach(mode -> runs.put(mode, new ArrayList<>()));
+                // Modes take turns, so that a slower machine for a while weighs on all of them
+                for (int run = -options.warmupRuns(); run < options.runs(); run++) {
+                    for (Mode mode : modes) {
+                        long millis = start(client, application, service, mode, options.timeout());
+                        System.out.printf("  %-8s %s %6d ms%n", mode.label(), run < 0 ? "warmup" : "run   ", millis);
+                        if (run >= 0) {
+                            runs.get(mode).add(millis);
+                        }
+                    }
+                }
+                runs.forEach((mode, millis) -> results.add(result(service, mode, millis)));
+            }
+        }
+
+        print(results);
+        Path parent = options.report().toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Files.write(options.report(), JsonMapper.builder()
+                .enable(SerializationFeature.INDENT_OUTPUT)
+                .build()
+                .writeValueAsBytes(results));
+        System.out.println("Results written to " + options.report().toAbsolutePath());
+    }
+
+    /**
+     * Start the service, wait for its first response and stop it. Returns the elapsed milliseconds.
+     */
+    private static long start(HttpClient client, Path application, String service, Mode mode, Duration timeout)
+            throws IOException, InterruptedException {
+        int port = freePort();
+        boolean aot = mode.aot && !CDS_ONLY.contains(service);
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        if (aot) {
+            command.add("-Dspring.aot.enabled=true");
+        }
+        if (mode.cds) {
+            command.add("-XX:SharedArchiveFile=application.jsa");
+        }
+        command.add("-jar");
+        command.add(application.getFileName().toString());
+        command.add("--server.port=" + port);
+        if (aot) {
+            command.add("--spring.profiles.active=aot");
+        }
+        Path log = application.resolveSibling("startup-" + mode.label() + ".log");
+        HttpRequest probe = HttpRequest.newBuilder(URI.create("http://localhost:" + port + PROBES.get(service)))
+                .timeout(timeout)
+                .build();
+
+        long started = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .directory(application.getParent().toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+        try {
+            long deadline = started + timeout.toNanos();
+            while (System.nanoTime() < deadline) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException(service + " exited with " + process.exitValue() + ", see " + log);
+                }
+                try {
+                    if (client.send(probe, HttpResponse.BodyHandlers.discarding()).statusCode() < 500) {
+                        return (System.nanoTime() - started) / 1_000_000;
+                    }
+                } catch (IOException e) {
+                    // Not listening yet
+                }
+                Thread.sleep(5);
+            }
+            throw new IllegalStateException(service + " did not answer within " + timeout + ", see " + log);
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    /**
+     * The application jar extracted by the -Paot build of the module
+     */
+    private static Path application(Path root, String service) {
+        Path directory = root.resolve(service).resolve("target").resolve("aot");
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> jars = files.filter(file -> file.getFileName().toString().endsWith(".jar")).toList();
+            if (jars.size() != 1) {
+                throw new IllegalStateException("Expected one application jar in " + directory + ", found " + jars);
+            }
+            if (!Files.exists(directory.resolve("application.jsa"))) {
+                throw new IllegalStateException("No CDS archive in " + directory + ", build " + service + " with -Paot");
+            }
+            return jars.getFirst().toAbsolutePath();
+        } catch (IOException e) {
+            throw new UncheckedIOException("No extracted application in " + directory + ", build " + service
+                    + " with -Paot", e);
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static Result result(String service, Mode mode, List<Long> runs) {
+        List<Long> sorted = runs.stream().sorted().toList();
+        return new Result(service, mode.label(), runs, sorted.getFirst(), sorted.get(sorted.size() / 2), sorted.getLast());
+    }
+
+    private static void print(List<Result> results) {
+        System.out.printf("%-20s %-8s %9s %9s %9s %8s%n", "Service", "Mode", "min ms", "median ms", "max ms", "speedup");
+        Map<String, Long> baseline = new LinkedHashMap<>();
+        for (Result result : results) {
+            long first = baseline.computeIfAbsent(result.service(), service -> result.median());
+            System.out.printf("%-20s %-8s %9d %9d %9d %7.2fx%n", result.service(), result.mode(),
+                    result.min(), result.median(), result.max(), (double) first / result.median());
+        }
+    }
+}
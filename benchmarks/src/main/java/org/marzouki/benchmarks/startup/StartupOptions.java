@@ -0,0 +1,89 @@
+package org.marzouki.benchmarks.startup;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Settings of a startup benchmark run, given as {@code --name=value} arguments:
+ * <ul>
+ *     <li>{@code --services=product-service,order-service}: modules to start, each built with -Paot</li>
+ *     <li>{@code --modes=default,aot,aot-cds}: startup modes compared, see {@link StartupBenchmark.Mode}</li>
+ *     <li>{@code --runs=5}: measured starts per service and mode, after {@code --warmup-runs=1}</li>
+ *     <li>{@code --timeout=2m}: longest wait for the first response of one start</li>
+ *     <li>{@code --root=..}: repository root, where the modules are</li>
+ *     <li>{@code --report=target/startup-result.json}: where the results are written</li>
+ * </ul>
+ */
+public record StartupOptions(List<String> services,
+                             List<StartupBenchmark.Mode> modes,
+                             int runs,
+                             int warmupRuns,
+                             Duration timeout,
+                             Path root,
+                             Path report) {
+
+    public static StartupOptions parse(String... args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            values.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+
+        StartupOptions options = new StartupOptions(
+                services(values.getOrDefault("services", "product-service,order-service")),
+                modes(values.getOrDefault("modes", "default,aot,aot-cds")),
+                Integer.parseInt(values.getOrDefault("runs", "5")),
+                Integer.parseInt(values.getOrDefault("warmup-runs", "1")),
+                DurationStyle.detectAndParse(values.getOrDefault("timeout", "2m")),
+                Path.of(values.getOrDefault("root", "..")),
+                Path.of(values.getOrDefault("report", "target/startup-result.json")));
+        values.keySet().removeAll(Set.of("services", "modes", "runs", "warmup-runs", "timeout", "root", "report"));
+        if (!values.isEmpty()) {
+            throw new IllegalArgumentException("Unknown options " + values.keySet());
+        }
+        if (options.runs < 1 || options.warmupRuns < 0 || options.timeout.isNegative() || options.timeout.isZero()) {
+            throw new IllegalArgumentException("runs and timeout must be positive, warmup-runs not negative");
+        }
+        return options;
+    }
+
+    private static List<String> services(String value) {
+        List<String> services = new ArrayList<>();
+        for (String service : value.split(",")) {
+            if (!service.isBlank()) {
+                if (!StartupBenchmark.PROBES.containsKey(service.trim())) {
+                    throw new IllegalArgumentException("Unknown service " + service + ", expected one of "
+                            + StartupBenchmark.PROBES.keySet());
+                }
+                services.add(service.trim());
+            }
+        }
+        if (services.isEmpty()) {
+            throw new IllegalArgumentException("services must name at least one module");
+        }
+        return List.copyOf(services);
+    }
+
+    private static List<StartupBenchmark.Mode> modes(String value) {
+        List<StartupBenchmark.Mode> modes = new ArrayList<>();
+        for (String mode : value.split(",")) {
+            if (!mode.isBlank()) {
+                modes.add(StartupBenchmark.Mode.of(mode.trim()));
+            }
+        }
+        if (modes.isEmpty()) {
+            throw new IllegalArgumentException("modes must name at least one mode");
+        }
+        return List.copyOf(modes);
+    }
+}
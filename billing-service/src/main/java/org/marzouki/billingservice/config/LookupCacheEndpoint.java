@@ -0,0 +1,30 @@
+package org.marzouki.billingservice.config;
+
+import org.marzouki.billingservice.service.LookupCacheService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+/**
+ * Actuator endpoint to invalidate single lookup cache entries, e.g. right after a price change:
+ * DELETE /actuator/lookupcache/products/{productId} or /actuator/lookupcache/customers/{customerId}.
+ * Whole caches are cleared through the standard /actuator/caches endpoint.
+ */
+@Component
+@Endpoint(id = "lookupcache")
+public class LookupCacheEndpoint {
+
+    @Autowired
+    private LookupCacheService lookupCacheService;
+
+    @DeleteOperation
+    public void evict(@Selector String cache, @Selector String key) {
+        switch (cache) {
+            case LookupCacheService.CUSTOMERS -> lookupCacheService.evictCustomer(Long.parseLong(key));
+            case LookupCacheService.PRODUCTS -> lookupCacheService.evictProduct(key);
+            default -> throw new IllegalArgumentException("Unknown cache: " + cache);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package org.marzouki.billingservice.config;
+
+import org.springframework.cloud.openfeign.CircuitBreakerNameResolver;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class ResilienceConfig {
+
+    /**
+     * One circuit breaker and one bulkhead per Feign client (customer-service, inventory-service)
+     * instead of one per method, so that a dependency going down trips all of its calls at once.
+     * Thresholds and limits are set through the resilience4j.* properties.
+     */
+    @Bean
+    CircuitBreakerNameResolver circuitBreakerNameResolver() {
+        return (feignClientName, target, method) -> feignClientName;
+    }
+}
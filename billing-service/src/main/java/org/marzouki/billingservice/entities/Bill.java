@@ -8,13 +8,25 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_bill_customer_period", columnNames = {"customer_id", "billing_period"}))
 @NoArgsConstructor @AllArgsConstructor @Getter @Setter @Builder
 public class Bill {
-    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "bill_seq")
+    @SequenceGenerator(name = "bill_seq", sequenceName = "bill_seq", allocationSize = 50)
     private Long id;
     private Date billingDate;
     private long customerId;
-    @OneToMany(mappedBy = "bill")
+    /**
+     * Month invoiced by {@code InvoicingService}, as yyyy-MM
+     */
+    @Column(length = 7)
+    private String billingPeriod;
+    @OneToMany(mappedBy = "bill", cascade = CascadeType.ALL)
     private List<ProductItem> productItems = new ArrayList<>();
     @Transient private Customer customer;
+    /**
+     * False when customer or product details could not be resolved because a dependency is unavailable
+     */
+    @Transient private boolean enriched;
 }
@@ -0,0 +1,62 @@
+package org.marzouki.billingservice.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Progress of the invoicing of one month. The checkpoint is committed with every chunk of
+ * bills, so an interrupted run resumes with the first customer not billed yet.
+ */
+@Entity
+@Table(name = "invoice_runs")
+@NoArgsConstructor @AllArgsConstructor @Getter @Setter @Builder
+public class InvoiceRun {
+
+    /**
+     * Invoiced month, as yyyy-MM
+     */
+    @Id
+    @Column(length = 7)
+    private String period;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status;
+
+    /**
+     * Highest customer id billed so far, customers are walked in id order
+     */
+    private long lastCustomerId;
+
+    private long billsCreated;
+
+    private long itemsCreated;
+
+    private long chunks;
+
+    /**
+     * Time spent processing chunks, over all attempts
+     */
+    private long elapsedMillis;
+
+    private int attempts;
+
+    private Instant startedAt;
+
+    private Instant updatedAt;
+
+    private Instant finishedAt;
+
+    @Column(length = 1000)
+    private String error;
+
+    public double getBillsPerSecond() {
+        return elapsedMillis > 0 ? billsCreated * 1000.0 / elapsedMillis : 0;
+    }
+
+    public enum Status {
+        RUNNING, FAILED, COMPLETED
+    }
+}
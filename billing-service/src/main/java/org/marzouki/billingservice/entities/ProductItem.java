@@ -8,7 +8,9 @@ import org.marzouki.billingservice.model.Product;
 @Entity
 @Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
 public class ProductItem {
-    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "product_item_seq")
+    @SequenceGenerator(name = "product_item_seq", sequenceName = "product_item_seq", allocationSize = 50)
     private Long id;
     private String productId;
     @ManyToOne
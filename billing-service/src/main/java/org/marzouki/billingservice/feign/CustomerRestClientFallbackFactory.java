@@ -0,0 +1,26 @@
+package org.marzouki.billingservice.feign;
+
+import org.marzouki.billingservice.model.Customer;
+import org.springframework.cloud.openfeign.FallbackFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Component
+public class CustomerRestClientFallbackFactory implements FallbackFactory<CustomerRestClient> {
+
+    @Override
+    public CustomerRestClient create(Throwable cause) {
+        return new CustomerRestClient() {
+            @Override
+            public Customer getCustomerById(Long id) {
+                throw DependencyUnavailableException.of(CustomerRestClient.NAME, cause);
+            }
+
+            @Override
+            public List<Customer> getCustomersAfter(long after, int size) {
+                throw DependencyUnavailableException.of(CustomerRestClient.NAME, cause);
+            }
+        };
+    }
+}
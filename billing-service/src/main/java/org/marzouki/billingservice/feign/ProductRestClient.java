@@ -5,11 +5,19 @@ import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.hateoas.PagedModel;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
 
-@FeignClient(name = "inventory-service")
+@FeignClient(name = ProductRestClient.NAME, fallbackFactory = ProductRestClientFallbackFactory.class)
 public interface ProductRestClient {
+    String NAME = "inventory-service";
+
     @GetMapping("/api/products/{id}")
     Product getProductById(@PathVariable String id);
+
+    /**
+     * One page of the catalog; the service caps {@code size} at its largest page
+     */
     @GetMapping("/api/products")
-    PagedModel<Product> getAllProducts();
+    PagedModel<Product> getProducts(@RequestParam("page") int page, @RequestParam("size") int size,
+                                    @RequestParam("sort") String sort);
 }
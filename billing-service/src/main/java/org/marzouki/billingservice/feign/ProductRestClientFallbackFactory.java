@@ -0,0 +1,25 @@
+package org.marzouki.billingservice.feign;
+
+import org.marzouki.billingservice.model.Product;
+import org.springframework.cloud.openfeign.FallbackFactory;
+import org.springframework.hateoas.PagedModel;
+import org.springframework.stereotype.Component;
+
+@Component
+public class ProductRestClientFallbackFactory implements FallbackFactory<ProductRestClient> {
+
+    @Override
+    public ProductRestClient create(Throwable cause) {
+        return new ProductRestClient() {
+            @Override
+            public Product getProductById(String id) {
+                throw DependencyUnavailableException.of(ProductRestClient.NAME, cause);
+            }
+
+            @Override
+            public PagedModel<Product> getProducts(int page, int size, String sort) {
+                throw DependencyUnavailableException.of(ProductRestClient.NAME, cause);
+            }
+        };
+    }
+}
@@ -1,7 +1,18 @@
 package org.marzouki.billingservice.repository;
 
 import org.marzouki.billingservice.entities.Bill;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.util.Optional;
+
 public interface BillRepository  extends JpaRepository<Bill, Long> {
+
+    /**
+     * Bill with its product items fetched in the same statement
+     */
+    @EntityGraph(attributePaths = "productItems")
+    Optional<Bill> findWithItemsById(Long id);
+
+    long countByBillingPeriod(String billingPeriod);
 }
@@ -0,0 +1,18 @@
+package org.marzouki.billingservice.repository;
+
+import org.marzouki.billingservice.entities.InvoiceRun;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.rest.core.annotation.RepositoryRestResource;
+
+import java.util.List;
+
+/**
+ * Runs are started and read through /invoicing/runs only
+ */
+@RepositoryRestResource(exported = false)
+public interface InvoiceRunRepository extends JpaRepository<InvoiceRun, String> {
+
+    List<InvoiceRun> findByStatus(InvoiceRun.Status status);
+
+    List<InvoiceRun> findAllByOrderByPeriodDesc();
+}
@@ -0,0 +1,293 @@
+package org.marzouki.billingservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.marzouki.billingservice.entities.Bill;
+import org.marzouki.billingservice.entities.InvoiceRun;
+import org.marzouki.billingservice.entities.ProductItem;
+import org.marzouki.billingservice.feign.CustomerRestClient;
+import org.marzouki.billingservice.feign.ProductRestClient;
+import org.marzouki.billingservice.model.Customer;
+import org.marzouki.billingservice.model.Product;
+import org.marzouki.billingservice.repository.InvoiceRunRepository;
+import org.marzouki.shared.feign.KeysetPages;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.hateoas.PagedModel;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Invoicing job: bills every customer for a month, one bill per customer with one item per
+ * catalog product.
+ * <p>
+ * Customers are read from customer-service one keyset page per chunk, and the whole catalog page
+ * by page once per run, so nothing is looked up per customer. Each chunk is one transaction: its bills and items
+ * go out in JDBC batches (pooled sequence ids and {@code hibernate.jdbc.batch_size}) and the run's
+ * checkpoint moves in the same commit. A run that fails or dies with the process resumes after the
+ * last committed customer, without billing anyone twice. Chunk durations and created bills and
+ * items are published as {@code billing.invoicing.*} metrics.
+ */
+@Service
+public class InvoicingService {
+
+    private static final Logger log = LoggerFactory.getLogger(InvoicingService.class);
+
+    /**
+     * Largest page customer-service serves from /api/customers/all
+     */
+    static final int MAX_CHUNK_SIZE = 1000;
+
+    /**
+     * Largest page Spring Data REST serves by default
+     */
+    static final int CATALOG_PAGE_SIZE = 1000;
+
+    @Autowired
+    private CustomerRestClient customerRestClient;
+
+    @Autowired
+    private ProductRestClient productRestClient;
+
+    @Autowired
+    private InvoiceRunRepository invoiceRunRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final int chunkSize;
+
+    private final Timer chunkTimer;
+
+    private final Counter billsCounter;
+
+    private final Counter itemsCounter;
+
+    /**
+     * Runs are executed one at a time, in the order they were started
+     */
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    private final Set<String> activePeriods = ConcurrentHashMap.newKeySet();
+
+    public InvoicingService(PlatformTransactionManager transactionManager,
+                            MeterRegistry meterRegistry,
+                            @Value("${billing.invoicing.chunk-size:500}") int chunkSize) {
+        if (chunkSize < 1 || chunkSize > MAX_CHUNK_SIZE) {
+            throw new IllegalArgumentException("billing.invoicing.chunk-size must be between 1 and " + MAX_CHUNK_SIZE);
+        }
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.chunkTimer = Timer.builder("billing.invoicing.chunk")
+                .description("Time to bill one chunk of customers")
+                .register(meterRegistry);
+        this.billsCounter = Counter.builder("billing.invoicing.bills").register(meterRegistry);
+        this.itemsCounter = Counter.builder("billing.invoicing.items").register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public Optional<InvoiceRun> findRun(YearMonth period) {
+        return invoiceRunRepository.findById(period.toString());
+    }
+
+    public List<InvoiceRun> findRuns() {
+        return invoiceRunRepository.findAllByOrderByPeriodDesc();
+    }
+
+    /**
+     * Start or resume the invoicing of a month in the background and return its run as it is now.
+     * Completed runs and runs already in progress are returned as they are.
+     */
+    public InvoiceRun start(YearMonth period) {
+        String key = period.toString();
+        if (!activePeriods.add(key)) {
+            return findRun(period).orElseThrow();
+        }
+        try {
+            InvoiceRun run = begin(key);
+            if (run.getStatus() == InvoiceRun.Status.COMPLETED) {
+                activePeriods.remove(key);
+                return run;
+            }
+            executor.execute(() -> {
+                try {
+                    process(key);
+                } finally {
+                    activePeriods.remove(key);
+                }
+            });
+            return run;
+        } catch (RuntimeException e) {
+            activePeriods.remove(key);
+            throw e;
+        }
+    }
+
+    /**
+     * Invoice a month in the calling thread, resuming a previous attempt, and return the run once
+     * it completed or failed
+     */
+    public InvoiceRun run(YearMonth period) {
+        String key = period.toString();
+        if (!activePeriods.add(key)) {
+            throw new IllegalStateException("Invoicing of " + key + " is already in progress");
+        }
+        try {
+            if (begin(key).getStatus() != InvoiceRun.Status.COMPLETED) {
+                process(key);
+            }
+            return findRun(period).orElseThrow();
+        } finally {
+            activePeriods.remove(key);
+        }
+    }
+
+    /**
+     * Resume the runs left RUNNING by a process that stopped in the middle of them
+     */
+    public void resumeInterruptedRuns() {
+        invoiceRunRepository.findByStatus(InvoiceRun.Status.RUNNING).forEach(run -> {
+            log.info("Resuming invoicing of {} after customer {}", run.getPeriod(), run.getLastCustomerId());
+            start(YearMonth.parse(run.getPeriod()));
+        });
+    }
+
+    private InvoiceRun begin(String period) {
+        return transactionTemplate.execute(status -> {
+            Instant now = Instant.now();
+            InvoiceRun run = invoiceRunRepository.findById(period)
+                    .orElseGet(() -> InvoiceRun.builder().period(period).startedAt(now).build());
+            if (run.getStatus() != InvoiceRun.Status.COMPLETED) {
+                run.setStatus(InvoiceRun.Status.RUNNING);
+                run.setAttempts(run.getAttempts() + 1);
+                run.setError(null);
+                run.setUpdatedAt(now);
+            }
+            return invoiceRunRepository.save(run);
+        });
+    }
+
+    private void process(String period) {
+        try {
+            List<Product> products = loadCatalog();
+            if (products.isEmpty()) {
+                throw new IllegalStateException("The product catalog is empty");
+            }
+
+            long after = invoiceRunRepository.findById(period).orElseThrow().getLastCustomerId();
+            KeysetPages.forEach(after, chunkSize, customerRestClient::getCustomersAfter,
+                    customers -> billChunk(period, customers, products));
+
+            finish(period, InvoiceRun.Status.COMPLETED, null);
+            InvoiceRun run = findRun(YearMonth.parse(period)).orElseThrow();
+            log.info("Invoiced {}: {} bills, {} items in {} chunks, {} bills/s", period,
+                    run.getBillsCreated(), run.getItemsCreated(), run.getChunks(), Math.round(run.getBillsPerSecond()));
+        } catch (RuntimeException e) {
+            log.warn("Invoicing of {} stopped, it resumes from its last checkpoint when started again: {}",
+                    period, e.getMessage());
+            finish(period, InvoiceRun.Status.FAILED, e.getMessage());
+        }
+    }
+
+    /**
+     * Every product of inventory-service, in ID order. Pages are sorted by ID and read until the
+     * last page the service reports; a product moved to the next page by an insert is kept once.
+     */
+    private List<Product> loadCatalog() {
+        Map<String, Product> products = new TreeMap<>();
+        PagedModel<Product> page;
+        int number = 0;
+        do {
+            page = productRestClient.getProducts(number++, CATALOG_PAGE_SIZE, "id");
+            page.getContent().forEach(product -> products.putIfAbsent(product.getId(), product));
+        } while (page.getMetadata() != null && number < page.getMetadata().getTotalPages());
+        return new ArrayList<>(products.values());
+    }
+
+    /**
+     * Bill one page of customers and move the checkpoint past them, in one transaction.
+     * Returns the new checkpoint.
+     */
+    private long billChunk(String period, List<Customer> customers, List<Product> products) {
+        long start = System.nanoTime();
+        Date billingDate = new Date();
+        long items = (long) customers.size() * products.size();
+        long lastCustomerId = transactionTemplate.execute(status -> {
+            for (Customer customer : customers) {
+                Bill bill = Bill.builder()
+                        .billingDate(billingDate)
+                        .billingPeriod(period)
+                        .customerId(customer.getId())
+                        .productItems(new ArrayList<>(products.size()))
+                        .build();
+                for (Product product : products) {
+                    bill.getProductItems().add(ProductItem.builder()
+                            .bill(bill)
+                            .productId(product.getId())
+                            .quantity(1 + ThreadLocalRandom.current().nextInt(10))
+                            .unitPrice(product.getPrice())
+                            .build());
+                }
+                // Items are inserted with the bill through the cascade
+                entityManager.persist(bill);
+            }
+            entityManager.flush();
+            entityManager.clear();
+
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            InvoiceRun run = invoiceRunRepository.findById(period).orElseThrow();
+            run.setLastCustomerId(customers.getLast().getId());
+            run.setBillsCreated(run.getBillsCreated() + customers.size());
+            run.setItemsCreated(run.getItemsCreated() + items);
+            run.setChunks(run.getChunks() + 1);
+            run.setElapsedMillis(run.getElapsedMillis() + elapsedMillis);
+            run.setUpdatedAt(Instant.now());
+            return run.getLastCustomerId();
+        });
+        billsCounter.increment(customers.size());
+        itemsCounter.increment(items);
+        chunkTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return lastCustomerId;
+    }
+
+    private void finish(String period, InvoiceRun.Status status, String error) {
+        transactionTemplate.executeWithoutResult(tx -> {
+            InvoiceRun run = invoiceRunRepository.findById(period).orElseThrow();
+            Instant now = Instant.now();
+            run.setStatus(status);
+            run.setError(error != null && error.length() > 1000 ? error.substring(0, 1000) : error);
+            run.setUpdatedAt(now);
+            if (status == InvoiceRun.Status.COMPLETED) {
+                run.setFinishedAt(now);
+            }
+        });
+    }
+}
@@ -0,0 +1,75 @@
+package org.marzouki.billingservice.service;
+
+import feign.FeignException;
+import org.marzouki.billingservice.feign.CustomerRestClient;
+import org.marzouki.billingservice.feign.ProductRestClient;
+import org.marzouki.billingservice.model.Customer;
+import org.marzouki.billingservice.model.Product;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Near cache in front of {@link CustomerRestClient} (customer-service) and {@link ProductRestClient},
+ * which reads the product catalog from {@value ProductRestClient#NAME}.
+ * <p>
+ * Entries are {@link Optional}s so that unknown customers and products (404s) are cached as well
+ * and not retried on every request. Any other failure is propagated and never cached. Size, TTL
+ * and statistics come from {@code spring.cache.caffeine.spec}.
+ */
+@Service
+public class LookupCacheService {
+
+    public static final String CUSTOMERS = "customers";
+    public static final String PRODUCTS = "products";
+
+    @Autowired
+    private CustomerRestClient customerRestClient;
+
+    @Autowired
+    private ProductRestClient productRestClient;
+
+    private final Cache customers;
+
+    private final Cache products;
+
+    public LookupCacheService(CacheManager cacheManager) {
+        this.customers = cacheManager.getCache(CUSTOMERS);
+        this.products = cacheManager.getCache(PRODUCTS);
+    }
+
+    public Optional<Customer> findCustomer(long customerId) {
+        return cached(customers, customerId, () -> customerRestClient.getCustomerById(customerId));
+    }
+
+    public Optional<Product> findProduct(String productId) {
+        return cached(products, productId, () -> productRestClient.getProductById(productId));
+    }
+
+    public void evictCustomer(long customerId) {
+        customers.evict(customerId);
+    }
+
+    public void evictProduct(String productId) {
+        products.evict(productId);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Optional<T> cached(Cache cache, Object key, Supplier<T> loader) {
+        // Loaded outside the cache's compute so a slow call never blocks other keys
+        Optional<T> value = cache.get(key, Optional.class);
+        if (value == null) {
+            try {
+                value = Optional.ofNullable(loader.get());
+            } catch (FeignException.NotFound e) {
+                value = Optional.empty();
+            }
+            cache.put(key, value);
+        }
+        return value;
+    }
+}
@@ -1,15 +1,21 @@
 package org.marzouki.billingservice.web;
 
 import org.marzouki.billingservice.entities.Bill;
-import org.marzouki.billingservice.feign.CustomerRestClient;
-import org.marzouki.billingservice.feign.ProductRestClient;
+import org.marzouki.billingservice.entities.ProductItem;
+import org.marzouki.billingservice.feign.DependencyUnavailableException;
+import org.marzouki.billingservice.model.Product;
 import org.marzouki.billingservice.repository.BillRepository;
 import org.marzouki.billingservice.repository.ProductItemRepository;
+import org.marzouki.billingservice.service.LookupCacheService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
 @RestController
 public class BillRestController {
     @Autowired
@@ -17,16 +23,37 @@ public class BillRestController {
     @Autowired
     private ProductItemRepository productItemRepository;
     @Autowired
-    private CustomerRestClient customerRestClient;
-    @Autowired
-    private ProductRestClient productRestClient;
+    private LookupCacheService lookupCacheService;
+    /**
+     * GET /bills/{id} - Bill with its customer and product details. Details of an unavailable
+     * dependency are left out and the bill is returned with enriched = false. Items are fetched
+     * with the bill and each distinct product is looked up once.
+     */
     @GetMapping(path = "/bills/{id}")
     public Bill getBill(@PathVariable Long id){
-        Bill bill = billRepository.findById(id).get();
-        bill.setCustomer(customerRestClient.getCustomerById(bill.getCustomerId()));
-        bill.getProductItems().forEach(productItem -> {
-            productItem.setProduct(productRestClient.getProductById(productItem.getProductId()));
-        });
+        Bill bill = billRepository.findWithItemsById(id).get();
+        boolean enriched = true;
+        try {
+            bill.setCustomer(lookupCacheService.findCustomer(bill.getCustomerId()).orElse(null));
+        } catch (DependencyUnavailableException e) {
+            enriched = false;
+        }
+        Map<String, Optional<Product>> products = new HashMap<>();
+        for (ProductItem productItem : bill.getProductItems()) {
+            Optional<Product> product = products.get(productItem.getProductId());
+            if (product == null) {
+                try {
+                    product = lookupCacheService.findProduct(productItem.getProductId());
+                    products.put(productItem.getProductId(), product);
+                } catch (DependencyUnavailableException e) {
+                    // Not remembered: a bulkhead rejection may clear up for the next item
+                    enriched = false;
+                    continue;
+                }
+            }
+            productItem.setProduct(product.orElse(null));
+        }
+        bill.setEnriched(enriched);
         return bill;
     }
 }
@@ -0,0 +1,69 @@
+package org.marzouki.billingservice.web;
+
+import org.marzouki.billingservice.entities.InvoiceRun;
+import org.marzouki.billingservice.service.InvoicingService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+@RestController
+@RequestMapping("/invoicing/runs")
+public class InvoicingRestController {
+    @Autowired
+    private InvoicingService invoicingService;
+
+    /**
+     * GET /invoicing/runs - Every invoicing run, latest month first
+     */
+    @GetMapping
+    public List<InvoiceRun> getRuns() {
+        return invoicingService.findRuns();
+    }
+
+    /**
+     * GET /invoicing/runs/{period} - Progress and throughput of the invoicing of a month (yyyy-MM)
+     */
+    @GetMapping("/{period}")
+    public ResponseEntity<InvoiceRun> getRun(@PathVariable String period) {
+        YearMonth month = parse(period);
+        if (month == null) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+        return invoicingService.findRun(month)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).build());
+    }
+
+    /**
+     * POST /invoicing/runs/{period} - Invoice a month (yyyy-MM) in the background, or resume its
+     * failed run. Answers 202 with the run to poll, or 200 when the month is already invoiced.
+     * Future months cannot be invoiced.
+     */
+    @PostMapping("/{period}")
+    public ResponseEntity<InvoiceRun> startRun(@PathVariable String period) {
+        YearMonth month = parse(period);
+        if (month == null || month.isAfter(YearMonth.now())) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+        InvoiceRun run = invoicingService.start(month);
+        HttpStatus status = run.getStatus() == InvoiceRun.Status.COMPLETED ? HttpStatus.OK : HttpStatus.ACCEPTED;
+        return ResponseEntity.status(status).body(run);
+    }
+
+    private static YearMonth parse(String period) {
+        try {
+            return YearMonth.parse(period);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+-- Schema of the billing entities, applied by Flyway in the persistent profile
+
+create sequence bill_seq start with 1 increment by 50;
+
+create sequence product_item_seq start with 1 increment by 50;
+
+create table bill (
+    id bigint not null,
+    billing_date timestamp(6),
+    billing_period varchar(7),
+    customer_id bigint not null,
+    primary key (id),
+    constraint uk_bill_customer_period unique (customer_id, billing_period)
+);
+
+create table product_item (
+    id bigint not null,
+    bill_id bigint,
+    product_id varchar(255),
+    quantity integer not null,
+    unit_price float(53) not null,
+    primary key (id),
+    constraint fk_product_item_bill foreign key (bill_id) references bill
+);
+
+-- Checkpoints of the invoicing job
+create table invoice_runs (
+    period varchar(7) not null,
+    status enum ('COMPLETED','FAILED','RUNNING') not null,
+    last_customer_id bigint not null,
+    bills_created bigint not null,
+    items_created bigint not null,
+    chunks bigint not null,
+    elapsed_millis bigint not null,
+    attempts integer not null,
+    started_at timestamp(6) with time zone,
+    updated_at timestamp(6) with time zone,
+    finished_at timestamp(6) with time zone,
+    error varchar(1000),
+    primary key (period)
+);
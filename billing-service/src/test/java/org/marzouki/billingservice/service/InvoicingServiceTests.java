@@ -0,0 +1,197 @@
+package org.marzouki.billingservice.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.marzouki.billingservice.entities.InvoiceRun;
+import org.marzouki.billingservice.feign.CustomerRestClient;
+import org.marzouki.billingservice.feign.DependencyUnavailableException;
+import org.marzouki.billingservice.feign.ProductRestClient;
+import org.marzouki.billingservice.model.Customer;
+import org.marzouki.billingservice.model.Product;
+import org.marzouki.billingservice.repository.BillRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.hateoas.PagedModel;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(properties = {
+        "eureka.client.enabled=false",
+        "spring.cloud.config.enabled=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "billing.invoicing.on-startup=false",
+        "billing.invoicing.chunk-size=500"
+})
+class InvoicingServiceTests {
+
+    private static final int CUSTOMERS = 2_300;
+
+    private static final int PRODUCTS = 5;
+
+    /**
+     * Default page size of Spring Data REST, which inventory-service serves its catalog with
+     */
+    private static final int PRODUCT_PAGE_SIZE = 20;
+
+    @Autowired
+    private InvoicingService invoicingService;
+
+    @Autowired
+    private BillRepository billRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @MockitoBean
+    private CustomerRestClient customerRestClient;
+
+    @MockitoBean
+    private ProductRestClient productRestClient;
+
+    /**
+     * customer-service fails once when asked for the customers after this id, 0 for never
+     */
+    private final AtomicLong failAfter = new AtomicLong();
+
+    private final AtomicLong customerPages = new AtomicLong();
+
+    @BeforeEach
+    void stubServices() {
+        stubCatalog(PRODUCTS);
+        when(customerRestClient.getCustomersAfter(anyLong(), anyInt())).thenAnswer(invocation -> {
+            long after = invocation.getArgument(0);
+            int size = invocation.getArgument(1);
+            customerPages.incrementAndGet();
+            if (after != 0 && failAfter.compareAndSet(after, 0)) {
+                throw new DependencyUnavailableException(CustomerRestClient.NAME, new IllegalStateException("connection reset"));
+            }
+            List<Customer> page = new ArrayList<>();
+            for (long id = after + 1; id <= Math.min(after + size, CUSTOMERS); id++) {
+                Customer customer = new Customer();
+                customer.setId(id);
+                page.add(customer);
+            }
+            return page;
+        });
+    }
+
+    /**
+     * inventory-service with a catalog of that many products, served in pages of at most
+     * PRODUCT_PAGE_SIZE whatever size is asked for
+     */
+    private void stubCatalog(int count) {
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Product product = new Product();
+            product.setId("product-" + i);
+            product.setPrice(10 + i);
+            products.add(product);
+        }
+        products.sort(Comparator.comparing(Product::getId));
+        when(productRestClient.getProducts(anyInt(), anyInt(), eq("id"))).thenAnswer(invocation -> {
+            int number = invocation.getArgument(0);
+            int size = Math.min(invocation.getArgument(1), PRODUCT_PAGE_SIZE);
+            List<Product> page = products.subList(Math.min(number * size, count), Math.min((number + 1) * size, count));
+            return PagedModel.of(page, new PagedModel.PageMetadata(size, number, count));
+        });
+    }
+
+    @Test
+    void monthIsInvoicedInChunksWithBatchedInserts() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        double billsBefore = meterRegistry.counter("billing.invoicing.bills").count();
+        long chunksBefore = meterRegistry.timer("billing.invoicing.chunk").count();
+
+        InvoiceRun run = invoicingService.run(YearMonth.of(2026, 1));
+
+        assertEquals(InvoiceRun.Status.COMPLETED, run.getStatus());
+        assertEquals(CUSTOMERS, run.getBillsCreated());
+        assertEquals((long) CUSTOMERS * PRODUCTS, run.getItemsCreated());
+        assertEquals(5, run.getChunks());
+        assertEquals(CUSTOMERS, run.getLastCustomerId());
+        assertNotNull(run.getFinishedAt());
+        assertTrue(run.getBillsPerSecond() > 0);
+        assertEquals(CUSTOMERS, billRepository.countByBillingPeriod("2026-01"));
+        assertEquals(CUSTOMERS, meterRegistry.counter("billing.invoicing.bills").count() - billsBefore);
+        assertEquals(5, meterRegistry.timer("billing.invoicing.chunk").count() - chunksBefore);
+        // Bills, their items and the run; one statement per JDBC batch of 50 plus pooled sequence calls
+        assertEquals((long) CUSTOMERS * (PRODUCTS + 1) + 1, statistics.getEntityInsertCount());
+        assertTrue(statistics.getPrepareStatementCount() < 1_000,
+                "prepared statements: " + statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void failedRunResumesAfterItsLastCommittedChunk() {
+        YearMonth period = YearMonth.of(2026, 2);
+        failAfter.set(1_000);
+
+        InvoiceRun failed = invoicingService.run(period);
+
+        assertEquals(InvoiceRun.Status.FAILED, failed.getStatus());
+        assertEquals(1_000, failed.getLastCustomerId());
+        assertEquals(1_000, failed.getBillsCreated());
+        assertNotNull(failed.getError());
+        assertEquals(1_000, billRepository.countByBillingPeriod(period.toString()));
+
+        InvoiceRun resumed = invoicingService.run(period);
+
+        assertEquals(InvoiceRun.Status.COMPLETED, resumed.getStatus());
+        assertEquals(2, resumed.getAttempts());
+        assertNull(resumed.getError());
+        assertEquals(CUSTOMERS, resumed.getBillsCreated());
+        assertEquals(CUSTOMERS, billRepository.countByBillingPeriod(period.toString()));
+        assertEquals(CUSTOMERS, jdbcTemplate.queryForObject(
+                "SELECT COUNT(DISTINCT customer_id) FROM bill WHERE billing_period = ?", Long.class, period.toString()));
+    }
+
+    @Test
+    void everyPageOfTheCatalogIsBilled() {
+        int products = 2 * PRODUCT_PAGE_SIZE + 5;
+        stubCatalog(products);
+        YearMonth period = YearMonth.of(2026, 4);
+
+        InvoiceRun run = invoicingService.run(period);
+
+        assertEquals(InvoiceRun.Status.COMPLETED, run.getStatus());
+        assertEquals((long) CUSTOMERS * products, run.getItemsCreated());
+        assertEquals(products, jdbcTemplate.queryForObject("SELECT COUNT(DISTINCT i.product_id) FROM product_item i " +
+                "JOIN bill b ON b.id = i.bill_id WHERE b.billing_period = ?", Long.class, period.toString()));
+    }
+
+    @Test
+    void completedMonthIsNotInvoicedAgain() {
+        YearMonth period = YearMonth.of(2026, 3);
+        invoicingService.run(period);
+        long pages = customerPages.get();
+
+        InvoiceRun again = invoicingService.run(period);
+
+        assertEquals(InvoiceRun.Status.COMPLETED, again.getStatus());
+        assertEquals(1, again.getAttempts());
+        assertEquals(pages, customerPages.get());
+        assertEquals(CUSTOMERS, billRepository.countByBillingPeriod(period.toString()));
+    }
+}
@@ -3,6 +3,7 @@ package org.marzouki.customerservice;
 import org.marzouki.customerservice.config.CustomerConfigParams;
 import org.marzouki.customerservice.entities.Customer;
 import org.marzouki.customerservice.repository.CustomerRepository;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
@@ -17,25 +18,41 @@ public class CustomerServiceApplication {
 		SpringApplication.run(CustomerServiceApplication.class, args);
 	}
 
+	/**
+	 * Seed a few customers into an empty database; a persistent database keeps its data. With
+	 * seed.deferred the runner only starts the seeding on a background thread
+	 */
 	@Bean
-	CommandLineRunner commandLineRunner(CustomerRepository customerRepository ){
+	CommandLineRunner commandLineRunner(CustomerRepository customerRepository,
+										@Value("${seed.deferred:false}") boolean deferred){
 		return args -> {
-			customerRepository.save(Customer.builder()
-							.name("Mohamed").email("med@gmail.com")
-					.build());
-			customerRepository.save(Customer.builder()
-					.name("Imane").email("imane@gmail.com")
-					.build());
-			customerRepository.save(Customer.builder()
-					.name("Yassine").email("yassine@gmail.com")
-					.build());
-			customerRepository.findAll().forEach(c->{
-				System.out.println("======================");
-				System.out.println(c.getId());
-				System.out.println(c.getName());
-				System.out.println(c.getEmail());
-				System.out.println("=======================");
-			});
+			Runnable seeding = () -> {
+				if (customerRepository.count() > 0) {
+					System.out.println("✓ Customer Service: Existing data found, seeding skipped");
+					return;
+				}
+				customerRepository.save(Customer.builder()
+								.name("Mohamed").email("med@gmail.com")
+						.build());
+				customerRepository.save(Customer.builder()
+						.name("Imane").email("imane@gmail.com")
+						.build());
+				customerRepository.save(Customer.builder()
+						.name("Yassine").email("yassine@gmail.com")
+						.build());
+				customerRepository.findAll().forEach(c->{
+					System.out.println("======================");
+					System.out.println(c.getId());
+					System.out.println(c.getName());
+					System.out.println(c.getEmail());
+					System.out.println("=======================");
+				});
+			};
+			if (deferred) {
+				Thread.ofVirtual().name("seeding").start(seeding);
+			} else {
+				seeding.run();
+			}
 		};
 	}
 
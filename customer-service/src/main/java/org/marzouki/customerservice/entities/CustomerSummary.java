@@ -0,0 +1,9 @@
+package org.marzouki.customerservice.entities;
+
+/**
+ * Compact customer representation served as plain JSON outside Spring Data REST.
+ * Spring Data selects only these columns when it is used as a query return type.
+ */
+public interface CustomerSummary extends CustomerProjection {
+    Long getId();
+}
@@ -1,9 +1,24 @@
 package org.marzouki.customerservice.repository;
 
 import org.marzouki.customerservice.entities.Customer;
+import org.marzouki.customerservice.entities.CustomerSummary;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.rest.core.annotation.RepositoryRestResource;
+import org.springframework.data.rest.core.annotation.RestResource;
+
+import java.util.Collection;
+import java.util.List;
 
 @RepositoryRestResource
 public interface CustomerRepository extends JpaRepository<Customer, Long> {
+
+    @RestResource(exported = false)
+    List<CustomerSummary> findByIdInOrderByIdAsc(Collection<Long> ids);
+
+    /**
+     * Keyset page: the customers whose id follows {@code after}, in id order
+     */
+    @RestResource(exported = false)
+    List<CustomerSummary> findByIdGreaterThanOrderByIdAsc(Long after, Limit limit);
 }
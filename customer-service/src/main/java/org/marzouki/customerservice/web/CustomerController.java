@@ -0,0 +1,73 @@
+package org.marzouki.customerservice.web;
+
+import org.marzouki.customerservice.entities.CustomerSummary;
+import org.marzouki.customerservice.repository.CustomerRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.rest.webmvc.RepositoryRestController;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Plain JSON reads for service-to-service callers. Registered with Spring Data REST, under its base
+ * path, so that the HAL resources on the same paths keep serving every other request.
+ */
+@RepositoryRestController
+@CrossOrigin(origins = "*", exposedHeaders = CustomerController.NEXT_CURSOR_HEADER)
+public class CustomerController {
+
+    /**
+     * Upper bound on the number of ids accepted by a single multi-get
+     */
+    static final int MAX_BATCH_SIZE = 500;
+
+    static final int DEFAULT_PAGE_SIZE = 500;
+
+    static final int MAX_PAGE_SIZE = 1000;
+
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    /**
+     * GET /api/customers?ids=1,2,3 - Get the customers matching a set of IDs in one call.
+     * Unknown IDs are simply absent from the response.
+     */
+    @GetMapping(path = "/customers", params = "ids")
+    public ResponseEntity<List<CustomerSummary>> getCustomersByIds(@RequestParam Set<Long> ids) {
+        if (ids.size() > MAX_BATCH_SIZE) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+        if (ids.isEmpty()) {
+            return ResponseEntity.ok(List.of());
+        }
+        return ResponseEntity.ok(customerRepository.findByIdInOrderByIdAsc(ids));
+    }
+
+    /**
+     * GET /api/customers/all?after=&size= - Walk through every customer in id order.
+     * Each page is an index seek past the last id of the previous one, so late pages cost the same
+     * as the first. The id to pass as {@code after} for the next page is returned in the
+     * X-Next-Cursor header, which is absent on the last page.
+     */
+    @GetMapping("/customers/all")
+    public ResponseEntity<List<CustomerSummary>> getAllCustomers(
+            @RequestParam(defaultValue = "0") long after,
+            @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+        List<CustomerSummary> customers = customerRepository.findByIdGreaterThanOrderByIdAsc(after, Limit.of(size));
+        if (customers.size() < size) {
+            return ResponseEntity.ok(customers);
+        }
+        return ResponseEntity.ok()
+                .header(NEXT_CURSOR_HEADER, String.valueOf(customers.getLast().getId()))
+                .body(customers);
+    }
+}
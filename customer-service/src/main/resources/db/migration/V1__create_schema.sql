@@ -0,0 +1,8 @@
+-- Schema of the customer entities, applied by Flyway in the persistent profile
+
+create table customer (
+    id bigint generated by default as identity,
+    email varchar(255),
+    name varchar(255),
+    primary key (id)
+);
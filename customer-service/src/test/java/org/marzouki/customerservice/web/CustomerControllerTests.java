@@ -0,0 +1,116 @@
+package org.marzouki.customerservice.web;
+
+import org.junit.jupiter.api.Test;
+import org.marzouki.customerservice.entities.Customer;
+import org.marzouki.customerservice.repository.CustomerRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.annotation.DirtiesContext;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "eureka.client.enabled=false",
+        "spring.cloud.config.enabled=false",
+        "spring.data.rest.base-path=/api",
+        "global.params.p1=p1",
+        "global.params.p2=p2"
+})
+@DirtiesContext
+class CustomerControllerTests {
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private JsonMapper jsonMapper;
+
+    @Test
+    void multiGetReturnsPlainJsonForKnownIds() throws Exception {
+        Long first = save("multi-1");
+        Long second = save("multi-2");
+
+        HttpResponse<String> response = get("/api/customers?ids=" + second + "," + first + ",999999");
+
+        assertEquals(200, response.statusCode());
+        JsonNode customers = jsonMapper.readTree(response.body());
+        assertEquals(2, customers.size());
+        assertEquals(first, customers.get(0).get("id").asLong());
+        assertEquals("multi-1", customers.get(0).get("name").asString());
+        assertEquals("multi-1@example.com", customers.get(0).get("email").asString());
+        assertFalse(response.body().contains("_links"));
+        assertEquals(400, get("/api/customers?ids=a,b").statusCode());
+    }
+
+    @Test
+    void halResourcesAreStillServed() throws Exception {
+        Long id = save("hal");
+
+        assertTrue(get("/api/customers").body().contains("_embedded"));
+        HttpResponse<String> single = get("/api/customers/" + id);
+        assertEquals(200, single.statusCode());
+        assertTrue(single.body().contains("_links"));
+    }
+
+    @Test
+    void allCustomersCanBeWalkedPageByPage() throws Exception {
+        for (int i = 0; i < 7; i++) {
+            save("page-" + i);
+        }
+
+        List<Long> ids = new ArrayList<>();
+        String after = "0";
+        int pages = 0;
+        while (after != null) {
+            HttpResponse<String> response = get("/api/customers/all?size=3&after=" + after);
+            assertEquals(200, response.statusCode());
+            jsonMapper.readTree(response.body()).forEach(customer -> ids.add(customer.get("id").asLong()));
+            Optional<String> next = response.headers().firstValue(CustomerController.NEXT_CURSOR_HEADER);
+            after = next.orElse(null);
+            pages++;
+        }
+
+        assertEquals(customerRepository.count(), ids.size());
+        assertEquals(ids.stream().sorted().distinct().toList(), ids);
+        assertEquals((ids.size() + 3) / 3, pages);
+        assertEquals(400, get("/api/customers/all?size=0").statusCode());
+    }
+
+    @Test
+    void plainPageIsSmallerThanTheHalPage() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            save("size-" + i);
+        }
+        int count = (int) customerRepository.count();
+
+        int hal = get("/api/customers?size=" + count).body().length();
+        int plain = get("/api/customers/all?size=" + count).body().length();
+
+        assertTrue(plain * 2 < hal, "plain " + plain + " bytes vs HAL " + hal + " bytes");
+    }
+
+    private Long save(String name) {
+        return customerRepository.save(Customer.builder().name(name).email(name + "@example.com").build()).getId();
+    }
+
+    private HttpResponse<String> get(String path) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).GET().build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,49 @@
+package org.marzouki.datasetgenerator;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * Customers 1..n of customer-service. Their ids are the client ids of the generated orders.
+ */
+final class CustomerDataset {
+
+    private static final String[] FIRST_NAMES = {"Mohamed", "Imane", "Yassine", "Sara", "Omar", "Salma", "Youssef",
+            "Khadija", "Amine", "Nour", "Hamza", "Aya", "Mehdi", "Hiba", "Adam", "Lina", "Karim", "Meryem", "Anas", "Rim"};
+
+    private static final String[] LAST_NAMES = {"Alaoui", "Bennani", "Chraibi", "Idrissi", "El Amrani", "Tazi",
+            "Berrada", "Fassi", "Lahlou", "Benjelloun", "Squalli", "Kettani", "Naciri", "Ouazzani", "Sebti", "Zniber"};
+
+    private CustomerDataset() {
+    }
+
+    /**
+     * Insert the customers and move the identity past them. Returns the number of rows.
+     */
+    static long write(Connection connection, int customers, int batchSize, SplittableRandom random) throws SQLException {
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO customer (id, name, email) VALUES (?, ?, ?)")) {
+            for (int id = 1; id <= customers; id++) {
+                String firstName = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+                String lastName = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+                insert.setLong(1, id);
+                insert.setString(2, firstName + " " + lastName);
+                insert.setString(3, (firstName + "." + lastName).replace(' ', '-').toLowerCase(Locale.ROOT) + "." + id + "@example.com");
+                insert.addBatch();
+                if (id % batchSize == 0) {
+                    insert.executeBatch();
+                    connection.commit();
+                }
+            }
+            insert.executeBatch();
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ALTER TABLE customer ALTER COLUMN id RESTART WITH " + (customers + 1));
+        }
+        connection.commit();
+        return customers;
+    }
+}
@@ -0,0 +1,193 @@
+package org.marzouki.datasetgenerator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The services' file-backed H2 databases, named as in their application-persistent.properties.
+ * Each service ships its migrations at the same path, so they are read from the jar (or classes
+ * directory) of the service's application class.
+ */
+final class Databases {
+
+    static final String CUSTOMERS = "customers-db";
+    static final String PRODUCTS = "products-db";
+    static final String ORDERS = "orders-db";
+
+    /**
+     * Migration the schema is created from. The services' Flyway baselines a database it did not
+     * create at version 1, so this must stay the V1 script.
+     */
+    private static final String SCHEMA = "db/migration/V1__create_schema.sql";
+
+    private Databases() {
+    }
+
+    /**
+     * Create a database with the V1 schema, minus its secondary indexes: they are cheaper to
+     * build once the rows are in, see {@link Schema#createIndexes}
+     *
+     * @throws IllegalStateException if the database exists and {@code replace} is off
+     */
+    static Schema create(Path storageDir, String name, Class<?> service, boolean replace) throws SQLException {
+        Path file = storageDir.resolve(name + ".mv.db");
+        try {
+            if (Files.exists(file)) {
+                if (!replace) {
+                    throw new IllegalStateException(file.toAbsolutePath() + " exists, pass --replace=true to overwrite it");
+                }
+                Files.delete(file);
+                Files.deleteIfExists(storageDir.resolve(name + ".trace.db"));
+            }
+            Files.createDirectories(storageDir);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        String url = url(storageDir, name);
+        Connection connection = DriverManager.getConnection(url);
+        List<String> indexes = new ArrayList<>();
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : statements(service, SCHEMA)) {
+                if (sql.toLowerCase().startsWith("create index")) {
+                    indexes.add(sql);
+                } else {
+                    statement.execute(sql);
+                }
+            }
+        }
+        connection.setAutoCommit(false);
+        return new Schema(url, connection, indexes);
+    }
+
+    static String url(Path storageDir, String name) {
+        // A larger cache than the services' while loading: the indexes are built from it
+        return "jdbc:h2:file:" + storageDir.toAbsolutePath().resolve(name) + ";CACHE_SIZE=262144";
+    }
+
+    /**
+     * The statements of a script of the service's jar, without comments
+     */
+    private static List<String> statements(Class<?> service, String resource) {
+        URI location;
+        try {
+            location = service.getProtectionDomain().getCodeSource().getLocation().toURI();
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot locate the classes of " + service.getName(), e);
+        }
+        URI source = location.getPath().endsWith(".jar")
+                ? URI.create("jar:" + location + "!/" + resource)
+                : location.resolve(resource);
+        try (InputStream input = source.toURL().openStream()) {
+            StringBuilder script = new StringBuilder();
+            for (String line : new String(input.readAllBytes(), StandardCharsets.UTF_8).split("\n")) {
+                if (!line.strip().startsWith("--")) {
+                    script.append(line).append('\n');
+                }
+            }
+            List<String> statements = new ArrayList<>();
+            for (String sql : script.toString().split(";")) {
+                if (!sql.isBlank()) {
+                    statements.add(sql.strip());
+                }
+            }
+            return statements;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * An open database being loaded, with the index definitions still to apply
+     */
+    static final class Schema implements AutoCloseable {
+
+        private static final Pattern INDEXED_TABLE = Pattern.compile("create index \\S+ on (\\S+)", Pattern.CASE_INSENSITIVE);
+
+        private final String url;
+
+        private final Connection connection;
+
+        private final List<String> indexes;
+
+        private long indexingNanos;
+
+        private Schema(String url, Connection connection, List<String> indexes) {
+            this.url = url;
+            this.connection = connection;
+            this.indexes = indexes;
+        }
+
+        Connection connection() {
+            return connection;
+        }
+
+        /**
+         * Another connection to the database, without auto-commit, to load a table on another thread
+         */
+        Connection openConnection() throws SQLException {
+            Connection other = DriverManager.getConnection(url);
+            other.setAutoCommit(false);
+            return other;
+        }
+
+        /**
+         * Build the indexes of one table, once its rows are in, while other tables still load
+         */
+        void createIndexes(String table) throws SQLException {
+            List<String> built = new ArrayList<>();
+            for (String sql : indexes) {
+                Matcher matcher = INDEXED_TABLE.matcher(sql);
+                if (matcher.find() && matcher.group(1).equalsIgnoreCase(table)) {
+                    built.add(sql);
+                }
+            }
+            execute(built);
+        }
+
+        /**
+         * Build the indexes not built yet
+         */
+        void createIndexes() throws SQLException {
+            execute(List.copyOf(indexes));
+        }
+
+        /**
+         * Time spent building indexes so far
+         */
+        Duration indexing() {
+            return Duration.ofNanos(indexingNanos);
+        }
+
+        private void execute(List<String> built) throws SQLException {
+            long started = System.nanoTime();
+            try (Statement statement = connection.createStatement()) {
+                for (String sql : built) {
+                    statement.execute(sql);
+                }
+            }
+            connection.commit();
+            indexes.removeAll(built);
+            indexingNanos += System.nanoTime() - started;
+        }
+
+        @Override
+        public void close() throws SQLException {
+            connection.close();
+        }
+    }
+}
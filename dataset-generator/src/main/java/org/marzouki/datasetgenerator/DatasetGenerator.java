@@ -0,0 +1,134 @@
+package org.marzouki.datasetgenerator;
+
+import org.marzouki.customerservice.CustomerServiceApplication;
+import org.marzouki.orderservice.OrderServiceApplication;
+import org.marzouki.productservice.ProductServiceApplication;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Writes the customer-service, product-service and order-service databases of the persistent
+ * profile with a synthetic but realistic dataset: skewed product popularity and customer
+ * activity, heavy-tailed order sizes and several years of order history. The services start on
+ * it as on their own data. Run from the repository root with:
+ * <pre>
+ * mvn -o -pl dataset-generator -am -Pgenerate process-classes \
+ *     -Dgenerator.args="--orders=1000000 --replace=true"
+ * </pre>
+ * which writes into dataset-generator/data, then start each service with
+ * {@code --spring.profiles.active=persistent --storage.dir=<path of that directory>}.
+ * The options are described in {@link GeneratorOptions}.
+ * <p>
+ * The databases load in parallel, and the orders database on three threads: one generates the
+ * rows while the orders and the items are inserted on connections of their own, and the orders
+ * indexes are built while the items still load. Most of the time goes to H2 itself: maintaining
+ * the primary and foreign key indexes on insert, committing every batch, which revisits each row,
+ * and building the secondary indexes. Generating the rows is a small part of it. With a core per
+ * thread the run takes about as long as the orders load and index builds alone; on a single core
+ * the threads add nothing and the run is as long as the work of all of them. H2's own bulk paths
+ * (INSERT ... SELECT, CREATE TABLE ... AS SELECT) are slower than these batches, their single
+ * transaction costing more to commit.
+ */
+public class DatasetGenerator {
+
+    public static void main(String[] args) throws Exception {
+        GeneratorOptions options = GeneratorOptions.parse(args);
+        System.out.printf("Generating %s into %s with seed %d%n",
+                options.services(), options.storageDir().toAbsolutePath(), options.seed());
+
+        long started = System.nanoTime();
+        List<Loaded> loaded = generate(options);
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - started);
+
+        long rows = 0;
+        for (Loaded database : loaded) {
+            System.out.printf("  %-13s %,12d rows in %6.1f s (%,.0f rows/s), %.1f s of it building indexes%n",
+                    database.name(), database.rows(), database.elapsed().toMillis() / 1000.0,
+                    database.rows() / seconds(database.elapsed()), database.indexing().toMillis() / 1000.0);
+            rows += database.rows();
+        }
+        System.out.printf("Generated %,d rows in %.1f s (%,.0f rows/s)%n",
+                rows, elapsed.toMillis() / 1000.0, rows / seconds(elapsed));
+    }
+
+    /**
+     * Write the databases of the selected services, each on its own thread. The random streams are
+     * split in a fixed order so that every database is the same whichever others are written.
+     */
+    public static List<Loaded> generate(GeneratorOptions options) throws Exception {
+        SplittableRandom root = new SplittableRandom(options.seed());
+        SplittableRandom customerRandom = root.split();
+        SplittableRandom productRandom = root.split();
+        SplittableRandom orderRandom = root.split();
+        // The orders need the product ids and prices even when the catalog is not written
+        ProductDataset products = ProductDataset.generate(options.products(), options.seed(),
+                OrderDataset.firstOrder(options), productRandom);
+
+        List<Callable<Loaded>> loads = new ArrayList<>();
+        if (options.generates(GeneratorOptions.CUSTOMER_SERVICE)) {
+            loads.add(() -> load(options, Databases.CUSTOMERS, CustomerServiceApplication.class, schema ->
+                    CustomerDataset.write(schema.connection(), options.customers(), options.batchSize(), customerRandom)));
+        }
+        if (options.generates(GeneratorOptions.PRODUCT_SERVICE)) {
+            // One change feed entry per product
+            loads.add(() -> load(options, Databases.PRODUCTS, ProductServiceApplication.class, schema ->
+                    2L * products.write(schema.connection(), options.batchSize())));
+        }
+        if (options.generates(GeneratorOptions.ORDER_SERVICE)) {
+            loads.add(() -> load(options, Databases.ORDERS, OrderServiceApplication.class, schema -> {
+                OrderDataset orders = new OrderDataset(options, products);
+                return orders.write(schema, orderRandom) + orders.itemCount();
+            }));
+        }
+
+        List<Loaded> loaded = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(loads.size())) {
+            List<Future<Loaded>> futures = new ArrayList<>();
+            for (Callable<Loaded> load : loads) {
+                futures.add(executor.submit(load));
+            }
+            for (Future<Loaded> future : futures) {
+                try {
+                    loaded.add(future.get());
+                } catch (ExecutionException e) {
+                    throw e.getCause() instanceof Exception cause ? cause : e;
+                }
+            }
+        }
+        return loaded;
+    }
+
+    private static Loaded load(GeneratorOptions options, String name, Class<?> service, Writer writer) throws SQLException {
+        long started = System.nanoTime();
+        try (Databases.Schema schema = Databases.create(options.storageDir(), name, service, options.replace())) {
+            long rows = writer.write(schema);
+            schema.createIndexes();
+            return new Loaded(name, rows, Duration.ofNanos(System.nanoTime() - started), schema.indexing());
+        }
+    }
+
+    private static double seconds(Duration duration) {
+        return Math.max(duration.toNanos(), 1) / 1e9;
+    }
+
+    /**
+     * Rows written into a database and the time it took, indexes included, and the time spent
+     * building the secondary indexes, partly while other rows were still loading
+     */
+    public record Loaded(String name, long rows, Duration elapsed, Duration indexing) {
+    }
+
+    @FunctionalInterface
+    private interface Writer {
+        long write(Databases.Schema schema) throws SQLException;
+    }
+}
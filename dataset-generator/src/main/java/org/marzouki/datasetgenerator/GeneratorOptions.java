@@ -0,0 +1,121 @@
+package org.marzouki.datasetgenerator;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Settings of a generation run, given as {@code --name=value} arguments:
+ * <ul>
+ *     <li>{@code --storage-dir=data}: directory of the databases, the services' {@code storage.dir}</li>
+ *     <li>{@code --services=customer,product,order}: databases written; existing ones are replaced only
+ *     with {@code --replace=true}</li>
+ *     <li>{@code --seed=42}: the same seed and options always give the same data</li>
+ *     <li>{@code --customers=100000}, {@code --products=10000} and {@code --orders=1000000}: cardinalities</li>
+ *     <li>{@code --product-skew=1.0} and {@code --customer-skew=0.8}: Zipf exponents of product popularity
+ *     and customer activity, 0 for uniform</li>
+ *     <li>{@code --order-size-alpha=1.5} and {@code --max-items=50}: Pareto tail of the number of items
+ *     per order, and its cap</li>
+ *     <li>{@code --years=3} and {@code --until=today}: orders are spread over the years before that day</li>
+ *     <li>{@code --batch-size=1000}: rows per JDBC batch</li>
+ * </ul>
+ */
+public record GeneratorOptions(Path storageDir,
+                               Set<String> services,
+                               boolean replace,
+                               long seed,
+                               int customers,
+                               int products,
+                               int orders,
+                               double productSkew,
+                               double customerSkew,
+                               double orderSizeAlpha,
+                               int maxItems,
+                               int years,
+                               LocalDate until,
+                               int batchSize) {
+
+    public static final String CUSTOMER_SERVICE = "customer-service";
+    public static final String PRODUCT_SERVICE = "product-service";
+    public static final String ORDER_SERVICE = "order-service";
+
+    private static final Set<String> SERVICES = Set.of(CUSTOMER_SERVICE, PRODUCT_SERVICE, ORDER_SERVICE);
+
+    public static GeneratorOptions parse(String... args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            values.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+
+        String until = values.getOrDefault("until", "today");
+        GeneratorOptions options = new GeneratorOptions(
+                Path.of(values.getOrDefault("storage-dir", "data")),
+                services(values.getOrDefault("services", "customer,product,order")),
+                Boolean.parseBoolean(values.getOrDefault("replace", "false")),
+                Long.parseLong(values.getOrDefault("seed", "42")),
+                Integer.parseInt(values.getOrDefault("customers", "100000")),
+                Integer.parseInt(values.getOrDefault("products", "10000")),
+                Integer.parseInt(values.getOrDefault("orders", "1000000")),
+                Double.parseDouble(values.getOrDefault("product-skew", "1.0")),
+                Double.parseDouble(values.getOrDefault("customer-skew", "0.8")),
+                Double.parseDouble(values.getOrDefault("order-size-alpha", "1.5")),
+                Integer.parseInt(values.getOrDefault("max-items", "50")),
+                Integer.parseInt(values.getOrDefault("years", "3")),
+                until.equals("today") ? LocalDate.now() : LocalDate.parse(until),
+                Integer.parseInt(values.getOrDefault("batch-size", "1000")));
+        values.keySet().removeAll(Set.of("storage-dir", "services", "replace", "seed", "customers", "products",
+                "orders", "product-skew", "customer-skew", "order-size-alpha", "max-items", "years", "until",
+                "batch-size"));
+        if (!values.isEmpty()) {
+            throw new IllegalArgumentException("Unknown options " + values.keySet());
+        }
+        options.validate();
+        return options;
+    }
+
+    /**
+     * Whether the database of the given service is written
+     */
+    public boolean generates(String service) {
+        return services.contains(service);
+    }
+
+    private void validate() {
+        if (customers < 1 || products < 1 || orders < 0 || maxItems < 1 || years < 1 || batchSize < 1) {
+            throw new IllegalArgumentException("customers, products, max-items, years and batch-size must be positive");
+        }
+        if (productSkew < 0 || customerSkew < 0) {
+            throw new IllegalArgumentException("product-skew and customer-skew must not be negative");
+        }
+        if (orderSizeAlpha <= 0) {
+            throw new IllegalArgumentException("order-size-alpha must be positive");
+        }
+    }
+
+    private static Set<String> services(String value) {
+        Set<String> services = new HashSet<>();
+        for (String service : value.split(",")) {
+            String name = service.trim().toLowerCase(Locale.ROOT);
+            if (name.isEmpty()) {
+                continue;
+            }
+            name = name.endsWith("-service") ? name : name + "-service";
+            if (!SERVICES.contains(name)) {
+                throw new IllegalArgumentException("services must be among customer, product and order, got " + service);
+            }
+            services.add(name);
+        }
+        if (services.isEmpty()) {
+            throw new IllegalArgumentException("services must name at least one database");
+        }
+        return Set.copyOf(services);
+    }
+}
@@ -0,0 +1,454 @@
+package org.marzouki.datasetgenerator;
+
+import org.marzouki.orderservice.entities.Bill;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * The order-service orders, their items and aggregates.
+ * <p>
+ * Orders are spread evenly over the period, in id order like orders placed through the service.
+ * Their client is drawn from a Zipf distribution over the customers, the number of items from a
+ * Pareto distribution (most orders hold one or two products, a few hold dozens) and each item's
+ * product from a Zipf distribution over the catalog. Statuses follow the age of the order. The
+ * order_stats aggregates are summed while generating, as {@code OrderStatsService.rebuild} would.
+ */
+final class OrderDataset {
+
+    /**
+     * Allocation size of the orders_seq and order_items_seq sequences
+     */
+    private static final int SEQUENCE_INCREMENT = 50;
+
+    private final GeneratorOptions options;
+
+    private final ProductDataset products;
+
+    private final Map<Bill.OrderStatus, double[]> byStatus = new EnumMap<>(Bill.OrderStatus.class);
+
+    private final Map<String, double[]> byClient = new HashMap<>();
+
+    private final Map<String, double[]> byDay = new TreeMap<>();
+
+    private long itemCount;
+
+    OrderDataset(GeneratorOptions options, ProductDataset products) {
+        this.options = options;
+        this.products = products;
+    }
+
+    static LocalDateTime firstOrder(GeneratorOptions options) {
+        return options.until().atStartOfDay().minusYears(options.years());
+    }
+
+    long itemCount() {
+        return itemCount;
+    }
+
+    /**
+     * Insert the orders, their items and aggregates, move the sequences past them and build the
+     * indexes of the orders table. Returns the number of orders.
+     * <p>
+     * The orders and the items are each inserted on a connection and thread of their own while
+     * this thread generates them, and the orders indexes are built while the items still load.
+     * Items may be committed before the orders they refer to, so referential integrity is off
+     * during the load; every generated item refers to a generated order.
+     */
+    long write(Databases.Schema schema, SplittableRandom random) throws SQLException {
+        Connection connection = schema.connection();
+        setReferentialIntegrity(connection, false);
+        try (Connection orderConnection = schema.openConnection();
+             Connection itemConnection = schema.openConnection();
+             BatchWriter<OrderBatch> orders = new BatchWriter<>(orderConnection, OrderBatch.INSERT,
+                     () -> new OrderBatch(options.batchSize()));
+             BatchWriter<ItemBatch> items = new BatchWriter<>(itemConnection, ItemBatch.INSERT,
+                     () -> new ItemBatch(options.batchSize()))) {
+            generate(orders, items, random);
+            orders.finish();
+            writeStats(connection);
+            try (Statement statement = connection.createStatement()) {
+                // The sequences hand out blocks of SEQUENCE_INCREMENT ids ending at their value
+                statement.execute("ALTER SEQUENCE orders_seq RESTART WITH " + (options.orders() + SEQUENCE_INCREMENT + 1));
+                statement.execute("ALTER SEQUENCE order_items_seq RESTART WITH " + (itemCount + SEQUENCE_INCREMENT + 1));
+            }
+            connection.commit();
+            schema.createIndexes("orders");
+            items.finish();
+        }
+        setReferentialIntegrity(connection, true);
+        return options.orders();
+    }
+
+    private void generate(BatchWriter<OrderBatch> orders, BatchWriter<ItemBatch> items, SplittableRandom random) throws SQLException {
+        ZipfDistribution clients = new ZipfDistribution(options.customers(), options.customerSkew(), random);
+        ZipfDistribution catalog = new ZipfDistribution(products.size(), options.productSkew(), random);
+        LocalDateTime start = firstOrder(options);
+        LocalDateTime end = options.until().atStartOfDay();
+        double secondsPerOrder = (double) Duration.between(start, end).toSeconds() / Math.max(options.orders(), 1);
+
+        int[] lineProducts = new int[options.maxItems()];
+        int[] lineQuantities = new int[options.maxItems()];
+        for (long id = 1; id <= options.orders(); id++) {
+            LocalDateTime placed = start.plusSeconds((long) ((id - 1 + random.nextDouble()) * secondsPerOrder));
+            String clientId = String.valueOf(clients.sample(random) + 1);
+            Bill.OrderStatus status = status(Duration.between(placed, end).toDays(), random);
+
+            int lines = 0;
+            int size = orderSize(random);
+            for (int i = 0; i < size; i++) {
+                int product = catalog.sample(random);
+                int quantity = quantity(random);
+                // The same product drawn twice makes one line with both quantities
+                int line = 0;
+                while (line < lines && lineProducts[line] != product) {
+                    line++;
+                }
+                if (line == lines) {
+                    lineProducts[lines] = product;
+                    lineQuantities[lines++] = quantity;
+                } else {
+                    lineQuantities[line] += quantity;
+                }
+            }
+
+            double total = 0;
+            for (int line = 0; line < lines; line++) {
+                double unitPrice = products.price(lineProducts[line]);
+                double linePrice = Math.round(lineQuantities[line] * unitPrice * 100) / 100.0;
+                total += linePrice;
+                items.batch().add(++itemCount, id, products.id(lineProducts[line]), lineQuantities[line], unitPrice, linePrice);
+                items.submitIfFull();
+            }
+            total = Math.round(total * 100) / 100.0;
+
+            orders.batch().add(id, placed, status, clientId, total);
+            orders.submitIfFull();
+            add(byStatus.computeIfAbsent(status, s -> new double[2]), total);
+            add(byClient.computeIfAbsent(clientId, c -> new double[2]), total);
+            add(byDay.computeIfAbsent(placed.toLocalDate().toString(), d -> new double[2]), total);
+        }
+    }
+
+    private static void setReferentialIntegrity(Connection connection, boolean enabled) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SET REFERENTIAL_INTEGRITY " + enabled);
+        }
+    }
+
+    private void writeStats(Connection connection) throws SQLException {
+        try (PreparedStatement stat = connection.prepareStatement("INSERT INTO order_stats " +
+                "(dimension, bucket, slot, order_count, revenue) VALUES (?, ?, 0, ?, ?)")) {
+            for (Map.Entry<Bill.OrderStatus, double[]> entry : byStatus.entrySet()) {
+                addStat(stat, "STATUS", entry.getKey().name(), entry.getValue());
+            }
+            stat.executeBatch();
+            int rows = 0;
+            for (Map.Entry<String, double[]> entry : byClient.entrySet()) {
+                addStat(stat, "CLIENT", entry.getKey(), entry.getValue());
+                if (++rows % options.batchSize() == 0) {
+                    stat.executeBatch();
+                }
+            }
+            for (Map.Entry<String, double[]> entry : byDay.entrySet()) {
+                addStat(stat, "DAY", entry.getKey(), entry.getValue());
+                if (++rows % options.batchSize() == 0) {
+                    stat.executeBatch();
+                }
+            }
+            stat.executeBatch();
+        }
+    }
+
+    private static void addStat(PreparedStatement stat, String dimension, String bucket, double[] figures) throws SQLException {
+        stat.setString(1, dimension);
+        stat.setString(2, bucket);
+        stat.setLong(3, (long) figures[0]);
+        stat.setDouble(4, figures[1]);
+        stat.addBatch();
+    }
+
+    private static void add(double[] figures, double revenue) {
+        figures[0]++;
+        figures[1] += revenue;
+    }
+
+    /**
+     * Number of products drawn for an order: Pareto with minimum 1, capped at max-items
+     */
+    private int orderSize(SplittableRandom random) {
+        double size = Math.pow(1 - random.nextDouble(), -1 / options.orderSizeAlpha());
+        return (int) Math.min(size, options.maxItems());
+    }
+
+    /**
+     * Units of one product: 1 most of the time, rarely more than 3
+     */
+    private static int quantity(SplittableRandom random) {
+        int quantity = 1;
+        while (quantity < 10 && random.nextDouble() < 0.3) {
+            quantity++;
+        }
+        return quantity;
+    }
+
+    /**
+     * Recent orders are still in progress, older ones delivered; a few of every age were cancelled
+     */
+    private static Bill.OrderStatus status(long ageInDays, SplittableRandom random) {
+        double draw = random.nextDouble();
+        if (ageInDays < 2) {
+            return draw < 0.5 ? Bill.OrderStatus.PENDING : draw < 0.9 ? Bill.OrderStatus.CONFIRMED : Bill.OrderStatus.CANCELLED;
+        }
+        if (ageInDays < 7) {
+            return draw < 0.3 ? Bill.OrderStatus.CONFIRMED : draw < 0.9 ? Bill.OrderStatus.SHIPPED : Bill.OrderStatus.CANCELLED;
+        }
+        if (ageInDays < 30) {
+            return draw < 0.3 ? Bill.OrderStatus.SHIPPED : draw < 0.93 ? Bill.OrderStatus.DELIVERED : Bill.OrderStatus.CANCELLED;
+        }
+        return draw < 0.93 ? Bill.OrderStatus.DELIVERED : Bill.OrderStatus.CANCELLED;
+    }
+
+    /**
+     * Rows of one table, column by column
+     */
+    private interface Batch {
+
+        boolean isFull();
+
+        boolean isEmpty();
+
+        /**
+         * Bind the rows to the insert statement and execute them as one JDBC batch
+         */
+        void insert(PreparedStatement insert) throws SQLException;
+    }
+
+    /**
+     * Inserts the batches of one table on its own connection and thread, committing each one.
+     * The generating thread fills the next batch meanwhile and waits when two are already queued.
+     */
+    private static final class BatchWriter<B extends Batch> implements AutoCloseable {
+
+        private final Connection connection;
+
+        private final PreparedStatement insert;
+
+        private final Supplier<B> batches;
+
+        private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        private final Semaphore queued = new Semaphore(2);
+
+        private volatile SQLException failure;
+
+        private B batch;
+
+        BatchWriter(Connection connection, String sql, Supplier<B> batches) throws SQLException {
+            this.connection = connection;
+            this.insert = connection.prepareStatement(sql);
+            this.batches = batches;
+            this.batch = batches.get();
+        }
+
+        /**
+         * The batch being filled
+         */
+        B batch() {
+            return batch;
+        }
+
+        void submitIfFull() throws SQLException {
+            if (batch.isFull()) {
+                submit();
+            }
+        }
+
+        /**
+         * Insert the last batch and wait for every batch to be committed
+         */
+        void finish() throws SQLException {
+            if (!batch.isEmpty()) {
+                submit();
+            }
+            executor.shutdown();
+            awaitTermination();
+            throwIfFailed();
+        }
+
+        private void submit() throws SQLException {
+            throwIfFailed();
+            B full = batch;
+            batch = batches.get();
+            queued.acquireUninterruptibly();
+            executor.execute(() -> {
+                try {
+                    if (failure == null) {
+                        full.insert(insert);
+                        connection.commit();
+                    }
+                } catch (SQLException e) {
+                    failure = e;
+                } finally {
+                    queued.release();
+                }
+            });
+        }
+
+        private void throwIfFailed() throws SQLException {
+            if (failure != null) {
+                throw failure;
+            }
+        }
+
+        private void awaitTermination() throws SQLException {
+            try {
+                if (!executor.awaitTermination(1, TimeUnit.HOURS)) {
+                    throw new SQLException("Rows still loading after an hour");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while loading rows", e);
+            }
+        }
+
+        /**
+         * Stop loading, after a failure, once the batch being inserted is done
+         */
+        @Override
+        public void close() throws SQLException {
+            if (!executor.isTerminated()) {
+                failure = failure != null ? failure : new SQLException("Load abandoned");
+                executor.shutdownNow();
+                awaitTermination();
+            }
+            insert.close();
+        }
+    }
+
+    private static final class OrderBatch implements Batch {
+
+        static final String INSERT = "INSERT INTO orders (id, date_commande, statut, client_id, montant_total, " +
+                "date_creation, date_modification) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+        private final long[] ids;
+        private final LocalDateTime[] placed;
+        private final Bill.OrderStatus[] statuses;
+        private final String[] clientIds;
+        private final double[] totals;
+        private int size;
+
+        OrderBatch(int capacity) {
+            ids = new long[capacity];
+            placed = new LocalDateTime[capacity];
+            statuses = new Bill.OrderStatus[capacity];
+            clientIds = new String[capacity];
+            totals = new double[capacity];
+        }
+
+        void add(long id, LocalDateTime placedAt, Bill.OrderStatus status, String clientId, double total) {
+            ids[size] = id;
+            placed[size] = placedAt;
+            statuses[size] = status;
+            clientIds[size] = clientId;
+            totals[size] = total;
+            size++;
+        }
+
+        @Override
+        public boolean isFull() {
+            return size == ids.length;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        @Override
+        public void insert(PreparedStatement insert) throws SQLException {
+            for (int i = 0; i < size; i++) {
+                insert.setLong(1, ids[i]);
+                insert.setObject(2, placed[i]);
+                insert.setString(3, statuses[i].name());
+                insert.setString(4, clientIds[i]);
+                insert.setDouble(5, totals[i]);
+                insert.setObject(6, placed[i]);
+                insert.setObject(7, placed[i]);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+    }
+
+    private static final class ItemBatch implements Batch {
+
+        static final String INSERT = "INSERT INTO order_items " +
+                "(id, order_id, product_id, quantity, unit_price, total_price) VALUES (?, ?, ?, ?, ?, ?)";
+
+        private final long[] ids;
+        private final long[] orderIds;
+        private final String[] productIds;
+        private final int[] quantities;
+        private final double[] unitPrices;
+        private final double[] totalPrices;
+        private int size;
+
+        ItemBatch(int capacity) {
+            ids = new long[capacity];
+            orderIds = new long[capacity];
+            productIds = new String[capacity];
+            quantities = new int[capacity];
+            unitPrices = new double[capacity];
+            totalPrices = new double[capacity];
+        }
+
+        void add(long id, long orderId, String productId, int quantity, double unitPrice, double totalPrice) {
+            ids[size] = id;
+            orderIds[size] = orderId;
+            productIds[size] = productId;
+            quantities[size] = quantity;
+            unitPrices[size] = unitPrice;
+            totalPrices[size] = totalPrice;
+            size++;
+        }
+
+        @Override
+        public boolean isFull() {
+            return size == ids.length;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        @Override
+        public void insert(PreparedStatement insert) throws SQLException {
+            for (int i = 0; i < size; i++) {
+                insert.setLong(1, ids[i]);
+                insert.setLong(2, orderIds[i]);
+                insert.setString(3, productIds[i]);
+                insert.setInt(4, quantities[i]);
+                insert.setDouble(5, unitPrices[i]);
+                insert.setDouble(6, totalPrices[i]);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package org.marzouki.datasetgenerator;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+/**
+ * The product-service catalog, generated in memory first since the orders refer to its ids and
+ * prices. Prices are log-normal around 40, a few products are out of stock. The change feed gets
+ * one entry per product, as if each had been created through the service.
+ */
+final class ProductDataset {
+
+    private static final String[] ADJECTIVES = {"Compact", "Wireless", "Portable", "Ergonomic", "Smart", "Ultra",
+            "Pro", "Silent", "Rugged", "Slim", "Premium", "Classic", "Modular", "Solar", "Digital", "Vintage"};
+
+    private static final String[] NOUNS = {"Laptop", "Printer", "Phone", "Monitor", "Keyboard", "Mouse", "Headset",
+            "Camera", "Speaker", "Router", "Tablet", "Charger", "Lamp", "Backpack", "Watch", "Drone", "Projector", "Scanner"};
+
+    private static final String[] FEATURES = {"long battery life", "fast charging", "a metal body", "noise cancelling",
+            "a two year warranty", "low power use", "a backlit display", "a travel case", "dual band", "a USB-C port"};
+
+    private final String[] ids;
+
+    private final String[] names;
+
+    private final String[] descriptions;
+
+    private final double[] prices;
+
+    private final int[] quantities;
+
+    private final LocalDateTime[] created;
+
+    private ProductDataset(int size) {
+        ids = new String[size];
+        names = new String[size];
+        descriptions = new String[size];
+        prices = new double[size];
+        quantities = new int[size];
+        created = new LocalDateTime[size];
+    }
+
+    /**
+     * Products created during the year before {@code firstOrder}
+     */
+    static ProductDataset generate(int size, long seed, LocalDateTime firstOrder, SplittableRandom random) {
+        ProductDataset products = new ProductDataset(size);
+        for (int i = 0; i < size; i++) {
+            String adjective = ADJECTIVES[random.nextInt(ADJECTIVES.length)];
+            String noun = NOUNS[random.nextInt(NOUNS.length)];
+            products.ids[i] = UUID.nameUUIDFromBytes((seed + ":product:" + i).getBytes(StandardCharsets.UTF_8)).toString();
+            products.names[i] = adjective + " " + noun + " " + (char) ('A' + random.nextInt(26)) + (100 + random.nextInt(900));
+            products.descriptions[i] = adjective + " " + noun.toLowerCase() + " with "
+                    + FEATURES[random.nextInt(FEATURES.length)] + " and " + FEATURES[random.nextInt(FEATURES.length)];
+            double price = Math.exp(Math.log(40) + 1.1 * random.nextGaussian());
+            products.prices[i] = Math.round(Math.clamp(price, 1, 20_000) * 100) / 100.0;
+            products.quantities[i] = random.nextInt(20) == 0 ? 0 : random.nextInt(1, 500);
+            products.created[i] = firstOrder.minusMinutes(random.nextLong(365L * 24 * 60));
+        }
+        return products;
+    }
+
+    int size() {
+        return ids.length;
+    }
+
+    String id(int i) {
+        return ids[i];
+    }
+
+    double price(int i) {
+        return prices[i];
+    }
+
+    /**
+     * Insert the products, their change feed entries and its head. Returns the number of products.
+     */
+    long write(Connection connection, int batchSize) throws SQLException {
+        try (PreparedStatement product = connection.prepareStatement("INSERT INTO product " +
+                "(id, name, description, price, quantity, date_creation, date_modification) VALUES (?, ?, ?, ?, ?, ?, ?)");
+             PreparedStatement change = connection.prepareStatement(
+                     "INSERT INTO product_changes (seq, product_id, type, changed_at) VALUES (?, ?, 'UPSERT', ?)")) {
+            for (int i = 0; i < size(); i++) {
+                product.setString(1, ids[i]);
+                product.setString(2, names[i]);
+                product.setString(3, descriptions[i]);
+                product.setDouble(4, prices[i]);
+                product.setInt(5, quantities[i]);
+                product.setObject(6, created[i]);
+                product.setObject(7, created[i]);
+                product.addBatch();
+                change.setLong(1, i + 1);
+                change.setString(2, ids[i]);
+                change.setObject(3, created[i]);
+                change.addBatch();
+                if ((i + 1) % batchSize == 0) {
+                    product.executeBatch();
+                    change.executeBatch();
+                    connection.commit();
+                }
+            }
+            product.executeBatch();
+            change.executeBatch();
+        }
+        try (PreparedStatement head = connection.prepareStatement(
+                "INSERT INTO product_change_head (id, last_seq, purged_through) VALUES (1, ?, 0)")) {
+            head.setLong(1, size());
+            head.executeUpdate();
+        }
+        connection.commit();
+        return size();
+    }
+}
@@ -0,0 +1,48 @@
+package org.marzouki.datasetgenerator;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Zipf distribution over n items: the item of rank k is drawn with a probability proportional to
+ * 1 / k^exponent. Ranks are given to items in a random order, so the popular items are scattered
+ * over the id space instead of being the first ones. Exponent 0 is uniform.
+ */
+final class ZipfDistribution {
+
+    private final double[] cumulative;
+
+    private final int[] itemByRank;
+
+    ZipfDistribution(int n, double exponent, SplittableRandom random) {
+        cumulative = new double[n];
+        double sum = 0;
+        for (int rank = 0; rank < n; rank++) {
+            sum += 1 / Math.pow(rank + 1, exponent);
+            cumulative[rank] = sum;
+        }
+        for (int rank = 0; rank < n; rank++) {
+            cumulative[rank] /= sum;
+        }
+
+        itemByRank = new int[n];
+        for (int i = 0; i < n; i++) {
+            itemByRank[i] = i;
+        }
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int item = itemByRank[i];
+            itemByRank[i] = itemByRank[j];
+            itemByRank[j] = item;
+        }
+    }
+
+    /**
+     * An item index in [0, n)
+     */
+    int sample(SplittableRandom random) {
+        int rank = Arrays.binarySearch(cumulative, random.nextDouble());
+        rank = rank >= 0 ? rank : -rank - 1;
+        return itemByRank[Math.min(rank, itemByRank.length - 1)];
+    }
+}
@@ -0,0 +1,203 @@
+package org.marzouki.datasetgenerator;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+class DatasetGeneratorTests {
+
+    private static final int CUSTOMERS = 2_000;
+
+    private static final int PRODUCTS = 500;
+
+    private static final int ORDERS = 20_000;
+
+    @TempDir
+    private Path storageDir;
+
+    @Test
+    void generatesTheRequestedRowsWithSkewedPopularityAndHeavyTailedOrders() throws Exception {
+        List<DatasetGenerator.Loaded> loaded = DatasetGenerator.generate(options(storageDir, 42));
+        assertThat(loaded).extracting(DatasetGenerator.Loaded::name)
+                .containsExactly(Databases.CUSTOMERS, Databases.PRODUCTS, Databases.ORDERS);
+        assertThat(loaded).allSatisfy(database -> assertThat(database.indexing()).isLessThanOrEqualTo(database.elapsed()));
+
+        try (Connection customers = open(Databases.CUSTOMERS)) {
+            assertThat(count(customers, "SELECT COUNT(*) FROM customer")).isEqualTo(CUSTOMERS);
+            // The identity carries on after the generated ids
+            try (Statement statement = customers.createStatement()) {
+                statement.execute("INSERT INTO customer (name, email) VALUES ('New Customer', 'new@example.com')");
+            }
+            assertThat(count(customers, "SELECT MAX(id) FROM customer")).isEqualTo(CUSTOMERS + 1);
+        }
+
+        try (Connection products = open(Databases.PRODUCTS)) {
+            assertThat(count(products, "SELECT COUNT(*) FROM product")).isEqualTo(PRODUCTS);
+            assertThat(count(products, "SELECT COUNT(*) FROM product_changes")).isEqualTo(PRODUCTS);
+            assertThat(count(products, "SELECT last_seq FROM product_change_head")).isEqualTo(PRODUCTS);
+        }
+
+        try (Connection orders = open(Databases.ORDERS)) {
+            assertThat(count(orders, "SELECT COUNT(*) FROM orders")).isEqualTo(ORDERS);
+            long items = count(orders, "SELECT COUNT(*) FROM order_items");
+
+            // The 1% most popular products get a third of the lines, not 1%
+            long topLines = count(orders, "SELECT SUM(c) FROM (SELECT COUNT(*) c FROM order_items " +
+                    "GROUP BY product_id ORDER BY c DESC LIMIT " + PRODUCTS / 100 + ")");
+            assertThat((double) topLines / items).isGreaterThan(0.25);
+            // The most active customers place many more orders than average
+            long topClientOrders = count(orders, "SELECT MAX(c) FROM (SELECT COUNT(*) c FROM orders GROUP BY client_id)");
+            assertThat(topClientOrders).isGreaterThan(20L * ORDERS / CUSTOMERS);
+
+            // Most orders hold a single product, a few hold many
+            long singleLine = count(orders, "SELECT COUNT(*) FROM (SELECT order_id FROM order_items " +
+                    "GROUP BY order_id HAVING COUNT(*) = 1)");
+            assertThat((double) singleLine / ORDERS).isGreaterThan(0.5);
+            assertThat(count(orders, "SELECT MAX(c) FROM (SELECT COUNT(*) c FROM order_items GROUP BY order_id)"))
+                    .isGreaterThanOrEqualTo(15);
+
+            // Three years of history, ids in date order
+            assertThat(count(orders, "SELECT DATEDIFF(DAY, MIN(date_commande), MAX(date_commande)) FROM orders"))
+                    .isGreaterThan(900);
+            assertThat(count(orders, "SELECT COUNT(*) FROM orders a JOIN orders b ON b.id = a.id + 1 " +
+                    "WHERE b.date_commande < a.date_commande")).isZero();
+            assertThat(count(orders, "SELECT COUNT(*) FROM orders WHERE date_commande >= DATE '2026-01-01'")).isZero();
+            // Order totals are the sum of their lines
+            assertThat(count(orders, "SELECT COUNT(*) FROM orders o WHERE ABS(o.montant_total - " +
+                    "(SELECT SUM(total_price) FROM order_items i WHERE i.order_id = o.id)) > 0.01")).isZero();
+
+            assertStatsMatchOrders(orders);
+
+            // Hibernate's pooled sequences hand out the 50 ids below their next value
+            assertThat(count(orders, "SELECT NEXT VALUE FOR orders_seq") - 50).isGreaterThan(ORDERS);
+            assertThat(count(orders, "SELECT NEXT VALUE FOR order_items_seq") - 50).isGreaterThan(items);
+
+            // Loaded with referential integrity off, which is back on
+            assertThat(count(orders, "SELECT COUNT(*) FROM order_items i WHERE NOT EXISTS " +
+                    "(SELECT 1 FROM orders o WHERE o.id = i.order_id)")).isZero();
+            try (Statement statement = orders.createStatement()) {
+                assertThatExceptionOfType(SQLException.class).isThrownBy(() -> statement.execute("INSERT INTO order_items " +
+                        "(id, order_id, product_id, quantity, unit_price, total_price) VALUES (-1, -1, 'p', 1, 1, 1)"));
+            }
+        }
+    }
+
+    @Test
+    void sameSeedGivesTheSameData(@TempDir Path otherDir) throws Exception {
+        DatasetGenerator.generate(options(storageDir, 7));
+        DatasetGenerator.generate(options(otherDir, 7));
+
+        String orders = "SELECT id, date_commande, statut, client_id, montant_total FROM orders ORDER BY id";
+        String items = "SELECT id, order_id, product_id, quantity, total_price FROM order_items ORDER BY id";
+        String products = "SELECT id, name, price, quantity FROM product ORDER BY id";
+        String customers = "SELECT id, name, email FROM customer ORDER BY id";
+        try (Connection first = open(Databases.ORDERS); Connection second = open(otherDir, Databases.ORDERS)) {
+            assertThat(rows(first, orders)).isEqualTo(rows(second, orders));
+            assertThat(rows(first, items)).isEqualTo(rows(second, items));
+        }
+        try (Connection first = open(Databases.PRODUCTS); Connection second = open(otherDir, Databases.PRODUCTS)) {
+            assertThat(rows(first, products)).isEqualTo(rows(second, products));
+        }
+        try (Connection first = open(Databases.CUSTOMERS); Connection second = open(otherDir, Databases.CUSTOMERS)) {
+            assertThat(rows(first, customers)).isEqualTo(rows(second, customers));
+        }
+    }
+
+    @Test
+    void keepsExistingDatabasesUnlessReplaceIsSet() throws Exception {
+        GeneratorOptions customersOnly = GeneratorOptions.parse("--storage-dir=" + storageDir, "--services=customer",
+                "--customers=10", "--orders=0");
+        DatasetGenerator.generate(customersOnly);
+
+        assertThatIllegalStateException().isThrownBy(() -> DatasetGenerator.generate(customersOnly))
+                .withMessageContaining("--replace=true");
+        DatasetGenerator.generate(GeneratorOptions.parse("--storage-dir=" + storageDir, "--services=customer",
+                "--customers=20", "--orders=0", "--replace=true"));
+        try (Connection customers = open(Databases.CUSTOMERS)) {
+            assertThat(count(customers, "SELECT COUNT(*) FROM customer")).isEqualTo(20);
+        }
+    }
+
+    @Test
+    void rejectsInvalidOptions() {
+        assertThatIllegalArgumentException().isThrownBy(() -> GeneratorOptions.parse("--orders"));
+        assertThatIllegalArgumentException().isThrownBy(() -> GeneratorOptions.parse("--order=10"));
+        assertThatIllegalArgumentException().isThrownBy(() -> GeneratorOptions.parse("--services=billing"));
+        assertThatIllegalArgumentException().isThrownBy(() -> GeneratorOptions.parse("--customers=0"));
+        assertThatIllegalArgumentException().isThrownBy(() -> GeneratorOptions.parse("--product-skew=-1"));
+        assertThatIllegalArgumentException().isThrownBy(() -> GeneratorOptions.parse("--order-size-alpha=0"));
+
+        GeneratorOptions options = GeneratorOptions.parse("--services=order,product-service", "--until=2025-06-30");
+        assertThat(options.generates(GeneratorOptions.ORDER_SERVICE)).isTrue();
+        assertThat(options.generates(GeneratorOptions.CUSTOMER_SERVICE)).isFalse();
+        assertThat(options.until()).isEqualTo(LocalDate.of(2025, 6, 30));
+    }
+
+    /**
+     * The aggregates are those OrderStatsService.rebuild would compute, all in slot 0
+     */
+    private static void assertStatsMatchOrders(Connection orders) throws SQLException {
+        String[][] dimensions = {
+                {"STATUS", "CAST(statut AS VARCHAR)"},
+                {"CLIENT", "client_id"},
+                {"DAY", "CAST(CAST(date_commande AS DATE) AS VARCHAR)"}};
+        for (String[] dimension : dimensions) {
+            String expected = "SELECT " + dimension[1] + " b, CAST(COUNT(*) AS BIGINT) c, " +
+                    "CAST(ROUND(SUM(montant_total), 2) AS DOUBLE PRECISION) r FROM orders GROUP BY b ORDER BY b";
+            String actual = "SELECT CAST(bucket AS VARCHAR) b, order_count c, " +
+                    "CAST(ROUND(revenue, 2) AS DOUBLE PRECISION) r FROM order_stats " +
+                    "WHERE dimension = '" + dimension[0] + "' AND slot = 0 ORDER BY b";
+            assertThat(rows(orders, actual)).as(dimension[0]).isEqualTo(rows(orders, expected));
+        }
+        assertThat(count(orders, "SELECT COUNT(*) FROM order_stats WHERE slot <> 0")).isZero();
+    }
+
+    private GeneratorOptions options(Path dir, long seed) {
+        return GeneratorOptions.parse("--storage-dir=" + dir, "--seed=" + seed, "--customers=" + CUSTOMERS,
+                "--products=" + PRODUCTS, "--orders=" + ORDERS, "--until=2026-01-01", "--batch-size=500");
+    }
+
+    private Connection open(String name) throws SQLException {
+        return open(storageDir, name);
+    }
+
+    private static Connection open(Path dir, String name) throws SQLException {
+        return DriverManager.getConnection(Databases.url(dir, name));
+    }
+
+    private static long count(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement(); ResultSet result = statement.executeQuery(sql)) {
+            result.next();
+            return result.getLong(1);
+        }
+    }
+
+    private static List<List<Object>> rows(Connection connection, String sql) throws SQLException {
+        List<List<Object>> rows = new ArrayList<>();
+        try (Statement statement = connection.createStatement(); ResultSet result = statement.executeQuery(sql)) {
+            int columns = result.getMetaData().getColumnCount();
+            while (result.next()) {
+                List<Object> row = new ArrayList<>(columns);
+                for (int column = 1; column <= columns; column++) {
+                    row.add(result.getObject(column));
+                }
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+}
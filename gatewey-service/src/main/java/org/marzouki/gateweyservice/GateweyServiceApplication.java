@@ -1,13 +1,21 @@
 package org.marzouki.gateweyservice;
 
+import org.marzouki.gateweyservice.cache.ResponseCacheProperties;
+import org.marzouki.gateweyservice.loadbalancer.LatencyAwareProperties;
+import org.marzouki.gateweyservice.loadbalancer.RouteAwareLoadBalancerConfiguration;
+import org.marzouki.gateweyservice.ratelimit.RateLimiterProperties;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cloud.client.discovery.ReactiveDiscoveryClient;
 import org.springframework.cloud.gateway.discovery.DiscoveryClientRouteDefinitionLocator;
 import org.springframework.cloud.gateway.discovery.DiscoveryLocatorProperties;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClients;
 import org.springframework.context.annotation.Bean;
 
 @SpringBootApplication
+@EnableConfigurationProperties({ResponseCacheProperties.class, RateLimiterProperties.class, LatencyAwareProperties.class})
+@LoadBalancerClients(defaultConfiguration = RouteAwareLoadBalancerConfiguration.class)
 public class GateweyServiceApplication {
 
     public static void main(String[] args) {
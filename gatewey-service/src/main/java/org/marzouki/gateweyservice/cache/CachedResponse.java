@@ -0,0 +1,20 @@
+package org.marzouki.gateweyservice.cache;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+
+/**
+ * Fully buffered upstream response
+ */
+public record CachedResponse(HttpStatusCode status, HttpHeaders headers, byte[] body) {
+
+    /**
+     * Approximate heap footprint, used to bound the cache in bytes
+     */
+    public long weight() {
+        long headerBytes = headers.headerSet().stream()
+                .mapToLong(header -> header.getKey().length() + header.getValue().stream().mapToLong(String::length).sum())
+                .sum();
+        return body.length + 2 * headerBytes + 64;
+    }
+}
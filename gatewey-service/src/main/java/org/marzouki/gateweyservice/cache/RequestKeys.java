@@ -0,0 +1,54 @@
+package org.marzouki.gateweyservice.cache;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Normalized identity of a GET request, shared by the filters that reuse one upstream response
+ * for several requests
+ */
+public final class RequestKeys {
+
+    /**
+     * Credentials are always part of the key, so a response is never handed to another client
+     */
+    private static final List<String> CREDENTIAL_HEADERS = List.of(HttpHeaders.AUTHORIZATION, HttpHeaders.COOKIE);
+
+    private RequestKeys() {
+    }
+
+    /**
+     * Route ID, path, query parameters sorted by name then value, and the values of the
+     * given headers. Keys start with the route ID followed by a space.
+     */
+    public static String of(String routeId, ServerHttpRequest request, List<String> keyHeaders) {
+        StringBuilder key = new StringBuilder(routeId).append(' ').append(request.getURI().getRawPath());
+        char separator = '?';
+        for (Map.Entry<String, List<String>> param : new TreeMap<>(request.getQueryParams()).entrySet()) {
+            List<String> values = new ArrayList<>(param.getValue());
+            values.sort(null);
+            for (String value : values) {
+                key.append(separator).append(param.getKey()).append('=').append(value);
+                separator = '&';
+            }
+        }
+        appendHeaders(key, request.getHeaders(), keyHeaders);
+        appendHeaders(key, request.getHeaders(), CREDENTIAL_HEADERS);
+        return key.toString();
+    }
+
+    private static void appendHeaders(StringBuilder key, HttpHeaders headers, List<String> names) {
+        for (String name : names) {
+            List<String> values = headers.getOrEmpty(name);
+            if (!values.isEmpty()) {
+                key.append('\n').append(name.toLowerCase(Locale.ROOT)).append(':').append(String.join(",", values));
+            }
+        }
+    }
+}
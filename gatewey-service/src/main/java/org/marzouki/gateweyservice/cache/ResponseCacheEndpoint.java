@@ -0,0 +1,40 @@
+package org.marzouki.gateweyservice.cache;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * GET /actuator/responsecache for the cache state, DELETE /actuator/responsecache to purge
+ * everything and DELETE /actuator/responsecache/{routeId} to purge a single route
+ */
+@Component
+@Endpoint(id = "responsecache")
+public class ResponseCacheEndpoint {
+
+    @Autowired
+    private ResponseCacheStore responseCacheStore;
+
+    @ReadOperation
+    public Map<String, Object> state() {
+        return Map.of(
+                "entries", responseCacheStore.entryCount(),
+                "bytes", responseCacheStore.bytes(),
+                "hitRatio", responseCacheStore.hitRatio());
+    }
+
+    @DeleteOperation
+    public Map<String, Integer> purgeAll() {
+        return Map.of("purged", responseCacheStore.purgeAll());
+    }
+
+    @DeleteOperation
+    public Map<String, Integer> purgeRoute(@Selector String routeId) {
+        return Map.of("purged", responseCacheStore.purgeRoute(routeId));
+    }
+}
@@ -0,0 +1,210 @@
+package org.marzouki.gateweyservice.cache;
+
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import static org.springframework.cloud.gateway.filter.NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER;
+
+/**
+ * Caches successful GET responses of a route in the {@link ResponseCacheStore}.
+ * <p>
+ * The cache key is built by {@link RequestKeys} from the request and the configured key headers;
+ * it includes the client's credentials, so entries are never shared between clients. Cache-Control is honoured in both directions:
+ * requests with no-store bypass the cache, requests with no-cache or max-age=0 refresh it,
+ * and responses with no-store, no-cache, private or Set-Cookie are never stored. A response
+ * max-age shorter than the route TTL wins. A hit whose ETag matches the request's If-None-Match
+ * is answered with 304. A POST, PUT, PATCH or DELETE going through the route purges the route's
+ * entries once it succeeds, so writes made through the gateway are visible immediately; other
+ * methods, such as HEAD and OPTIONS, go through untouched.
+ * <pre>
+ * filters:
+ *   - name: ResponseCache
+ *     args:
+ *       ttl: 60s
+ *       key-headers: Accept, Accept-Language
+ * </pre>
+ */
+@Component
+public class ResponseCacheGatewayFilterFactory extends AbstractGatewayFilterFactory<ResponseCacheGatewayFilterFactory.Config> {
+
+    public static final String CACHE_STATUS_HEADER = "X-Cache";
+
+    private static final Set<HttpMethod> WRITE_METHODS = Set.of(HttpMethod.POST, HttpMethod.PUT, HttpMethod.PATCH,
+            HttpMethod.DELETE);
+
+    @Autowired
+    private ResponseCacheStore responseCacheStore;
+
+    public ResponseCacheGatewayFilterFactory() {
+        super(Config.class);
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return List.of("ttl");
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        // must run before NettyWriteResponseFilter so that it writes through the decorated response
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+            String routeId = route != null ? route.getId() : "";
+            ServerHttpRequest request = exchange.getRequest();
+            if (WRITE_METHODS.contains(request.getMethod())) {
+                return chain.filter(exchange).then(Mono.fromRunnable(() -> {
+                    if (exchange.getResponse().getStatusCode() != null
+                            && exchange.getResponse().getStatusCode().is2xxSuccessful()) {
+                        responseCacheStore.purgeRoute(routeId);
+                    }
+                }));
+            }
+            if (!HttpMethod.GET.equals(request.getMethod())) {
+                return chain.filter(exchange);
+            }
+            List<String> requestDirectives = directives(request.getHeaders());
+            if (requestDirectives.contains("no-store")) {
+                return chain.filter(exchange);
+            }
+            String key = RequestKeys.of(routeId, request, config.getKeyHeaders());
+            boolean refresh = requestDirectives.contains("no-cache") || requestDirectives.contains("max-age=0");
+            CachedResponse cached = refresh ? null : responseCacheStore.get(key);
+            if (cached != null) {
+                return writeCached(request, exchange.getResponse(), cached);
+            }
+            CapturingResponse response = new CapturingResponse(exchange.getResponse(), key, config);
+            return chain.filter(exchange.mutate().response(response).build());
+        }, WRITE_RESPONSE_FILTER_ORDER - 1);
+    }
+
+    private Mono<Void> writeCached(ServerHttpRequest request, ServerHttpResponse response, CachedResponse cached) {
+        response.getHeaders().putAll(cached.headers());
+        response.getHeaders().set(CACHE_STATUS_HEADER, "HIT");
+        String eTag = cached.headers().getETag();
+        if (eTag != null && request.getHeaders().getIfNoneMatch().contains(eTag)) {
+            // The client already holds this representation
+            response.setStatusCode(HttpStatus.NOT_MODIFIED);
+            response.getHeaders().remove(HttpHeaders.CONTENT_LENGTH);
+            return response.setComplete();
+        }
+        response.setStatusCode(cached.status());
+        return response.writeWith(Mono.fromSupplier(() -> response.bufferFactory().wrap(cached.body())));
+    }
+
+    static List<String> directives(HttpHeaders headers) {
+        List<String> directives = new ArrayList<>();
+        for (String value : headers.getOrEmpty(HttpHeaders.CACHE_CONTROL)) {
+            for (String directive : value.split(",")) {
+                directives.add(directive.trim().toLowerCase(Locale.ROOT).replace(" ", ""));
+            }
+        }
+        return directives;
+    }
+
+    /**
+     * TTL of a response in nanos, 0 when it must not be stored
+     */
+    static long ttlNanos(HttpHeaders headers, Duration routeTtl) {
+        if (headers.containsHeader(HttpHeaders.SET_COOKIE)) {
+            return 0;
+        }
+        long ttl = routeTtl.toNanos();
+        for (String directive : directives(headers)) {
+            if (directive.equals("no-store") || directive.equals("no-cache") || directive.equals("private")) {
+                return 0;
+            }
+            if (directive.startsWith("max-age=") || directive.startsWith("s-maxage=")) {
+                try {
+                    long maxAge = Long.parseLong(directive.substring(directive.indexOf('=') + 1));
+                    ttl = Math.min(ttl, Duration.ofSeconds(maxAge).toNanos());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return ttl;
+    }
+
+    private class CapturingResponse extends ServerHttpResponseDecorator {
+
+        private final String key;
+
+        private final Config config;
+
+        CapturingResponse(ServerHttpResponse delegate, String key, Config config) {
+            super(delegate);
+            this.key = key;
+            this.config = config;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            getHeaders().set(CACHE_STATUS_HEADER, "MISS");
+            long ttl = HttpStatus.OK.equals(getStatusCode()) ? ttlNanos(getHeaders(), config.getTtl()) : 0;
+            long contentLength = getHeaders().getContentLength();
+            if (ttl <= 0 || contentLength > responseCacheStore.maxEntryBytes()) {
+                return super.writeWith(body);
+            }
+            return super.writeWith(DataBufferUtils.join(Flux.from(body)).map(joined -> {
+                byte[] bytes = new byte[joined.readableByteCount()];
+                joined.read(bytes);
+                DataBufferUtils.release(joined);
+                HttpHeaders headers = HttpHeaders.copyOf(getHeaders());
+                headers.remove(CACHE_STATUS_HEADER);
+                responseCacheStore.put(key, new CachedResponse(getStatusCode(), headers, bytes), ttl);
+                return bufferFactory().wrap(bytes);
+            }));
+        }
+
+        @Override
+        public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+            return writeWith(Flux.from(body).flatMapSequential(p -> p));
+        }
+    }
+
+    public static class Config {
+
+        private Duration ttl = Duration.ofSeconds(60);
+
+        private List<String> keyHeaders = new ArrayList<>();
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+
+        public List<String> getKeyHeaders() {
+            return keyHeaders;
+        }
+
+        public void setKeyHeaders(List<String> keyHeaders) {
+            this.keyHeaders = keyHeaders;
+        }
+    }
+}
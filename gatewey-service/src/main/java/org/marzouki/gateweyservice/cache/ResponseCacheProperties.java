@@ -0,0 +1,16 @@
+package org.marzouki.gateweyservice.cache;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Limits of the response cache shared by all routes using the ResponseCache filter
+ *
+ * @param maxSize      total size of the cached responses
+ * @param maxEntrySize responses larger than this are never cached
+ */
+@ConfigurationProperties(prefix = "gateway.response-cache")
+public record ResponseCacheProperties(@DefaultValue("64MB") DataSize maxSize,
+                                      @DefaultValue("1MB") DataSize maxEntrySize) {
+}
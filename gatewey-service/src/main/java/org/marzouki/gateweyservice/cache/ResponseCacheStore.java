@@ -0,0 +1,155 @@
+package org.marzouki.gateweyservice.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caffeine cache of responses, bounded by the total size of the responses.
+ * <p>
+ * Reads and writes take no global lock, so the Netty event loops never wait on each other. Each
+ * entry expires after its own TTL. Keys start with the route ID followed by a space; every live
+ * entry is also indexed under its route, so purging a route only visits that route's entries.
+ * Maintenance and removal notifications run on the calling thread rather than on a pool.
+ */
+@Component
+public class ResponseCacheStore {
+
+    private final long maxBytes;
+
+    private final long maxEntryBytes;
+
+    private final Cache<String, Entry> entries;
+
+    /**
+     * Route ID to the entries of the route, kept in step with the cache by the removal listener
+     */
+    private final Map<String, Map<String, Entry>> routes = new ConcurrentHashMap<>();
+
+    private final Counter hits;
+
+    private final Counter misses;
+
+    private final Counter evictions;
+
+    public ResponseCacheStore(ResponseCacheProperties properties, MeterRegistry meterRegistry) {
+        this.maxBytes = properties.maxSize().toBytes();
+        this.maxEntryBytes = properties.maxEntrySize().toBytes();
+        this.hits = Counter.builder("gateway.response.cache.requests").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("gateway.response.cache.requests").tag("result", "miss").register(meterRegistry);
+        this.evictions = Counter.builder("gateway.response.cache.evictions").register(meterRegistry);
+        this.entries = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String key, Entry entry) -> entry.weight)
+                .expireAfter(Expiry.writing((String key, Entry entry) -> Duration.ofNanos(entry.ttlNanos)))
+                .executor(Runnable::run)
+                .removalListener(this::removed)
+                .build();
+        Gauge.builder("gateway.response.cache.size", this, ResponseCacheStore::bytes)
+                .baseUnit("bytes").register(meterRegistry);
+        Gauge.builder("gateway.response.cache.entries", this, ResponseCacheStore::entryCount).register(meterRegistry);
+        Gauge.builder("gateway.response.cache.hit.ratio", this, ResponseCacheStore::hitRatio).register(meterRegistry);
+    }
+
+    /**
+     * Cached response for the key, null when absent or expired
+     */
+    public CachedResponse get(String key) {
+        Entry entry = entries.getIfPresent(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.response;
+    }
+
+    /**
+     * Store a response for ttlNanos, evicting other entries to make room.
+     * Responses larger than the maximum entry size are ignored.
+     */
+    public void put(String key, CachedResponse response, long ttlNanos) {
+        long weight = response.weight();
+        if (weight > maxEntryBytes || weight > maxBytes || weight > Integer.MAX_VALUE) {
+            return;
+        }
+        Entry entry = new Entry(routeId(key), response, (int) weight, ttlNanos);
+        Map<String, Entry> route = routes.computeIfAbsent(entry.routeId, routeId -> new ConcurrentHashMap<>());
+        // indexed under the key's lock, so concurrent puts leave the index holding the live entry
+        entries.asMap().compute(key, (k, previous) -> {
+            route.put(k, entry);
+            return entry;
+        });
+    }
+
+    /**
+     * Drop every entry of a route
+     */
+    public int purgeRoute(String routeId) {
+        Map<String, Entry> route = routes.get(routeId);
+        if (route == null) {
+            return 0;
+        }
+        int purged = 0;
+        for (String key : route.keySet()) {
+            if (entries.asMap().remove(key) != null) {
+                purged++;
+            }
+        }
+        return purged;
+    }
+
+    public int purgeAll() {
+        int purged = entryCount();
+        entries.invalidateAll();
+        return purged;
+    }
+
+    public long bytes() {
+        return entries.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L);
+    }
+
+    public int entryCount() {
+        return (int) entries.estimatedSize();
+    }
+
+    public long maxEntryBytes() {
+        return maxEntryBytes;
+    }
+
+    public double hitRatio() {
+        double lookups = hits.count() + misses.count();
+        return lookups == 0 ? 0 : hits.count() / lookups;
+    }
+
+    private void removed(String key, Entry entry, RemovalCause cause) {
+        if (key == null || entry == null) {
+            return;
+        }
+        Map<String, Entry> route = routes.get(entry.routeId);
+        if (route != null) {
+            // a newer entry stored under the same key stays indexed
+            route.remove(key, entry);
+        }
+        if (cause == RemovalCause.SIZE) {
+            evictions.increment();
+        }
+    }
+
+    private static String routeId(String key) {
+        int end = key.indexOf(' ');
+        return end < 0 ? key : key.substring(0, end);
+    }
+
+    private record Entry(String routeId, CachedResponse response, int weight, long ttlNanos) {
+    }
+}
@@ -0,0 +1,200 @@
+package org.marzouki.gateweyservice.coalesce;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.marzouki.gateweyservice.cache.CachedResponse;
+import org.marzouki.gateweyservice.cache.RequestKeys;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.springframework.cloud.gateway.filter.NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER;
+
+/**
+ * Collapses concurrent identical GET requests of a route into a single upstream call.
+ * <p>
+ * The first request of a key goes upstream and streams its response as usual, keeping a copy
+ * of the body. Identical requests arriving while it is in flight wait for it and receive the
+ * same status, headers and body. When the response is not a 200, the body exceeds the size
+ * limit, the response sets a cookie or the upstream call fails, the waiters fall back to their
+ * own upstream call. Keys are built by {@link RequestKeys}, so clients with different credentials
+ * never share a response. Conditional and range requests are never coalesced: their answer, a 304
+ * without a body or a 206 with part of it, depends on headers that are not part of the key.
+ * <pre>
+ * filters:
+ *   - name: RequestCoalescing
+ *     args:
+ *       max-body-size: 256KB
+ *       key-headers: Accept
+ * </pre>
+ */
+@Component
+public class RequestCoalescingGatewayFilterFactory extends AbstractGatewayFilterFactory<RequestCoalescingGatewayFilterFactory.Config> {
+
+    private static final List<String> CONDITIONAL_HEADERS = List.of(HttpHeaders.IF_NONE_MATCH,
+            HttpHeaders.IF_MODIFIED_SINCE, HttpHeaders.IF_MATCH, HttpHeaders.IF_UNMODIFIED_SINCE, HttpHeaders.RANGE);
+
+    private final Map<String, Flight> flights = new ConcurrentHashMap<>();
+
+    private final Map<String, Counter> coalesced = new ConcurrentHashMap<>();
+
+    private final MeterRegistry meterRegistry;
+
+    public RequestCoalescingGatewayFilterFactory(MeterRegistry meterRegistry) {
+        super(Config.class);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        // must run before NettyWriteResponseFilter so that it writes through the decorated response
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            if (!HttpMethod.GET.equals(exchange.getRequest().getMethod()) || isConditional(exchange.getRequest())) {
+                return chain.filter(exchange);
+            }
+            Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+            String routeId = route != null ? route.getId() : "";
+            String key = RequestKeys.of(routeId, exchange.getRequest(), config.getKeyHeaders());
+            Flight flight = new Flight();
+            Flight leader = flights.putIfAbsent(key, flight);
+            if (leader != null) {
+                coalesced.computeIfAbsent(routeId, id -> Counter.builder("gateway.requests.coalesced")
+                        .tag("route", id).register(meterRegistry)).increment();
+                return leader.result.asMono().flatMap(shared -> shared.isPresent()
+                        ? write(exchange.getResponse(), shared.get())
+                        : chain.filter(exchange));
+            }
+            SharingResponse response = new SharingResponse(exchange.getResponse(), flight, key, config.getMaxBodySize());
+            return chain.filter(exchange.mutate().response(response).build())
+                    .doFinally(signal -> response.land(Optional.empty()));
+        }, WRITE_RESPONSE_FILTER_ORDER - 1);
+    }
+
+    private static boolean isConditional(ServerHttpRequest request) {
+        for (String name : CONDITIONAL_HEADERS) {
+            if (request.getHeaders().containsHeader(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    int inFlight() {
+        return flights.size();
+    }
+
+    private static Mono<Void> write(ServerHttpResponse response, CachedResponse shared) {
+        response.setStatusCode(shared.status());
+        response.getHeaders().putAll(shared.headers());
+        return response.writeWith(Mono.fromSupplier(() -> response.bufferFactory().wrap(shared.body())));
+    }
+
+    private static final class Flight {
+
+        private final Sinks.One<Optional<CachedResponse>> result = Sinks.one();
+    }
+
+    /**
+     * Leader's response: streams to its own client while copying the body for the waiters
+     */
+    private class SharingResponse extends ServerHttpResponseDecorator {
+
+        private final Flight flight;
+
+        private final String key;
+
+        private final long maxBodyBytes;
+
+        SharingResponse(ServerHttpResponse delegate, Flight flight, String key, DataSize maxBodySize) {
+            super(delegate);
+            this.flight = flight;
+            this.key = key;
+            this.maxBodyBytes = maxBodySize.toBytes();
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            if (!HttpStatus.OK.equals(getStatusCode()) || getHeaders().containsHeader(HttpHeaders.SET_COOKIE)
+                    || getHeaders().getContentLength() > maxBodyBytes) {
+                land(Optional.empty());
+                return super.writeWith(body);
+            }
+            ByteArrayOutputStream copy = new ByteArrayOutputStream();
+            Flux<DataBuffer> shared = Flux.<DataBuffer>from(body)
+                    .doOnNext(buffer -> {
+                        if (copy.size() + (long) buffer.readableByteCount() > maxBodyBytes) {
+                            land(Optional.empty());
+                            return;
+                        }
+                        int readPosition = buffer.readPosition();
+                        byte[] bytes = new byte[buffer.readableByteCount()];
+                        buffer.read(bytes);
+                        buffer.readPosition(readPosition);
+                        copy.writeBytes(bytes);
+                    })
+                    .doOnComplete(() -> land(Optional.of(
+                            new CachedResponse(getStatusCode(), HttpHeaders.copyOf(getHeaders()), copy.toByteArray()))));
+            return super.writeWith(shared);
+        }
+
+        @Override
+        public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+            return writeWith(Flux.from(body).flatMapSequential(p -> p));
+        }
+
+        /**
+         * Release the waiters, once. Later identical requests start a new flight.
+         */
+        void land(Optional<CachedResponse> response) {
+            if (flights.remove(key, flight)) {
+                flight.result.tryEmitValue(response);
+            }
+        }
+    }
+
+    public static class Config {
+
+        private DataSize maxBodySize = DataSize.ofKilobytes(256);
+
+        private List<String> keyHeaders = new ArrayList<>();
+
+        public DataSize getMaxBodySize() {
+            return maxBodySize;
+        }
+
+        public void setMaxBodySize(DataSize maxBodySize) {
+            this.maxBodySize = maxBodySize;
+        }
+
+        public List<String> getKeyHeaders() {
+            return keyHeaders;
+        }
+
+        public void setKeyHeaders(List<String> keyHeaders) {
+            this.keyHeaders = keyHeaders;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package org.marzouki.gateweyservice.loadbalancer;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.NettyRoutingFilter;
+import org.springframework.cloud.gateway.filter.ReactiveLoadBalancerClientFilter;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.net.URI;
+
+/**
+ * Feeds {@link InstanceLoadTracker} with every request the load balancer routed, whatever the
+ * strategy of its route, so that instances shared by several routes are measured on all their
+ * traffic. The instance is the one {@link ReactiveLoadBalancerClientFilter} picked; the latency
+ * sample covers the upstream exchange only, from right before {@link NettyRoutingFilter} sends the
+ * request to the arrival of the response headers, which completes that filter. Filters answering
+ * on their own, such as the response cache, and the time spent writing the body to the client are
+ * not counted.
+ * A cancelled request still releases its slot and counts the time it had been waiting.
+ */
+@Component
+public class InstanceLoadFilter implements GlobalFilter, Ordered {
+
+    private final InstanceLoadTracker tracker;
+
+    public InstanceLoadFilter(InstanceLoadTracker tracker) {
+        this.tracker = tracker;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Response<ServiceInstance> response = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR);
+        if (response == null || !response.hasServer()) {
+            return chain.filter(exchange);
+        }
+        URI instance = response.getServer().getUri();
+        long start = System.nanoTime();
+        tracker.started(instance, start);
+        return chain.filter(exchange).doFinally(signal -> {
+            HttpStatusCode status = exchange.getResponse().getStatusCode();
+            boolean failed = signal == SignalType.ON_ERROR || status != null && status.is5xxServerError();
+            long now = System.nanoTime();
+            tracker.completed(instance, now - start, failed, now);
+        });
+    }
+
+    @Override
+    public int getOrder() {
+        return NettyRoutingFilter.ORDER - 1;
+    }
+}
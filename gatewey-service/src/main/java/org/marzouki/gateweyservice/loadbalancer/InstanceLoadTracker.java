@@ -0,0 +1,234 @@
+package org.marzouki.gateweyservice.loadbalancer;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.scheduler.Schedulers;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.random.RandomGenerator;
+
+/**
+ * Latency and load of each backend instance, as seen by the gateway, and the "power of two
+ * choices" pick made from them.
+ * <p>
+ * Latency is a peak EWMA: a response slower than the average replaces it at once, a faster one
+ * pulls it down with a weight that grows with the time since the previous response, so a pausing
+ * instance is noticed on its first slow response and forgiven over {@link LatencyAwareProperties#decay()}.
+ * The estimate also decays when read, as if an instantaneous response had just arrived: an instance
+ * left alone after one slow response, which gets no new samples to lower it, becomes cheap enough
+ * again to be tried instead of being avoided until the estimate goes stale.
+ * The cost of an instance is that latency times its outstanding requests plus one. Picking the
+ * cheaper of two random instances avoids the slow and the busy ones without sending every request
+ * to the single best instance, which would overload it before its average catches up.
+ * <p>
+ * Instances answering 5xx or failing the call are left out of the pick for a backoff that doubles
+ * with each consecutive failure, unless every instance is backing off.
+ */
+@Component
+public class InstanceLoadTracker implements DisposableBean {
+
+    private final Map<URI, InstanceLoad> loads = new ConcurrentHashMap<>();
+
+    private final long decayNanos;
+
+    private final long failureBackoffNanos;
+
+    private final long maxFailureBackoffNanos;
+
+    private final long idleExpiryNanos;
+
+    private final Disposable eviction;
+
+    public InstanceLoadTracker(LatencyAwareProperties properties) {
+        this.decayNanos = properties.decay().toNanos();
+        this.failureBackoffNanos = properties.failureBackoff().toNanos();
+        this.maxFailureBackoffNanos = properties.maxFailureBackoff().toNanos();
+        this.idleExpiryNanos = properties.idleExpiry().toNanos();
+        long interval = Math.max(1, properties.idleExpiry().toMillis() / 5);
+        this.eviction = Schedulers.parallel().schedulePeriodically(this::evictIdle,
+                interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * The cheaper of two distinct instances drawn at random among those not backing off
+     */
+    public ServiceInstance choose(List<ServiceInstance> instances, long now, RandomGenerator random) {
+        List<ServiceInstance> candidates = available(instances, now);
+        int size = candidates.size();
+        if (size == 1) {
+            return candidates.getFirst();
+        }
+        int first = random.nextInt(size);
+        int second = random.nextInt(size - 1);
+        if (second >= first) {
+            second++;
+        }
+        ServiceInstance a = candidates.get(first);
+        ServiceInstance b = candidates.get(second);
+        InstanceLoad loadA = load(a.getUri(), now);
+        InstanceLoad loadB = load(b.getUri(), now);
+        double latencyA = loadA.latency(now, decayNanos);
+        double latencyB = loadB.latency(now, decayNanos);
+        // An unmeasured instance is assumed as fast as the other one, so it gets tried
+        if (Double.isNaN(latencyA)) {
+            latencyA = Double.isNaN(latencyB) ? 1 : latencyB;
+        }
+        if (Double.isNaN(latencyB)) {
+            latencyB = latencyA;
+        }
+        return latencyB * (loadB.outstanding() + 1) < latencyA * (loadA.outstanding() + 1) ? b : a;
+    }
+
+    /**
+     * A request was sent to the instance
+     */
+    public void started(URI instance, long now) {
+        InstanceLoad load = load(instance, now);
+        load.outstanding.incrementAndGet();
+        load.lastUsedNanos = now;
+    }
+
+    /**
+     * The request sent to the instance completed after {@code latencyNanos}. A failure, 5xx or
+     * error, puts the instance in backoff instead of counting as a latency sample.
+     */
+    public void completed(URI instance, long latencyNanos, boolean failed, long now) {
+        InstanceLoad load = loads.get(instance);
+        if (load == null) {
+            return;
+        }
+        load.outstanding.decrementAndGet();
+        if (failed) {
+            load.fail(now, failureBackoffNanos, maxFailureBackoffNanos);
+        } else {
+            load.sample(latencyNanos, now, decayNanos);
+        }
+    }
+
+    /**
+     * Current latency estimate of the instance in nanoseconds, NaN when unmeasured
+     */
+    double latency(URI instance, long now) {
+        InstanceLoad load = loads.get(instance);
+        return load != null ? load.latency(now, decayNanos) : Double.NaN;
+    }
+
+    int outstanding(URI instance) {
+        InstanceLoad load = loads.get(instance);
+        return load != null ? load.outstanding() : 0;
+    }
+
+    int trackedInstances() {
+        return loads.size();
+    }
+
+    private List<ServiceInstance> available(List<ServiceInstance> instances, long now) {
+        List<ServiceInstance> available = null;
+        for (int i = 0; i < instances.size(); i++) {
+            InstanceLoad load = loads.get(instances.get(i).getUri());
+            boolean backingOff = load != null && load.backingOff(now);
+            if (backingOff && available == null) {
+                available = new ArrayList<>(instances.subList(0, i));
+            } else if (!backingOff && available != null) {
+                available.add(instances.get(i));
+            }
+        }
+        if (available == null) {
+            return instances;
+        }
+        return available.isEmpty() ? instances : available;
+    }
+
+    private InstanceLoad load(URI instance, long now) {
+        InstanceLoad load = loads.get(instance);
+        if (load == null) {
+            load = loads.computeIfAbsent(instance, uri -> new InstanceLoad(now));
+        }
+        return load;
+    }
+
+    /**
+     * Drop the instances nobody called for a while, typically replaced ones. A request racing with
+     * the eviction goes uncounted, which only makes its instance look idle for a moment.
+     */
+    void evictIdle() {
+        evictIdle(System.nanoTime());
+    }
+
+    void evictIdle(long now) {
+        loads.values().removeIf(load -> load.outstanding() == 0 && now - load.lastUsedNanos > idleExpiryNanos);
+    }
+
+    @Override
+    public void destroy() {
+        eviction.dispose();
+    }
+
+    private static final class InstanceLoad {
+
+        private final AtomicInteger outstanding = new AtomicInteger();
+
+        private volatile long lastUsedNanos;
+
+        private boolean measured;
+
+        private double latencyNanos;
+
+        private long lastSampleNanos;
+
+        private int consecutiveFailures;
+
+        private long backoffUntilNanos;
+
+        InstanceLoad(long now) {
+            this.lastUsedNanos = now;
+        }
+
+        int outstanding() {
+            return Math.max(0, outstanding.get());
+        }
+
+        synchronized double latency(long now, long decayNanos) {
+            return measured && now - lastSampleNanos <= decayNanos ? decayed(now, decayNanos) : Double.NaN;
+        }
+
+        synchronized boolean backingOff(long now) {
+            return consecutiveFailures > 0 && now - backoffUntilNanos < 0;
+        }
+
+        synchronized void sample(long rttNanos, long now, long decayNanos) {
+            double decayed = measured ? decayed(now, decayNanos) : 0;
+            latencyNanos = !measured || rttNanos > decayed
+                    ? rttNanos
+                    : decayed + rttNanos * (1 - weight(now, decayNanos));
+            measured = true;
+            lastSampleNanos = now;
+            consecutiveFailures = 0;
+        }
+
+        /**
+         * The estimate pulled towards zero by the time since the last sample
+         */
+        private double decayed(long now, long decayNanos) {
+            return latencyNanos * weight(now, decayNanos);
+        }
+
+        private double weight(long now, long decayNanos) {
+            return Math.exp(-(double) Math.max(0, now - lastSampleNanos) / decayNanos);
+        }
+
+        synchronized void fail(long now, long backoffNanos, long maxBackoffNanos) {
+            consecutiveFailures++;
+            long backoff = backoffNanos << Math.min(consecutiveFailures - 1, 20);
+            backoffUntilNanos = now + Math.min(backoff, maxBackoffNanos);
+        }
+    }
+}
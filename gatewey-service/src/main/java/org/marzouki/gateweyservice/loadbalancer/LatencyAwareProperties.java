@@ -0,0 +1,23 @@
+package org.marzouki.gateweyservice.loadbalancer;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Tuning of the latency-aware load balancer
+ *
+ * @param decay             time constant of the latency average; an instance without a response for
+ *                          that long is considered unmeasured again and gets probed
+ * @param failureBackoff    how long an instance is avoided after a 5xx or a failed call, doubled on
+ *                          each consecutive failure
+ * @param maxFailureBackoff upper bound of that doubling
+ * @param idleExpiry        the statistics of an instance not called for that long are dropped
+ */
+@ConfigurationProperties(prefix = "gateway.load-balancer")
+public record LatencyAwareProperties(@DefaultValue("10s") Duration decay,
+                                     @DefaultValue("1s") Duration failureBackoff,
+                                     @DefaultValue("30s") Duration maxFailureBackoff,
+                                     @DefaultValue("5m") Duration idleExpiry) {
+}
@@ -0,0 +1,92 @@
+package org.marzouki.gateweyservice.loadbalancer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.EmptyResponse;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.SelectedInstanceCallback;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Load balancer of one service, choosing the strategy from the metadata of the gateway route the
+ * request came through:
+ * <pre>
+ * routes:
+ *   - id: order-route
+ *     uri: lb://ORDER-SERVICE
+ *     metadata:
+ *       load-balancer: latency-aware
+ * </pre>
+ * {@code latency-aware} picks with {@link InstanceLoadTracker}, anything else, or no route at all,
+ * is the usual round-robin.
+ */
+public class RouteAwareLoadBalancer implements ReactorServiceInstanceLoadBalancer {
+
+    public static final String METADATA_KEY = "load-balancer";
+
+    public static final String LATENCY_AWARE = "latency-aware";
+
+    private static final Logger log = LoggerFactory.getLogger(RouteAwareLoadBalancer.class);
+
+    private final AtomicInteger position = new AtomicInteger(ThreadLocalRandom.current().nextInt(1000));
+
+    private final ObjectProvider<ServiceInstanceListSupplier> instanceListSuppliers;
+
+    private final String serviceId;
+
+    private final InstanceLoadTracker tracker;
+
+    public RouteAwareLoadBalancer(ObjectProvider<ServiceInstanceListSupplier> instanceListSuppliers, String serviceId,
+                                  InstanceLoadTracker tracker) {
+        this.instanceListSuppliers = instanceListSuppliers;
+        this.serviceId = serviceId;
+        this.tracker = tracker;
+    }
+
+    @Override
+    public Mono<Response<ServiceInstance>> choose(Request request) {
+        ServiceInstanceListSupplier supplier = instanceListSuppliers.getIfAvailable(NoopServiceInstanceListSupplier::new);
+        boolean latencyAware = LATENCY_AWARE.equals(strategy(request));
+        return supplier.get(request).next().map(instances -> {
+            if (instances.isEmpty()) {
+                log.warn("No instance available for {}", serviceId);
+                return new EmptyResponse();
+            }
+            ServiceInstance instance = latencyAware
+                    ? tracker.choose(instances, System.nanoTime(), ThreadLocalRandom.current())
+                    : roundRobin(instances);
+            if (supplier instanceof SelectedInstanceCallback callback) {
+                callback.selectedServiceInstance(instance);
+            }
+            return new DefaultResponse(instance);
+        });
+    }
+
+    private ServiceInstance roundRobin(List<ServiceInstance> instances) {
+        int next = position.incrementAndGet() & Integer.MAX_VALUE;
+        return instances.get(next % instances.size());
+    }
+
+    private static Object strategy(Request<?> request) {
+        if (request.getContext() instanceof RequestDataContext context && context.getClientRequest() != null
+                && context.getClientRequest().getAttributes() != null
+                && context.getClientRequest().getAttributes().get(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR) instanceof Route route) {
+            return route.getMetadata().get(METADATA_KEY);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,24 @@
+package org.marzouki.gateweyservice.loadbalancer;
+
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+
+/**
+ * Default configuration of the per-service load balancer contexts, replacing their round-robin
+ * balancer with {@link RouteAwareLoadBalancer}. Deliberately not a {@code @Configuration}: it is
+ * only registered in those child contexts, where the tracker comes from the gateway context.
+ */
+public class RouteAwareLoadBalancerConfiguration {
+
+    @Bean
+    ReactorServiceInstanceLoadBalancer routeAwareLoadBalancer(Environment environment,
+                                                              LoadBalancerClientFactory loadBalancerClientFactory,
+                                                              InstanceLoadTracker tracker) {
+        String serviceId = environment.getProperty(LoadBalancerClientFactory.PROPERTY_NAME);
+        return new RouteAwareLoadBalancer(
+                loadBalancerClientFactory.getLazyProvider(serviceId, ServiceInstanceListSupplier.class), serviceId, tracker);
+    }
+}
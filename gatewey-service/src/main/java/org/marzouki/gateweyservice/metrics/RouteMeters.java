@@ -0,0 +1,61 @@
+package org.marzouki.gateweyservice.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Meters of one route, registered once so that recording a request only updates existing
+ * histograms and counters
+ */
+final class RouteMeters {
+
+    private final Timer total;
+
+    private final Timer firstByte;
+
+    private final Timer upstreamFirstByte;
+
+    /**
+     * Responses by status class, index 1 to 5
+     */
+    private final Counter[] statusClasses = new Counter[6];
+
+    RouteMeters(String routeId, MeterRegistry meterRegistry) {
+        total = Timer.builder("gateway.route.requests")
+                .description("Time from the request entering the gateway to the end of the response")
+                .tag("route", routeId)
+                .register(meterRegistry);
+        firstByte = Timer.builder("gateway.route.ttfb")
+                .description("Time from the request entering the gateway to the first byte of the response")
+                .tag("route", routeId)
+                .register(meterRegistry);
+        upstreamFirstByte = Timer.builder("gateway.route.upstream.ttfb")
+                .description("Time from the upstream call being sent to the first byte of the response")
+                .tag("route", routeId)
+                .register(meterRegistry);
+        for (int statusClass = 1; statusClass < statusClasses.length; statusClass++) {
+            statusClasses[statusClass] = Counter.builder("gateway.route.responses")
+                    .tag("route", routeId)
+                    .tag("status", statusClass + "xx")
+                    .register(meterRegistry);
+        }
+    }
+
+    void recordFirstByte(long startNanos, long upstreamStartNanos, long nowNanos) {
+        firstByte.record(nowNanos - startNanos, TimeUnit.NANOSECONDS);
+        if (upstreamStartNanos != 0) {
+            upstreamFirstByte.record(nowNanos - upstreamStartNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    void recordCompletion(long startNanos, int status, long nowNanos) {
+        total.record(nowNanos - startNanos, TimeUnit.NANOSECONDS);
+        int statusClass = status / 100;
+        if (statusClass > 0 && statusClass < statusClasses.length) {
+            statusClasses[statusClass].increment();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package org.marzouki.gateweyservice.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records, per route, the total time of each request, its time to first byte and the status
+ * class of its response. Together with {@link UpstreamTimingFilter} it separates the time spent
+ * in the gateway (filters, instance lookup) from the time spent waiting for the backend.
+ * <p>
+ * Percentiles and histogram buckets are configured with the usual
+ * {@code management.metrics.distribution.*} properties on the {@code gateway.route} prefix.
+ */
+@Component
+public class RouteTimingFilter implements GlobalFilter, Ordered {
+
+    static final String UPSTREAM_START_ATTR = RouteTimingFilter.class.getName() + ".upstreamStart";
+
+    private final Map<String, RouteMeters> meters = new ConcurrentHashMap<>();
+
+    private final MeterRegistry meterRegistry;
+
+    public RouteTimingFilter(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        if (route == null) {
+            return chain.filter(exchange);
+        }
+        RouteMeters routeMeters = meters(route.getId());
+        long start = System.nanoTime();
+        exchange.getResponse().beforeCommit(() -> {
+            Long upstreamStart = exchange.getAttribute(UPSTREAM_START_ATTR);
+            routeMeters.recordFirstByte(start, upstreamStart != null ? upstreamStart : 0, System.nanoTime());
+            return Mono.empty();
+        });
+        return chain.filter(exchange).doFinally(signal -> {
+            HttpStatusCode status = exchange.getResponse().getStatusCode();
+            routeMeters.recordCompletion(start, status != null ? status.value() : 0, System.nanoTime());
+        });
+    }
+
+    private RouteMeters meters(String routeId) {
+        RouteMeters routeMeters = meters.get(routeId);
+        if (routeMeters == null) {
+            routeMeters = meters.computeIfAbsent(routeId, id -> new RouteMeters(id, meterRegistry));
+        }
+        return routeMeters;
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+}
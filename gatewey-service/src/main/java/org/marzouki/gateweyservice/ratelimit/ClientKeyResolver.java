@@ -0,0 +1,45 @@
+package org.marzouki.gateweyservice.ratelimit;
+
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.cloud.gateway.support.ipresolver.RemoteAddressResolver;
+import org.springframework.cloud.gateway.support.ipresolver.XForwardedRemoteAddressResolver;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+
+/**
+ * Identifies the client of a request for rate limiting by its address.
+ * <p>
+ * Bearer tokens are not verified at the gateway, so their subject is whatever the client chose
+ * to send and would let it open a fresh bucket per request. The address is the remote address
+ * of the connection, or with {@link RateLimiterProperties#trustedProxies()} proxies in front of
+ * the gateway, the X-Forwarded-For entry appended by the outermost trusted one.
+ */
+@Component
+@Primary
+public class ClientKeyResolver implements KeyResolver {
+
+    private final RemoteAddressResolver remoteAddressResolver;
+
+    public ClientKeyResolver(RateLimiterProperties properties) {
+        this.remoteAddressResolver = properties.trustedProxies() > 0
+                ? XForwardedRemoteAddressResolver.maxTrustedIndex(properties.trustedProxies())
+                : new RemoteAddressResolver() {
+                };
+    }
+
+    @Override
+    public Mono<String> resolve(ServerWebExchange exchange) {
+        InetSocketAddress remoteAddress = remoteAddressResolver.resolve(exchange);
+        if (remoteAddress == null) {
+            return Mono.empty();
+        }
+        // An unresolved forwarded address has no InetAddress, only the host string it was given
+        return Mono.just("ip:" + (remoteAddress.getAddress() != null
+                ? remoteAddress.getAddress().getHostAddress()
+                : remoteAddress.getHostString()));
+    }
+}
@@ -0,0 +1,20 @@
+package org.marzouki.gateweyservice.ratelimit;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Memory bounds of the in-process rate limiter and how it tells clients apart
+ *
+ * @param maxBucketsPerRoute new clients beyond this number are rejected until idle buckets are evicted
+ * @param evictionInterval   how often full, hence idle, buckets are dropped
+ * @param trustedProxies     proxies in front of the gateway appending to X-Forwarded-For; 0 keys
+ *                           clients on the address of the connection itself
+ */
+@ConfigurationProperties(prefix = "gateway.rate-limiter")
+public record RateLimiterProperties(@DefaultValue("100000") int maxBucketsPerRoute,
+                                    @DefaultValue("30s") Duration evictionInterval,
+                                    @DefaultValue("0") int trustedProxies) {
+}
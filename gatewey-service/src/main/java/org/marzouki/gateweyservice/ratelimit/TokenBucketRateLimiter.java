@@ -0,0 +1,191 @@
+package org.marzouki.gateweyservice.ratelimit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.cloud.gateway.filter.ratelimit.AbstractRateLimiter;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import org.springframework.context.annotation.Primary;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process token bucket rate limiter used by the RequestRateLimiter filter, one bucket per
+ * route and client.
+ * <p>
+ * Each bucket is a single {@link AtomicLong} holding its theoretical arrival time (GCRA): the
+ * instant at which the bucket would be full again. Taking a token pushes that instant one
+ * emission interval further, and a request is rejected when it would land more than capacity
+ * intervals in the future. Updates are a compare-and-set loop, so concurrent requests of the
+ * same client never block each other.
+ * <p>
+ * A bucket whose arrival time has passed is full, so dropping it loses nothing; such idle
+ * buckets are evicted periodically. Past {@link RateLimiterProperties#maxBucketsPerRoute()},
+ * requests of new clients on the route are rejected until the next eviction makes room, while the
+ * clients already tracked keep their own buckets. A bucket shared by the newcomers would let any
+ * one of them spend the allowance of all the others, and evicting buckets still refilling would
+ * hand throttled clients a fresh burst.
+ * <pre>
+ * filters:
+ *   - name: RequestRateLimiter
+ *     args:
+ *       token-bucket-rate-limiter.capacity: 40
+ *       token-bucket-rate-limiter.refill-rate: 20
+ * </pre>
+ */
+@Component
+@Primary
+public class TokenBucketRateLimiter extends AbstractRateLimiter<TokenBucketRateLimiter.Config> implements DisposableBean {
+
+    public static final String CONFIGURATION_PROPERTY_NAME = "token-bucket-rate-limiter";
+
+    public static final String REMAINING_HEADER = "X-RateLimit-Remaining";
+
+    private final Map<String, ConcurrentHashMap<String, AtomicLong>> buckets = new ConcurrentHashMap<>();
+
+    private final Map<String, Counter> rejections = new ConcurrentHashMap<>();
+
+    private final Config defaultConfig = new Config();
+
+    private final int maxBucketsPerRoute;
+
+    private final long retryAfterFullSeconds;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Disposable eviction;
+
+    public TokenBucketRateLimiter(ConfigurationService configurationService, RateLimiterProperties properties,
+                                  MeterRegistry meterRegistry) {
+        super(Config.class, CONFIGURATION_PROPERTY_NAME, configurationService);
+        this.maxBucketsPerRoute = properties.maxBucketsPerRoute();
+        this.meterRegistry = meterRegistry;
+        long interval = properties.evictionInterval().toMillis();
+        this.retryAfterFullSeconds = Math.max(1, properties.evictionInterval().toSeconds());
+        this.eviction = Schedulers.parallel().schedulePeriodically(this::evictIdleBuckets,
+                interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Mono<Response> isAllowed(String routeId, String id) {
+        return Mono.just(tryAcquire(routeId, id, System.nanoTime()));
+    }
+
+    Response tryAcquire(String routeId, String id, long now) {
+        Config config = getConfig().getOrDefault(routeId, defaultConfig);
+        long interval = config.emissionIntervalNanos();
+        long tolerance = interval * config.getCapacity();
+        long cost = interval * config.getRequestedTokens();
+        AtomicLong bucket = bucket(routeId, id, now);
+        if (bucket == null) {
+            return reject(routeId, retryAfterFullSeconds);
+        }
+        while (true) {
+            long arrival = bucket.get();
+            long next = Math.max(arrival, now) + cost;
+            long excess = next - now - tolerance;
+            if (excess > 0) {
+                return reject(routeId, (excess + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+            }
+            if (bucket.compareAndSet(arrival, next)) {
+                return new Response(true, Map.of(REMAINING_HEADER, String.valueOf(-excess / interval)));
+            }
+        }
+    }
+
+    private Response reject(String routeId, long retryAfterSeconds) {
+        rejections.computeIfAbsent(routeId, route -> Counter.builder("gateway.ratelimit.rejected")
+                .tag("route", route).register(meterRegistry)).increment();
+        return new Response(false, Map.of(
+                HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds),
+                REMAINING_HEADER, "0"));
+    }
+
+    /**
+     * Bucket of the client on the route, null when the route has no room for a new one. Clients
+     * racing for the last places may overshoot the bound by a few buckets.
+     */
+    private AtomicLong bucket(String routeId, String id, long now) {
+        ConcurrentHashMap<String, AtomicLong> routeBuckets = buckets.computeIfAbsent(routeId, route -> new ConcurrentHashMap<>());
+        AtomicLong bucket = routeBuckets.get(id);
+        if (bucket != null || routeBuckets.size() >= maxBucketsPerRoute) {
+            return bucket;
+        }
+        return routeBuckets.computeIfAbsent(id, k -> new AtomicLong(now));
+    }
+
+    /**
+     * Drop the buckets that refilled completely. A request racing with the eviction may spend a
+     * token on a bucket that is being dropped, which at worst grants that client one extra token.
+     */
+    void evictIdleBuckets() {
+        long now = System.nanoTime();
+        buckets.values().forEach(routeBuckets -> routeBuckets.values().removeIf(bucket -> bucket.get() - now <= 0));
+    }
+
+    int bucketCount() {
+        return buckets.values().stream().mapToInt(Map::size).sum();
+    }
+
+    @Override
+    public void destroy() {
+        eviction.dispose();
+    }
+
+    public static class Config {
+
+        /**
+         * Maximum burst, in requests
+         */
+        private int capacity = 100;
+
+        /**
+         * Sustained rate, in requests per second
+         */
+        private double refillRate = 50;
+
+        /**
+         * Tokens taken by each request
+         */
+        private int requestedTokens = 1;
+
+        long emissionIntervalNanos() {
+            return Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / refillRate));
+        }
+
+        public int getCapacity() {
+            return capacity;
+        }
+
+        public Config setCapacity(int capacity) {
+            this.capacity = capacity;
+            return this;
+        }
+
+        public double getRefillRate() {
+            return refillRate;
+        }
+
+        public Config setRefillRate(double refillRate) {
+            this.refillRate = refillRate;
+            return this;
+        }
+
+        public int getRequestedTokens() {
+            return requestedTokens;
+        }
+
+        public Config setRequestedTokens(int requestedTokens) {
+            this.requestedTokens = requestedTokens;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package org.marzouki.gateweyservice.cache;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "eureka.client.enabled=false",
+        "management.endpoints.access.default=unrestricted"
+})
+@DirtiesContext
+class ResponseCacheGatewayFilterFactoryTests {
+
+    private static final HttpServer upstream = startUpstream();
+
+    private static final Map<String, AtomicInteger> upstreamCalls = new ConcurrentHashMap<>();
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ResponseCacheStore responseCacheStore;
+
+    @DynamicPropertySource
+    static void upstreamInstance(DynamicPropertyRegistry registry) {
+        registry.add("spring.cloud.discovery.client.simple.instances.PRODUCT-SERVICE[0].uri",
+                () -> "http://localhost:" + upstream.getAddress().getPort());
+    }
+
+    @AfterAll
+    static void stopUpstream() {
+        upstream.stop(0);
+    }
+
+    @BeforeEach
+    void reset() {
+        responseCacheStore.purgeAll();
+        upstreamCalls.clear();
+    }
+
+    @Test
+    void repeatedGetIsServedFromCache() throws Exception {
+        HttpResponse<String> first = get("/product-service/api/products", Map.of());
+        HttpResponse<String> second = get("/product-service/api/products", Map.of());
+
+        assertThat(first.headers().firstValue("X-Cache")).hasValue("MISS");
+        assertThat(second.headers().firstValue("X-Cache")).hasValue("HIT");
+        assertThat(second.body()).isEqualTo(first.body());
+        assertThat(second.headers().firstValue("Content-Type")).hasValue("application/json");
+        assertThat(calls("/api/products")).isEqualTo(1);
+        assertThat(responseCacheStore.bytes()).isPositive();
+    }
+
+    @Test
+    void queryParameterOrderDoesNotSplitTheCache() throws Exception {
+        get("/product-service/api/products?size=10&page=1", Map.of());
+        HttpResponse<String> reordered = get("/product-service/api/products?page=1&size=10", Map.of());
+
+        assertThat(reordered.headers().firstValue("X-Cache")).hasValue("HIT");
+        assertThat(calls("/api/products")).isEqualTo(1);
+    }
+
+    @Test
+    void keyHeadersSplitTheCache() throws Exception {
+        get("/product-service/api/products", Map.of("Accept-Language", "fr"));
+        HttpResponse<String> english = get("/product-service/api/products", Map.of("Accept-Language", "en"));
+
+        assertThat(english.headers().firstValue("X-Cache")).hasValue("MISS");
+        assertThat(calls("/api/products")).isEqualTo(2);
+    }
+
+    @Test
+    void credentialsSplitTheCache() throws Exception {
+        get("/product-service/api/products", Map.of("Authorization", "Bearer alice"));
+        HttpResponse<String> otherToken = get("/product-service/api/products", Map.of("Authorization", "Bearer bob"));
+        HttpResponse<String> otherCookie = get("/product-service/api/products", Map.of("Cookie", "SESSION=bob"));
+        HttpResponse<String> sameToken = get("/product-service/api/products", Map.of("Authorization", "Bearer alice"));
+
+        assertThat(otherToken.headers().firstValue("X-Cache")).hasValue("MISS");
+        assertThat(otherCookie.headers().firstValue("X-Cache")).hasValue("MISS");
+        assertThat(sameToken.headers().firstValue("X-Cache")).hasValue("HIT");
+        assertThat(calls("/api/products")).isEqualTo(3);
+    }
+
+    @Test
+    void cacheControlIsHonoured() throws Exception {
+        get("/product-service/api/private", Map.of());
+        get("/product-service/api/private", Map.of());
+        assertThat(calls("/api/private")).isEqualTo(2);
+
+        get("/product-service/api/products", Map.of());
+        HttpResponse<String> refreshed = get("/product-service/api/products", Map.of("Cache-Control", "no-cache"));
+        assertThat(refreshed.headers().firstValue("X-Cache")).hasValue("MISS");
+        assertThat(calls("/api/products")).isEqualTo(2);
+    }
+
+    @Test
+    void cachedETagAnswersConditionalRequests() throws Exception {
+        get("/product-service/api/products", Map.of());
+        HttpResponse<String> conditional = get("/product-service/api/products", Map.of("If-None-Match", "\"v1\""));
+
+        assertThat(conditional.statusCode()).isEqualTo(304);
+        assertThat(conditional.body()).isEmpty();
+        assertThat(calls("/api/products")).isEqualTo(1);
+    }
+
+    @Test
+    void writesThroughTheRouteAndPurgeEndpointEvictEntries() throws Exception {
+        get("/product-service/api/products", Map.of());
+        send(HttpRequest.newBuilder(uri("/product-service/api/products"))
+                .POST(HttpRequest.BodyPublishers.ofString("{}")).build());
+        assertThat(get("/product-service/api/products", Map.of()).headers().firstValue("X-Cache")).hasValue("MISS");
+
+        HttpResponse<String> purge = send(HttpRequest.newBuilder(uri("/actuator/responsecache/product-route"))
+                .DELETE().build());
+        assertThat(purge.statusCode()).isEqualTo(200);
+        assertThat(purge.body()).contains("\"purged\":1");
+        assertThat(get("/product-service/api/products", Map.of()).headers().firstValue("X-Cache")).hasValue("MISS");
+        assertThat(calls("/api/products")).isEqualTo(3);
+    }
+
+    @Test
+    void onlySuccessfulWritesPurgeTheRoute() throws Exception {
+        get("/product-service/api/products", Map.of());
+        send(HttpRequest.newBuilder(uri("/product-service/api/products"))
+                .method("HEAD", HttpRequest.BodyPublishers.noBody()).build());
+        send(HttpRequest.newBuilder(uri("/product-service/api/products"))
+                .method("OPTIONS", HttpRequest.BodyPublishers.noBody()).build());
+        HttpResponse<String> rejected = send(HttpRequest.newBuilder(uri("/product-service/api/invalid"))
+                .POST(HttpRequest.BodyPublishers.ofString("{}")).build());
+        assertThat(rejected.statusCode()).isEqualTo(400);
+        assertThat(get("/product-service/api/products", Map.of()).headers().firstValue("X-Cache")).hasValue("HIT");
+
+        send(HttpRequest.newBuilder(uri("/product-service/api/products/1"))
+                .method("PATCH", HttpRequest.BodyPublishers.ofString("{}")).build());
+        assertThat(get("/product-service/api/products", Map.of()).headers().firstValue("X-Cache")).hasValue("MISS");
+        assertThat(calls("/api/products")).isEqualTo(2);
+    }
+
+    private HttpResponse<String> get(String path, Map<String, String> headers) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri(path)).GET();
+        headers.forEach(request::header);
+        return send(request.build());
+    }
+
+    private HttpResponse<String> send(HttpRequest request) throws Exception {
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private static int calls(String path) {
+        AtomicInteger calls = upstreamCalls.get(path);
+        return calls == null ? 0 : calls.get();
+    }
+
+    private static HttpServer startUpstream() {
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+            server.createContext("/api/", exchange -> {
+                String path = exchange.getRequestURI().getPath();
+                exchange.getRequestBody().readAllBytes();
+                byte[] body = ("[{\"path\":\"" + path + "\"}]").getBytes(StandardCharsets.UTF_8);
+                if (exchange.getRequestMethod().equals("GET")) {
+                    upstreamCalls.computeIfAbsent(path, p -> new AtomicInteger()).incrementAndGet();
+                }
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.getResponseHeaders().set("ETag", "\"v1\"");
+                if (path.equals("/api/private")) {
+                    exchange.getResponseHeaders().set("Cache-Control", "private");
+                }
+                if (path.equals("/api/invalid")) {
+                    exchange.sendResponseHeaders(400, -1);
+                    exchange.close();
+                    return;
+                }
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            });
+            server.start();
+            return server;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
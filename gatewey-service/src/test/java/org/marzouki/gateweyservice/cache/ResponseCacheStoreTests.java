@@ -0,0 +1,97 @@
+package org.marzouki.gateweyservice.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.unit.DataSize;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResponseCacheStoreTests {
+
+    private static final long TTL = TimeUnit.MINUTES.toNanos(1);
+
+    private final ResponseCacheStore store = new ResponseCacheStore(
+            new ResponseCacheProperties(DataSize.ofKilobytes(64), DataSize.ofKilobytes(4)), new SimpleMeterRegistry());
+
+    @Test
+    void purgingARouteKeepsTheOtherRoutes() {
+        store.put("orders /api/bills/1", response(100), TTL);
+        store.put("orders /api/bills/2", response(100), TTL);
+        store.put("orders-admin /api/bills/1", response(100), TTL);
+        // Stored again under the same key, the newer entry must still be purged
+        store.put("orders /api/bills/1", response(200), TTL);
+
+        assertThat(store.purgeRoute("orders")).isEqualTo(2);
+        assertThat(store.get("orders /api/bills/1")).isNull();
+        assertThat(store.get("orders /api/bills/2")).isNull();
+        assertThat(store.get("orders-admin /api/bills/1")).isNotNull();
+        assertThat(store.purgeRoute("orders")).isZero();
+        assertThat(store.purgeRoute("unknown")).isZero();
+    }
+
+    @Test
+    void sizeStaysWithinTheBoundAndOversizedResponsesAreIgnored() {
+        for (int i = 0; i < 100; i++) {
+            store.put("products /api/products/" + i, response(2_000), TTL);
+        }
+        store.put("products /api/products", response(8_000), TTL);
+
+        assertThat(store.bytes()).isPositive().isLessThanOrEqualTo(DataSize.ofKilobytes(64).toBytes());
+        assertThat(store.entryCount()).isLessThan(100);
+        assertThat(store.get("products /api/products")).isNull();
+    }
+
+    @Test
+    void expiredEntriesAreNotServed() throws Exception {
+        store.put("products /api/products/1", response(100), TimeUnit.MILLISECONDS.toNanos(20));
+        store.put("products /api/products/2", response(100), TTL);
+        Thread.sleep(50);
+
+        assertThat(store.get("products /api/products/1")).isNull();
+        assertThat(store.get("products /api/products/2")).isNotNull();
+    }
+
+    @Test
+    void concurrentWritesAndPurgesLeaveNoStaleEntryBehind() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                int offset = thread;
+                tasks.add(executor.submit(() -> {
+                    for (int i = 0; i < 2_000; i++) {
+                        store.put("orders /api/bills/" + (i % 50), response(100), TTL);
+                        store.get("orders /api/bills/" + ((i + offset) % 50));
+                        if (i % 100 == offset) {
+                            store.purgeRoute("orders");
+                        }
+                    }
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        store.purgeRoute("orders");
+        for (int i = 0; i < 50; i++) {
+            assertThat(store.get("orders /api/bills/" + i)).isNull();
+        }
+        assertThat(store.entryCount()).isZero();
+    }
+
+    private static CachedResponse response(int bodyBytes) {
+        return new CachedResponse(HttpStatus.OK, new HttpHeaders(), new byte[bodyBytes]);
+    }
+}
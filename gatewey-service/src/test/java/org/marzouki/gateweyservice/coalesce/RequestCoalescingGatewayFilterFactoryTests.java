@@ -0,0 +1,189 @@
+package org.marzouki.gateweyservice.coalesce;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "eureka.client.enabled=false")
+@DirtiesContext
+class RequestCoalescingGatewayFilterFactoryTests {
+
+    private static final int BURST = 20;
+
+    private static final String VERSION = "\"v1\"";
+
+    private static final HttpServer upstream = startUpstream();
+
+    private static final AtomicInteger upstreamCalls = new AtomicInteger();
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private RequestCoalescingGatewayFilterFactory requestCoalescingGatewayFilterFactory;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @DynamicPropertySource
+    static void upstreamInstance(DynamicPropertyRegistry registry) {
+        registry.add("spring.cloud.discovery.client.simple.instances.PRODUCT-SERVICE[0].uri",
+                () -> "http://localhost:" + upstream.getAddress().getPort());
+    }
+
+    @AfterAll
+    static void stopUpstream() {
+        upstream.stop(0);
+    }
+
+    @BeforeEach
+    void reset() {
+        upstreamCalls.set(0);
+    }
+
+    @Test
+    void concurrentIdenticalRequestsShareOneUpstreamCall() {
+        double coalescedBefore = coalescedCount();
+
+        List<HttpResponse<String>> responses = burst("/product-service/api/products/flash", "Bearer same-client");
+
+        assertThat(responses).allSatisfy(response -> {
+            assertThat(response.statusCode()).isEqualTo(200);
+            assertThat(response.body()).isEqualTo("{\"id\":\"/api/products/flash\"}");
+            assertThat(response.headers().firstValue("Content-Type")).hasValue("application/json");
+        });
+        assertThat(upstreamCalls.get()).isLessThan(BURST / 2);
+        assertThat(coalescedCount() - coalescedBefore).isEqualTo(BURST - upstreamCalls.get());
+        assertThat(requestCoalescingGatewayFilterFactory.inFlight()).isZero();
+    }
+
+    @Test
+    void oversizedBodiesAreNotShared() {
+        List<HttpResponse<String>> responses = burst("/product-service/api/products/large", "Bearer same-client");
+
+        assertThat(responses).allSatisfy(response -> assertThat(response.body()).hasSize(300_000));
+        assertThat(upstreamCalls.get()).isEqualTo(BURST);
+    }
+
+    @Test
+    void conditionalRequestDoesNotHandItsNotModifiedToPlainOnes() throws InterruptedException {
+        CompletableFuture<HttpResponse<String>> conditional = client.sendAsync(
+                HttpRequest.newBuilder(request("/product-service/api/products/versioned", "Bearer same-client"), (n, v) -> true)
+                        .header("If-None-Match", VERSION).build(),
+                HttpResponse.BodyHandlers.ofString());
+        // Still in flight upstream when the plain requests arrive
+        Thread.sleep(100);
+        List<HttpResponse<String>> responses = burst("/product-service/api/products/versioned", "Bearer same-client");
+
+        assertThat(conditional.join().statusCode()).isEqualTo(304);
+        assertThat(responses).allSatisfy(response -> {
+            assertThat(response.statusCode()).isEqualTo(200);
+            assertThat(response.body()).isEqualTo("{\"id\":\"/api/products/versioned\"}");
+        });
+        assertThat(upstreamCalls.get()).isLessThan(BURST / 2 + 1);
+    }
+
+    @Test
+    void onlySuccessfulResponsesAreShared() {
+        List<HttpResponse<String>> responses = burst("/product-service/api/products/missing", "Bearer same-client");
+
+        assertThat(responses).allSatisfy(response -> assertThat(response.statusCode()).isEqualTo(404));
+        assertThat(upstreamCalls.get()).isEqualTo(BURST);
+    }
+
+    @Test
+    void clientsWithDifferentCredentialsAreNotCoalesced() {
+        List<CompletableFuture<HttpResponse<String>>> requests = new ArrayList<>();
+        for (int i = 0; i < BURST; i++) {
+            requests.add(client.sendAsync(request("/product-service/api/products/flash", "Bearer client-" + i),
+                    HttpResponse.BodyHandlers.ofString()));
+        }
+        requests.forEach(CompletableFuture::join);
+
+        assertThat(upstreamCalls.get()).isEqualTo(BURST);
+    }
+
+    private List<HttpResponse<String>> burst(String path, String authorization) {
+        List<CompletableFuture<HttpResponse<String>>> requests = new ArrayList<>();
+        for (int i = 0; i < BURST; i++) {
+            requests.add(client.sendAsync(request(path, authorization), HttpResponse.BodyHandlers.ofString()));
+        }
+        return requests.stream().map(CompletableFuture::join).toList();
+    }
+
+    private HttpRequest request(String path, String authorization) {
+        // no-store keeps the response cache of the product route out of the way
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header("Authorization", authorization)
+                .header("Cache-Control", "no-store")
+                .GET().build();
+    }
+
+    private double coalescedCount() {
+        return meterRegistry.find("gateway.requests.coalesced").tag("route", "product-route").counters().stream()
+                .mapToDouble(counter -> counter.count()).sum();
+    }
+
+    private static HttpServer startUpstream() {
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+            server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+            server.createContext("/api/", exchange -> {
+                upstreamCalls.incrementAndGet();
+                String path = exchange.getRequestURI().getPath();
+                try {
+                    Thread.sleep(300);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                if (path.endsWith("/versioned")) {
+                    exchange.getResponseHeaders().set("ETag", VERSION);
+                    if (VERSION.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                        exchange.sendResponseHeaders(304, -1);
+                        exchange.close();
+                        return;
+                    }
+                }
+                byte[] body = path.endsWith("/large")
+                        ? "x".repeat(300_000).getBytes(StandardCharsets.UTF_8)
+                        : ("{\"id\":\"" + path + "\"}").getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                // Chunked, like JSON written by the services
+                exchange.sendResponseHeaders(path.endsWith("/missing") ? 404 : 200, 0);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            });
+            server.start();
+            return server;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
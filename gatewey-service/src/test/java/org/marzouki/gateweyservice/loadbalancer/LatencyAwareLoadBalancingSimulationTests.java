@@ -0,0 +1,306 @@
+package org.marzouki.gateweyservice.loadbalancer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Replays the same request stream against simulated instances, one of them pausing like a JVM
+ * in long GCs, once with round-robin and once with {@link InstanceLoadTracker}. Time is simulated,
+ * so the run is deterministic and takes well under a second.
+ */
+class LatencyAwareLoadBalancingSimulationTests {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static final long START = System.nanoTime();
+
+    private final List<InstanceLoadTracker> trackers = new ArrayList<>();
+
+    @AfterEach
+    void stopTrackers() {
+        trackers.forEach(InstanceLoadTracker::destroy);
+    }
+
+    @Test
+    void pausingInstanceIsAvoidedAndTailLatencyDrops() {
+        Simulation roundRobin = new Simulation(null).run();
+        Simulation latencyAware = new Simulation(tracker()).run();
+
+        long roundRobinP99 = roundRobin.percentile(0.99);
+        long latencyAwareP99 = latencyAware.percentile(0.99);
+
+        // Round-robin keeps queueing a quarter of the requests behind each pause
+        assertThat(roundRobinP99).isGreaterThan(100 * MS);
+        assertThat(latencyAwareP99).isLessThan(roundRobinP99 / 3);
+        assertThat(latencyAware.percentile(0.999)).isLessThan(roundRobin.percentile(0.999));
+        assertThat(latencyAware.percentile(0.5)).isLessThanOrEqualTo(roundRobin.percentile(0.5) + MS);
+        assertThat(latencyAware.share(Simulation.PAUSING)).isLessThan(roundRobin.share(Simulation.PAUSING));
+        // The pausing instance still serves between its pauses
+        assertThat(latencyAware.share(Simulation.PAUSING)).isGreaterThan(0.02);
+    }
+
+    @Test
+    void slowerInstanceGetsLessTraffic() {
+        InstanceLoadTracker tracker = tracker();
+        List<ServiceInstance> instances = instances(2);
+        URI fast = instances.get(0).getUri();
+        URI slow = instances.get(1).getUri();
+        long now = START;
+        tracker.started(fast, now);
+        tracker.completed(fast, 5 * MS, false, now + 5 * MS);
+        tracker.started(slow, now);
+        tracker.completed(slow, 50 * MS, false, now + 50 * MS);
+
+        now += 50 * MS;
+        assertThat(tracker.choose(instances, now, new SplittableRandom(1))).isEqualTo(instances.get(0));
+        // Until the fast one has ten times more requests waiting
+        for (int i = 0; i < 10; i++) {
+            tracker.started(fast, now);
+        }
+        assertThat(tracker.choose(instances, now, new SplittableRandom(1))).isEqualTo(instances.get(1));
+    }
+
+    @Test
+    void outlierOfAnIdleInstanceDecaysWithoutNewSamples() {
+        InstanceLoadTracker tracker = tracker();
+        List<ServiceInstance> instances = instances(2);
+        URI fast = instances.get(0).getUri();
+        URI slow = instances.get(1).getUri();
+        long now = START;
+        // The first response of the fast instance paid for a cold connection
+        tracker.started(fast, now);
+        tracker.completed(fast, 300 * MS, false, now + 300 * MS);
+        now += 300 * MS;
+        tracker.started(slow, now);
+        tracker.completed(slow, 150 * MS, false, now + 150 * MS);
+        now += 150 * MS;
+        assertThat(tracker.choose(instances, now, new SplittableRandom(1))).isEqualTo(instances.get(1));
+
+        // Only the slow instance gets samples, yet the fast one's peak keeps decaying until it is picked again
+        long until = now + Duration.ofSeconds(2).toNanos();
+        while (now < until && tracker.choose(instances, now, new SplittableRandom(1)).equals(instances.get(1))) {
+            tracker.started(slow, now);
+            tracker.completed(slow, 150 * MS, false, now + 150 * MS);
+            now += 150 * MS;
+        }
+        assertThat(tracker.choose(instances, now, new SplittableRandom(1))).isEqualTo(instances.get(0));
+        assertThat(tracker.latency(fast, now)).isLessThan(150.0 * MS);
+    }
+
+    @Test
+    void failingInstanceIsLeftOutForADoublingBackoff() {
+        InstanceLoadTracker tracker = tracker();
+        List<ServiceInstance> instances = instances(3);
+        URI failing = instances.get(2).getUri();
+        SplittableRandom random = new SplittableRandom(3);
+        long now = START;
+
+        tracker.started(failing, now);
+        tracker.completed(failing, MS, true, now);
+        assertThat(picks(tracker, instances, now + 999 * MS, random)).doesNotContain(instances.get(2));
+        assertThat(picks(tracker, instances, now + 1001 * MS, random)).contains(instances.get(2));
+
+        // A second failure in a row doubles the backoff, a success clears it
+        now += 1001 * MS;
+        tracker.started(failing, now);
+        tracker.completed(failing, MS, true, now);
+        assertThat(picks(tracker, instances, now + 1999 * MS, random)).doesNotContain(instances.get(2));
+        now += 2001 * MS;
+        tracker.started(failing, now);
+        tracker.completed(failing, MS, false, now);
+        tracker.started(failing, now);
+        tracker.completed(failing, MS, true, now);
+        assertThat(picks(tracker, instances, now + 999 * MS, random)).doesNotContain(instances.get(2));
+        assertThat(picks(tracker, instances, now + 1001 * MS, random)).contains(instances.get(2));
+    }
+
+    @Test
+    void instancesAllBackingOffAreStillUsed() {
+        InstanceLoadTracker tracker = tracker();
+        List<ServiceInstance> instances = instances(2);
+        for (ServiceInstance instance : instances) {
+            tracker.started(instance.getUri(), START);
+            tracker.completed(instance.getUri(), MS, true, START);
+        }
+        assertThat(picks(tracker, instances, START + MS, new SplittableRandom(5))).containsAll(instances);
+    }
+
+    @Test
+    void staleLatencyIsForgottenSoTheInstanceIsProbedAgain() {
+        InstanceLoadTracker tracker = tracker();
+        URI instance = instances(1).getFirst().getUri();
+        tracker.started(instance, START);
+        tracker.completed(instance, 400 * MS, false, START + 400 * MS);
+        // A fast response pulls a peak down gradually, not at once
+        tracker.started(instance, START + 900 * MS);
+        tracker.completed(instance, 10 * MS, false, START + 910 * MS);
+        double latency = tracker.latency(instance, START + 910 * MS);
+        assertThat(latency).isBetween(10.0 * MS, 400.0 * MS).isGreaterThan(300.0 * MS);
+
+        assertThat(tracker.latency(instance, START + 910 * MS + Duration.ofSeconds(3).toNanos())).isNaN();
+        assertThat(tracker.outstanding(instance)).isZero();
+        tracker.evictIdle(START + Duration.ofMinutes(10).toNanos());
+        assertThat(tracker.trackedInstances()).isZero();
+    }
+
+    private InstanceLoadTracker tracker() {
+        InstanceLoadTracker tracker = new InstanceLoadTracker(new LatencyAwareProperties(
+                Duration.ofSeconds(2), Duration.ofSeconds(1), Duration.ofSeconds(30), Duration.ofMinutes(5)));
+        trackers.add(tracker);
+        return tracker;
+    }
+
+    private static List<ServiceInstance> picks(InstanceLoadTracker tracker, List<ServiceInstance> instances, long now,
+                                               SplittableRandom random) {
+        List<ServiceInstance> picks = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            picks.add(tracker.choose(instances, now, random));
+        }
+        return picks;
+    }
+
+    private static List<ServiceInstance> instances(int count) {
+        List<ServiceInstance> instances = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            instances.add(new DefaultServiceInstance("order-service-" + i, "ORDER-SERVICE", "10.0.0." + (i + 1), 8080, false));
+        }
+        return List.copyOf(instances);
+    }
+
+    /**
+     * Four instances with four workers each, serving exponentially distributed 10ms requests from
+     * a FIFO queue. The pausing instance stops for 300ms every 2s. Requests arrive as a Poisson
+     * stream at a third of the total capacity.
+     */
+    private static final class Simulation {
+
+        static final int PAUSING = 3;
+
+        private static final int INSTANCES = 4;
+
+        private static final int WORKERS = 4;
+
+        private static final long SERVICE_MEAN = 10 * MS;
+
+        private static final long PAUSE_PERIOD = 2_000 * MS;
+
+        private static final long PAUSE = 300 * MS;
+
+        private static final double ARRIVALS_PER_NANO = INSTANCES * WORKERS / 3.0 / SERVICE_MEAN;
+
+        private static final int REQUESTS = 60_000;
+
+        private final InstanceLoadTracker tracker;
+
+        private final List<ServiceInstance> instances = instances(INSTANCES);
+
+        private final long[][] workerFreeAt = new long[INSTANCES][WORKERS];
+
+        private final int[] served = new int[INSTANCES];
+
+        private final long[] latencies = new long[REQUESTS];
+
+        /**
+         * Pending completions: time, instance, latency
+         */
+        private final PriorityQueue<long[]> completions = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+
+        Simulation(InstanceLoadTracker tracker) {
+            this.tracker = tracker;
+        }
+
+        Simulation run() {
+            // Same arrivals and service times for both strategies, the picks draw from their own stream
+            SplittableRandom workload = new SplittableRandom(42);
+            SplittableRandom picks = new SplittableRandom(7);
+            for (long[] workers : workerFreeAt) {
+                Arrays.fill(workers, START);
+            }
+
+            long now = START;
+            for (int request = 0; request < REQUESTS; request++) {
+                now += exponential(workload, 1 / ARRIVALS_PER_NANO);
+                long service = exponential(workload, SERVICE_MEAN);
+                completeUntil(now);
+                int instance = tracker == null
+                        ? request % INSTANCES
+                        : instances.indexOf(tracker.choose(instances, now, picks));
+                if (tracker != null) {
+                    tracker.started(instances.get(instance).getUri(), now);
+                }
+                long completion = serve(instance, now, service);
+                latencies[request] = completion - now;
+                served[instance]++;
+                completions.add(new long[]{completion, instance, completion - now});
+            }
+            completeUntil(Long.MAX_VALUE);
+            Arrays.sort(latencies);
+            return this;
+        }
+
+        long percentile(double quantile) {
+            return latencies[(int) Math.ceil(quantile * REQUESTS) - 1];
+        }
+
+        double share(int instance) {
+            return (double) served[instance] / REQUESTS;
+        }
+
+        private void completeUntil(long now) {
+            while (!completions.isEmpty() && completions.peek()[0] <= now) {
+                long[] completion = completions.poll();
+                if (tracker != null) {
+                    tracker.completed(instances.get((int) completion[1]).getUri(), completion[2], false, completion[0]);
+                }
+            }
+        }
+
+        /**
+         * Completion time of a request arriving at {@code arrival}, on the first free worker
+         */
+        private long serve(int instance, long arrival, long service) {
+            long[] workers = workerFreeAt[instance];
+            int worker = 0;
+            for (int i = 1; i < WORKERS; i++) {
+                if (workers[i] < workers[worker]) {
+                    worker = i;
+                }
+            }
+            long time = Math.max(arrival, workers[worker]);
+            long remaining = service;
+            while (instance == PAUSING && remaining > 0) {
+                long offset = (time - START) % PAUSE_PERIOD;
+                long pauseStart = PAUSE_PERIOD - PAUSE;
+                if (offset >= pauseStart) {
+                    time += PAUSE_PERIOD - offset;
+                } else if (remaining <= pauseStart - offset) {
+                    time += remaining;
+                    remaining = 0;
+                } else {
+                    remaining -= pauseStart - offset;
+                    time += pauseStart - offset;
+                }
+            }
+            time += remaining;
+            workers[worker] = time;
+            return time;
+        }
+
+        private static long exponential(SplittableRandom random, double mean) {
+            return Math.max(1, (long) (-Math.log(1 - random.nextDouble()) * mean));
+        }
+    }
+}
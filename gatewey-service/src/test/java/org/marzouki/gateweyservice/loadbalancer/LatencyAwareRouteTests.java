@@ -0,0 +1,134 @@
+package org.marzouki.gateweyservice.loadbalancer;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Two instances of the same backend, one answering in 150ms, behind the order route (latency-aware
+ * in a.yml) and the customer route (round-robin). The latency estimate decays over a second, so
+ * that the warm-up forgives the cold first response of each instance within the test.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "eureka.client.enabled=false",
+        "gateway.load-balancer.decay=1s"
+})
+@DirtiesContext
+class LatencyAwareRouteTests {
+
+    private static final int REQUESTS = 20;
+
+    private static final Map<String, AtomicInteger> slowCalls = new ConcurrentHashMap<>();
+
+    private static final HttpServer fast = startUpstream(0);
+
+    private static final HttpServer slow = startUpstream(150);
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @LocalServerPort
+    private int port;
+
+    @DynamicPropertySource
+    static void upstreamInstances(DynamicPropertyRegistry registry) {
+        for (String service : new String[]{"ORDER-SERVICE", "CUSTOMER-SERVICE"}) {
+            registry.add("spring.cloud.discovery.client.simple.instances." + service + "[0].uri",
+                    () -> "http://localhost:" + fast.getAddress().getPort());
+            registry.add("spring.cloud.discovery.client.simple.instances." + service + "[1].uri",
+                    () -> "http://localhost:" + slow.getAddress().getPort());
+        }
+    }
+
+    /**
+     * Warm the gateway and its connections to both instances up through the round-robin route, so
+     * that the order route starts with both instances measured on warm connections
+     */
+    @BeforeEach
+    void warmUp() throws Exception {
+        for (int i = 0; i < REQUESTS; i++) {
+            assertThat(get("/customer-service/api/customers").statusCode()).isEqualTo(200);
+        }
+        slowCalls.clear();
+    }
+
+    @AfterAll
+    static void stopUpstreams() {
+        fast.stop(0);
+        slow.stop(0);
+    }
+
+    @Test
+    void latencyAwareRouteStaysOnTheFastInstance() throws Exception {
+        for (int i = 0; i < REQUESTS; i++) {
+            assertThat(get("/order-service/api/orders").statusCode()).isEqualTo(200);
+        }
+        // At most the probe of each instance before both are measured
+        assertThat(slowCalls("/api/orders")).isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    void otherRoutesKeepRoundRobin() throws Exception {
+        for (int i = 0; i < REQUESTS; i++) {
+            assertThat(get("/customer-service/api/customers").statusCode()).isEqualTo(200);
+        }
+        assertThat(slowCalls("/api/customers")).isEqualTo(REQUESTS / 2);
+    }
+
+    private HttpResponse<String> get(String path) throws Exception {
+        return client.send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static int slowCalls(String path) {
+        return slowCalls.getOrDefault(path, new AtomicInteger()).get();
+    }
+
+    private static HttpServer startUpstream(long delayMillis) {
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+            server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+            server.createContext("/api/", exchange -> {
+                if (delayMillis > 0) {
+                    slowCalls.computeIfAbsent(exchange.getRequestURI().getPath(), path -> new AtomicInteger())
+                            .incrementAndGet();
+                    try {
+                        Thread.sleep(delayMillis);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                byte[] body = "[]".getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            });
+            server.start();
+            return server;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package org.marzouki.gateweyservice.metrics;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "eureka.client.enabled=false")
+@DirtiesContext
+class RouteTimingFilterTests {
+
+    private static final HttpServer upstream = startUpstream();
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @DynamicPropertySource
+    static void upstreamInstance(DynamicPropertyRegistry registry) {
+        registry.add("spring.cloud.discovery.client.simple.instances.ORDER-SERVICE[0].uri",
+                () -> "http://localhost:" + upstream.getAddress().getPort());
+    }
+
+    @AfterAll
+    static void stopUpstream() {
+        upstream.stop(0);
+    }
+
+    @Test
+    void requestsAreTimedPerRouteWithFirstByteSeparated() throws Exception {
+        assertThat(get("/order-service/api/orders").statusCode()).isEqualTo(200);
+        assertThat(get("/order-service/api/missing").statusCode()).isEqualTo(404);
+
+        Timer total = timer("gateway.route.requests");
+        Timer firstByte = timer("gateway.route.ttfb");
+        Timer upstreamFirstByte = timer("gateway.route.upstream.ttfb");
+        assertThat(total.count()).isEqualTo(2);
+        assertThat(firstByte.count()).isEqualTo(2);
+        assertThat(upstreamFirstByte.count()).isEqualTo(2);
+        // The stub answers after 200ms then streams the body for another 200ms
+        assertThat(upstreamFirstByte.max(TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(200);
+        assertThat(firstByte.max(TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(upstreamFirstByte.max(TimeUnit.MILLISECONDS));
+        assertThat(total.max(TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(400);
+        assertThat(status("2xx")).isEqualTo(1);
+        assertThat(status("4xx")).isEqualTo(1);
+        assertThat(status("5xx")).isZero();
+
+        HttpResponse<String> metric = get("/actuator/metrics/gateway.route.requests?tag=route:order-route");
+        assertThat(metric.statusCode()).isEqualTo(200);
+        assertThat(metric.body()).contains("\"MAX\"");
+        assertThat(meterRegistry.find("gateway.route.requests.percentile").tag("route", "order-route").gauges())
+                .hasSize(3);
+    }
+
+    private Timer timer(String name) {
+        return meterRegistry.get(name).tag("route", "order-route").timer();
+    }
+
+    private double status(String statusClass) {
+        return meterRegistry.get("gateway.route.responses").tag("route", "order-route").tag("status", statusClass)
+                .counter().count();
+    }
+
+    private HttpResponse<String> get(String path) throws Exception {
+        return client.send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static HttpServer startUpstream() {
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+            server.createContext("/api/", exchange -> {
+                try {
+                    Thread.sleep(200);
+                    boolean found = exchange.getRequestURI().getPath().equals("/api/orders");
+                    exchange.getResponseHeaders().set("Content-Type", "application/json");
+                    exchange.sendResponseHeaders(found ? 200 : 404, 0);
+                    try (OutputStream out = exchange.getResponseBody()) {
+                        out.write('[');
+                        out.flush();
+                        Thread.sleep(200);
+                        out.write(']');
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            server.start();
+            return server;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
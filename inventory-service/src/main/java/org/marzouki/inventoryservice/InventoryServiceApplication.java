@@ -2,6 +2,7 @@ package org.marzouki.inventoryservice;
 
 import org.marzouki.inventoryservice.entities.Product;
 import org.marzouki.inventoryservice.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
@@ -16,31 +17,47 @@ public class InventoryServiceApplication {
         SpringApplication.run(InventoryServiceApplication.class, args);
     }
 
+    /**
+     * Seed a few products into an empty database; a persistent database keeps its data.
+     * Runs in the background with seed.deferred
+     */
     @Bean
-    CommandLineRunner commandLineRunner(ProductRepository productRepository){
+    CommandLineRunner commandLineRunner(ProductRepository productRepository,
+                                        @Value("${seed.deferred:false}") boolean deferred){
         return args -> {
-            productRepository.save(Product.builder()
-                            .id(UUID.randomUUID().toString())
-                            .name("Computer")
-                            .price(3200)
-                            .quantity(11)
-                    .build());
-            productRepository.save(Product.builder()
-                    .id(UUID.randomUUID().toString())
-                    .name("Printer")
-                    .price(1299)
-                    .quantity(10)
-                    .build());
-            productRepository.save(Product.builder()
-                    .id(UUID.randomUUID().toString())
-                    .name("Smart Phone")
-                    .price(5400)
-                    .quantity(8)
-                    .build());
+            Runnable seeding = () -> {
+                if (productRepository.count() > 0) {
+                    System.out.println("✓ Inventory Service: Existing data found, seeding skipped");
+                    return;
+                }
+                productRepository.save(Product.builder()
+                                .id(UUID.randomUUID().toString())
+                                .name("Computer")
+                                .price(3200)
+                                .quantity(11)
+                        .build());
+                productRepository.save(Product.builder()
+                        .id(UUID.randomUUID().toString())
+                        .name("Printer")
+                        .price(1299)
+                        .quantity(10)
+                        .build());
+                productRepository.save(Product.builder()
+                        .id(UUID.randomUUID().toString())
+                        .name("Smart Phone")
+                        .price(5400)
+                        .quantity(8)
+                        .build());
 
-            productRepository.findAll().forEach(p->{
-                System.out.println(p.toString());
-            });
+                productRepository.findAll().forEach(p->{
+                    System.out.println(p.toString());
+                });
+            };
+            if (deferred) {
+                Thread.ofVirtual().name("seeding").start(seeding);
+            } else {
+                seeding.run();
+            }
         };
     }
 
@@ -0,0 +1,9 @@
+-- Schema of the inventory entities, applied by Flyway in the persistent profile
+
+create table product (
+    id varchar(255) not null,
+    name varchar(255),
+    price float(53) not null,
+    quantity integer not null,
+    primary key (id)
+);
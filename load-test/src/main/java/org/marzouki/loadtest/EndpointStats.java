@@ -0,0 +1,68 @@
+package org.marzouki.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies and outcomes of the requests sent to one endpoint. Latencies are recorded in
+ * microseconds, up to one hour, with three significant digits.
+ */
+public class EndpointStats {
+
+    private static final long HIGHEST_LATENCY_MICROS = TimeUnit.HOURS.toMicros(1);
+
+    private final String endpoint;
+
+    private final Histogram latencies = new ConcurrentHistogram(HIGHEST_LATENCY_MICROS, 3);
+
+    private final LongAdder errors = new LongAdder();
+
+    private final Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+
+    public EndpointStats(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    /**
+     * Record one request
+     *
+     * @param latencyNanos time from the moment the request was due to the end of its response
+     * @param outcome      status class (2xx, 3xx, 4xx, 5xx), 429, or the kind of failure (timeout, io)
+     * @param error        whether the request failed
+     */
+    public void record(long latencyNanos, String outcome, boolean error) {
+        latencies.recordValue(Math.min(Math.max(1, TimeUnit.NANOSECONDS.toMicros(latencyNanos)), HIGHEST_LATENCY_MICROS));
+        outcomes.computeIfAbsent(outcome, key -> new LongAdder()).increment();
+        if (error) {
+            errors.increment();
+        }
+    }
+
+    public LoadReport.Endpoint report(double seconds) {
+        long requests = latencies.getTotalCount();
+        long failed = errors.sum();
+        Map<String, Long> counts = new TreeMap<>();
+        outcomes.forEach((outcome, count) -> counts.put(outcome, count.sum()));
+        return new LoadReport.Endpoint(endpoint,
+                requests,
+                requests / seconds,
+                failed,
+                requests == 0 ? 0 : (double) failed / requests,
+                counts,
+                millis(latencies.getValueAtPercentile(50)),
+                millis(latencies.getValueAtPercentile(90)),
+                millis(latencies.getValueAtPercentile(99)),
+                millis(latencies.getValueAtPercentile(99.9)),
+                millis(latencies.getMaxValue()));
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
@@ -0,0 +1,156 @@
+package org.marzouki.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * HTTP proxy standing between a service and one of its dependencies, delaying every call by
+ * {@code latency} plus a uniform random {@code jitter}, and failing a share of them with 503
+ * before they reach the dependency. Pointing the dependency's discovery entry at the proxy puts
+ * its Feign client, e.g. order-service's {@code ProductRestClient}, behind a slow or flaky link.
+ */
+public class FaultInjectingProxy implements AutoCloseable {
+
+    private static final Set<String> FORWARDED_HEADERS = Set.of("Accept", "Content-Type", "If-None-Match");
+
+    private static final Set<String> RETURNED_HEADERS = Set.of("Content-Type", "ETag", "Last-Modified");
+
+    private final URI target;
+
+    private final Duration latency;
+
+    private final Duration jitter;
+
+    private final double errorRate;
+
+    private final HttpServer server;
+
+    private final HttpClient client;
+
+    private final AtomicLong forwarded = new AtomicLong();
+
+    private final AtomicLong failed = new AtomicLong();
+
+    public FaultInjectingProxy(URI target, Duration latency, Duration jitter, double errorRate) throws IOException {
+        this.target = target;
+        this.latency = latency;
+        this.jitter = jitter;
+        this.errorRate = errorRate;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    public URI uri() {
+        return URI.create("http://localhost:" + server.getAddress().getPort());
+    }
+
+    /**
+     * Calls passed on to the dependency
+     */
+    public long forwarded() {
+        return forwarded.get();
+    }
+
+    /**
+     * Calls failed by the proxy without reaching the dependency
+     */
+    public long failed() {
+        return failed.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        client.close();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            try {
+                delay();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                exchange.sendResponseHeaders(503, -1);
+                return;
+            }
+            if (ThreadLocalRandom.current().nextDouble() < errorRate) {
+                failed.incrementAndGet();
+                exchange.sendResponseHeaders(503, -1);
+                return;
+            }
+            forward(exchange);
+        }
+    }
+
+    private void delay() throws InterruptedException {
+        long delayNanos = latency.toNanos();
+        if (!jitter.isZero()) {
+            delayNanos += ThreadLocalRandom.current().nextLong(jitter.toNanos() + 1);
+        }
+        if (delayNanos > 0) {
+            Thread.sleep(Duration.ofNanos(delayNanos));
+        }
+    }
+
+    private void forward(HttpExchange exchange) throws IOException {
+        byte[] requestBody;
+        try (InputStream in = exchange.getRequestBody()) {
+            requestBody = in.readAllBytes();
+        }
+        HttpRequest.Builder request = HttpRequest.newBuilder(target.resolve(exchange.getRequestURI().toString()))
+                .method(exchange.getRequestMethod(), requestBody.length == 0
+                        ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofByteArray(requestBody));
+        exchange.getRequestHeaders().forEach((name, values) -> {
+            if (FORWARDED_HEADERS.stream().anyMatch(name::equalsIgnoreCase)) {
+                values.forEach(value -> request.header(name, value));
+            }
+        });
+
+        HttpResponse<byte[]> response;
+        try {
+            response = client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            exchange.sendResponseHeaders(502, -1);
+            return;
+        } catch (IOException e) {
+            exchange.sendResponseHeaders(502, -1);
+            return;
+        }
+        forwarded.incrementAndGet();
+        response.headers().map().forEach((name, values) -> {
+            if (RETURNED_HEADERS.stream().anyMatch(name::equalsIgnoreCase)) {
+                exchange.getResponseHeaders().put(name, List.copyOf(values));
+            }
+        });
+        byte[] body = response.body();
+        exchange.sendResponseHeaders(response.statusCode(), body.length == 0 ? -1 : body.length);
+        if (body.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package org.marzouki.loadtest;
+
+import tools.jackson.databind.SerializationFeature;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of a run: how many sessions arrived and how they ended, then per endpoint the
+ * throughput, error rate and latency percentiles (in milliseconds) of the measured period.
+ */
+public record LoadReport(double targetRate,
+                         double measuredSeconds,
+                         long sessionsStarted,
+                         long sessionsCompleted,
+                         long sessionsFailed,
+                         long sessionsDropped,
+                         List<Endpoint> endpoints) {
+
+    public record Endpoint(String endpoint,
+                           long requests,
+                           double throughput,
+                           long errors,
+                           double errorRate,
+                           Map<String, Long> outcomes,
+                           double p50,
+                           double p90,
+                           double p99,
+                           double p999,
+                           double max) {
+    }
+
+    public void print(PrintStream out) {
+        out.printf("Sessions: %.1f/s for %.0fs, %d started, %d completed, %d failed, %d dropped%n",
+                targetRate, measuredSeconds, sessionsStarted, sessionsCompleted, sessionsFailed, sessionsDropped);
+        out.printf("%-50s %9s %9s %8s %9s %9s %9s %9s %9s  %s%n",
+                "Endpoint", "Requests", "Req/s", "Errors", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "Outcomes");
+        endpoints.forEach(endpoint -> out.printf("%-50s %9d %9.1f %7.2f%% %9.2f %9.2f %9.2f %9.2f %9.2f  %s%n",
+                endpoint.endpoint(), endpoint.requests(), endpoint.throughput(), 100 * endpoint.errorRate(),
+                endpoint.p50(), endpoint.p90(), endpoint.p99(), endpoint.p999(), endpoint.max(), endpoint.outcomes()));
+    }
+
+    public void write(Path path) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Files.write(path, JsonMapper.builder()
+                .enable(SerializationFeature.INDENT_OUTPUT)
+                .build()
+                .writeValueAsBytes(this));
+    }
+}
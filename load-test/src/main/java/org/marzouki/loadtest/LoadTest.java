@@ -0,0 +1,76 @@
+package org.marzouki.loadtest;
+
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+/**
+ * Drives {@link ShopScenario} sessions through gatewey-service at an open arrival rate and
+ * reports throughput, error rate and latency percentiles per endpoint. By default the gateway,
+ * product-service and order-service are booted in this JVM, see {@link LocalEnvironment}.
+ * Run from the repository root with:
+ * <pre>
+ * mvn -o -pl load-test -am -Pload-test process-classes \
+ *     -Dload-test.args="--rate=50 --duration=2m --fault.target=product-service --fault.latency=300ms"
+ * </pre>
+ * The options are described in {@link LoadTestOptions}.
+ */
+public class LoadTest {
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+
+        try (LocalEnvironment environment = options.gateway() == null ? LocalEnvironment.start(options) : null;
+             HttpClient client = HttpClient.newBuilder()
+                     .version(HttpClient.Version.HTTP_1_1)
+                     .connectTimeout(options.timeout())
+                     .executor(Executors.newVirtualThreadPerTaskExecutor())
+                     .build()) {
+            URI gateway = environment != null ? environment.gateway() : URI.create(options.gateway());
+            List<String> productIds = catalog(client, gateway);
+            System.out.printf("Driving %s: %d products, %d customers, %.1f sessions/s%n",
+                    gateway, productIds.size(), options.customers(), options.rate());
+
+            LoadReport report = new OpenModelDriver(client,
+                    new ShopScenario(gateway, productIds, options.customers()),
+                    options.rate(), options.warmup(), options.duration(), options.timeout(), options.thinkTime(),
+                    options.maxSessions()).run();
+
+            report.print(System.out);
+            if (environment != null && environment.proxy() != null) {
+                System.out.printf("Faults on %s: %d calls forwarded, %d failed by the proxy%n",
+                        options.faultTarget(), environment.proxy().forwarded(), environment.proxy().failed());
+            }
+            report.write(options.report());
+            System.out.println("Report written to " + options.report().toAbsolutePath());
+        }
+    }
+
+    /**
+     * Ids of the products in the catalog, read through the gateway like a shopper would
+     */
+    private static List<String> catalog(HttpClient client, URI gateway) throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = client.send(HttpRequest.newBuilder(gateway.resolve("/product-service/api/products"))
+                .header("Accept", "application/json")
+                .build(), HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Could not read the catalog through the gateway: HTTP " + response.statusCode());
+        }
+        List<String> ids = new ArrayList<>();
+        for (JsonNode product : JsonMapper.shared().readTree(response.body())) {
+            ids.add(product.path("id").asString());
+        }
+        if (ids.isEmpty()) {
+            throw new IllegalStateException("The catalog is empty");
+        }
+        return ids;
+    }
+}
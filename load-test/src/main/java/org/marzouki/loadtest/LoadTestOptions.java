@@ -0,0 +1,138 @@
+package org.marzouki.loadtest;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Settings of a load test run, given as {@code --name=value} arguments:
+ * <ul>
+ *     <li>{@code --rate=20}: new user sessions per second, whatever the response times</li>
+ *     <li>{@code --duration=60s} and {@code --warmup=10s}: measured time, and time run beforehand without measuring</li>
+ *     <li>{@code --think-time=0ms}: pause of a user between two steps of a session</li>
+ *     <li>{@code --timeout=5s}: time after which a request counts as failed</li>
+ *     <li>{@code --max-sessions=10000}: sessions in flight beyond which new arrivals are dropped and counted</li>
+ *     <li>{@code --services=product,order}: services booted in process, the others are replaced by stubs.
+ *     customer-service is always a stub.</li>
+ *     <li>{@code --customers=1000} and {@code --catalog-size=100}: users simulated and products in the catalog</li>
+ *     <li>{@code --fault.target=product-service}: dependency of order-service to put behind a faulty link, with
+ *     {@code --fault.latency=0ms}, {@code --fault.jitter=0ms} and {@code --fault.error-rate=0} (0 to 1)</li>
+ *     <li>{@code --gateway=http://host:8989}: drive an already running gateway instead of booting one</li>
+ *     <li>{@code --report=load-test-report.json}: where the JSON report is written</li>
+ * </ul>
+ */
+public record LoadTestOptions(double rate,
+                              Duration duration,
+                              Duration warmup,
+                              Duration thinkTime,
+                              Duration timeout,
+                              int maxSessions,
+                              Set<String> services,
+                              int customers,
+                              int catalogSize,
+                              String faultTarget,
+                              Duration faultLatency,
+                              Duration faultJitter,
+                              double faultErrorRate,
+                              String gateway,
+                              Path report) {
+
+    public static final String PRODUCT_SERVICE = "product-service";
+    public static final String ORDER_SERVICE = "order-service";
+    public static final String CUSTOMER_SERVICE = "customer-service";
+
+    private static final Set<String> FAULT_TARGETS = Set.of(PRODUCT_SERVICE, CUSTOMER_SERVICE);
+
+    public static LoadTestOptions parse(String... args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            values.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+
+        LoadTestOptions options = new LoadTestOptions(
+                Double.parseDouble(values.getOrDefault("rate", "20")),
+                duration(values.getOrDefault("duration", "60s")),
+                duration(values.getOrDefault("warmup", "10s")),
+                duration(values.getOrDefault("think-time", "0ms")),
+                duration(values.getOrDefault("timeout", "5s")),
+                Integer.parseInt(values.getOrDefault("max-sessions", "10000")),
+                services(values.getOrDefault("services", "product,order")),
+                Integer.parseInt(values.getOrDefault("customers", "1000")),
+                Integer.parseInt(values.getOrDefault("catalog-size", "100")),
+                values.get("fault.target"),
+                duration(values.getOrDefault("fault.latency", "0ms")),
+                duration(values.getOrDefault("fault.jitter", "0ms")),
+                Double.parseDouble(values.getOrDefault("fault.error-rate", "0")),
+                values.get("gateway"),
+                Path.of(values.getOrDefault("report", "load-test-report.json")));
+        values.keySet().removeAll(Set.of("rate", "duration", "warmup", "think-time", "timeout", "max-sessions",
+                "services", "customers", "catalog-size", "fault.target", "fault.latency", "fault.jitter",
+                "fault.error-rate", "gateway", "report"));
+        if (!values.isEmpty()) {
+            throw new IllegalArgumentException("Unknown options " + values.keySet());
+        }
+        options.validate();
+        return options;
+    }
+
+    /**
+     * Whether the given service runs in process rather than as a stub
+     */
+    public boolean runs(String service) {
+        return services.contains(service);
+    }
+
+    public boolean injectsFaults() {
+        return faultTarget != null;
+    }
+
+    private void validate() {
+        if (rate <= 0 || duration.isNegative() || duration.isZero() || warmup.isNegative() || maxSessions < 1
+                || customers < 1 || catalogSize < 1) {
+            throw new IllegalArgumentException("rate, duration, max-sessions, customers and catalog-size must be positive");
+        }
+        if (faultTarget != null && !FAULT_TARGETS.contains(faultTarget)) {
+            throw new IllegalArgumentException("fault.target must be one of " + FAULT_TARGETS);
+        }
+        if (faultErrorRate < 0 || faultErrorRate > 1) {
+            throw new IllegalArgumentException("fault.error-rate must be between 0 and 1");
+        }
+        if (faultTarget != null && gateway != null) {
+            throw new IllegalArgumentException("Faults can only be injected in a local environment, not with gateway");
+        }
+        if (faultTarget != null && !runs(ORDER_SERVICE)) {
+            throw new IllegalArgumentException("Faults are injected between order-service and its dependencies, "
+                    + "order-service must be in services");
+        }
+    }
+
+    private static Duration duration(String value) {
+        return DurationStyle.detectAndParse(value);
+    }
+
+    private static Set<String> services(String value) {
+        Set<String> services = new HashSet<>();
+        for (String service : value.split(",")) {
+            String name = service.trim().toLowerCase(Locale.ROOT);
+            if (name.isEmpty() || name.equals("none")) {
+                continue;
+            }
+            name = name.endsWith("-service") ? name : name + "-service";
+            if (!name.equals(PRODUCT_SERVICE) && !name.equals(ORDER_SERVICE)) {
+                throw new IllegalArgumentException("Only product and order can run in process, got " + service);
+            }
+            services.add(name);
+        }
+        return Set.copyOf(services);
+    }
+}
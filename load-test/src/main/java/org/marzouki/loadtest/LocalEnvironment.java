@@ -0,0 +1,171 @@
+package org.marzouki.loadtest;
+
+import org.marzouki.gateweyservice.GateweyServiceApplication;
+import org.marzouki.orderservice.OrderServiceApplication;
+import org.marzouki.productservice.ProductServiceApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.marzouki.loadtest.LoadTestOptions.CUSTOMER_SERVICE;
+import static org.marzouki.loadtest.LoadTestOptions.ORDER_SERVICE;
+import static org.marzouki.loadtest.LoadTestOptions.PRODUCT_SERVICE;
+
+/**
+ * The gateway and the services behind it, all in this JVM and on random ports: the services
+ * chosen in the options are booted with their own application.properties, the others are
+ * {@link StubServices}. Eureka and the config server are replaced by simple discovery entries,
+ * so nothing outside the process is needed.
+ * <p>
+ * With a fault target, order-service's discovery entry for that dependency points at a
+ * {@link FaultInjectingProxy}; the gateway still reaches the dependency directly.
+ */
+public class LocalEnvironment implements AutoCloseable {
+
+    private final StubServices stubs = new StubServices();
+
+    private final List<ConfigurableApplicationContext> contexts = new ArrayList<>();
+
+    private FaultInjectingProxy proxy;
+
+    private URI gateway;
+
+    private LocalEnvironment() {
+    }
+
+    public static LocalEnvironment start(LoadTestOptions options) throws IOException, InterruptedException {
+        LocalEnvironment environment = new LocalEnvironment();
+        try {
+            environment.startAll(options);
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            environment.close();
+            throw e;
+        }
+        return environment;
+    }
+
+    public URI gateway() {
+        return gateway;
+    }
+
+    /**
+     * The proxy between order-service and the fault target, null without fault injection
+     */
+    public FaultInjectingProxy proxy() {
+        return proxy;
+    }
+
+    @Override
+    public void close() {
+        contexts.reversed().forEach(ConfigurableApplicationContext::close);
+        if (proxy != null) {
+            proxy.close();
+        }
+        stubs.close();
+    }
+
+    private void startAll(LoadTestOptions options) throws IOException, InterruptedException {
+        URI customerService = stubs.startCustomerService(options.customers());
+
+        URI productService;
+        if (options.runs(PRODUCT_SERVICE)) {
+            productService = boot(ProductServiceApplication.class, WebApplicationType.SERVLET, Map.of());
+            seedCatalog(productService, options.catalogSize());
+        } else {
+            productService = stubs.startProductService(options.catalogSize());
+        }
+
+        URI orderService;
+        if (options.runs(ORDER_SERVICE)) {
+            Map<String, URI> dependencies = new HashMap<>(Map.of(
+                    CUSTOMER_SERVICE, customerService,
+                    PRODUCT_SERVICE, productService));
+            if (options.injectsFaults()) {
+                proxy = new FaultInjectingProxy(dependencies.get(options.faultTarget()),
+                        options.faultLatency(), options.faultJitter(), options.faultErrorRate());
+                dependencies.put(options.faultTarget(), proxy.uri());
+            }
+            orderService = boot(OrderServiceApplication.class, WebApplicationType.SERVLET, dependencies);
+        } else {
+            orderService = stubs.startOrderService();
+        }
+
+        gateway = boot(GateweyServiceApplication.class, WebApplicationType.REACTIVE, Map.of(
+                "CUSTOMER-SERVICE", customerService,
+                "PRODUCT-SERVICE", productService,
+                "ORDER-SERVICE", orderService));
+    }
+
+    /**
+     * Boot an application on a random port with the application.properties of its own module,
+     * the given peers as discovery entries and no Eureka, config server or debug logging
+     */
+    private URI boot(Class<?> application, WebApplicationType type, Map<String, URI> peers) {
+        List<String> args = new ArrayList<>(List.of(
+                "--spring.config.location=" + configLocation(application),
+                "--server.port=0",
+                "--spring.cloud.config.enabled=false",
+                "--eureka.client.enabled=false",
+                "--spring.h2.console.enabled=false",
+                "--logging.level.root=WARN",
+                "--logging.level." + application.getPackageName() + "=WARN"));
+        if (type == WebApplicationType.SERVLET) {
+            // The gateway is on the classpath of every application here, only the gateway itself runs it
+            args.add("--spring.cloud.gateway.server.webflux.enabled=false");
+        } else {
+            // Shoppers give their own address in X-Forwarded-For, as the proxy in front of a real gateway would
+            args.add("--gateway.rate-limiter.trusted-proxies=1");
+        }
+        peers.forEach((service, uri) ->
+                args.add("--spring.cloud.discovery.client.simple.instances." + service + "[0].uri=" + uri));
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(application)
+                .web(type)
+                .run(args.toArray(String[]::new));
+        contexts.add(context);
+        return URI.create("http://localhost:" + context.getEnvironment().getProperty("local.server.port"));
+    }
+
+    /**
+     * application.properties of the module the application class comes from. Every module has
+     * one at the root of its classpath, so the default lookup would find the same file for all.
+     */
+    private static String configLocation(Class<?> application) {
+        String classes = application.getProtectionDomain().getCodeSource().getLocation().toString();
+        return classes.endsWith(".jar")
+                ? "jar:" + classes + "!/application.properties"
+                : classes + "application.properties";
+    }
+
+    private static void seedCatalog(URI productService, int catalogSize) throws IOException, InterruptedException {
+        JsonMapper jsonMapper = JsonMapper.shared();
+        try (HttpClient client = HttpClient.newHttpClient()) {
+            for (int i = 0; i < catalogSize; i++) {
+                byte[] product = jsonMapper.writeValueAsBytes(Map.of(
+                        "id", StubServices.productId(i),
+                        "name", "Product " + i,
+                        "description", "Description of product " + i,
+                        "price", 10 + i % 490,
+                        "quantity", 1_000_000));
+                HttpResponse<Void> response = client.send(HttpRequest.newBuilder(productService.resolve("/api/products"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofByteArray(product))
+                        .build(), HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() != 201) {
+                    throw new IllegalStateException("Could not seed product " + i + ": HTTP " + response.statusCode());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package org.marzouki.loadtest;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-model load generator: user sessions arrive as a Poisson process at a fixed rate, whether
+ * or not earlier sessions have finished, so a slow system sees its backlog grow as it would in
+ * production instead of being throttled by its own clients.
+ * <p>
+ * Each session runs on its own virtual thread. The first request of a session is timed from the
+ * moment the session was due, not from the moment it could actually be sent, so latencies
+ * include any delay of the driver itself. Sessions starting during the warmup are run but not
+ * recorded. When {@code maxSessions} sessions are in flight, new arrivals are dropped and counted.
+ */
+public class OpenModelDriver {
+
+    private final HttpClient client;
+
+    private final Scenario scenario;
+
+    private final double rate;
+
+    private final Duration warmup;
+
+    private final Duration duration;
+
+    private final Duration timeout;
+
+    private final Duration thinkTime;
+
+    private final int maxSessions;
+
+    private final Map<String, EndpointStats> endpoints = new ConcurrentHashMap<>();
+
+    private final AtomicLong started = new AtomicLong();
+
+    private final AtomicLong completed = new AtomicLong();
+
+    private final AtomicLong failed = new AtomicLong();
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    public OpenModelDriver(HttpClient client, Scenario scenario, double rate, Duration warmup, Duration duration,
+                           Duration timeout, Duration thinkTime, int maxSessions) {
+        this.client = client;
+        this.scenario = scenario;
+        this.rate = rate;
+        this.warmup = warmup;
+        this.duration = duration;
+        this.timeout = timeout;
+        this.thinkTime = thinkTime;
+        this.maxSessions = maxSessions;
+    }
+
+    /**
+     * Generate arrivals for warmup + duration, wait for the sessions in flight, then report
+     */
+    public LoadReport run() throws InterruptedException {
+        Semaphore inFlight = new Semaphore(maxSessions);
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+        double meanIntervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+
+        long due = start;
+        while (true) {
+            due += (long) (-Math.log(1 - ThreadLocalRandom.current().nextDouble()) * meanIntervalNanos);
+            if (due >= end) {
+                break;
+            }
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            boolean measured = due >= measureFrom;
+            if (!inFlight.tryAcquire()) {
+                if (measured) {
+                    dropped.incrementAndGet();
+                }
+                continue;
+            }
+            Session session = new Session(due, measured);
+            if (measured) {
+                started.incrementAndGet();
+            }
+            Thread.ofVirtual().start(() -> {
+                try {
+                    scenario.run(session);
+                    if (measured) {
+                        (session.failed ? failed : completed).incrementAndGet();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    inFlight.release();
+                }
+            });
+        }
+
+        // Sessions still running after this long are left out of the session counts
+        long drainMillis = Math.max(10_000, 10 * timeout.toMillis());
+        if (inFlight.tryAcquire(maxSessions, drainMillis, TimeUnit.MILLISECONDS)) {
+            inFlight.release(maxSessions);
+        }
+
+        double seconds = duration.toNanos() / 1e9;
+        return new LoadReport(rate, seconds, started.get(), completed.get(), failed.get(), dropped.get(),
+                endpoints.values().stream()
+                        .map(stats -> stats.report(seconds))
+                        .sorted(Comparator.comparing(LoadReport.Endpoint::endpoint))
+                        .toList());
+    }
+
+    /**
+     * Steps of a user session, sent through {@link Session#send}
+     */
+    @FunctionalInterface
+    public interface Scenario {
+        void run(Session session) throws InterruptedException;
+    }
+
+    /**
+     * One user session. A session stops counting as successful at its first failed request;
+     * scenarios are expected to give up at that point, as a user would.
+     */
+    public final class Session {
+
+        private final long due;
+
+        private final boolean measured;
+
+        private boolean first = true;
+
+        private boolean failed;
+
+        private Session(long due, boolean measured) {
+            this.due = due;
+            this.measured = measured;
+        }
+
+        /**
+         * Send a request and record it under the given endpoint name. Statuses from 400 up count as
+         * errors. Returns null when the request failed, in which case the session should end.
+         */
+        public HttpResponse<byte[]> send(String endpoint, HttpRequest.Builder request) throws InterruptedException {
+            long sent;
+            if (first) {
+                sent = due;
+                first = false;
+            } else {
+                if (!thinkTime.isZero()) {
+                    Thread.sleep(thinkTime);
+                }
+                sent = System.nanoTime();
+            }
+
+            HttpResponse<byte[]> response = null;
+            String outcome;
+            try {
+                response = client.send(request.timeout(timeout).build(), HttpResponse.BodyHandlers.ofByteArray());
+                int status = response.statusCode();
+                outcome = status == 429 ? "429" : status / 100 + "xx";
+            } catch (HttpTimeoutException e) {
+                outcome = "timeout";
+            } catch (IOException e) {
+                outcome = "io";
+            }
+            boolean error = response == null || response.statusCode() >= 400;
+            if (measured) {
+                endpoints.computeIfAbsent(endpoint, EndpointStats::new).record(System.nanoTime() - sent, outcome, error);
+            }
+            if (error) {
+                failed = true;
+                return null;
+            }
+            return response;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package org.marzouki.loadtest;
+
+import tools.jackson.databind.json.JsonMapper;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A shopper going through the gateway: browse the catalog, open one to three products, order
+ * them, then look at their order history.
+ * <p>
+ * Shoppers and products are drawn with a skew towards the first ones, so a few products are hot
+ * and a few customers order often. Each shopper sends a bearer token of its own and comes from
+ * its own address, given in X-Forwarded-For as a proxy in front of the gateway would, so the
+ * gateway caches and rate-limits shoppers separately, as it does real clients. The local gateway
+ * trusts that header, see {@link LocalEnvironment}; a remote one only if configured to.
+ */
+public class ShopScenario implements OpenModelDriver.Scenario {
+
+    static final String BROWSE_CATALOG = "GET /product-service/api/products";
+    static final String VIEW_PRODUCT = "GET /product-service/api/products/{id}";
+    static final String CREATE_ORDER = "POST /order-service/api/orders";
+    static final String ORDER_HISTORY = "GET /order-service/api/orders/client/{clientId}";
+
+    private static final String FORWARDED_FOR_HEADER = "X-Forwarded-For";
+
+    private static final String TOKEN_HEADER = base64("{\"alg\":\"none\"}");
+
+    private final JsonMapper jsonMapper = JsonMapper.shared();
+
+    private final URI gateway;
+
+    private final List<String> productIds;
+
+    private final int customers;
+
+    public ShopScenario(URI gateway, List<String> productIds, int customers) {
+        this.gateway = gateway;
+        this.productIds = productIds;
+        this.customers = customers;
+    }
+
+    @Override
+    public void run(OpenModelDriver.Session session) throws InterruptedException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long customerId = 1 + skewed(random, customers);
+        String authorization = "Bearer " + TOKEN_HEADER + "." + base64("{\"sub\":\"customer-" + customerId + "\"}") + ".load-test";
+        String address = address(customerId);
+
+        if (session.send(BROWSE_CATALOG, get("/product-service/api/products", authorization, address)) == null) {
+            return;
+        }
+
+        Set<String> basket = new LinkedHashSet<>();
+        int products = 1 + random.nextInt(3);
+        while (basket.size() < Math.min(products, productIds.size())) {
+            basket.add(productIds.get(skewed(random, productIds.size())));
+        }
+        for (String productId : basket) {
+            if (session.send(VIEW_PRODUCT, get("/product-service/api/products/" + productId, authorization, address)) == null) {
+                return;
+            }
+        }
+
+        // Every field of the order and its items, order-service binds them all through its constructors
+        List<Map<String, Object>> productItems = new ArrayList<>();
+        double total = 0;
+        for (String productId : basket) {
+            int quantity = 1 + random.nextInt(3);
+            double unitPrice = 10 + random.nextInt(490);
+            productItems.add(Map.of(
+                    "productId", productId,
+                    "quantity", quantity,
+                    "unitPrice", unitPrice,
+                    "totalPrice", quantity * unitPrice));
+            total += quantity * unitPrice;
+        }
+        byte[] order = jsonMapper.writeValueAsBytes(Map.of(
+                "clientId", String.valueOf(customerId),
+                "montantTotal", total,
+                "enriched", false,
+                "productItems", productItems));
+        HttpRequest.Builder createOrder = HttpRequest.newBuilder(gateway.resolve("/order-service/api/orders"))
+                .header("Authorization", authorization)
+                .header(FORWARDED_FOR_HEADER, address)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(order));
+        if (session.send(CREATE_ORDER, createOrder) == null) {
+            return;
+        }
+
+        session.send(ORDER_HISTORY, get("/order-service/api/orders/client/" + customerId, authorization, address));
+    }
+
+    private HttpRequest.Builder get(String path, String authorization, String address) {
+        return HttpRequest.newBuilder(gateway.resolve(path))
+                .header("Authorization", authorization)
+                .header(FORWARDED_FOR_HEADER, address)
+                .header("Accept", "application/json")
+                .GET();
+    }
+
+    /**
+     * Index in [0, count), skewed towards 0
+     */
+    private static int skewed(ThreadLocalRandom random, int count) {
+        double skew = random.nextDouble();
+        return (int) (skew * skew * count);
+    }
+
+    /**
+     * A distinct private address per customer
+     */
+    private static String address(long customerId) {
+        return "10." + (customerId >> 16 & 0xff) + "." + (customerId >> 8 & 0xff) + "." + (customerId & 0xff);
+    }
+
+    private static String base64(String json) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
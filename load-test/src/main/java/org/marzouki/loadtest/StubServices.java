@@ -0,0 +1,216 @@
+package org.marzouki.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory stand-ins for the services that are not booted, answering the endpoints the gateway
+ * routes and order-service calls use, with the same JSON shapes. They do no real work, so a stub
+ * never is the bottleneck of a run.
+ */
+public class StubServices implements AutoCloseable {
+
+    /**
+     * Orders kept per client by the order-service stub, most recent first
+     */
+    private static final int ORDER_HISTORY_SIZE = 20;
+
+    private final JsonMapper jsonMapper = JsonMapper.shared();
+
+    private final List<HttpServer> servers = new ArrayList<>();
+
+    /**
+     * customer-service: customers 1 to {@code customers}, one by one or page by page
+     */
+    public URI startCustomerService(int customers) throws IOException {
+        return start(exchange -> {
+            String path = exchange.getRequestURI().getPath();
+            if (path.equals("/api/customers/all")) {
+                Map<String, String> query = query(exchange.getRequestURI());
+                long after = Long.parseLong(query.getOrDefault("after", "0"));
+                int size = Integer.parseInt(query.getOrDefault("size", "500"));
+                List<Map<String, Object>> page = new ArrayList<>();
+                for (long id = after + 1; id <= Math.min(after + size, customers); id++) {
+                    page.add(customer(id));
+                }
+                send(exchange, 200, page);
+                return;
+            }
+            Long id = idAfter(path, "/api/customers/");
+            if (id == null || id < 1 || id > customers) {
+                send(exchange, 404, null);
+                return;
+            }
+            send(exchange, 200, customer(id));
+        });
+    }
+
+    /**
+     * product-service: a catalog of {@code catalogSize} products with ids {@link #productId(int)}
+     */
+    public URI startProductService(int catalogSize) throws IOException {
+        Map<String, Map<String, Object>> catalog = new LinkedHashMap<>();
+        for (int i = 0; i < catalogSize; i++) {
+            catalog.put(productId(i), product(i));
+        }
+        List<Map<String, Object>> all = List.copyOf(catalog.values());
+        return start(exchange -> {
+            String path = exchange.getRequestURI().getPath();
+            if (path.equals("/api/products")) {
+                send(exchange, 200, all);
+            } else if (path.equals("/api/products/batch")) {
+                List<Map<String, Object>> found = new ArrayList<>();
+                read(exchange).forEach(id -> {
+                    Map<String, Object> product = catalog.get(id.asString());
+                    if (product != null) {
+                        found.add(product);
+                    }
+                });
+                send(exchange, 200, found);
+            } else if (path.startsWith("/api/products/")) {
+                Map<String, Object> product = catalog.get(path.substring("/api/products/".length()));
+                send(exchange, product == null ? 404 : 200, product);
+            } else {
+                send(exchange, 404, null);
+            }
+        });
+    }
+
+    /**
+     * order-service: order creation and the latest orders of each client, without enrichment
+     */
+    public URI startOrderService() throws IOException {
+        AtomicLong ids = new AtomicLong();
+        Map<String, Deque<JsonNode>> history = new ConcurrentHashMap<>();
+        return start(exchange -> {
+            String path = exchange.getRequestURI().getPath();
+            if (path.equals("/api/orders") && exchange.getRequestMethod().equals("POST")) {
+                ObjectNode order = (ObjectNode) read(exchange);
+                order.put("id", ids.incrementAndGet());
+                order.put("statut", "PENDING");
+                order.put("dateCommande", LocalDateTime.now().toString());
+                Deque<JsonNode> orders = history.computeIfAbsent(order.path("clientId").asString(""),
+                        clientId -> new ArrayDeque<>());
+                synchronized (orders) {
+                    orders.addFirst(order);
+                    if (orders.size() > ORDER_HISTORY_SIZE) {
+                        orders.removeLast();
+                    }
+                }
+                send(exchange, 201, order);
+            } else if (path.startsWith("/api/orders/client/")) {
+                Deque<JsonNode> orders = history.get(path.substring("/api/orders/client/".length()));
+                if (orders == null) {
+                    send(exchange, 200, List.of());
+                    return;
+                }
+                synchronized (orders) {
+                    send(exchange, 200, List.copyOf(orders));
+                }
+            } else {
+                send(exchange, 404, null);
+            }
+        });
+    }
+
+    public static String productId(int index) {
+        return "product-" + index;
+    }
+
+    @Override
+    public void close() {
+        servers.forEach(server -> server.stop(0));
+    }
+
+    private URI start(Handler handler) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/", exchange -> {
+            try (exchange) {
+                handler.handle(exchange);
+            }
+        });
+        server.start();
+        servers.add(server);
+        return URI.create("http://localhost:" + server.getAddress().getPort());
+    }
+
+    private JsonNode read(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            return jsonMapper.readTree(in);
+        }
+    }
+
+    private void send(HttpExchange exchange, int status, Object body) throws IOException {
+        if (body == null) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        byte[] json = jsonMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, json.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(json);
+        }
+    }
+
+    private static Map<String, Object> customer(long id) {
+        return Map.of("id", id, "name", "Customer " + id, "email", "customer" + id + "@example.com");
+    }
+
+    private static Map<String, Object> product(int index) {
+        return Map.of("id", productId(index),
+                "name", "Product " + index,
+                "description", "Description of product " + index,
+                "price", 10 + index % 490,
+                "quantity", 1_000_000);
+    }
+
+    private static Long idAfter(String path, String prefix) {
+        if (!path.startsWith(prefix)) {
+            return null;
+        }
+        try {
+            return Long.parseLong(path.substring(prefix.length()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Map<String, String> query(URI uri) {
+        Map<String, String> query = new LinkedHashMap<>();
+        if (uri.getRawQuery() != null) {
+            for (String parameter : uri.getRawQuery().split("&")) {
+                int separator = parameter.indexOf('=');
+                if (separator > 0) {
+                    query.put(parameter.substring(0, separator), parameter.substring(separator + 1));
+                }
+            }
+        }
+        return query;
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        void handle(HttpExchange exchange) throws IOException;
+    }
+}
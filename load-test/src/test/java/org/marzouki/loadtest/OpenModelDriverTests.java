@@ -0,0 +1,101 @@
+package org.marzouki.loadtest;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class OpenModelDriverTests {
+
+    private static final String ENDPOINT = "GET /api/products/{id}";
+
+    private final StubServices stubs = new StubServices();
+
+    private HttpClient client;
+
+    private URI productService;
+
+    @BeforeEach
+    void startStub() throws Exception {
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        productService = stubs.startProductService(10);
+    }
+
+    @AfterEach
+    void stop() {
+        client.close();
+        stubs.close();
+    }
+
+    @Test
+    void arrivalsFollowTheRateAndLatencyIncludesInjectedDelay() throws Exception {
+        try (FaultInjectingProxy proxy = new FaultInjectingProxy(productService, Duration.ofMillis(100), Duration.ZERO, 0)) {
+            LoadReport report = driver(proxy.uri(), 50, Duration.ofSeconds(2), 10_000).run();
+
+            // Poisson arrivals: about 100 sessions, the bounds are several standard deviations wide
+            assertThat(report.sessionsStarted()).isBetween(60L, 140L);
+            assertThat(report.sessionsCompleted()).isEqualTo(report.sessionsStarted());
+            assertThat(report.sessionsDropped()).isZero();
+            LoadReport.Endpoint endpoint = report.endpoints().getFirst();
+            assertThat(endpoint.endpoint()).isEqualTo(ENDPOINT);
+            assertThat(endpoint.requests()).isEqualTo(report.sessionsStarted());
+            assertThat(endpoint.errors()).isZero();
+            assertThat(endpoint.outcomes()).containsOnlyKeys("2xx");
+            assertThat(endpoint.p50()).isGreaterThanOrEqualTo(100);
+            assertThat(proxy.forwarded()).isEqualTo(report.sessionsStarted());
+        }
+    }
+
+    @Test
+    void injectedFailuresAreCountedAsErrors() throws Exception {
+        try (FaultInjectingProxy proxy = new FaultInjectingProxy(productService, Duration.ZERO, Duration.ZERO, 1)) {
+            LoadReport report = driver(proxy.uri(), 50, Duration.ofSeconds(1), 10_000).run();
+
+            assertThat(report.sessionsFailed()).isEqualTo(report.sessionsStarted()).isPositive();
+            LoadReport.Endpoint endpoint = report.endpoints().getFirst();
+            assertThat(endpoint.errorRate()).isEqualTo(1.0);
+            assertThat(endpoint.outcomes()).containsOnlyKeys("5xx");
+            assertThat(proxy.forwarded()).isZero();
+        }
+    }
+
+    @Test
+    void arrivalsBeyondMaxSessionsAreDroppedNotQueued() throws Exception {
+        try (FaultInjectingProxy proxy = new FaultInjectingProxy(productService, Duration.ofSeconds(5), Duration.ZERO, 0)) {
+            LoadReport report = driver(proxy.uri(), 100, Duration.ofSeconds(1), 5).run();
+
+            assertThat(report.sessionsStarted()).isEqualTo(5);
+            assertThat(report.sessionsDropped()).isPositive();
+        }
+    }
+
+    @Test
+    void optionsAreValidated() {
+        LoadTestOptions options = LoadTestOptions.parse("--rate=12.5", "--duration=2m", "--services=order",
+                "--fault.target=customer-service", "--fault.latency=250ms");
+        assertThat(options.rate()).isEqualTo(12.5);
+        assertThat(options.duration()).isEqualTo(Duration.ofMinutes(2));
+        assertThat(options.runs(LoadTestOptions.ORDER_SERVICE)).isTrue();
+        assertThat(options.runs(LoadTestOptions.PRODUCT_SERVICE)).isFalse();
+        assertThat(options.faultLatency()).isEqualTo(Duration.ofMillis(250));
+
+        assertThatIllegalArgumentException().isThrownBy(() -> LoadTestOptions.parse("--rat=10"));
+        assertThatIllegalArgumentException().isThrownBy(() -> LoadTestOptions.parse("--services=inventory"));
+        assertThatIllegalArgumentException().isThrownBy(() -> LoadTestOptions.parse("--fault.target=order-service"));
+        assertThatIllegalArgumentException().isThrownBy(() ->
+                LoadTestOptions.parse("--services=product", "--fault.target=product-service"));
+    }
+
+    private OpenModelDriver driver(URI target, double rate, Duration duration, int maxSessions) {
+        return new OpenModelDriver(client,
+                session -> session.send(ENDPOINT, HttpRequest.newBuilder(target.resolve("/api/products/product-1"))),
+                rate, Duration.ZERO, duration, Duration.ofSeconds(10), Duration.ZERO, maxSessions);
+    }
+}
@@ -7,14 +7,18 @@ import org.marzouki.orderservice.feign.ProductRestClient;
 import org.marzouki.orderservice.model.Customer;
 import org.marzouki.orderservice.model.Product;
 import org.marzouki.orderservice.repository.BillRepository;
-import org.marzouki.orderservice.repository.ProductItemRepository;
+import org.marzouki.orderservice.service.OrderIntakeService;
+import org.marzouki.shared.feign.KeysetPages;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.cloud.openfeign.EnableFeignClients;
 import org.springframework.context.annotation.Bean;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Random;
@@ -22,45 +26,68 @@ import java.util.UUID;
 
 @SpringBootApplication
 @EnableFeignClients
+@EnableCaching
 public class OrderServiceApplication {
 
 	public static void main(String[] args) {
 		SpringApplication.run(OrderServiceApplication.class, args);
 	}
-	
+
+	/**
+	 * Seed one order per customer into an empty database. A persistent database keeps its orders,
+	 * so a warm start makes no calls to customer-service and product-service. With seed.deferred
+	 * the seeding, which may wait on those calls' timeouts, runs on a background thread instead of
+	 * holding up startup.
+	 */
 	@Bean
-	CommandLineRunner commandLineRunner(BillRepository billRepository,
-										ProductItemRepository productItemRepository,
+	CommandLineRunner commandLineRunner(OrderIntakeService orderIntakeService,
+										BillRepository billRepository,
 										CustomerRestClient customerRestClient,
-										ProductRestClient productRestClient){
+										ProductRestClient productRestClient,
+										@Value("${seed.deferred:false}") boolean deferred){
 
 		return args -> {
-			try {
-				Collection<Customer> customers = customerRestClient.getAllCustomers().getContent();
-				Collection<Product> products = productRestClient.getAllProducts().getContent();
+			Runnable seeding = () -> {
+				if (billRepository.count() > 0) {
+					System.out.println("✓ Order Service: Existing orders found, seeding skipped");
+					return;
+				}
+				try {
+					Collection<Customer> customers = KeysetPages.all(CustomerRestClient.PAGE_SIZE,
+							customerRestClient::getCustomersAfter, Customer::getId);
+					Collection<Product> products = productRestClient.getAllProducts().getContent();
 
-				customers.forEach(customer -> {
-					Bill order = Bill.builder()
-							.clientId(String.valueOf(customer.getId()))
-							.statut(Bill.OrderStatus.PENDING)
-							.build();
-					Bill savedOrder = billRepository.save(order);
-					
-					products.forEach(product -> {
-						int quantity = 1 + new Random().nextInt(10);
-						ProductItem productItem = ProductItem.builder()
-								.bill(savedOrder)
-								.productId(product.getId())
-								.quantity(quantity)
-								.unitPrice(product.getPrice())
-								.totalPrice(quantity * product.getPrice())
+					List<Bill> orders = new ArrayList<>();
+					customers.forEach(customer -> {
+						Bill order = Bill.builder()
+								.clientId(String.valueOf(customer.getId()))
+								.statut(Bill.OrderStatus.PENDING)
+								.productItems(new ArrayList<>())
 								.build();
-						productItemRepository.save(productItem);
+					
+						products.forEach(product -> {
+							int quantity = 1 + new Random().nextInt(10);
+							order.getProductItems().add(ProductItem.builder()
+									.bill(order)
+									.productId(product.getId())
+									.quantity(quantity)
+									.unitPrice(product.getPrice())
+									.totalPrice(quantity * product.getPrice())
+									.build());
+						});
+						orders.add(order);
 					});
-				});
-				System.out.println("✓ Order Service: Initial orders loaded successfully");
-			} catch (Exception e) {
-				System.out.println("⚠ Order Service: Warning - Could not load initial data from services: " + e.getMessage());
+					// Items are inserted with the orders through the cascade, the order aggregates are kept in step
+					orderIntakeService.createOrders(orders);
+					System.out.println("✓ Order Service: Initial orders loaded successfully");
+				} catch (Exception e) {
+					System.out.println("⚠ Order Service: Warning - Could not load initial data from services: " + e.getMessage());
+				}
+			};
+			if (deferred) {
+				Thread.ofVirtual().name("seeding").start(seeding);
+			} else {
+				seeding.run();
 			}
 		};
 	}
@@ -0,0 +1,20 @@
+package org.marzouki.orderservice.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+public class EnrichmentConfig {
+
+    /**
+     * Executor running customer and product lookups, one virtual thread per lookup.
+     * Concurrency is bounded by OrderEnrichmentService, not by the executor itself.
+     */
+    @Bean(destroyMethod = "close")
+    ExecutorService enrichmentExecutor() {
+        return Executors.newVirtualThreadPerTaskExecutor();
+    }
+}
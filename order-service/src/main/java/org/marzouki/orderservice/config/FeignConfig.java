@@ -0,0 +1,20 @@
+package org.marzouki.orderservice.config;
+
+import org.springframework.cloud.openfeign.support.HttpMessageConverterCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.json.JacksonJsonHttpMessageConverter;
+import tools.jackson.databind.json.JsonMapper;
+
+@Configuration
+public class FeignConfig {
+
+    /**
+     * Put a plain Jackson converter first for the Feign clients. Otherwise the ALPS converter of
+     * Spring Data REST is the one claiming application/json, and it cannot read our models.
+     */
+    @Bean
+    HttpMessageConverterCustomizer feignJsonConverterCustomizer(JsonMapper jsonMapper) {
+        return converters -> converters.addFirst(new JacksonJsonHttpMessageConverter(jsonMapper));
+    }
+}
@@ -0,0 +1,33 @@
+package org.marzouki.orderservice.config;
+
+import org.marzouki.orderservice.model.OrderStatsCheck;
+import org.marzouki.orderservice.service.OrderStatsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Actuator endpoint for the running order aggregates behind GET /api/orders/stats:
+ * GET /actuator/orderstats compares them with a GROUP BY over the orders table,
+ * POST /actuator/orderstats recomputes them from it and returns the check afterwards.
+ */
+@Component
+@Endpoint(id = "orderstats")
+public class OrderStatsEndpoint {
+
+    @Autowired
+    private OrderStatsService orderStatsService;
+
+    @ReadOperation
+    public OrderStatsCheck check() {
+        return orderStatsService.check();
+    }
+
+    @WriteOperation
+    public OrderStatsCheck rebuild() {
+        orderStatsService.rebuild();
+        return orderStatsService.check();
+    }
+}
@@ -0,0 +1,66 @@
+package org.marzouki.orderservice.config;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * GET /actuator/resilience - Circuit breaker state and bulkhead usage of every Feign client,
+ * with the number of calls each one rejected without reaching the dependency
+ */
+@Component
+@Endpoint(id = "resilience")
+public class ResilienceEndpoint {
+
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+
+    private final BulkheadRegistry bulkheadRegistry;
+
+    private final Map<String, LongAdder> bulkheadRejections = new ConcurrentHashMap<>();
+
+    public ResilienceEndpoint(CircuitBreakerRegistry circuitBreakerRegistry, BulkheadRegistry bulkheadRegistry) {
+        this.circuitBreakerRegistry = circuitBreakerRegistry;
+        this.bulkheadRegistry = bulkheadRegistry;
+        bulkheadRegistry.getAllBulkheads().forEach(this::countRejections);
+        bulkheadRegistry.getEventPublisher().onEntryAdded(event -> countRejections(event.getAddedEntry()));
+    }
+
+    @ReadOperation
+    public Map<String, Object> state() {
+        Map<String, Object> circuitBreakers = new TreeMap<>();
+        circuitBreakerRegistry.getAllCircuitBreakers().forEach(circuitBreaker -> {
+            CircuitBreaker.Metrics metrics = circuitBreaker.getMetrics();
+            circuitBreakers.put(circuitBreaker.getName(), Map.of(
+                    "state", circuitBreaker.getState().name(),
+                    "failureRate", metrics.getFailureRate(),
+                    "slowCallRate", metrics.getSlowCallRate(),
+                    "bufferedCalls", metrics.getNumberOfBufferedCalls(),
+                    "notPermittedCalls", metrics.getNumberOfNotPermittedCalls()));
+        });
+        Map<String, Object> bulkheads = new TreeMap<>();
+        bulkheadRegistry.getAllBulkheads().forEach(bulkhead -> bulkheads.put(bulkhead.getName(), Map.of(
+                "maxConcurrentCalls", bulkhead.getMetrics().getMaxAllowedConcurrentCalls(),
+                "availableConcurrentCalls", bulkhead.getMetrics().getAvailableConcurrentCalls(),
+                "rejectedCalls", rejectedCalls(bulkhead.getName()))));
+        return Map.of("circuitBreakers", circuitBreakers, "bulkheads", bulkheads);
+    }
+
+    public long rejectedCalls(String bulkhead) {
+        LongAdder rejections = bulkheadRejections.get(bulkhead);
+        return rejections != null ? rejections.sum() : 0;
+    }
+
+    private void countRejections(Bulkhead bulkhead) {
+        LongAdder rejections = bulkheadRejections.computeIfAbsent(bulkhead.getName(), name -> new LongAdder());
+        bulkhead.getEventPublisher().onCallRejected(event -> rejections.increment());
+    }
+}
@@ -5,14 +5,21 @@ import lombok.*;
 import org.marzouki.orderservice.model.Customer;
 
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        @Index(name = "idx_orders_date_id", columnList = "date_commande, id"),
+        @Index(name = "idx_orders_statut_date_id", columnList = "statut, date_commande, id"),
+        @Index(name = "idx_orders_client_date_id", columnList = "client_id, date_commande, id")
+})
 @NoArgsConstructor @AllArgsConstructor @Getter @Setter @Builder
 public class Bill {
-    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_seq")
+    @SequenceGenerator(name = "orders_seq", sequenceName = "orders_seq", allocationSize = 50)
     private Long id;
     
     @Column(nullable = false, updatable = false)
@@ -34,6 +41,12 @@ public class Bill {
     @Transient 
     private Customer customer;
     
+    /**
+     * False when customer or product details could not be resolved in time
+     */
+    @Transient
+    private boolean enriched;
+    
     @Column(nullable = false, updatable = false)
     private LocalDateTime dateCreation;
     
@@ -42,9 +55,11 @@ public class Bill {
     
     @PrePersist
     protected void onCreate() {
-        dateCommande = LocalDateTime.now();
-        dateCreation = LocalDateTime.now();
-        dateModification = LocalDateTime.now();
+        // Truncated to the column precision so keyset cursors built from managed entities match the stored values
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        dateCommande = now;
+        dateCreation = now;
+        dateModification = now;
         if (statut == null) {
             statut = OrderStatus.PENDING;
         }
@@ -52,7 +67,7 @@ public class Bill {
     
     @PreUpdate
     protected void onUpdate() {
-        dateModification = LocalDateTime.now();
+        dateModification = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
     }
     
     public enum OrderStatus {
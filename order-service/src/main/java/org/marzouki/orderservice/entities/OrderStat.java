@@ -0,0 +1,50 @@
+package org.marzouki.orderservice.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+
+/**
+ * One slot of a running order aggregate: number of orders and revenue of a status, a client or
+ * a day. Hot buckets (a status, today) are split over several slots so that concurrent writers
+ * do not all queue on the same row; a bucket's figures are the sum of its slots.
+ */
+@Entity
+@Table(name = "order_stats", indexes = {
+        @Index(name = "idx_order_stats_dimension_revenue", columnList = "dimension, revenue")
+})
+@NoArgsConstructor @AllArgsConstructor @Getter @Setter
+public class OrderStat {
+
+    @EmbeddedId
+    private Key id;
+
+    @Column(nullable = false)
+    private long orderCount;
+
+    @Column(nullable = false)
+    private double revenue;
+
+    public enum Dimension {
+        STATUS, CLIENT, DAY
+    }
+
+    @Embeddable
+    @NoArgsConstructor @AllArgsConstructor @Getter @Setter @EqualsAndHashCode
+    public static class Key implements Serializable {
+
+        @Enumerated(EnumType.STRING)
+        @Column(nullable = false, length = 16)
+        private Dimension dimension;
+
+        /**
+         * Status name, client id or ISO date
+         */
+        @Column(nullable = false)
+        private String bucket;
+
+        @Column(nullable = false)
+        private int slot;
+    }
+}
@@ -1,21 +1,28 @@
 package org.marzouki.orderservice.feign;
 
-import lombok.Getter;
 import org.marzouki.orderservice.model.Customer;
-import org.marzouki.orderservice.model.Product;
 import org.springframework.cloud.openfeign.FeignClient;
-import org.springframework.hateoas.PagedModel;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
 
 import java.util.List;
 
-@FeignClient(name = "customer-service")
+@FeignClient(name = CustomerRestClient.NAME, fallbackFactory = CustomerRestClientFallbackFactory.class)
 public interface CustomerRestClient {
+    String NAME = "customer-service";
+
+    /**
+     * Page size used when walking through all customers
+     */
+    int PAGE_SIZE = 500;
+
     @GetMapping("/api/customers/{id}")
     Customer getCustomerById(@PathVariable Long id);
 
-    @GetMapping("/api/customers")
-    PagedModel<Customer> getAllCustomers();
-
+    /**
+     * Customers whose id follows {@code after}, in id order, as plain JSON
+     */
+    @GetMapping("/api/customers/all")
+    List<Customer> getCustomersAfter(@RequestParam("after") long after, @RequestParam("size") int size);
 }
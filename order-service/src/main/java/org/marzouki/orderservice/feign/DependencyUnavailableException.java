@@ -0,0 +1,49 @@
+package org.marzouki.orderservice.feign;
+
+import feign.FeignException;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+
+/**
+ * Thrown by the Feign fallbacks instead of waiting on a dependency that is failing, too slow,
+ * behind an open circuit breaker or already at its concurrency limit. It is never cached, so the
+ * lookup is simply retried once the dependency recovers.
+ */
+public class DependencyUnavailableException extends RuntimeException {
+
+    private final String dependency;
+
+    private final String reason;
+
+    public DependencyUnavailableException(String dependency, Throwable cause) {
+        super(dependency + " unavailable: " + cause, cause);
+        this.dependency = dependency;
+        this.reason = switch (cause) {
+            case CallNotPermittedException e -> "circuit-open";
+            case BulkheadFullException e -> "bulkhead-full";
+            default -> "failure";
+        };
+    }
+
+    /**
+     * The exception a fallback should throw for the given cause. Client errors (4xx) are answers
+     * from a healthy dependency, e.g. an unknown id, and are propagated as they are.
+     */
+    static RuntimeException of(String dependency, Throwable cause) {
+        if (cause instanceof FeignException.FeignClientException clientError) {
+            return clientError;
+        }
+        return new DependencyUnavailableException(dependency, cause);
+    }
+
+    public String getDependency() {
+        return dependency;
+    }
+
+    /**
+     * circuit-open, bulkhead-full or failure (error response, connect or read timeout)
+     */
+    public String getReason() {
+        return reason;
+    }
+}
@@ -5,11 +5,25 @@ import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.hateoas.PagedModel;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 
-@FeignClient(name = "product-service")
+import java.util.Collection;
+import java.util.List;
+
+@FeignClient(name = ProductRestClient.NAME, fallbackFactory = ProductRestClientFallbackFactory.class)
 public interface ProductRestClient {
+    String NAME = "product-service";
+
+    /**
+     * Maximum number of ids product-service accepts in one batch lookup
+     */
+    int MAX_BATCH_SIZE = 500;
+
     @GetMapping("/api/products/{id}")
     Product getProductById(@PathVariable String id);
     @GetMapping("/api/products")
     PagedModel<Product> getAllProducts();
+    @PostMapping("/api/products/batch")
+    List<Product> getProductsByIds(@RequestBody Collection<String> ids);
 }
@@ -0,0 +1,33 @@
+package org.marzouki.orderservice.feign;
+
+import org.marzouki.orderservice.model.Product;
+import org.springframework.cloud.openfeign.FallbackFactory;
+import org.springframework.hateoas.PagedModel;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+
+@Component
+public class ProductRestClientFallbackFactory implements FallbackFactory<ProductRestClient> {
+
+    @Override
+    public ProductRestClient create(Throwable cause) {
+        return new ProductRestClient() {
+            @Override
+            public Product getProductById(String id) {
+                throw DependencyUnavailableException.of(ProductRestClient.NAME, cause);
+            }
+
+            @Override
+            public PagedModel<Product> getAllProducts() {
+                throw DependencyUnavailableException.of(ProductRestClient.NAME, cause);
+            }
+
+            @Override
+            public List<Product> getProductsByIds(Collection<String> ids) {
+                throw DependencyUnavailableException.of(ProductRestClient.NAME, cause);
+            }
+        };
+    }
+}
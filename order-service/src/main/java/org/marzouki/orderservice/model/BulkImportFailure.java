@@ -0,0 +1,8 @@
+package org.marzouki.orderservice.model;
+
+/**
+ * Body of a rejected bulk import: nothing was saved, the failing chunk covers the orders
+ * {@code fromIndex} (inclusive) to {@code toIndex} (exclusive) of the request
+ */
+public record BulkImportFailure(int chunk, int fromIndex, int toIndex, String error) {
+}
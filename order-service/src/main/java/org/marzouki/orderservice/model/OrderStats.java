@@ -0,0 +1,27 @@
+package org.marzouki.orderservice.model;
+
+import org.marzouki.orderservice.entities.Bill;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Order count and revenue overall, per status, per day of a date range and for the clients
+ * with the highest revenue
+ */
+public record OrderStats(long orderCount,
+                         double revenue,
+                         Map<Bill.OrderStatus, Figures> byStatus,
+                         List<Day> byDay,
+                         List<Client> topClients) {
+
+    public record Figures(long orderCount, double revenue) {
+    }
+
+    public record Day(LocalDate day, long orderCount, double revenue) {
+    }
+
+    public record Client(String clientId, long orderCount, double revenue) {
+    }
+}
@@ -0,0 +1,24 @@
+package org.marzouki.orderservice.model;
+
+import org.marzouki.orderservice.entities.OrderStat;
+
+import java.util.List;
+
+/**
+ * Result of comparing the running order aggregates with a GROUP BY over the orders table
+ *
+ * @param bucketsChecked number of buckets compared, over all dimensions
+ * @param mismatches     the first differing buckets, at most {@code MAX_MISMATCHES}
+ */
+public record OrderStatsCheck(boolean consistent, long bucketsChecked, long mismatchCount, List<Mismatch> mismatches) {
+
+    public static final int MAX_MISMATCHES = 100;
+
+    public record Mismatch(OrderStat.Dimension dimension,
+                           String bucket,
+                           long expectedCount,
+                           long actualCount,
+                           double expectedRevenue,
+                           double actualRevenue) {
+    }
+}
@@ -1,15 +1,67 @@
 package org.marzouki.orderservice.repository;
 
 import org.marzouki.orderservice.entities.Bill;
+import org.marzouki.shared.web.ResourceVersion;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.data.rest.core.annotation.RestResource;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+
+public interface BillRepository extends JpaRepository<Bill, Long>, JpaSpecificationExecutor<Bill> {
+
+    /**
+     * Writes go through OrderIntakeService, which keeps the order aggregates in step:
+     * not exported, so Spring Data REST cannot bypass it
+     */
+    @Override
+    @RestResource(exported = false)
+    <S extends Bill> S save(S entity);
+
+    @Override
+    @RestResource(exported = false)
+    void deleteById(Long id);
+
+    @Override
+    @RestResource(exported = false)
+    void delete(Bill entity);
 
-public interface BillRepository extends JpaRepository<Bill, Long> {
     List<Bill> findByClientId(String clientId);
     
     @Query("SELECT b FROM Bill b WHERE b.statut = :status")
     List<Bill> findByStatut(@Param("status") Bill.OrderStatus status);
+
+    /**
+     * Keyset-paginated orders of a client, most recent first
+     */
+    Window<Bill> findByClientIdOrderByDateCommandeDescIdDesc(String clientId, ScrollPosition position, Limit limit);
+
+    /**
+     * Keyset-paginated orders in a given status, most recent first
+     */
+    Window<Bill> findByStatutOrderByDateCommandeDescIdDesc(Bill.OrderStatus statut, ScrollPosition position, Limit limit);
+
+    /**
+     * Orders with their product items fetched in the same statement
+     */
+    @EntityGraph(attributePaths = "productItems")
+    List<Bill> findWithItemsByIdIn(Collection<Long> ids);
+
+    @EntityGraph(attributePaths = "productItems")
+    Optional<Bill> findWithItemsById(Long id);
+
+    /**
+     * Version of a single order, read from its modification date only
+     */
+    @Query("SELECT new org.marzouki.shared.web.ResourceVersion(CAST(b.id AS String), b.dateModification) " +
+            "FROM Bill b WHERE b.id = :id")
+    Optional<ResourceVersion> findVersionById(@Param("id") Long id);
 }
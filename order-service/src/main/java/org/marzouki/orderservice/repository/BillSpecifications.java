@@ -0,0 +1,38 @@
+package org.marzouki.orderservice.repository;
+
+import org.marzouki.orderservice.entities.Bill;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+
+/**
+ * Filters for order listings. Each factory returns an unrestricted specification when its
+ * argument is null so they can be combined freely.
+ */
+public final class BillSpecifications {
+
+    /**
+     * Sort order backing keyset pagination: most recent first, id as tie-breaker
+     */
+    public static final Sort KEYSET_SORT = Sort.by(Sort.Order.desc("dateCommande"), Sort.Order.desc("id"));
+
+    private BillSpecifications() {
+    }
+
+    public static Specification<Bill> hasStatut(Bill.OrderStatus statut) {
+        return (root, query, cb) -> statut == null ? null : cb.equal(root.get("statut"), statut);
+    }
+
+    public static Specification<Bill> hasClientId(String clientId) {
+        return (root, query, cb) -> clientId == null ? null : cb.equal(root.get("clientId"), clientId);
+    }
+
+    public static Specification<Bill> placedFrom(LocalDateTime from) {
+        return (root, query, cb) -> from == null ? null : cb.greaterThanOrEqualTo(root.get("dateCommande"), from);
+    }
+
+    public static Specification<Bill> placedBefore(LocalDateTime to) {
+        return (root, query, cb) -> to == null ? null : cb.lessThan(root.get("dateCommande"), to);
+    }
+}
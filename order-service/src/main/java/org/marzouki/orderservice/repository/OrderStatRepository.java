@@ -0,0 +1,39 @@
+package org.marzouki.orderservice.repository;
+
+import org.marzouki.orderservice.entities.OrderStat;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.data.rest.core.annotation.RepositoryRestResource;
+
+import java.util.List;
+
+/**
+ * Maintained by OrderStatsService only, and read through its endpoints: not exported
+ */
+@RepositoryRestResource(exported = false)
+public interface OrderStatRepository extends JpaRepository<OrderStat, OrderStat.Key> {
+
+    /**
+     * Figures of every non-empty bucket of a dimension, slots summed: {bucket, count, revenue}
+     */
+    @Query("SELECT s.id.bucket, SUM(s.orderCount), SUM(s.revenue) FROM OrderStat s " +
+            "WHERE s.id.dimension = :dimension GROUP BY s.id.bucket HAVING SUM(s.orderCount) <> 0")
+    List<Object[]> sumByBucket(@Param("dimension") OrderStat.Dimension dimension);
+
+    /**
+     * Figures of the buckets of a dimension in [from, to], slots summed: {bucket, count, revenue}
+     */
+    @Query("SELECT s.id.bucket, SUM(s.orderCount), SUM(s.revenue) FROM OrderStat s " +
+            "WHERE s.id.dimension = :dimension AND s.id.bucket BETWEEN :from AND :to " +
+            "GROUP BY s.id.bucket HAVING SUM(s.orderCount) > 0 ORDER BY s.id.bucket")
+    List<Object[]> sumByBucketBetween(@Param("dimension") OrderStat.Dimension dimension,
+                                      @Param("from") String from, @Param("to") String to);
+
+    /**
+     * Unsplit buckets of a dimension with the highest revenue, read from the (dimension, revenue) index
+     */
+    @Query("SELECT s FROM OrderStat s WHERE s.id.dimension = :dimension AND s.orderCount > 0 ORDER BY s.revenue DESC")
+    List<OrderStat> findTopByRevenue(@Param("dimension") OrderStat.Dimension dimension, Limit limit);
+}
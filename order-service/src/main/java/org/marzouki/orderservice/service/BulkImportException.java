@@ -0,0 +1,34 @@
+package org.marzouki.orderservice.service;
+
+/**
+ * A chunk of a bulk order import could not be saved. The whole import was rolled back, so the
+ * caller can fix the orders from {@code fromIndex} (inclusive) to {@code toIndex} (exclusive) and
+ * send the same list again without creating duplicates.
+ */
+public class BulkImportException extends RuntimeException {
+
+    private final int chunk;
+
+    private final int fromIndex;
+
+    private final int toIndex;
+
+    public BulkImportException(int chunk, int fromIndex, int toIndex, Throwable cause) {
+        super("Orders " + fromIndex + " to " + (toIndex - 1) + " could not be saved: " + cause.getMessage(), cause);
+        this.chunk = chunk;
+        this.fromIndex = fromIndex;
+        this.toIndex = toIndex;
+    }
+
+    public int getChunk() {
+        return chunk;
+    }
+
+    public int getFromIndex() {
+        return fromIndex;
+    }
+
+    public int getToIndex() {
+        return toIndex;
+    }
+}
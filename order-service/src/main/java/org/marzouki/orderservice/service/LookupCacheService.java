@@ -0,0 +1,113 @@
+package org.marzouki.orderservice.service;
+
+import feign.FeignException;
+import org.marzouki.orderservice.feign.CustomerRestClient;
+import org.marzouki.orderservice.feign.ProductRestClient;
+import org.marzouki.orderservice.model.Customer;
+import org.marzouki.orderservice.model.Product;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Near cache in front of the customer-service and product-service Feign clients.
+ * <p>
+ * Entries are {@link Optional}s so that unknown customers and products (404s, unparseable
+ * client ids) are cached as well and not retried on every request. Any other failure is
+ * propagated and never cached. Size, TTL and statistics come from {@code spring.cache.caffeine.spec}.
+ */
+@Service
+public class LookupCacheService {
+
+    public static final String CUSTOMERS = "customers";
+    public static final String PRODUCTS = "products";
+
+    @Autowired
+    private CustomerRestClient customerRestClient;
+
+    @Autowired
+    private ProductRestClient productRestClient;
+
+    private final Cache customers;
+
+    private final Cache products;
+
+    public LookupCacheService(CacheManager cacheManager) {
+        this.customers = cacheManager.getCache(CUSTOMERS);
+        this.products = cacheManager.getCache(PRODUCTS);
+    }
+
+    /**
+     * Customer for an order clientId, empty when the id is not numeric or the customer does not exist
+     */
+    @SuppressWarnings("unchecked")
+    public Optional<Customer> findCustomer(String clientId) {
+        // Loaded outside the cache's compute so a slow call never blocks other keys
+        Optional<Customer> customer = customers.get(clientId, Optional.class);
+        if (customer == null) {
+            customer = loadCustomer(clientId);
+            customers.put(clientId, customer);
+        }
+        return customer;
+    }
+
+    /**
+     * Cached lookups for the given product IDs; IDs that are not cached are absent from the result
+     */
+    public Map<String, Optional<Product>> cachedProducts(Collection<String> ids) {
+        Map<String, Optional<Product>> hits = new HashMap<>();
+        ids.forEach(id -> {
+            Optional<Product> product = cachedProduct(id);
+            if (product != null) {
+                hits.put(id, product);
+            }
+        });
+        return hits;
+    }
+
+    /**
+     * Fetch products from product-service in one batch call and cache the result of every ID,
+     * including the ones product-service does not know about
+     */
+    public Map<String, Optional<Product>> fetchProducts(List<String> ids) {
+        Map<String, Optional<Product>> fetched = new HashMap<>();
+        productRestClient.getProductsByIds(ids).forEach(product -> fetched.put(product.getId(), Optional.of(product)));
+        ids.forEach(id -> fetched.putIfAbsent(id, Optional.empty()));
+        fetched.forEach(products::put);
+        return fetched;
+    }
+
+    public void evictCustomer(String clientId) {
+        customers.evict(clientId);
+    }
+
+    public void evictProduct(String productId) {
+        products.evict(productId);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Optional<Product> cachedProduct(String id) {
+        return products.get(id, Optional.class);
+    }
+
+    private Optional<Customer> loadCustomer(String clientId) {
+        long customerId;
+        try {
+            customerId = Long.parseLong(clientId);
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.ofNullable(customerRestClient.getCustomerById(customerId));
+        } catch (FeignException.NotFound e) {
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package org.marzouki.orderservice.service;
+
+import org.marzouki.orderservice.entities.Bill;
+import org.marzouki.orderservice.entities.ProductItem;
+import org.marzouki.orderservice.feign.ProductRestClient;
+import org.marzouki.orderservice.model.Customer;
+import org.marzouki.orderservice.model.Product;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Enriches orders with customer and product details from customer-service and product-service,
+ * going through the {@link LookupCacheService} near cache.
+ * <p>
+ * All lookups of a request run concurrently and share one time budget: whatever has not
+ * answered when the budget runs out is cancelled and the affected orders are returned with
+ * {@code enriched = false} instead of waiting for the slow dependency. Lookups against a
+ * dependency whose circuit breaker is open or whose bulkhead is full fail right away through
+ * the Feign fallbacks, without using up the budget.
+ */
+@Service
+public class OrderEnrichmentService {
+
+    @Autowired
+    private LookupCacheService lookupCacheService;
+
+    @Autowired
+    @Qualifier("enrichmentExecutor")
+    private ExecutorService enrichmentExecutor;
+
+    private final long timeoutMillis;
+
+    private final Semaphore permits;
+
+    public OrderEnrichmentService(@Value("${order.enrichment.timeout-ms:2000}") long timeoutMillis,
+                                  @Value("${order.enrichment.max-concurrency:64}") int maxConcurrency) {
+        this.timeoutMillis = timeoutMillis;
+        this.permits = new Semaphore(maxConcurrency);
+    }
+
+    /**
+     * Enrich a single order with customer and product details
+     */
+    public void enrichOrder(Bill bill) {
+        enrichOrders(List.of(bill));
+    }
+
+    /**
+     * Enrich multiple orders with details. Each distinct customer is looked up once and
+     * products missing from the cache are resolved through chunked batch lookups.
+     * Unknown customers and products count as resolved; only failed or late lookups
+     * leave an order not enriched.
+     */
+    public void enrichOrders(List<Bill> bills) {
+        if (bills.isEmpty()) {
+            return;
+        }
+
+        Map<String, Optional<Customer>> customers = new ConcurrentHashMap<>();
+        Map<String, Optional<Product>> products = new ConcurrentHashMap<>();
+        List<Callable<Void>> lookups = new ArrayList<>();
+
+        Set<String> clientIds = new LinkedHashSet<>();
+        Set<String> productIds = new LinkedHashSet<>();
+        bills.forEach(bill -> {
+            if (bill.getClientId() != null) {
+                clientIds.add(bill.getClientId());
+            }
+            if (bill.getProductItems() != null) {
+                bill.getProductItems().forEach(productItem -> productIds.add(productItem.getProductId()));
+            }
+        });
+
+        clientIds.forEach(clientId -> lookups.add(bounded(() ->
+                customers.put(clientId, lookupCacheService.findCustomer(clientId)))));
+
+        products.putAll(lookupCacheService.cachedProducts(productIds));
+        List<String> ids = productIds.stream().filter(id -> !products.containsKey(id)).toList();
+        for (int from = 0; from < ids.size(); from += ProductRestClient.MAX_BATCH_SIZE) {
+            List<String> chunk = ids.subList(from, Math.min(from + ProductRestClient.MAX_BATCH_SIZE, ids.size()));
+            lookups.add(bounded(() -> products.putAll(lookupCacheService.fetchProducts(chunk))));
+        }
+
+        try {
+            // Lookups still running when the budget is spent are cancelled by invokeAll
+            enrichmentExecutor.invokeAll(lookups, timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        bills.forEach(bill -> {
+            boolean enriched = true;
+            if (bill.getClientId() != null) {
+                Optional<Customer> customer = customers.get(bill.getClientId());
+                bill.setCustomer(customer != null ? customer.orElse(null) : null);
+                enriched = customer != null;
+            }
+            if (bill.getProductItems() != null) {
+                for (ProductItem productItem : bill.getProductItems()) {
+                    Optional<Product> product = products.get(productItem.getProductId());
+                    productItem.setProduct(product != null ? product.orElse(null) : null);
+                    enriched &= product != null;
+                }
+            }
+            bill.setEnriched(enriched);
+        });
+    }
+
+    /**
+     * Digest of the customer and product details the orders were enriched with. They are part of
+     * the orders' representation but not of their versions, so the validators must cover them.
+     */
+    public String enrichmentDigest(List<Bill> bills) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        for (Bill bill : bills) {
+            Customer customer = bill.getCustomer();
+            if (customer != null) {
+                update(digest, customer.getId(), customer.getName(), customer.getEmail());
+            }
+            update(digest, "items");
+            if (bill.getProductItems() != null) {
+                for (ProductItem productItem : bill.getProductItems()) {
+                    Product product = productItem.getProduct();
+                    if (product != null) {
+                        update(digest, product.getId(), product.getName(), product.getDescription(),
+                                product.getPrice(), product.getQuantity());
+                    }
+                    update(digest, "item");
+                }
+            }
+            update(digest, "order");
+        }
+        return HexFormat.of().formatHex(digest.digest(), 0, 8);
+    }
+
+    private static void update(MessageDigest digest, Object... values) {
+        for (Object value : values) {
+            digest.update(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+            // Separator, so that adjacent values cannot run into each other
+            digest.update((byte) 0);
+        }
+    }
+
+    /**
+     * Wrap a lookup so that at most max-concurrency lookups hit the downstream services at once.
+     * Failures are swallowed: an unresolved lookup simply leaves its orders not enriched.
+     */
+    private Callable<Void> bounded(Runnable lookup) {
+        return () -> {
+            permits.acquire();
+            try {
+                lookup.run();
+            } catch (Exception e) {
+                // Skip enrichment for this lookup if it fails
+            } finally {
+                permits.release();
+            }
+            return null;
+        };
+    }
+}
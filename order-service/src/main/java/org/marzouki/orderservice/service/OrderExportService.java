@@ -0,0 +1,173 @@
+package org.marzouki.orderservice.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.jpa.HibernateHints;
+import org.marzouki.orderservice.entities.Bill;
+import org.marzouki.orderservice.entities.ProductItem;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Streams the full order history, with product items, without holding it in memory.
+ * <p>
+ * Orders are read through a forward-only cursor with the configured fetch size. Every chunk of
+ * that size gets its product items in one query, is written out, and the persistence context is
+ * cleared before the next chunk, so memory use does not depend on the number of orders.
+ */
+@Service
+public class OrderExportService {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private JsonMapper jsonMapper;
+
+    private final int fetchSize;
+
+    public OrderExportService(@Value("${order.export.fetch-size:500}") int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Write the orders matching the filter, oldest first, and return how many were written
+     */
+    @Transactional(readOnly = true)
+    public long export(Specification<Bill> filter, Format format, OutputStream out) throws IOException {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Bill> query = cb.createQuery(Bill.class);
+        Root<Bill> root = query.from(Bill.class);
+        Predicate predicate = filter.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(cb.asc(root.get("dateCommande")), cb.asc(root.get("id")));
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        if (format == Format.CSV) {
+            writer.write("order_id,date_commande,statut,client_id,montant_total,product_id,quantity,unit_price,total_price\n");
+        }
+        long count = 0;
+        try (Stream<Bill> orders = entityManager.createQuery(query)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream()) {
+            List<Bill> chunk = new ArrayList<>(fetchSize);
+            Iterator<Bill> iterator = orders.iterator();
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+                if (chunk.size() == fetchSize || !iterator.hasNext()) {
+                    writeChunk(chunk, format, writer);
+                    count += chunk.size();
+                    chunk.clear();
+                }
+            }
+        }
+        writer.flush();
+        return count;
+    }
+
+    private void writeChunk(List<Bill> orders, Format format, Writer writer) throws IOException {
+        Map<Long, List<ProductItem>> items = new HashMap<>();
+        entityManager.createQuery("SELECT i FROM ProductItem i WHERE i.bill IN :orders ORDER BY i.id", ProductItem.class)
+                .setParameter("orders", orders)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultList()
+                .forEach(item -> items.computeIfAbsent(item.getBill().getId(), id -> new ArrayList<>()).add(item));
+        for (Bill order : orders) {
+            List<ProductItem> orderItems = items.getOrDefault(order.getId(), List.of());
+            if (format == Format.NDJSON) {
+                writer.write(jsonMapper.writeValueAsString(ExportedOrder.of(order, orderItems)));
+                writer.write('\n');
+            } else {
+                writeCsv(order, orderItems, writer);
+            }
+        }
+        writer.flush();
+        // Detach the chunk: the cursor keeps going but nothing read so far stays referenced
+        entityManager.clear();
+    }
+
+    private static void writeCsv(Bill order, List<ProductItem> items, Writer writer) throws IOException {
+        String orderColumns = order.getId() + "," + order.getDateCommande() + "," + order.getStatut() + ","
+                + csv(order.getClientId()) + "," + order.getMontantTotal() + ",";
+        if (items.isEmpty()) {
+            writer.write(orderColumns + ",,,\n");
+        }
+        for (ProductItem item : items) {
+            writer.write(orderColumns + csv(item.getProductId()) + "," + item.getQuantity() + ","
+                    + item.getUnitPrice() + "," + item.getTotalPrice() + "\n");
+        }
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    public enum Format {
+        NDJSON(MediaType.APPLICATION_NDJSON, "ndjson"),
+        CSV(new MediaType("text", "csv", StandardCharsets.UTF_8), "csv");
+
+        private final MediaType mediaType;
+
+        private final String extension;
+
+        Format(MediaType mediaType, String extension) {
+            this.mediaType = mediaType;
+            this.extension = extension;
+        }
+
+        public MediaType getMediaType() {
+            return mediaType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    record ExportedItem(String productId, int quantity, double unitPrice, double totalPrice) {
+    }
+
+    record ExportedOrder(Long id, LocalDateTime dateCommande, Bill.OrderStatus statut, String clientId,
+                         double montantTotal, List<ExportedItem> items) {
+
+        static ExportedOrder of(Bill order, List<ProductItem> items) {
+            return new ExportedOrder(order.getId(), order.getDateCommande(), order.getStatut(), order.getClientId(),
+                    order.getMontantTotal(), items.stream()
+                    .map(item -> new ExportedItem(item.getProductId(), item.getQuantity(), item.getUnitPrice(),
+                            item.getTotalPrice()))
+                    .toList());
+        }
+    }
+}
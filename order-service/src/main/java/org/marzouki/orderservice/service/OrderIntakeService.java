@@ -0,0 +1,151 @@
+package org.marzouki.orderservice.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.marzouki.orderservice.entities.Bill;
+import org.marzouki.orderservice.repository.BillRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Write side of order intake.
+ * <p>
+ * Orders are saved as whole aggregates through the {@code Bill.productItems} cascade. With pooled
+ * sequence identifiers and {@code hibernate.jdbc.batch_size}, Hibernate groups the inserts of a
+ * flush into JDBC batches. Bulk imports are all or nothing: one transaction, flushed in chunks,
+ * with the persistence context cleared between chunks so memory stays flat.
+ * <p>
+ * Every write also updates the order aggregates of {@link OrderStatsService}, in the same
+ * transaction as the order itself, so both commit or roll back together.
+ */
+@Service
+public class OrderIntakeService {
+
+    @Autowired
+    private BillRepository billRepository;
+
+    @Autowired
+    private OrderStatsService orderStatsService;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final int chunkSize;
+
+    public OrderIntakeService(PlatformTransactionManager transactionManager,
+                              @Value("${order.bulk.chunk-size:1000}") int chunkSize) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Save a new order together with its product items. Any order or item ID sent by the client
+     * is ignored: a new order never overwrites an existing one.
+     */
+    @Transactional
+    public Bill createOrder(Bill order) {
+        prepare(order);
+        Bill savedOrder = billRepository.save(order);
+        orderStatsService.apply(null, OrderStatsService.Contribution.of(savedOrder));
+        return savedOrder;
+    }
+
+    /**
+     * Save many orders in one transaction and return their generated IDs, in input order.
+     * When a chunk fails nothing is kept and a {@link BulkImportException} tells which chunk.
+     */
+    public List<Long> createOrders(List<Bill> orders) {
+        return transactionTemplate.execute(status -> {
+            List<Long> ids = new ArrayList<>(orders.size());
+            for (int from = 0; from < orders.size(); from += chunkSize) {
+                int to = Math.min(from + chunkSize, orders.size());
+                List<Bill> chunk = orders.subList(from, to);
+                try {
+                    chunk.forEach(order -> {
+                        prepare(order);
+                        entityManager.persist(order);
+                    });
+                    entityManager.flush();
+                    orderStatsService.applyCreated(chunk.stream().map(OrderStatsService.Contribution::of).toList());
+                } catch (RuntimeException e) {
+                    throw new BulkImportException(from / chunkSize, from, to, e);
+                }
+                ids.addAll(chunk.stream().map(Bill::getId).toList());
+                entityManager.clear();
+            }
+            return ids;
+        });
+    }
+
+    /**
+     * Update the status and, when positive, the total amount of an order
+     */
+    @Transactional
+    public Optional<Bill> updateOrder(Long id, Bill orderDetails) {
+        return billRepository.findWithItemsById(id).map(bill -> {
+            OrderStatsService.Contribution before = OrderStatsService.Contribution.of(bill);
+            if (orderDetails.getStatut() != null) {
+                bill.setStatut(orderDetails.getStatut());
+            }
+            if (orderDetails.getMontantTotal() > 0) {
+                bill.setMontantTotal(orderDetails.getMontantTotal());
+            }
+            return saveChanges(bill, before);
+        });
+    }
+
+    @Transactional
+    public Optional<Bill> updateOrderStatus(Long id, Bill.OrderStatus status) {
+        return billRepository.findWithItemsById(id).map(bill -> {
+            OrderStatsService.Contribution before = OrderStatsService.Contribution.of(bill);
+            bill.setStatut(status);
+            return saveChanges(bill, before);
+        });
+    }
+
+    /**
+     * Delete an order with its product items, false when it does not exist
+     */
+    @Transactional
+    public boolean deleteOrder(Long id) {
+        Optional<Bill> bill = billRepository.findWithItemsById(id);
+        bill.ifPresent(order -> {
+            // Product items go with the order through the cascade
+            billRepository.delete(order);
+            orderStatsService.apply(OrderStatsService.Contribution.of(order), null);
+        });
+        return bill.isPresent();
+    }
+
+    private Bill saveChanges(Bill bill, OrderStatsService.Contribution before) {
+        Bill updatedBill = billRepository.save(bill);
+        orderStatsService.apply(before, OrderStatsService.Contribution.of(updatedBill));
+        return updatedBill;
+    }
+
+    private void prepare(Bill order) {
+        // IDs are generated: a client-supplied one would merge into an existing order
+        order.setId(null);
+        // Set initial status as PENDING
+        if (order.getStatut() == null) {
+            order.setStatut(Bill.OrderStatus.PENDING);
+        }
+        if (order.getProductItems() == null) {
+            order.setProductItems(new ArrayList<>());
+        }
+        order.getProductItems().forEach(item -> {
+            item.setId(null);
+            item.setBill(order);
+        });
+    }
+}
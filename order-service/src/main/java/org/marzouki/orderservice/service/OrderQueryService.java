@@ -0,0 +1,90 @@
+package org.marzouki.orderservice.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.marzouki.orderservice.entities.Bill;
+import org.marzouki.orderservice.repository.BillRepository;
+import org.marzouki.orderservice.repository.BillSpecifications;
+import org.marzouki.shared.web.ResourceVersion;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Read side of the order listings.
+ * <p>
+ * Pages are loaded in two phases, the keyset page of orders then the product items of all
+ * those orders in one entity-graph query, so a page costs two statements whatever its size.
+ * Read-only transactions make Hibernate skip snapshots and dirty checking for the loaded entities.
+ */
+@Service
+@Transactional(readOnly = true)
+public class OrderQueryService {
+
+    @Autowired
+    private BillRepository billRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public Optional<Bill> findOrder(Long id) {
+        return billRepository.findWithItemsById(id);
+    }
+
+    public Window<Bill> findOrders(Specification<Bill> filter, ScrollPosition position, int size) {
+        Window<Bill> page = billRepository.findBy(filter, query -> query
+                .sortBy(BillSpecifications.KEYSET_SORT)
+                .limit(size)
+                .scroll(position));
+        return withItems(page);
+    }
+
+    public Window<Bill> findClientOrders(String clientId, ScrollPosition position, int size) {
+        return withItems(billRepository.findByClientIdOrderByDateCommandeDescIdDesc(clientId, position, Limit.of(size)));
+    }
+
+    /**
+     * Version of the orders matching a filter, in one aggregate statement: their number, the sum
+     * of their IDs and their latest modification. An update moves the latest modification, an
+     * insert or delete the number, and replacing orders by as many new ones the sum of IDs.
+     */
+    public ResourceVersion findOrdersVersion(Specification<Bill> filter) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Bill> root = query.from(Bill.class);
+        query.multiselect(cb.count(root), cb.sum(root.<Long>get("id")),
+                cb.greatest(root.<LocalDateTime>get("dateModification")));
+        Predicate predicate = filter.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        Tuple version = entityManager.createQuery(query).getSingleResult();
+        return ResourceVersion.ofCollection(version.get(0, Long.class), version.get(1, Long.class),
+                version.get(2, LocalDateTime.class));
+    }
+
+    /**
+     * Initialize the product items of every order of the page with a single query
+     */
+    private Window<Bill> withItems(Window<Bill> page) {
+        List<Long> ids = page.stream().map(Bill::getId).toList();
+        if (!ids.isEmpty()) {
+            // Fetch-joins the collections of the orders already in the persistence context
+            billRepository.findWithItemsByIdIn(ids);
+        }
+        return page;
+    }
+}
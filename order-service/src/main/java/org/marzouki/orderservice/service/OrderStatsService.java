@@ -0,0 +1,250 @@
+package org.marzouki.orderservice.service;
+
+import org.marzouki.orderservice.entities.Bill;
+import org.marzouki.orderservice.entities.OrderStat;
+import org.marzouki.orderservice.model.OrderStats;
+import org.marzouki.orderservice.model.OrderStatsCheck;
+import org.marzouki.orderservice.repository.OrderStatRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Running order count and revenue per status, per client and per day, kept in {@code order_stats}.
+ * <p>
+ * Every order write applies its delta to the aggregates in the same transaction, so the figures
+ * commit or roll back with the orders and {@link #stats} reads a few rows instead of scanning the
+ * orders table. Deltas are upserts that add to the stored values; rows of a transaction are
+ * touched in (dimension, bucket) order so concurrent writers lock them in the same order. Status
+ * and day buckets are written to a random one of {@code order.stats.stripes} slots, since every
+ * new order hits the same PENDING and today rows.
+ */
+@Service
+public class OrderStatsService {
+
+    /**
+     * Add a delta to one slot, creating it on first use
+     */
+    static final String MERGE_SQL = """
+            MERGE INTO order_stats s
+            USING (VALUES (CAST(? AS VARCHAR(16)), CAST(? AS VARCHAR(255)), CAST(? AS INTEGER),
+                           CAST(? AS BIGINT), CAST(? AS DOUBLE PRECISION))) d (dimension, bucket, slot, order_count, revenue)
+            ON s.dimension = d.dimension AND s.bucket = d.bucket AND s.slot = d.slot
+            WHEN MATCHED THEN UPDATE SET order_count = s.order_count + d.order_count, revenue = s.revenue + d.revenue
+            WHEN NOT MATCHED THEN INSERT (dimension, bucket, slot, order_count, revenue)
+                VALUES (d.dimension, d.bucket, d.slot, d.order_count, d.revenue)
+            """;
+
+    /**
+     * The source of truth for each dimension: {bucket, count, revenue} grouped from the orders table
+     */
+    private static final Map<OrderStat.Dimension, String> GROUP_BY_SQL = Map.of(
+            OrderStat.Dimension.STATUS,
+            "SELECT statut, COUNT(*), SUM(montant_total) FROM orders GROUP BY statut",
+            OrderStat.Dimension.CLIENT,
+            "SELECT client_id, COUNT(*), SUM(montant_total) FROM orders GROUP BY client_id",
+            OrderStat.Dimension.DAY,
+            "SELECT CAST(CAST(date_commande AS DATE) AS VARCHAR(10)), COUNT(*), SUM(montant_total) " +
+                    "FROM orders GROUP BY CAST(CAST(date_commande AS DATE) AS VARCHAR(10))");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private OrderStatRepository orderStatRepository;
+
+    private final int stripes;
+
+    public OrderStatsService(@Value("${order.stats.stripes:8}") int stripes) {
+        if (stripes < 1) {
+            throw new IllegalArgumentException("order.stats.stripes must be at least 1");
+        }
+        this.stripes = stripes;
+    }
+
+    /**
+     * What one order adds to the aggregates, taken before and after a write
+     */
+    public record Contribution(Bill.OrderStatus status, String clientId, LocalDate day, double revenue) {
+
+        public static Contribution of(Bill order) {
+            return new Contribution(order.getStatut(), order.getClientId(),
+                    order.getDateCommande().toLocalDate(), order.getMontantTotal());
+        }
+    }
+
+    /**
+     * Replace what an order contributed with what it contributes now; {@code before} is null for
+     * a new order, {@code after} null for a deleted one. Must join the transaction of the write.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void apply(Contribution before, Contribution after) {
+        Map<Bucket, Delta> deltas = new HashMap<>();
+        if (before != null) {
+            add(deltas, before, -1);
+        }
+        if (after != null) {
+            add(deltas, after, 1);
+        }
+        merge(deltas);
+    }
+
+    /**
+     * Add many new orders at once, one upsert per distinct bucket
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void applyCreated(Collection<Contribution> created) {
+        Map<Bucket, Delta> deltas = new HashMap<>();
+        created.forEach(contribution -> add(deltas, contribution, 1));
+        merge(deltas);
+    }
+
+    /**
+     * Totals, figures per status, per day of [from, to] and of the {@code top} clients with the
+     * highest revenue
+     */
+    @Transactional(readOnly = true)
+    public OrderStats stats(LocalDate from, LocalDate to, int top) {
+        long orderCount = 0;
+        double revenue = 0;
+        Map<Bill.OrderStatus, OrderStats.Figures> byStatus = new EnumMap<>(Bill.OrderStatus.class);
+        for (Object[] row : orderStatRepository.sumByBucket(OrderStat.Dimension.STATUS)) {
+            OrderStats.Figures figures = new OrderStats.Figures(((Number) row[1]).longValue(), ((Number) row[2]).doubleValue());
+            byStatus.put(Bill.OrderStatus.valueOf((String) row[0]), figures);
+            orderCount += figures.orderCount();
+            revenue += figures.revenue();
+        }
+
+        List<OrderStats.Day> byDay = orderStatRepository
+                .sumByBucketBetween(OrderStat.Dimension.DAY, from.toString(), to.toString()).stream()
+                .map(row -> new OrderStats.Day(LocalDate.parse((String) row[0]),
+                        ((Number) row[1]).longValue(), ((Number) row[2]).doubleValue()))
+                .toList();
+
+        List<OrderStats.Client> topClients = orderStatRepository
+                .findTopByRevenue(OrderStat.Dimension.CLIENT, Limit.of(top)).stream()
+                .map(stat -> new OrderStats.Client(stat.getId().getBucket(), stat.getOrderCount(), stat.getRevenue()))
+                .toList();
+
+        return new OrderStats(orderCount, revenue, byStatus, byDay, topClients);
+    }
+
+    /**
+     * Recompute every aggregate from the orders table, e.g. after orders were written around this
+     * service. Runs one GROUP BY per dimension; writers wait on the replaced rows until it commits.
+     */
+    @Transactional
+    public void rebuild() {
+        jdbcTemplate.update("DELETE FROM order_stats");
+        GROUP_BY_SQL.forEach((dimension, groupBy) -> jdbcTemplate.update(
+                "INSERT INTO order_stats (dimension, bucket, slot, order_count, revenue) " +
+                        "SELECT '" + dimension.name() + "', g.bucket, 0, g.order_count, g.revenue " +
+                        "FROM (" + groupBy + ") g (bucket, order_count, revenue)"));
+    }
+
+    /**
+     * Compare every bucket with a GROUP BY over the orders table. Buckets without orders count as
+     * absent; revenues may differ by the rounding of the sums.
+     */
+    @Transactional(readOnly = true)
+    public OrderStatsCheck check() {
+        long checked = 0;
+        long mismatchCount = 0;
+        List<OrderStatsCheck.Mismatch> mismatches = new ArrayList<>();
+        for (OrderStat.Dimension dimension : OrderStat.Dimension.values()) {
+            Map<String, Object[]> expected = byBucket(jdbcTemplate.query(GROUP_BY_SQL.get(dimension),
+                    (rs, rowNum) -> new Object[]{rs.getString(1), rs.getLong(2), rs.getDouble(3)}));
+            Map<String, Object[]> actual = byBucket(orderStatRepository.sumByBucket(dimension));
+
+            Map<String, Object[]> buckets = new TreeMap<>(expected);
+            actual.forEach(buckets::putIfAbsent);
+            for (String bucket : buckets.keySet()) {
+                checked++;
+                long expectedCount = count(expected.get(bucket));
+                long actualCount = count(actual.get(bucket));
+                double expectedRevenue = revenue(expected.get(bucket));
+                double actualRevenue = revenue(actual.get(bucket));
+                double tolerance = Math.max(0.01, 1e-9 * Math.abs(expectedRevenue));
+                if (expectedCount != actualCount || Math.abs(expectedRevenue - actualRevenue) > tolerance) {
+                    mismatchCount++;
+                    if (mismatches.size() < OrderStatsCheck.MAX_MISMATCHES) {
+                        mismatches.add(new OrderStatsCheck.Mismatch(dimension, bucket,
+                                expectedCount, actualCount, expectedRevenue, actualRevenue));
+                    }
+                }
+            }
+        }
+        return new OrderStatsCheck(mismatchCount == 0, checked, mismatchCount, mismatches);
+    }
+
+    private void add(Map<Bucket, Delta> deltas, Contribution contribution, int sign) {
+        int slot = ThreadLocalRandom.current().nextInt(stripes);
+        add(deltas, new Bucket(OrderStat.Dimension.STATUS, contribution.status().name(), slot), contribution, sign);
+        add(deltas, new Bucket(OrderStat.Dimension.CLIENT, contribution.clientId(), 0), contribution, sign);
+        add(deltas, new Bucket(OrderStat.Dimension.DAY, contribution.day().toString(), slot), contribution, sign);
+    }
+
+    private void add(Map<Bucket, Delta> deltas, Bucket bucket, Contribution contribution, int sign) {
+        deltas.merge(bucket, new Delta(sign, sign * contribution.revenue()),
+                (a, b) -> new Delta(a.orderCount() + b.orderCount(), a.revenue() + b.revenue()));
+    }
+
+    private void merge(Map<Bucket, Delta> deltas) {
+        deltas.entrySet().stream()
+                .filter(entry -> entry.getValue().orderCount() != 0 || entry.getValue().revenue() != 0)
+                .sorted(Map.Entry.comparingByKey(Bucket.ORDER))
+                .forEach(entry -> {
+                    Bucket bucket = entry.getKey();
+                    Object[] args = {bucket.dimension().name(), bucket.bucket(), bucket.slot(),
+                            entry.getValue().orderCount(), entry.getValue().revenue()};
+                    try {
+                        jdbcTemplate.update(MERGE_SQL, args);
+                    } catch (DuplicateKeyException e) {
+                        // Another transaction inserted the same new slot first, it exists now
+                        jdbcTemplate.update(MERGE_SQL, args);
+                    }
+                });
+    }
+
+    private static Map<String, Object[]> byBucket(List<Object[]> rows) {
+        Map<String, Object[]> buckets = new HashMap<>();
+        rows.stream()
+                .filter(row -> ((Number) row[1]).longValue() != 0)
+                .forEach(row -> buckets.put((String) row[0], row));
+        return buckets;
+    }
+
+    private static long count(Object[] row) {
+        return row != null ? ((Number) row[1]).longValue() : 0;
+    }
+
+    private static double revenue(Object[] row) {
+        return row != null ? ((Number) row[2]).doubleValue() : 0;
+    }
+
+    private record Bucket(OrderStat.Dimension dimension, String bucket, int slot) {
+
+        static final Comparator<Bucket> ORDER = Comparator.comparing(Bucket::dimension)
+                .thenComparing(Bucket::bucket)
+                .thenComparingInt(Bucket::slot);
+    }
+
+    private record Delta(long orderCount, double revenue) {
+    }
+}
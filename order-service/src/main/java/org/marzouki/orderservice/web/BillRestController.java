@@ -2,21 +2,43 @@ package org.marzouki.orderservice.web;
 
 import org.marzouki.orderservice.entities.Bill;
 import org.marzouki.orderservice.entities.ProductItem;
-import org.marzouki.orderservice.feign.CustomerRestClient;
-import org.marzouki.orderservice.feign.ProductRestClient;
+import org.marzouki.orderservice.model.BulkImportFailure;
+import org.marzouki.orderservice.model.OrderStats;
 import org.marzouki.orderservice.repository.BillRepository;
+import org.marzouki.orderservice.repository.BillSpecifications;
 import org.marzouki.orderservice.repository.ProductItemRepository;
+import org.marzouki.orderservice.service.BulkImportException;
+import org.marzouki.orderservice.service.OrderEnrichmentService;
+import org.marzouki.orderservice.service.OrderExportService;
+import org.marzouki.orderservice.service.OrderIntakeService;
+import org.marzouki.orderservice.service.OrderQueryService;
+import org.marzouki.orderservice.service.OrderStatsService;
+import org.marzouki.shared.web.ConditionalGet;
+import org.marzouki.shared.web.ResourceVersion;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/orders")
-@CrossOrigin("*")
+@CrossOrigin(origins = "*", exposedHeaders = {OrderCursor.NEXT_CURSOR_HEADER, HttpHeaders.ETAG})
 public class BillRestController {
     
     @Autowired
@@ -26,43 +48,159 @@ public class BillRestController {
     private ProductItemRepository productItemRepository;
     
     @Autowired
-    private CustomerRestClient customerRestClient;
+    private OrderEnrichmentService orderEnrichmentService;
     
     @Autowired
-    private ProductRestClient productRestClient;
+    private OrderQueryService orderQueryService;
+    
+    @Autowired
+    private OrderIntakeService orderIntakeService;
+    
+    @Autowired
+    private OrderExportService orderExportService;
+    
+    @Autowired
+    private OrderStatsService orderStatsService;
+
+    private static final int STATS_DEFAULT_DAYS = 30;
+
+    private static final int STATS_MAX_DAYS = 366;
+
+    private static final int STATS_MAX_TOP = 100;
 
     /**
-     * GET /api/orders - Get all orders
+     * GET /api/orders - Get orders, most recent first, one page at a time.
+     * Optional filters: statut, clientId and a [from, to) range on dateCommande.
+     * The cursor of the next page is returned in the X-Next-Cursor header.
+     * Returns 304 without a body when neither the matching orders nor the customer and product
+     * details of the page changed since the client's ETag.
      */
     @GetMapping
-    public ResponseEntity<List<Bill>> getAllOrders() {
-        List<Bill> orders = billRepository.findAll();
-        enrichOrdersWithDetails(orders);
-        return ResponseEntity.ok(orders);
+    public ResponseEntity<List<Bill>> getAllOrders(
+            @RequestHeader HttpHeaders headers,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + OrderCursor.DEFAULT_PAGE_SIZE) int size,
+            @RequestParam(required = false) Bill.OrderStatus statut,
+            @RequestParam(required = false) String clientId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        ScrollPosition position;
+        try {
+            position = OrderCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+        Specification<Bill> filter = BillSpecifications.hasStatut(statut)
+                .and(BillSpecifications.hasClientId(clientId))
+                .and(BillSpecifications.placedFrom(from))
+                .and(BillSpecifications.placedBefore(to));
+        ResourceVersion version = orderQueryService.findOrdersVersion(filter);
+        return pageResponse(headers, orderQueryService.findOrders(filter, position, OrderCursor.pageSize(size)), version);
     }
 
     /**
-     * GET /api/orders/{id} - Get order by ID (ADMIN or owner CLIENT)
+     * GET /api/orders/export?format=ndjson|csv - Stream the whole order history, oldest first, with
+     * the same filters as GET /api/orders. NDJSON has one order per line with its items, CSV one
+     * row per product item. Gzipped when the client accepts it.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportOrders(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) Bill.OrderStatus statut,
+            @RequestParam(required = false) String clientId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        OrderExportService.Format exportFormat;
+        try {
+            exportFormat = OrderExportService.Format.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+        Specification<Bill> filter = BillSpecifications.hasStatut(statut)
+                .and(BillSpecifications.hasClientId(clientId))
+                .and(BillSpecifications.placedFrom(from))
+                .and(BillSpecifications.placedBefore(to));
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase(Locale.ROOT).contains("gzip");
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(exportFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("orders." + exportFormat.getExtension()).build().toString())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (!gzip) {
+            return response.body(out -> orderExportService.export(filter, exportFormat, out));
+        }
+        return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(out -> {
+            GZIPOutputStream compressed = new GZIPOutputStream(out, 64 * 1024);
+            orderExportService.export(filter, exportFormat, compressed);
+            compressed.finish();
+        });
+    }
+
+    /**
+     * GET /api/orders/{id} - Get order by ID (ADMIN or owner CLIENT).
+     * Returns 304 without a body when neither the order nor the customer and product details it
+     * shows changed since the client's ETag.
      */
     @GetMapping("/{id}")
-    public ResponseEntity<Bill> getOrder(@PathVariable Long id) {
-        Optional<Bill> optionalBill = billRepository.findById(id);
+    public ResponseEntity<Bill> getOrder(@PathVariable Long id, @RequestHeader HttpHeaders headers) {
+        Optional<Bill> optionalBill = orderQueryService.findOrder(id);
         if (optionalBill.isPresent()) {
             Bill bill = optionalBill.get();
-            enrichOrderWithDetails(bill);
-            return ResponseEntity.ok(bill);
+            orderEnrichmentService.enrichOrder(bill);
+            if (!bill.isEnriched()) {
+                // Degraded responses are not validators, the client must fetch them again
+                return ResponseEntity.ok(bill);
+            }
+            ResourceVersion version = new ResourceVersion(String.valueOf(bill.getId()), bill.getDateModification())
+                    .including(orderEnrichmentService.enrichmentDigest(List.of(bill)));
+            if (ConditionalGet.notModified(headers, version)) {
+                return ConditionalGet.notModifiedResponse(version);
+            }
+            return ConditionalGet.ok(version).body(bill);
         }
         return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
     }
 
     /**
-     * GET /api/orders/client/{clientId} - Get orders by client ID (for logged-in user)
+     * GET /api/orders/client/{clientId} - Get orders by client ID (for logged-in user), paginated
+     * and conditional like GET /api/orders
      */
     @GetMapping("/client/{clientId}")
-    public ResponseEntity<List<Bill>> getOrdersByClientId(@PathVariable String clientId) {
-        List<Bill> orders = billRepository.findByClientId(clientId);
-        enrichOrdersWithDetails(orders);
-        return ResponseEntity.ok(orders);
+    public ResponseEntity<List<Bill>> getOrdersByClientId(
+            @RequestHeader HttpHeaders headers,
+            @PathVariable String clientId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + OrderCursor.DEFAULT_PAGE_SIZE) int size) {
+        ScrollPosition position;
+        try {
+            position = OrderCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+        ResourceVersion version = orderQueryService.findOrdersVersion(BillSpecifications.hasClientId(clientId));
+        return pageResponse(headers, orderQueryService.findClientOrders(clientId, position, OrderCursor.pageSize(size)),
+                version);
+    }
+
+    /**
+     * GET /api/orders/stats - Order count and revenue in total, per status, per day of [from, to]
+     * (the last 30 days by default, at most 366) and of the {@code top} clients by revenue.
+     * Read from the running aggregates, not from the orders table.
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<OrderStats> getOrderStats(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "10") int top) {
+        LocalDate lastDay = to != null ? to : LocalDate.now();
+        LocalDate firstDay = from != null ? from : lastDay.minusDays(STATS_DEFAULT_DAYS - 1);
+        if (firstDay.isAfter(lastDay) || ChronoUnit.DAYS.between(firstDay, lastDay) >= STATS_MAX_DAYS
+                || top < 0 || top > STATS_MAX_TOP) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+        return ResponseEntity.ok(orderStatsService.stats(firstDay, lastDay, top));
     }
 
     /**
@@ -71,28 +209,33 @@ public class BillRestController {
     @PostMapping
     public ResponseEntity<Bill> createOrder(@RequestBody Bill order) {
         try {
-            // Set initial status as PENDING
-            if (order.getStatut() == null) {
-                order.setStatut(Bill.OrderStatus.PENDING);
-            }
-            
-            Bill savedBill = billRepository.save(order);
-            
-            // Save product items if provided
-            if (order.getProductItems() != null && !order.getProductItems().isEmpty()) {
-                for (ProductItem item : order.getProductItems()) {
-                    item.setBill(savedBill);
-                    productItemRepository.save(item);
-                }
-            }
+            // Order and product items are inserted together through the cascade
+            Bill savedBill = orderIntakeService.createOrder(order);
             
-            enrichOrderWithDetails(savedBill);
+            orderEnrichmentService.enrichOrder(savedBill);
             return ResponseEntity.status(HttpStatus.CREATED).body(savedBill);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
         }
     }
 
+    /**
+     * POST /api/orders/bulk - Create many orders at once (marketplace imports), all or nothing.
+     * The generated IDs are returned in input order. On failure nothing is saved and the body
+     * names the chunk of orders that failed, so the corrected list can simply be sent again.
+     */
+    @PostMapping("/bulk")
+    public ResponseEntity<?> createOrders(@RequestBody List<Bill> orders) {
+        try {
+            return ResponseEntity.status(HttpStatus.CREATED).body(orderIntakeService.createOrders(orders));
+        } catch (BulkImportException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(new BulkImportFailure(e.getChunk(),
+                    e.getFromIndex(), e.getToIndex(), NestedExceptionUtils.getMostSpecificCause(e).getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+    }
+
     /**
      * PUT /api/orders/{id} - Update order
      */
@@ -100,23 +243,10 @@ public class BillRestController {
     public ResponseEntity<Bill> updateOrder(
             @PathVariable Long id,
             @RequestBody Bill orderDetails) {
-        Optional<Bill> optionalBill = billRepository.findById(id);
-        if (optionalBill.isPresent()) {
-            Bill bill = optionalBill.get();
-            
-            // Update order status
-            if (orderDetails.getStatut() != null) {
-                bill.setStatut(orderDetails.getStatut());
-            }
-            
-            // Update other fields if provided
-            if (orderDetails.getMontantTotal() > 0) {
-                bill.setMontantTotal(orderDetails.getMontantTotal());
-            }
-            
-            Bill updatedBill = billRepository.save(bill);
-            enrichOrderWithDetails(updatedBill);
-            return ResponseEntity.ok(updatedBill);
+        Optional<Bill> updatedBill = orderIntakeService.updateOrder(id, orderDetails);
+        if (updatedBill.isPresent()) {
+            orderEnrichmentService.enrichOrder(updatedBill.get());
+            return ResponseEntity.ok(updatedBill.get());
         }
         return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
     }
@@ -128,13 +258,10 @@ public class BillRestController {
     public ResponseEntity<Bill> updateOrderStatus(
             @PathVariable Long id,
             @RequestParam Bill.OrderStatus status) {
-        Optional<Bill> optionalBill = billRepository.findById(id);
-        if (optionalBill.isPresent()) {
-            Bill bill = optionalBill.get();
-            bill.setStatut(status);
-            Bill updatedBill = billRepository.save(bill);
-            enrichOrderWithDetails(updatedBill);
-            return ResponseEntity.ok(updatedBill);
+        Optional<Bill> updatedBill = orderIntakeService.updateOrderStatus(id, status);
+        if (updatedBill.isPresent()) {
+            orderEnrichmentService.enrichOrder(updatedBill.get());
+            return ResponseEntity.ok(updatedBill.get());
         }
         return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
     }
@@ -144,12 +271,7 @@ public class BillRestController {
      */
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteOrder(@PathVariable Long id) {
-        Optional<Bill> bill = billRepository.findById(id);
-        if (bill.isPresent()) {
-            // Delete product items first
-            productItemRepository.deleteAll(bill.get().getProductItems());
-            // Then delete the order
-            billRepository.deleteById(id);
+        if (orderIntakeService.deleteOrder(id)) {
             return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
         }
         return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
@@ -167,45 +289,38 @@ public class BillRestController {
             Bill bill = optionalBill.get();
             item.setBill(bill);
             ProductItem savedItem = productItemRepository.save(item);
+            // New items change the order representation, so its version must move too
+            bill.setDateModification(LocalDateTime.now().truncatedTo(ChronoUnit.MICROS));
+            billRepository.save(bill);
             return ResponseEntity.status(HttpStatus.CREATED).body(savedItem);
         }
         return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
     }
 
     /**
-     * Helper method to enrich order with customer and product details
+     * Helper method to enrich a page of orders and expose the cursor of the next page.
+     * Validators are only sent when every order of the page could be enriched, and cover the
+     * version of the matching orders as well as the details the page was enriched with.
      */
-    private void enrichOrderWithDetails(Bill bill) {
-        try {
-            // Load customer details
-            if (bill.getClientId() != null) {
-                try {
-                    // Try to fetch customer by ID - might fail if customer-service uses different ID format
-                    bill.setCustomer(customerRestClient.getCustomerById(Long.parseLong(bill.getClientId())));
-                } catch (Exception e) {
-                    // Skip customer enrichment if it fails
-                }
-            }
-            
-            // Load product details for each item
-            if (bill.getProductItems() != null) {
-                bill.getProductItems().forEach(productItem -> {
-                    try {
-                        productItem.setProduct(productRestClient.getProductById(productItem.getProductId()));
-                    } catch (Exception e) {
-                        // Skip product enrichment if it fails
-                    }
-                });
-            }
-        } catch (Exception e) {
-            // Silently ignore enrichment errors
+    private ResponseEntity<List<Bill>> pageResponse(HttpHeaders headers, Window<Bill> page, ResourceVersion version) {
+        List<Bill> orders = page.getContent();
+        orderEnrichmentService.enrichOrders(orders);
+        String nextCursor = OrderCursor.next(page);
+        if (!orders.stream().allMatch(Bill::isEnriched)) {
+            return withNextCursor(ResponseEntity.ok(), nextCursor).body(orders);
         }
+        ResourceVersion pageVersion = version.including(orderEnrichmentService.enrichmentDigest(orders));
+        if (ConditionalGet.notModified(headers, pageVersion)) {
+            return withNextCursor(ResponseEntity.status(HttpStatus.NOT_MODIFIED), nextCursor)
+                    .eTag(pageVersion.eTag()).build();
+        }
+        return withNextCursor(ConditionalGet.ok(pageVersion), nextCursor).body(orders);
     }
 
-    /**
-     * Helper method to enrich multiple orders with details
-     */
-    private void enrichOrdersWithDetails(List<Bill> bills) {
-        bills.forEach(this::enrichOrderWithDetails);
+    private static ResponseEntity.BodyBuilder withNextCursor(ResponseEntity.BodyBuilder response, String nextCursor) {
+        if (nextCursor != null) {
+            response.header(OrderCursor.NEXT_CURSOR_HEADER, nextCursor);
+        }
+        return response;
     }
 }
@@ -0,0 +1,61 @@
+package org.marzouki.orderservice.web;
+
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Opaque cursor for keyset pagination of orders on (dateCommande, id).
+ * The token is the URL-safe Base64 form of {@code <dateCommande>|<id>} of the last order of a page.
+ */
+final class OrderCursor {
+
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    static final int DEFAULT_PAGE_SIZE = 50;
+
+    static final int MAX_PAGE_SIZE = 200;
+
+    private OrderCursor() {
+    }
+
+    /**
+     * Scroll position to resume from, the first page when the cursor is absent
+     */
+    static ScrollPosition decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return ScrollPosition.keyset();
+        }
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|", 2);
+            Map<String, Object> keys = new LinkedHashMap<>();
+            keys.put("dateCommande", LocalDateTime.parse(parts[0]));
+            keys.put("id", Long.parseLong(parts[1]));
+            return ScrollPosition.forward(keys);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
+    }
+
+    /**
+     * Cursor of the page following the given window, null on the last page
+     */
+    static String next(Window<?> window) {
+        if (!window.hasNext() || window.isEmpty()) {
+            return null;
+        }
+        Map<String, Object> keys = ((KeysetScrollPosition) window.positionAt(window.size() - 1)).getKeys();
+        String token = keys.get("dateCommande") + "|" + keys.get("id");
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(token.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static int pageSize(int size) {
+        return Math.clamp(size, 1, MAX_PAGE_SIZE);
+    }
+}
@@ -0,0 +1,45 @@
+-- Schema of the order entities, applied by Flyway in the persistent profile
+
+create sequence orders_seq start with 1 increment by 50;
+
+create sequence order_items_seq start with 1 increment by 50;
+
+create table orders (
+    id bigint not null,
+    date_commande timestamp(6) not null,
+    statut enum ('CANCELLED','CONFIRMED','DELIVERED','PENDING','SHIPPED') not null,
+    client_id varchar(255) not null,
+    montant_total float(53) not null,
+    date_creation timestamp(6) not null,
+    date_modification timestamp(6) not null,
+    primary key (id)
+);
+
+create index idx_orders_date_id on orders (date_commande, id);
+
+create index idx_orders_statut_date_id on orders (statut, date_commande, id);
+
+create index idx_orders_client_date_id on orders (client_id, date_commande, id);
+
+create table order_items (
+    id bigint not null,
+    order_id bigint not null,
+    product_id varchar(255) not null,
+    quantity integer not null,
+    unit_price float(53) not null,
+    total_price float(53) not null,
+    primary key (id),
+    constraint fk_order_items_order foreign key (order_id) references orders
+);
+
+-- Order aggregates maintained by OrderStatsService
+create table order_stats (
+    dimension enum ('CLIENT','DAY','STATUS') not null,
+    bucket varchar(255) not null,
+    slot integer not null,
+    order_count bigint not null,
+    revenue float(53) not null,
+    primary key (slot, bucket, dimension)
+);
+
+create index idx_order_stats_dimension_revenue on order_stats (dimension, revenue);
@@ -1,13 +1,42 @@
 package org.marzouki.orderservice;
 
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
 class OrderServiceApplicationTests {
 
+	@Autowired
+	private WebApplicationContext context;
+
 	@Test
 	void contextLoads() {
 	}
 
+	@Test
+	void springDataRestCannotBypassTheOrderAggregates() throws Exception {
+		MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+		// A complete payload, or the binding fails with 400 before the method is checked
+		String order = "{\"clientId\":\"rest-client\",\"montantTotal\":10,\"enriched\":false,\"productItems\":[]}";
+
+		mockMvc.perform(post("/bills").contentType(MediaType.APPLICATION_JSON).content(order))
+				.andExpect(status().isMethodNotAllowed());
+		mockMvc.perform(put("/bills/1").contentType(MediaType.APPLICATION_JSON).content(order))
+				.andExpect(status().isMethodNotAllowed());
+		mockMvc.perform(delete("/bills/1")).andExpect(status().isMethodNotAllowed());
+		mockMvc.perform(get("/orderStats")).andExpect(status().isNotFound());
+		mockMvc.perform(get("/bills")).andExpect(status().isOk());
+	}
+
 }
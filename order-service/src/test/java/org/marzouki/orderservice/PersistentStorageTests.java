@@ -0,0 +1,107 @@
+package org.marzouki.orderservice;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.marzouki.orderservice.entities.Bill;
+import org.marzouki.orderservice.repository.BillRepository;
+import org.marzouki.orderservice.service.OrderIntakeService;
+import org.marzouki.orderservice.service.OrderStatsService;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The persistent profile: Flyway creates the schema from the versioned migrations, Hibernate
+ * validates it against the entities, orders survive a restart and a warm start skips seeding.
+ * <p>
+ * The restart-to-ready time with a full-size database is only measured when the number of orders
+ * to load is given, from the repository root with:
+ * <pre>
+ * mvn -pl order-service test -Dtest=PersistentStorageTests -Dstorage.test.orders=1000000
+ * </pre>
+ */
+@ExtendWith(OutputCaptureExtension.class)
+class PersistentStorageTests {
+
+    private static final int CLIENTS = 10_000;
+
+    @TempDir
+    private Path storageDir;
+
+    @Test
+    void warmRestartKeepsOrdersAndSkipsSeeding(CapturedOutput output) {
+        restart(1_000, output);
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "storage.test.orders", matches = "\\d+")
+    void warmRestartWithAFullSizeDatabaseIsFast(CapturedOutput output) {
+        double seconds = restart(Integer.getInteger("storage.test.orders"), output);
+        assertTrue(seconds < 10, () -> "restart took " + seconds + " s");
+    }
+
+    /**
+     * Load {@code orders} orders on a fresh database, restart on it and check what the restart
+     * kept. Returns the restart-to-ready time in seconds.
+     */
+    private double restart(int orders, CapturedOutput output) {
+        Long createdBeforeRestart;
+        try (ConfigurableApplicationContext context = start()) {
+            JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+            assertEquals(List.of("1"), jdbcTemplate.queryForList(
+                    "SELECT \"version\" FROM \"flyway_schema_history\" WHERE \"type\" = 'SQL' AND \"success\"", String.class));
+            // Generated in one statement, over the last year and CLIENTS clients, ids far from the sequence's
+            jdbcTemplate.update("INSERT INTO orders (id, date_commande, statut, client_id, montant_total, " +
+                    "date_creation, date_modification) " +
+                    "SELECT 100000000 + X, p, s, 'client-' || MOD(X * 7919, ?), MOD(X * 104729, 100000) / 100.0, p, p FROM (" +
+                    "SELECT X, DATEADD(MINUTE, -MOD(X * 31, 525600), LOCALTIMESTAMP) p, " +
+                    "CASEWHEN(MOD(X, 5) = 0, 'PENDING', CASEWHEN(MOD(X, 5) = 1, 'CONFIRMED', CASEWHEN(MOD(X, 5) = 2, " +
+                    "'SHIPPED', CASEWHEN(MOD(X, 5) = 3, 'DELIVERED', 'CANCELLED')))) s " +
+                    "FROM SYSTEM_RANGE(1, ?))", CLIENTS, orders);
+            context.getBean(OrderStatsService.class).rebuild();
+            createdBeforeRestart = context.getBean(OrderIntakeService.class).createOrder(order()).getId();
+        }
+
+        long start = System.nanoTime();
+        try (ConfigurableApplicationContext context = start()) {
+            double seconds = (System.nanoTime() - start) / 1e9;
+            assertEquals(orders + 1, context.getBean(BillRepository.class).count());
+            assertTrue(output.getOut().contains("seeding skipped"));
+            assertTrue(context.getBean(OrderStatsService.class).check().consistent());
+            // The sequence carries on where it stopped
+            Long createdAfterRestart = context.getBean(OrderIntakeService.class).createOrder(order()).getId();
+            assertTrue(createdAfterRestart > createdBeforeRestart);
+            return seconds;
+        }
+    }
+
+    /**
+     * Start the service on the database of storageDir
+     */
+    private ConfigurableApplicationContext start() {
+        // Arguments rather than default properties, which application-persistent.properties overrides
+        return new SpringApplicationBuilder(OrderServiceApplication.class)
+                .profiles("persistent")
+                .run("--spring.main.web-application-type=none",
+                        "--spring.cloud.config.enabled=false",
+                        "--spring.config.import=",
+                        "--eureka.client.enabled=false",
+                        "--storage.dir=" + storageDir,
+                        "--logging.level.root=WARN");
+    }
+
+    private static Bill order() {
+        return Bill.builder().clientId("client-1").statut(Bill.OrderStatus.PENDING)
+                .montantTotal(10).productItems(new ArrayList<>()).build();
+    }
+}
@@ -0,0 +1,104 @@
+package org.marzouki.orderservice.service;
+
+import feign.FeignException;
+import feign.Request;
+import org.junit.jupiter.api.Test;
+import org.marzouki.orderservice.feign.CustomerRestClient;
+import org.marzouki.orderservice.feign.ProductRestClient;
+import org.marzouki.orderservice.model.Customer;
+import org.marzouki.orderservice.model.Product;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.hateoas.PagedModel;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LookupCacheServiceTests {
+
+    private final AtomicInteger customerCalls = new AtomicInteger();
+
+    private final AtomicInteger productCalls = new AtomicInteger();
+
+    private final LookupCacheService lookupCacheService = new LookupCacheService(new ConcurrentMapCacheManager());
+
+    LookupCacheServiceTests() {
+        ReflectionTestUtils.setField(lookupCacheService, "customerRestClient", new StubCustomers());
+        ReflectionTestUtils.setField(lookupCacheService, "productRestClient", new StubProducts());
+    }
+
+    @Test
+    void unknownAndUnparseableCustomersAreCached() {
+        assertTrue(lookupCacheService.findCustomer("404").isEmpty());
+        assertTrue(lookupCacheService.findCustomer("404").isEmpty());
+        assertTrue(lookupCacheService.findCustomer("not-a-number").isEmpty());
+        assertTrue(lookupCacheService.findCustomer("not-a-number").isEmpty());
+        assertEquals(1, customerCalls.get());
+
+        assertEquals(7L, lookupCacheService.findCustomer("7").orElseThrow().getId());
+        assertEquals(7L, lookupCacheService.findCustomer("7").orElseThrow().getId());
+        assertEquals(2, customerCalls.get());
+    }
+
+    @Test
+    void fetchedProductsAreCachedIncludingMissingOnes() {
+        lookupCacheService.fetchProducts(List.of("p1", "missing"));
+
+        Map<String, ?> cached = lookupCacheService.cachedProducts(List.of("p1", "missing", "p2"));
+        assertEquals(2, cached.size());
+        assertTrue(lookupCacheService.cachedProducts(List.of("p1")).get("p1").isPresent());
+        assertTrue(lookupCacheService.cachedProducts(List.of("missing")).get("missing").isEmpty());
+        assertEquals(1, productCalls.get());
+
+        lookupCacheService.evictProduct("p1");
+        assertFalse(lookupCacheService.cachedProducts(List.of("p1")).containsKey("p1"));
+    }
+
+    private class StubCustomers implements CustomerRestClient {
+        @Override
+        public Customer getCustomerById(Long id) {
+            customerCalls.incrementAndGet();
+            if (id == 404) {
+                Request request = Request.create(Request.HttpMethod.GET, "/api/customers/404", new HashMap<>(),
+                        null, StandardCharsets.UTF_8, null);
+                throw new FeignException.NotFound("Not Found", request, null, null);
+            }
+            Customer customer = new Customer();
+            customer.setId(id);
+            return customer;
+        }
+
+        @Override
+        public List<Customer> getCustomersAfter(long after, int size) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private class StubProducts implements ProductRestClient {
+        @Override
+        public Product getProductById(String id) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public PagedModel<Product> getAllProducts() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<Product> getProductsByIds(Collection<String> ids) {
+            productCalls.incrementAndGet();
+            return ids.stream().filter(id -> id.startsWith("p")).map(id -> {
+                Product product = new Product();
+                product.setId(id);
+                return product;
+            }).toList();
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package org.marzouki.orderservice.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.marzouki.orderservice.config.ResilienceEndpoint;
+import org.marzouki.orderservice.entities.Bill;
+import org.marzouki.orderservice.entities.ProductItem;
+import org.marzouki.orderservice.feign.ProductRestClient;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Failure injection against a local stub of customer-service and product-service, where
+ * product-service accepts connections but never answers
+ */
+@SpringBootTest(properties = {
+        "eureka.client.enabled=false",
+        "spring.cloud.config.enabled=false",
+        "spring.datasource.url=jdbc:h2:mem:orders-resilience-db",
+        "spring.cloud.openfeign.client.config.default.read-timeout=300",
+        "resilience4j.circuitbreaker.configs.default.minimum-number-of-calls=5",
+        "resilience4j.circuitbreaker.configs.default.wait-duration-in-open-state=60s",
+        "resilience4j.bulkhead.configs.default.max-concurrent-calls=4"
+})
+@DirtiesContext
+class OrderEnrichmentResilienceTests {
+
+    private static final HttpServer STUB = startStub();
+
+    private static final AtomicInteger PRODUCT_REQUESTS = new AtomicInteger();
+
+    @Autowired
+    private OrderEnrichmentService orderEnrichmentService;
+
+    @Autowired
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+
+    @Autowired
+    private ResilienceEndpoint resilienceEndpoint;
+
+    @DynamicPropertySource
+    static void stubServices(DynamicPropertyRegistry registry) {
+        String uri = "http://localhost:" + STUB.getAddress().getPort();
+        registry.add("spring.cloud.discovery.client.simple.instances.customer-service[0].uri", () -> uri);
+        registry.add("spring.cloud.discovery.client.simple.instances.product-service[0].uri", () -> uri);
+    }
+
+    @AfterAll
+    static void stopStub() {
+        STUB.stop(0);
+    }
+
+    @Test
+    void hangingProductServiceIsCutOffAndThroughputHolds() throws Exception {
+        // Burst while product-service hangs: read timeouts trip the breaker, the bulkhead sheds the excess
+        try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<Bill>> burst = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                int n = i;
+                burst.add(callers.submit(() -> enrich("burst-" + n)));
+            }
+            for (Future<Bill> bill : burst) {
+                assertFalse(bill.get().isEnriched());
+            }
+        }
+        CircuitBreaker productBreaker = circuitBreakerRegistry.circuitBreaker(ProductRestClient.NAME);
+        assertEquals(CircuitBreaker.State.OPEN, productBreaker.getState());
+        assertTrue(resilienceEndpoint.rejectedCalls(ProductRestClient.NAME) > 0);
+        int productRequests = PRODUCT_REQUESTS.get();
+
+        // With the breaker open every order is answered right away, still with its customer
+        long start = System.nanoTime();
+        for (int i = 0; i < 500; i++) {
+            Bill bill = enrich("open-" + i);
+            assertFalse(bill.isEnriched());
+            assertNotNull(bill.getCustomer());
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(elapsedMillis < 5_000, "500 enrichments took " + elapsedMillis + " ms");
+        assertEquals(productRequests, PRODUCT_REQUESTS.get(), "open breaker still reached product-service");
+        assertTrue(productBreaker.getMetrics().getNumberOfNotPermittedCalls() >= 500);
+        assertEquals(CircuitBreaker.State.CLOSED,
+                circuitBreakerRegistry.circuitBreaker("customer-service").getState());
+    }
+
+    @Test
+    void unknownCustomersDoNotTripTheBreaker() {
+        for (int i = 0; i < 20; i++) {
+            Bill bill = Bill.builder().clientId(String.valueOf(404_000 + i)).build();
+            orderEnrichmentService.enrichOrder(bill);
+            assertTrue(bill.isEnriched());
+            assertNull(bill.getCustomer());
+        }
+        CircuitBreaker customerBreaker = circuitBreakerRegistry.circuitBreaker("customer-service");
+        assertEquals(CircuitBreaker.State.CLOSED, customerBreaker.getState());
+        assertEquals(0, customerBreaker.getMetrics().getNumberOfFailedCalls());
+    }
+
+    private Bill enrich(String productId) {
+        Bill bill = Bill.builder().clientId("1").productItems(new ArrayList<>()).build();
+        bill.getProductItems().add(ProductItem.builder().productId(productId).quantity(1).build());
+        orderEnrichmentService.enrichOrder(bill);
+        return bill;
+    }
+
+    private static HttpServer startStub() {
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+            server.createContext("/api/customers/", exchange -> {
+                String id = exchange.getRequestURI().getPath().substring("/api/customers/".length());
+                if (id.startsWith("404")) {
+                    respond(exchange, 404, "{}");
+                } else if (id.equals("all")) {
+                    respond(exchange, 200, "[]");
+                } else {
+                    respond(exchange, 200, "{\"id\":" + id + ",\"name\":\"Stub\",\"email\":\"stub@example.com\"}");
+                }
+            });
+            server.createContext("/api/products", exchange -> {
+                PRODUCT_REQUESTS.incrementAndGet();
+                try {
+                    Thread.sleep(30_000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                exchange.close();
+            });
+            server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+            server.start();
+            return server;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+        exchange.close();
+    }
+}
@@ -0,0 +1,144 @@
+package org.marzouki.orderservice.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.marzouki.orderservice.entities.Bill;
+import org.marzouki.orderservice.entities.ProductItem;
+import org.marzouki.orderservice.feign.CustomerRestClient;
+import org.marzouki.orderservice.feign.ProductRestClient;
+import org.marzouki.orderservice.model.Customer;
+import org.marzouki.orderservice.model.Product;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.hateoas.PagedModel;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderEnrichmentServiceTests {
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void lookupsMissingTheBudgetLeaveOrdersNotEnriched() {
+        OrderEnrichmentService service = service(new StubCustomers(5_000), new StubProducts(0), 300);
+        List<Bill> bills = List.of(order("1", "p1"), order("2", "p2"));
+
+        long start = System.nanoTime();
+        service.enrichOrders(bills);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(elapsedMillis < 2_000, "enrichment waited for the slow dependency: " + elapsedMillis + " ms");
+        bills.forEach(bill -> {
+            assertFalse(bill.isEnriched());
+            assertNull(bill.getCustomer());
+            assertNotNull(bill.getProductItems().getFirst().getProduct());
+        });
+    }
+
+    @Test
+    void lookupsRunConcurrently() {
+        OrderEnrichmentService service = service(new StubCustomers(200), new StubProducts(200), 2_000);
+        List<Bill> bills = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            bills.add(order(String.valueOf(i), "p" + i));
+        }
+
+        long start = System.nanoTime();
+        service.enrichOrders(bills);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(elapsedMillis < 1_000, "lookups ran sequentially: " + elapsedMillis + " ms");
+        bills.forEach(bill -> {
+            assertTrue(bill.isEnriched());
+            assertEquals(Long.parseLong(bill.getClientId()), bill.getCustomer().getId());
+        });
+    }
+
+    @Test
+    void enrichmentDigestCoversCustomerAndProductDetails() {
+        OrderEnrichmentService service = service(new StubCustomers(0), new StubProducts(0), 2_000);
+        List<Bill> bills = List.of(order("1", "p1"), order("2", "p2"));
+        service.enrichOrders(bills);
+        String digest = service.enrichmentDigest(bills);
+        assertEquals(digest, service.enrichmentDigest(bills));
+
+        bills.getFirst().getProductItems().getFirst().getProduct().setPrice(9.5);
+        String repriced = service.enrichmentDigest(bills);
+        assertNotEquals(digest, repriced);
+
+        bills.getLast().getCustomer().setEmail("client@example.com");
+        assertNotEquals(repriced, service.enrichmentDigest(bills));
+    }
+
+    private OrderEnrichmentService service(CustomerRestClient customers, ProductRestClient products, long timeoutMillis) {
+        LookupCacheService lookupCacheService = new LookupCacheService(new ConcurrentMapCacheManager());
+        ReflectionTestUtils.setField(lookupCacheService, "customerRestClient", customers);
+        ReflectionTestUtils.setField(lookupCacheService, "productRestClient", products);
+        OrderEnrichmentService service = new OrderEnrichmentService(timeoutMillis, 64);
+        ReflectionTestUtils.setField(service, "lookupCacheService", lookupCacheService);
+        ReflectionTestUtils.setField(service, "enrichmentExecutor", executor);
+        return service;
+    }
+
+    private static Bill order(String clientId, String productId) {
+        Bill bill = Bill.builder().clientId(clientId).productItems(new ArrayList<>()).build();
+        bill.getProductItems().add(ProductItem.builder().productId(productId).quantity(1).build());
+        return bill;
+    }
+
+    private static void pause(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record StubCustomers(long latencyMillis) implements CustomerRestClient {
+        @Override
+        public Customer getCustomerById(Long id) {
+            pause(latencyMillis);
+            Customer customer = new Customer();
+            customer.setId(id);
+            return customer;
+        }
+
+        @Override
+        public List<Customer> getCustomersAfter(long after, int size) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private record StubProducts(long latencyMillis) implements ProductRestClient {
+        @Override
+        public Product getProductById(String id) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public PagedModel<Product> getAllProducts() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<Product> getProductsByIds(Collection<String> ids) {
+            pause(latencyMillis);
+            return ids.stream().map(id -> {
+                Product product = new Product();
+                product.setId(id);
+                return product;
+            }).toList();
+        }
+    }
+}
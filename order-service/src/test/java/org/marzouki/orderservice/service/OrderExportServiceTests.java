@@ -0,0 +1,117 @@
+package org.marzouki.orderservice.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.marzouki.orderservice.entities.Bill;
+import org.marzouki.orderservice.entities.ProductItem;
+import org.marzouki.orderservice.repository.BillSpecifications;
+import org.marzouki.orderservice.web.BillRestController;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "eureka.client.enabled=false",
+        "spring.cloud.config.enabled=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        // Own database: other test contexts recreate the shared schema and reset its sequences
+        "spring.datasource.url=jdbc:h2:mem:orders-statistics-db"
+})
+class OrderExportServiceTests {
+
+    private static final int ORDERS = 1_200;
+
+    @Autowired
+    private OrderExportService orderExportService;
+
+    @Autowired
+    private OrderIntakeService orderIntakeService;
+
+    @Autowired
+    private BillRestController billRestController;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JsonMapper jsonMapper;
+
+    @BeforeEach
+    void setUp() {
+        List<Bill> orders = new ArrayList<>();
+        for (int i = 0; i < ORDERS; i++) {
+            Bill bill = Bill.builder().clientId("export-client, \"quoted\"")
+                    .statut(i % 3 == 0 ? Bill.OrderStatus.SHIPPED : Bill.OrderStatus.PENDING)
+                    .productItems(new ArrayList<>()).build();
+            bill.getProductItems().add(ProductItem.builder().productId("p1").quantity(1).unitPrice(4).build());
+            bill.getProductItems().add(ProductItem.builder().productId("p2").quantity(3).unitPrice(5).build());
+            orders.add(bill);
+        }
+        orderIntakeService.createOrders(orders);
+    }
+
+    @Test
+    void ordersAreStreamedInChunksWithTheirItems() throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long exported = orderExportService.export(BillSpecifications.hasClientId("export-client, \"quoted\""),
+                OrderExportService.Format.NDJSON, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertTrue(exported >= ORDERS);
+        assertEquals(exported, lines.length);
+        JsonNode first = jsonMapper.readTree(lines[0]);
+        assertEquals(2, first.get("items").size());
+        assertEquals(15, first.get("items").get(1).get("totalPrice").asDouble());
+        // One cursor plus one item query per chunk of 500 orders, never one per order
+        assertEquals(1 + (exported + 499) / 500, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void csvExportIsFilteredAndGzipped() throws Exception {
+        ResponseEntity<StreamingResponseBody> response = billRestController.exportOrders(
+                "csv", Bill.OrderStatus.SHIPPED, "export-client, \"quoted\"", null, null, "gzip, deflate");
+        assertEquals("gzip", response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals("text/csv;charset=UTF-8", response.getHeaders().getContentType().toString());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+        String csv;
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            csv = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+
+        String[] rows = csv.split("\n");
+        assertTrue(rows[0].startsWith("order_id,"));
+        assertTrue(rows.length > 1);
+        assertEquals(0, (rows.length - 1) % 2, "one row per product item");
+        assertTrue(rows[1].contains(",SHIPPED,\"export-client, \"\"quoted\"\"\","));
+        for (int i = 1; i < rows.length; i++) {
+            assertFalse(rows[i].contains("PENDING"));
+        }
+    }
+
+    @Test
+    void unknownFormatIsRejected() {
+        assertEquals(400, billRestController.exportOrders("xml", null, null, null, null, null)
+                .getStatusCode().value());
+    }
+}
@@ -0,0 +1,80 @@
+package org.marzouki.orderservice.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.marzouki.orderservice.entities.Bill;
+import org.marzouki.orderservice.entities.ProductItem;
+import org.marzouki.orderservice.repository.BillRepository;
+import org.marzouki.orderservice.repository.BillSpecifications;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "eureka.client.enabled=false",
+        "spring.cloud.config.enabled=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        // Own database: the pooled sequence ids break when another context recreates the schema and resets the sequences
+        "spring.datasource.url=jdbc:h2:mem:orders-intake-db"
+})
+class OrderIntakeServiceTests {
+
+    @Autowired
+    private OrderIntakeService orderIntakeService;
+
+    @Autowired
+    private BillRepository billRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void bulkOrdersAreInsertedInJdbcBatches() {
+        List<Bill> orders = new ArrayList<>();
+        for (int i = 0; i < 2_500; i++) {
+            Bill bill = Bill.builder().clientId("bulk-client").productItems(new ArrayList<>()).build();
+            for (int j = 0; j < 3; j++) {
+                bill.getProductItems().add(ProductItem.builder().productId("p" + j).quantity(2).unitPrice(5).build());
+            }
+            orders.add(bill);
+        }
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<Long> ids = orderIntakeService.createOrders(orders);
+
+        assertEquals(2_500, ids.size());
+        assertEquals(2_500, ids.stream().distinct().count());
+        assertEquals(10_000, statistics.getEntityInsertCount());
+        // One statement per JDBC batch of 50 plus pooled sequence calls, instead of one per row
+        assertTrue(statistics.getPrepareStatementCount() < 500,
+                "prepared statements: " + statistics.getPrepareStatementCount());
+
+        Bill saved = billRepository.findWithItemsById(ids.getLast()).orElseThrow();
+        assertEquals(Bill.OrderStatus.PENDING, saved.getStatut());
+        assertEquals(3, saved.getProductItems().size());
+        assertEquals(10, saved.getProductItems().getFirst().getTotalPrice());
+    }
+
+    @Test
+    void failingChunkRollsBackTheWholeImport() {
+        List<Bill> orders = new ArrayList<>();
+        for (int i = 0; i < 1_500; i++) {
+            // Chunks of 1000: the order without client breaks the second one
+            orders.add(Bill.builder().clientId(i == 1_200 ? null : "rollback-client").productItems(new ArrayList<>()).build());
+        }
+
+        BulkImportException failure = assertThrows(BulkImportException.class, () -> orderIntakeService.createOrders(orders));
+
+        assertEquals(1, failure.getChunk());
+        assertEquals(1_000, failure.getFromIndex());
+        assertEquals(1_500, failure.getToIndex());
+        assertEquals(0, billRepository.count(BillSpecifications.hasClientId("rollback-client")));
+    }
+}
@@ -0,0 +1,90 @@
+package org.marzouki.orderservice.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.marzouki.orderservice.entities.Bill;
+import org.marzouki.orderservice.entities.ProductItem;
+import org.marzouki.orderservice.repository.BillRepository;
+import org.marzouki.orderservice.repository.BillSpecifications;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "eureka.client.enabled=false",
+        "spring.cloud.config.enabled=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        // Own database: the pooled sequence ids break when another context recreates the schema and resets the sequences
+        "spring.datasource.url=jdbc:h2:mem:orders-query-db"
+})
+class OrderQueryServiceTests {
+
+    @Autowired
+    private OrderQueryService orderQueryService;
+
+    @Autowired
+    private BillRepository billRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void pageOfOrdersLoadsWithItemsInTwoStatements() {
+        for (int i = 0; i < 20; i++) {
+            billRepository.save(order("statements-client", 3));
+        }
+
+        statistics.clear();
+        Window<Bill> page = orderQueryService.findOrders(
+                BillSpecifications.hasClientId("statements-client"), ScrollPosition.keyset(), 20);
+        // Touching every collection outside the transaction must not hit the database
+        int items = page.stream().mapToInt(bill -> bill.getProductItems().size()).sum();
+
+        assertEquals(20, page.size());
+        assertEquals(60, items);
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getCollectionFetchCount());
+    }
+
+    @Test
+    void clientPageAndSingleOrderUseAConstantNumberOfStatements() {
+        Long id = null;
+        for (int i = 0; i < 5; i++) {
+            id = billRepository.save(order("single-client", 2)).getId();
+        }
+
+        statistics.clear();
+        Window<Bill> page = orderQueryService.findClientOrders("single-client", ScrollPosition.keyset(), 10);
+        assertEquals(10, page.stream().mapToInt(bill -> bill.getProductItems().size()).sum());
+        assertEquals(2, statistics.getPrepareStatementCount());
+
+        statistics.clear();
+        Bill bill = orderQueryService.findOrder(id).orElseThrow();
+        assertEquals(2, bill.getProductItems().size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    private static Bill order(String clientId, int items) {
+        Bill bill = Bill.builder().clientId(clientId).productItems(new ArrayList<>()).build();
+        for (int i = 0; i < items; i++) {
+            bill.getProductItems().add(ProductItem.builder()
+                    .bill(bill).productId("p" + i).quantity(1).unitPrice(10).build());
+        }
+        return bill;
+    }
+}
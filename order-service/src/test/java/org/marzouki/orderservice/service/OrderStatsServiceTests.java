@@ -0,0 +1,195 @@
+package org.marzouki.orderservice.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.marzouki.orderservice.entities.Bill;
+import org.marzouki.orderservice.entities.OrderStat;
+import org.marzouki.orderservice.entities.ProductItem;
+import org.marzouki.orderservice.model.OrderStats;
+import org.marzouki.orderservice.model.OrderStatsCheck;
+import org.marzouki.orderservice.repository.BillRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "eureka.client.enabled=false",
+        "spring.cloud.config.enabled=false",
+        // Own database: the aggregates are compared with every order of the table
+        "spring.datasource.url=jdbc:h2:mem:orders-stats-db"
+})
+class OrderStatsServiceTests {
+
+    private static final int IMPORTED_ORDERS = 5_000;
+
+    @Autowired
+    private OrderStatsService orderStatsService;
+
+    @Autowired
+    private OrderIntakeService orderIntakeService;
+
+    @Autowired
+    private BillRepository billRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final Random random = new Random(42);
+
+    @BeforeEach
+    void importOrders() {
+        jdbcTemplate.update("DELETE FROM order_items");
+        jdbcTemplate.update("DELETE FROM orders");
+        // Written around the service over the last 90 days, ids far from the sequence's
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < IMPORTED_ORDERS; i++) {
+            Timestamp placed = Timestamp.valueOf(LocalDateTime.now().minusDays(random.nextInt(90)).minusMinutes(random.nextInt(1_440)));
+            rows.add(new Object[]{10_000_000L + i, placed, randomStatus().name(), "client-" + random.nextInt(200),
+                    random.nextInt(100_000) / 100.0, placed, placed});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO orders (id, date_commande, statut, client_id, montant_total, " +
+                "date_creation, date_modification) VALUES (?, ?, ?, ?, ?, ?, ?)", rows);
+        orderStatsService.rebuild();
+    }
+
+    @Test
+    void aggregatesFollowEveryOrderWrite() {
+        assertTrue(orderStatsService.check().consistent());
+
+        List<Bill> bulk = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            bulk.add(order("client-" + random.nextInt(250)));
+        }
+        List<Long> ids = new ArrayList<>(orderIntakeService.createOrders(bulk));
+        for (int i = 0; i < 20; i++) {
+            ids.add(orderIntakeService.createOrder(order("client-" + random.nextInt(250))).getId());
+        }
+        for (int i = 0; i < 50; i++) {
+            orderIntakeService.updateOrderStatus(ids.get(i), randomStatus());
+            Bill details = Bill.builder().statut(randomStatus()).montantTotal(random.nextInt(1_000) + 0.5).build();
+            orderIntakeService.updateOrder(10_000_000L + i, details).orElseThrow();
+        }
+        for (int i = 50; i < 80; i++) {
+            assertTrue(orderIntakeService.deleteOrder(ids.get(i)));
+            assertTrue(orderIntakeService.deleteOrder(10_000_000L + i));
+        }
+        assertFalse(orderIntakeService.deleteOrder(-1L));
+
+        OrderStatsCheck check = orderStatsService.check();
+        assertTrue(check.consistent(), () -> "mismatches: " + check.mismatches());
+        assertTrue(check.bucketsChecked() > 250);
+    }
+
+    @Test
+    void clientSuppliedIdsNeverOverwriteExistingOrders() {
+        Bill existing = order("client-1");
+        existing.getProductItems().add(ProductItem.builder().productId("p1").quantity(1).unitPrice(2).build());
+        existing = orderIntakeService.createOrder(existing);
+        Long existingId = existing.getId();
+        Long itemId = existing.getProductItems().getFirst().getId();
+
+        Bill copy = order("client-2");
+        copy.setId(existingId);
+        copy.getProductItems().add(ProductItem.builder().id(itemId).productId("p2").quantity(1).unitPrice(2).build());
+        Bill created = orderIntakeService.createOrder(copy);
+        List<Bill> bulk = new ArrayList<>();
+        for (long id : new long[]{existingId, 10_000_003L}) {
+            Bill order = order("client-3");
+            order.setId(id);
+            bulk.add(order);
+        }
+        List<Long> ids = orderIntakeService.createOrders(bulk);
+
+        assertNotEquals(existingId, created.getId());
+        assertNotEquals(itemId, created.getProductItems().getFirst().getId());
+        assertFalse(ids.contains(existingId) || ids.contains(10_000_003L));
+        Bill kept = billRepository.findWithItemsById(existingId).orElseThrow();
+        assertEquals("client-1", kept.getClientId());
+        assertEquals("p1", kept.getProductItems().getFirst().getProductId());
+        assertEquals(IMPORTED_ORDERS + 4, billRepository.count());
+        OrderStatsCheck check = orderStatsService.check();
+        assertTrue(check.consistent(), () -> "mismatches: " + check.mismatches());
+    }
+
+    @Test
+    void rolledBackWritesLeaveAggregatesUntouched() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        assertThrows(IllegalStateException.class, () -> transaction.executeWithoutResult(status -> {
+            orderIntakeService.createOrder(order("client-1"));
+            orderIntakeService.deleteOrder(10_000_001L);
+            throw new IllegalStateException("rolled back");
+        }));
+
+        assertTrue(orderStatsService.check().consistent());
+    }
+
+    @Test
+    void statsMatchGroupByOverOrders() {
+        LocalDate to = LocalDate.now();
+        LocalDate from = to.minusDays(29);
+        OrderStats stats = orderStatsService.stats(from, to, 5);
+
+        assertEquals(IMPORTED_ORDERS, stats.orderCount());
+        assertEquals(jdbcTemplate.queryForObject("SELECT SUM(montant_total) FROM orders", Double.class), stats.revenue(), 0.01);
+        jdbcTemplate.query("SELECT statut, COUNT(*), SUM(montant_total) FROM orders GROUP BY statut", rs -> {
+            OrderStats.Figures figures = stats.byStatus().get(Bill.OrderStatus.valueOf(rs.getString(1)));
+            assertEquals(rs.getLong(2), figures.orderCount());
+            assertEquals(rs.getDouble(3), figures.revenue(), 0.01);
+        });
+
+        Map<LocalDate, Long> ordersPerDay = new HashMap<>();
+        jdbcTemplate.query("SELECT CAST(date_commande AS DATE), COUNT(*) FROM orders " +
+                        "WHERE date_commande >= ? GROUP BY CAST(date_commande AS DATE)",
+                rs -> {
+                    ordersPerDay.put(rs.getDate(1).toLocalDate(), rs.getLong(2));
+                }, Timestamp.valueOf(from.atStartOfDay()));
+        assertEquals(ordersPerDay.size(), stats.byDay().size());
+        stats.byDay().forEach(day -> assertEquals(ordersPerDay.get(day.day()), day.orderCount()));
+        assertEquals(stats.byDay().stream().map(OrderStats.Day::day).sorted().toList(),
+                stats.byDay().stream().map(OrderStats.Day::day).toList());
+
+        List<String> topClients = jdbcTemplate.queryForList(
+                "SELECT client_id FROM orders GROUP BY client_id ORDER BY SUM(montant_total) DESC LIMIT 5", String.class);
+        assertEquals(topClients, stats.topClients().stream().map(OrderStats.Client::clientId).toList());
+    }
+
+    @Test
+    void checkReportsOrdersWrittenAroundTheServiceUntilRebuilt() {
+        jdbcTemplate.update("UPDATE orders SET statut = 'CANCELLED', montant_total = montant_total + 1 WHERE id = 10000002");
+
+        OrderStatsCheck check = orderStatsService.check();
+        assertFalse(check.consistent());
+        // The old status, the client and the day are off; the new status too, unless it was already CANCELLED
+        assertTrue(check.mismatchCount() >= 3);
+        assertTrue(check.mismatches().stream().anyMatch(mismatch -> mismatch.dimension() == OrderStat.Dimension.CLIENT));
+
+        orderStatsService.rebuild();
+        assertTrue(orderStatsService.check().consistent());
+    }
+
+    private Bill order(String clientId) {
+        return Bill.builder().clientId(clientId).statut(randomStatus())
+                .montantTotal(random.nextInt(100_000) / 100.0).productItems(new ArrayList<>()).build();
+    }
+
+    private Bill.OrderStatus randomStatus() {
+        Bill.OrderStatus[] statuses = Bill.OrderStatus.values();
+        return statuses[random.nextInt(statuses.length)];
+    }
+}
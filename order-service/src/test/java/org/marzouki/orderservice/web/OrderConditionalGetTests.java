@@ -0,0 +1,174 @@
+package org.marzouki.orderservice.web;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.marzouki.orderservice.entities.Bill;
+import org.marzouki.orderservice.entities.ProductItem;
+import org.marzouki.orderservice.model.Product;
+import org.marzouki.orderservice.repository.BillRepository;
+import org.marzouki.orderservice.service.LookupCacheService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "eureka.client.enabled=false",
+        "spring.cloud.config.enabled=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        // Own database: other test contexts recreate the shared schema and reset its sequences
+        "spring.datasource.url=jdbc:h2:mem:orders-conditional-get-db"
+})
+class OrderConditionalGetTests {
+
+    @Autowired
+    private BillRestController billRestController;
+
+    @Autowired
+    private BillRepository billRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Test
+    void unchangedOrderIsAnsweredWithOneStatementAndNoBody() {
+        // Non-numeric client IDs resolve to "no customer" without calling customer-service
+        Long id = billRepository.save(Bill.builder().clientId("etag-client").build()).getId();
+        ResponseEntity<Bill> first = billRestController.getOrder(id, new HttpHeaders());
+        String eTag = first.getHeaders().getETag();
+        assertEquals(HttpStatus.OK, first.getStatusCode());
+        assertNotNull(eTag);
+        // The order's modification date does not cover the details it shows
+        assertEquals(-1, first.getHeaders().getLastModified());
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        ResponseEntity<Bill> second = billRestController.getOrder(id, ifNoneMatch(eTag));
+
+        assertEquals(HttpStatus.NOT_MODIFIED, second.getStatusCode());
+        assertNull(second.getBody());
+        assertEquals(eTag, second.getHeaders().getETag());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void productDetailsChangeTheETagOfOrdersAndListings() {
+        Product product = new Product();
+        product.setId("etag-enriched-product");
+        product.setName("Lamp");
+        product.setPrice(25);
+        Cache products = cacheManager.getCache(LookupCacheService.PRODUCTS);
+        products.put(product.getId(), Optional.of(product));
+        Bill bill = Bill.builder().clientId("etag-enriched-client").productItems(new ArrayList<>()).build();
+        bill.getProductItems().add(ProductItem.builder().productId(product.getId()).quantity(1).bill(bill).build());
+        Long id = billRepository.save(bill).getId();
+        String orderETag = billRestController.getOrder(id, new HttpHeaders()).getHeaders().getETag();
+        String listingETag = billRestController.getOrdersByClientId(
+                new HttpHeaders(), "etag-enriched-client", null, 10).getHeaders().getETag();
+        assertEquals(HttpStatus.NOT_MODIFIED, billRestController.getOrder(id, ifNoneMatch(orderETag)).getStatusCode());
+
+        // Repriced in product-service, the order itself is untouched
+        product.setPrice(30);
+        products.put(product.getId(), Optional.of(product));
+        ResponseEntity<Bill> repriced = billRestController.getOrder(id, ifNoneMatch(orderETag));
+        assertEquals(HttpStatus.OK, repriced.getStatusCode());
+        assertEquals(30, repriced.getBody().getProductItems().getFirst().getProduct().getPrice());
+        assertEquals(HttpStatus.OK, billRestController.getOrdersByClientId(
+                ifNoneMatch(listingETag), "etag-enriched-client", null, 10).getStatusCode());
+    }
+
+    @Test
+    void statusChangeAndNewItemsChangeTheETag() {
+        Long id = billRepository.save(Bill.builder().clientId("etag-client").build()).getId();
+        String eTag = billRestController.getOrder(id, new HttpHeaders()).getHeaders().getETag();
+
+        billRestController.updateOrderStatus(id, Bill.OrderStatus.SHIPPED);
+        ResponseEntity<Bill> shipped = billRestController.getOrder(id, ifNoneMatch(eTag));
+        assertEquals(HttpStatus.OK, shipped.getStatusCode());
+        assertEquals(Bill.OrderStatus.SHIPPED, shipped.getBody().getStatut());
+
+        String shippedETag = shipped.getHeaders().getETag();
+        billRestController.addProductToOrder(id, ProductItem.builder().productId("etag-product").quantity(1).build());
+        assertNotEquals(shippedETag, billRestController.getOrder(id, new HttpHeaders()).getHeaders().getETag());
+    }
+
+    @Test
+    void listingIsVersionedByTheMatchingOrders() {
+        billRepository.save(Bill.builder().clientId("etag-list-client").build());
+        ResponseEntity<List<Bill>> first = billRestController.getOrdersByClientId(
+                new HttpHeaders(), "etag-list-client", null, 10);
+        String eTag = first.getHeaders().getETag();
+        assertEquals(1, first.getBody().size());
+        assertEquals(HttpStatus.NOT_MODIFIED, billRestController.getOrdersByClientId(
+                ifNoneMatch(eTag), "etag-list-client", null, 10).getStatusCode());
+
+        // Orders of other clients do not invalidate this listing
+        billRepository.save(Bill.builder().clientId("etag-other-client").build());
+        assertEquals(HttpStatus.NOT_MODIFIED, billRestController.getOrdersByClientId(
+                ifNoneMatch(eTag), "etag-list-client", null, 10).getStatusCode());
+
+        Long second = billRepository.save(Bill.builder().clientId("etag-list-client").build()).getId();
+        ResponseEntity<List<Bill>> grown = billRestController.getOrdersByClientId(
+                ifNoneMatch(eTag), "etag-list-client", null, 10);
+        assertEquals(HttpStatus.OK, grown.getStatusCode());
+        assertEquals(2, grown.getBody().size());
+
+        String grownETag = grown.getHeaders().getETag();
+        billRepository.deleteById(second);
+        assertEquals(HttpStatus.OK, billRestController.getOrdersByClientId(
+                ifNoneMatch(grownETag), "etag-list-client", null, 10).getStatusCode());
+    }
+
+    @Test
+    void listingVersionMovesOnDeleteFollowedByUpdate() {
+        Long older = billRepository.save(Bill.builder().clientId("etag-delete-client").build()).getId();
+        Long newer = billRepository.save(Bill.builder().clientId("etag-delete-client").build()).getId();
+        ResponseEntity<List<Bill>> first = billRestController.getOrdersByClientId(
+                new HttpHeaders(), "etag-delete-client", null, 10);
+        String eTag = first.getHeaders().getETag();
+        // Collections are validated by their ETag only
+        assertEquals(-1, first.getHeaders().getLastModified());
+
+        billRepository.deleteById(older);
+        billRestController.updateOrderStatus(newer, Bill.OrderStatus.CONFIRMED);
+        assertEquals(HttpStatus.OK, billRestController.getOrdersByClientId(
+                ifNoneMatch(eTag), "etag-delete-client", null, 10).getStatusCode());
+
+        HttpHeaders ifModifiedSince = new HttpHeaders();
+        ifModifiedSince.setIfModifiedSince(System.currentTimeMillis() + 60_000);
+        assertEquals(HttpStatus.OK, billRestController.getOrdersByClientId(
+                ifModifiedSince, "etag-delete-client", null, 10).getStatusCode());
+    }
+
+    @Test
+    void replacingAnOrderChangesTheListingVersion() {
+        Long replaced = billRepository.save(Bill.builder().clientId("etag-replace-client").build()).getId();
+        String eTag = billRestController.getOrdersByClientId(
+                new HttpHeaders(), "etag-replace-client", null, 10).getHeaders().getETag();
+
+        billRepository.deleteById(replaced);
+        billRepository.save(Bill.builder().clientId("etag-replace-client").build());
+        assertNotEquals(eTag, billRestController.getOrdersByClientId(
+                new HttpHeaders(), "etag-replace-client", null, 10).getHeaders().getETag());
+    }
+
+    private static HttpHeaders ifNoneMatch(String eTag) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch(eTag);
+        return headers;
+    }
+}
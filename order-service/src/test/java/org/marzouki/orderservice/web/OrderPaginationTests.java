@@ -0,0 +1,79 @@
+package org.marzouki.orderservice.web;
+
+import org.junit.jupiter.api.Test;
+import org.marzouki.orderservice.entities.Bill;
+import org.marzouki.orderservice.repository.BillRepository;
+import org.marzouki.orderservice.repository.BillSpecifications;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {"eureka.client.enabled=false", "spring.cloud.config.enabled=false"})
+@Transactional
+class OrderPaginationTests {
+
+    @Autowired
+    private BillRepository billRepository;
+
+    @Test
+    void cursorWalksFilteredOrdersWithoutGapsOrDuplicates() {
+        for (int i = 0; i < 25; i++) {
+            billRepository.save(Bill.builder().clientId("pagination-client")
+                    .statut(i % 2 == 0 ? Bill.OrderStatus.PENDING : Bill.OrderStatus.SHIPPED).build());
+        }
+
+        List<Bill> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            ScrollPosition position = OrderCursor.decode(cursor);
+            Window<Bill> page = billRepository.findBy(
+                    BillSpecifications.hasClientId("pagination-client")
+                            .and(BillSpecifications.hasStatut(Bill.OrderStatus.PENDING)),
+                    query -> query.sortBy(BillSpecifications.KEYSET_SORT).limit(5).scroll(position));
+            seen.addAll(page.getContent());
+            cursor = OrderCursor.next(page);
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(13, seen.size());
+        assertEquals(3, pages);
+        assertEquals(13, seen.stream().map(Bill::getId).distinct().count());
+        assertTrue(seen.stream().allMatch(bill -> bill.getStatut() == Bill.OrderStatus.PENDING));
+        Comparator<Bill> keyset = Comparator.comparing(Bill::getDateCommande).thenComparing(Bill::getId).reversed();
+        assertEquals(seen.stream().sorted(keyset).toList(), seen);
+    }
+
+    @Test
+    void clientOrdersArePaginatedByRepository() {
+        for (int i = 0; i < 7; i++) {
+            billRepository.save(Bill.builder().clientId("paged-client").build());
+        }
+
+        Window<Bill> first = billRepository.findByClientIdOrderByDateCommandeDescIdDesc(
+                "paged-client", ScrollPosition.keyset(), Limit.of(4));
+        Window<Bill> second = billRepository.findByClientIdOrderByDateCommandeDescIdDesc(
+                "paged-client", OrderCursor.decode(OrderCursor.next(first)), Limit.of(4));
+
+        assertEquals(4, first.size());
+        assertEquals(3, second.size());
+        assertNull(OrderCursor.next(second));
+        assertTrue(first.getContent().getLast().getId() > second.getContent().getFirst().getId());
+    }
+
+    @Test
+    void pageSizeIsCapped() {
+        assertEquals(OrderCursor.MAX_PAGE_SIZE, OrderCursor.pageSize(10_000));
+        assertEquals(1, OrderCursor.pageSize(0));
+        assertThrows(IllegalArgumentException.class, () -> OrderCursor.decode("not-a-cursor"));
+    }
+}
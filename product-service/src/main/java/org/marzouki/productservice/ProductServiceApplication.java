@@ -2,48 +2,71 @@ package org.marzouki.productservice;
 
 import org.marzouki.productservice.entities.Product;
 import org.marzouki.productservice.repository.ProductRepository;
+import org.marzouki.productservice.search.ProductSearchIndex;
+import org.marzouki.productservice.service.ProductCatalogService;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 import java.util.UUID;
 
 @SpringBootApplication
+@EnableScheduling
 public class ProductServiceApplication {
 
     public static void main(String[] args) {
         SpringApplication.run(ProductServiceApplication.class, args);
     }
 
+    /**
+     * Seed a few products into an empty database; a persistent database keeps its data. With
+     * seed.deferred this happens on a background thread, after startup and possibly after the
+     * search index was built, so each product is indexed as it is created
+     */
     @Bean
-    CommandLineRunner commandLineRunner(ProductRepository productRepository){
+    CommandLineRunner commandLineRunner(ProductRepository productRepository, ProductCatalogService productCatalogService,
+                                        ProductSearchIndex productSearchIndex,
+                                        @Value("${seed.deferred:false}") boolean deferred){
         return args -> {
-            productRepository.save(Product.builder()
-                            .id(UUID.randomUUID().toString())
-                            .name("Computer")
-                            .description("High-performance laptop computer")
-                            .price(3200)
-                            .quantity(11)
-                    .build());
-            productRepository.save(Product.builder()
-                    .id(UUID.randomUUID().toString())
-                    .name("Printer")
-                    .description("Professional laser printer")
-                    .price(1299)
-                    .quantity(10)
-                    .build());
-            productRepository.save(Product.builder()
-                    .id(UUID.randomUUID().toString())
-                    .name("Smart Phone")
-                    .description("Latest generation smartphone")
-                    .price(5400)
-                    .quantity(8)
-                    .build());
+            Runnable seeding = () -> {
+                if (productRepository.count() > 0) {
+                    System.out.println("✓ Product Service: Existing data found, seeding skipped");
+                    return;
+                }
+                productSearchIndex.index(productCatalogService.createProduct(Product.builder()
+                                .id(UUID.randomUUID().toString())
+                                .name("Computer")
+                                .description("High-performance laptop computer")
+                                .price(3200)
+                                .quantity(11)
+                        .build()));
+                productSearchIndex.index(productCatalogService.createProduct(Product.builder()
+                        .id(UUID.randomUUID().toString())
+                        .name("Printer")
+                        .description("Professional laser printer")
+                        .price(1299)
+                        .quantity(10)
+                        .build()));
+                productSearchIndex.index(productCatalogService.createProduct(Product.builder()
+                        .id(UUID.randomUUID().toString())
+                        .name("Smart Phone")
+                        .description("Latest generation smartphone")
+                        .price(5400)
+                        .quantity(8)
+                        .build()));
 
-            productRepository.findAll().forEach(p->{
-                System.out.println(p.toString());
-            });
+                productRepository.findAll().forEach(p->{
+                    System.out.println(p.toString());
+                });
+            };
+            if (deferred) {
+                Thread.ofVirtual().name("seeding").start(seeding);
+            } else {
+                seeding.run();
+            }
         };
     }
 
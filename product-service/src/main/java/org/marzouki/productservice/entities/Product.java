@@ -1,13 +1,28 @@
 package org.marzouki.productservice.entities;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonSetter;
+import com.fasterxml.jackson.annotation.Nulls;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
 import jakarta.persistence.Column;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.DynamicUpdate;
 import java.time.LocalDateTime;
 
+/**
+ * Updates only write the columns that changed: stock moves through the conditional UPDATEs of
+ * ProductRepository, and a catalog edit flushing a product loaded before a reservation must not
+ * write back the quantity and reserved units it read.
+ */
 @Entity
-@NoArgsConstructor @AllArgsConstructor @Getter @Setter @Builder @ToString
+@Table(indexes = @Index(name = "idx_product_unpublished_stock_changes", columnList = "unpublished_stock_changes"))
+@DynamicUpdate
+@NoArgsConstructor(onConstructor_ = @JsonCreator) @AllArgsConstructor @Getter @Setter @Builder @ToString
 public class Product {
     @Id
     private String id;
@@ -24,6 +39,18 @@ public class Product {
     @Column(nullable = false)
     private int quantity;
     
+    /** Units taken out of stock by reservations and not released yet */
+    @Column(nullable = false)
+    @ColumnDefault("0")
+    @JsonSetter(nulls = Nulls.AS_EMPTY)
+    private int reserved;
+    
+    /** Reservations and releases not yet recorded in the change feed, see ProductChangeService */
+    @Column(nullable = false)
+    @ColumnDefault("0")
+    @JsonIgnore
+    private int unpublishedStockChanges;
+    
     @Column(nullable = false, updatable = false)
     private LocalDateTime dateCreation;
     
@@ -0,0 +1,38 @@
+package org.marzouki.productservice.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Outbox entry: a product was created, updated or deleted. Written in the transaction of the
+ * change and served by GET /api/products/changes in sequence order.
+ */
+@Entity
+@Table(name = "product_changes", indexes = {
+        @Index(name = "idx_product_changes_product_seq", columnList = "product_id, seq")
+})
+@NoArgsConstructor @AllArgsConstructor @Getter @Setter @Builder
+public class ProductChange {
+
+    /**
+     * Position in the change feed, assigned in commit order
+     */
+    @Id
+    private Long seq;
+
+    @Column(nullable = false)
+    private String productId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 8)
+    private Type type;
+
+    @Column(nullable = false)
+    private LocalDateTime changedAt;
+
+    public enum Type {
+        UPSERT, DELETE
+    }
+}
@@ -0,0 +1,28 @@
+package org.marzouki.productservice.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * The single row that hands out change feed sequence numbers. Writers lock it until they
+ * commit, so sequence numbers become visible in order and a reader never skips a change that
+ * commits late.
+ */
+@Entity
+@Table(name = "product_change_head")
+@NoArgsConstructor @AllArgsConstructor @Getter @Setter
+public class ProductChangeHead {
+
+    public static final long ID = 1;
+
+    @Id
+    private Long id;
+
+    private long lastSeq;
+
+    /**
+     * Highest sequence number of the purged delete entries: a reader resuming before it may have
+     * missed deletions
+     */
+    private long purgedThrough;
+}
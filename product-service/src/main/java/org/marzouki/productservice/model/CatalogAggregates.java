@@ -0,0 +1,16 @@
+package org.marzouki.productservice.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Aggregates of the whole catalog, part of its version
+ */
+public interface CatalogAggregates {
+
+    long getSize();
+
+    /**
+     * Latest modification of a product, null for an empty catalog
+     */
+    LocalDateTime getModifiedAt();
+}
@@ -0,0 +1,21 @@
+package org.marzouki.productservice.model;
+
+import org.marzouki.productservice.entities.Product;
+import org.marzouki.productservice.entities.ProductChange;
+
+import java.util.List;
+
+/**
+ * One page of the product change feed
+ *
+ * @param next    cursor to pass as {@code since} for the following page
+ * @param hasMore whether more changes were already available after this page
+ */
+public record ProductChanges(long next, boolean hasMore, List<Change> changes) {
+
+    /**
+     * @param product current state of the product, null when it is deleted
+     */
+    public record Change(long seq, ProductChange.Type type, String productId, Product product) {
+    }
+}
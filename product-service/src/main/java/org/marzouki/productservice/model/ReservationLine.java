@@ -0,0 +1,7 @@
+package org.marzouki.productservice.model;
+
+/**
+ * One line of a multi-product stock reservation
+ */
+public record ReservationLine(String productId, int quantity) {
+}
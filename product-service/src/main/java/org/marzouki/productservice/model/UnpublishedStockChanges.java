@@ -0,0 +1,11 @@
+package org.marzouki.productservice.model;
+
+/**
+ * Stock changes of a product not yet recorded in the change feed
+ */
+public interface UnpublishedStockChanges {
+
+    String getId();
+
+    int getCount();
+}
@@ -0,0 +1,22 @@
+package org.marzouki.productservice.repository;
+
+import jakarta.persistence.LockModeType;
+import org.marzouki.productservice.entities.ProductChangeHead;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.data.rest.core.annotation.RepositoryRestResource;
+
+import java.util.Optional;
+
+@RepositoryRestResource(exported = false)
+public interface ProductChangeHeadRepository extends JpaRepository<ProductChangeHead, Long> {
+
+    /**
+     * The head row, locked until the end of the transaction
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT h FROM ProductChangeHead h WHERE h.id = :id")
+    Optional<ProductChangeHead> lockById(@Param("id") Long id);
+}
@@ -0,0 +1,36 @@
+package org.marzouki.productservice.repository;
+
+import org.marzouki.productservice.entities.ProductChange;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.data.rest.core.annotation.RepositoryRestResource;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Changes are read through /api/products/changes only
+ */
+@RepositoryRestResource(exported = false)
+public interface ProductChangeRepository extends JpaRepository<ProductChange, Long> {
+
+    List<ProductChange> findBySeqGreaterThanOrderBySeqAsc(long seq, Limit limit);
+
+    /**
+     * Remove every entry followed by a later entry of the same product
+     */
+    @Modifying
+    @Query("DELETE FROM ProductChange c WHERE EXISTS " +
+            "(SELECT 1 FROM ProductChange n WHERE n.productId = c.productId AND n.seq > c.seq)")
+    int deleteSuperseded();
+
+    @Query("SELECT MAX(c.seq) FROM ProductChange c WHERE c.type = :type AND c.changedAt < :before")
+    Long findLastSeqBefore(@Param("type") ProductChange.Type type, @Param("before") LocalDateTime before);
+
+    @Modifying
+    @Query("DELETE FROM ProductChange c WHERE c.type = :type AND c.seq <= :seq")
+    int deleteThrough(@Param("type") ProductChange.Type type, @Param("seq") long seq);
+}
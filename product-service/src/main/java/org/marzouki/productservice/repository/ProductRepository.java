@@ -1,9 +1,91 @@
 package org.marzouki.productservice.repository;
 
 import org.marzouki.productservice.entities.Product;
+import org.marzouki.productservice.model.CatalogAggregates;
+import org.marzouki.productservice.model.UnpublishedStockChanges;
+import org.marzouki.shared.web.ResourceVersion;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.data.rest.core.annotation.RepositoryRestResource;
+import org.springframework.data.rest.core.annotation.RestResource;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
 
 @RepositoryRestResource
 public interface ProductRepository extends JpaRepository<Product,String> {
+
+    /**
+     * Writes go through ProductCatalogService, which records them in the change feed:
+     * not exported, so Spring Data REST cannot bypass it
+     */
+    @Override
+    @RestResource(exported = false)
+    <S extends Product> S save(S entity);
+
+    @Override
+    @RestResource(exported = false)
+    void deleteById(String id);
+
+    @Override
+    @RestResource(exported = false)
+    void delete(Product entity);
+
+    /**
+     * Atomically take quantity units out of stock and count them as reserved, only if that many
+     * are available. Returns the number of updated rows: 0 when the product is unknown or out of stock.
+     */
+    @RestResource(exported = false)
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Product p SET p.quantity = p.quantity - :quantity, p.reserved = p.reserved + :quantity, " +
+            "p.unpublishedStockChanges = p.unpublishedStockChanges + 1, p.dateModification = :now " +
+            "WHERE p.id = :id AND p.quantity >= :quantity")
+    int reserve(@Param("id") String id, @Param("quantity") int quantity, @Param("now") LocalDateTime now);
+
+    /**
+     * Atomically put quantity reserved units back into stock, only if that many are reserved.
+     * Returns the number of updated rows: 0 when the product is unknown or has fewer units reserved.
+     */
+    @RestResource(exported = false)
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Product p SET p.quantity = p.quantity + :quantity, p.reserved = p.reserved - :quantity, " +
+            "p.unpublishedStockChanges = p.unpublishedStockChanges + 1, p.dateModification = :now " +
+            "WHERE p.id = :id AND p.reserved >= :quantity")
+    int release(@Param("id") String id, @Param("quantity") int quantity, @Param("now") LocalDateTime now);
+
+    /**
+     * Products with stock changes not yet recorded in the change feed, in ID order
+     */
+    @RestResource(exported = false)
+    @Query("SELECT p.id AS id, p.unpublishedStockChanges AS count FROM Product p " +
+            "WHERE p.unpublishedStockChanges > 0 ORDER BY p.id")
+    List<UnpublishedStockChanges> findUnpublishedStockChanges(Limit limit);
+
+    /**
+     * Count published stock changes out of a product. Changes made since they were read stay
+     * unpublished. Returns 0 when the product was deleted in the meantime.
+     */
+    @RestResource(exported = false)
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Product p SET p.unpublishedStockChanges = p.unpublishedStockChanges - :count WHERE p.id = :id")
+    int markStockChangesPublished(@Param("id") String id, @Param("count") int count);
+
+    /**
+     * Version of a single product, read from its modification date only
+     */
+    @RestResource(exported = false)
+    @Query("SELECT new org.marzouki.shared.web.ResourceVersion(p.id, p.dateModification) " +
+            "FROM Product p WHERE p.id = :id")
+    Optional<ResourceVersion> findVersionById(@Param("id") String id);
+
+    /**
+     * Number of products and latest modification of the whole catalog, read without loading it
+     */
+    @RestResource(exported = false)
+    @Query("SELECT COUNT(p) AS size, MAX(p.dateModification) AS modifiedAt FROM Product p")
+    CatalogAggregates findCatalogAggregates();
 }
@@ -0,0 +1,411 @@
+package org.marzouki.productservice.search;
+
+import org.marzouki.productservice.entities.Product;
+import org.marzouki.productservice.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory inverted index over product names and descriptions.
+ * <p>
+ * Each query token matches the terms equal to it, the terms it is a prefix of and, for tokens of
+ * four characters or more, the terms one edit away (found through a deletion neighbourhood, so
+ * without scanning the dictionary). A product must match every token of the query. Scores
+ * combine the kind of match, the rarity of the term and whether it appears in the name.
+ * <p>
+ * The index is built from {@link ProductRepository} once the application is ready and kept
+ * current by {@link #index(Product)} and {@link #remove(String)}. Readers share a read lock;
+ * updates take the write lock.
+ */
+@Component
+public class ProductSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductSearchIndex.class);
+
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+    private static final int REBUILD_PAGE_SIZE = 10_000;
+
+    /** Maximum number of dictionary terms a prefix expands to */
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+
+    private static final int MIN_TYPO_LENGTH = 4;
+
+    private static final float EXACT_WEIGHT = 1.0f;
+
+    private static final float PREFIX_WEIGHT = 0.6f;
+
+    private static final float TYPO_WEIGHT = 0.4f;
+
+    private static final float NAME_BOOST = 2.0f;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** Product ID to internal document number */
+    private final Map<String, Integer> docIds = new HashMap<>();
+
+    /**
+     * Internal document number to product ID, indexed terms and the position of the document in
+     * the postings of each of those terms; null for free slots
+     */
+    private final List<String> productIds = new ArrayList<>();
+
+    private final List<String[]> docTerms = new ArrayList<>();
+
+    private final List<int[]> docPositions = new ArrayList<>();
+
+    private final Deque<Integer> freeDocIds = new ArrayDeque<>();
+
+    /** Term to postings, sorted for prefix lookups */
+    private final TreeMap<String, Postings> postings = new TreeMap<>();
+
+    /** Single-character deletions of every term, to the terms they come from */
+    private final Map<String, Set<String>> deletions = new HashMap<>();
+
+    /**
+     * Rebuild the whole index from the database, page by page
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            docIds.clear();
+            productIds.clear();
+            docTerms.clear();
+            docPositions.clear();
+            freeDocIds.clear();
+            postings.clear();
+            deletions.clear();
+            Slice<Product> slice = productRepository.findAll(PageRequest.of(0, REBUILD_PAGE_SIZE, Sort.by("id")));
+            while (true) {
+                slice.forEach(this::add);
+                if (!slice.hasNext()) {
+                    break;
+                }
+                slice = productRepository.findAll(slice.nextPageable());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Product search index built: {} products, {} terms in {} ms",
+                size(), postings.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Add a product to the index or replace its previous version
+     */
+    public void index(Product product) {
+        lock.writeLock().lock();
+        try {
+            delete(product.getId());
+            add(product);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove a product from the index, in time proportional to its number of terms
+     */
+    public void remove(String productId) {
+        lock.writeLock().lock();
+        try {
+            delete(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docIds.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ranked page of the products matching every token of the query
+     *
+     * @param page zero-based page number
+     */
+    public SearchHits search(String query, int page, int size) {
+        List<String> tokens = new ArrayList<>(new LinkedHashSet<>(tokenize(query)));
+        if (tokens.isEmpty() || size <= 0 || page < 0) {
+            return SearchHits.EMPTY;
+        }
+        lock.readLock().lock();
+        try {
+            List<Map<Integer, Float>> matches = new ArrayList<>(tokens.size());
+            for (String token : tokens) {
+                Map<Integer, Float> match = match(token);
+                if (match.isEmpty()) {
+                    return SearchHits.EMPTY;
+                }
+                matches.add(match);
+            }
+            // Intersect starting from the most selective token
+            matches.sort(Comparator.comparingInt(Map::size));
+            Map<Integer, Float> scores = new HashMap<>(matches.getFirst());
+            for (Map<Integer, Float> match : matches.subList(1, matches.size())) {
+                scores.keySet().retainAll(match.keySet());
+                scores.replaceAll((doc, score) -> score + match.get(doc));
+            }
+            return new SearchHits(top(scores, page, size), scores.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Lower-cased, accent-free words of a text
+     */
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        String normalized = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.ROOT);
+        return Arrays.stream(NON_WORD.split(normalized)).filter(token -> !token.isEmpty()).toList();
+    }
+
+    /**
+     * Best score of every document matching one query token
+     */
+    private Map<Integer, Float> match(String token) {
+        Map<String, Float> terms = new LinkedHashMap<>();
+        if (postings.containsKey(token)) {
+            terms.put(token, EXACT_WEIGHT);
+        }
+        int expansions = 0;
+        for (String term : postings.subMap(token, false, token + Character.MAX_VALUE, false).keySet()) {
+            if (++expansions > MAX_PREFIX_EXPANSIONS) {
+                break;
+            }
+            // Closer completions score higher
+            terms.putIfAbsent(term, PREFIX_WEIGHT * token.length() / term.length());
+        }
+        if (token.length() >= MIN_TYPO_LENGTH) {
+            typoCandidates(token).forEach(term -> terms.putIfAbsent(term, TYPO_WEIGHT));
+        }
+
+        Map<Integer, Float> scores = new HashMap<>();
+        int documents = docIds.size();
+        terms.forEach((term, weight) -> {
+            Postings termPostings = postings.get(term);
+            float idf = (float) Math.log(1.0 + (double) documents / termPostings.size);
+            for (int i = 0; i < termPostings.size; i++) {
+                int posting = termPostings.entries[i];
+                float score = weight * idf * ((posting & 1) == 1 ? NAME_BOOST : 1.0f);
+                scores.merge(posting >>> 1, score, Math::max);
+            }
+        });
+        return scores;
+    }
+
+    /**
+     * Dictionary terms at Damerau-Levenshtein distance one from the token
+     */
+    private Set<String> typoCandidates(String token) {
+        Set<String> candidates = new HashSet<>(deletions.getOrDefault(token, Set.of()));
+        for (String deletion : deletionsOf(token)) {
+            if (postings.containsKey(deletion)) {
+                candidates.add(deletion);
+            }
+            candidates.addAll(deletions.getOrDefault(deletion, Set.of()));
+        }
+        candidates.remove(token);
+        candidates.removeIf(term -> !withinOneEdit(token, term));
+        return candidates;
+    }
+
+    private List<String> top(Map<Integer, Float> scores, int page, int size) {
+        long wanted = (long) page * size + size;
+        if (wanted > Integer.MAX_VALUE || scores.size() <= (long) page * size) {
+            return List.of();
+        }
+        Comparator<Map.Entry<Integer, Float>> byRank = Map.Entry.<Integer, Float>comparingByValue()
+                .thenComparing(entry -> productIds.get(entry.getKey()), Comparator.reverseOrder());
+        PriorityQueue<Map.Entry<Integer, Float>> heap = new PriorityQueue<>(byRank);
+        for (Map.Entry<Integer, Float> entry : scores.entrySet()) {
+            heap.offer(entry);
+            if (heap.size() > wanted) {
+                heap.poll();
+            }
+        }
+        List<Map.Entry<Integer, Float>> ranked = new ArrayList<>(heap);
+        ranked.sort(byRank.reversed());
+        return ranked.subList(page * size, ranked.size()).stream()
+                .map(entry -> productIds.get(entry.getKey()))
+                .toList();
+    }
+
+    private void add(Product product) {
+        Map<String, Boolean> terms = new LinkedHashMap<>();
+        tokenize(product.getName()).forEach(term -> terms.put(term, true));
+        tokenize(product.getDescription()).forEach(term -> terms.putIfAbsent(term, false));
+
+        Integer free = freeDocIds.poll();
+        int doc = free != null ? free : productIds.size();
+        String[] termArray = terms.keySet().toArray(String[]::new);
+        int[] positions = new int[termArray.length];
+        if (free != null) {
+            productIds.set(doc, product.getId());
+            docTerms.set(doc, termArray);
+            docPositions.set(doc, positions);
+        } else {
+            productIds.add(product.getId());
+            docTerms.add(termArray);
+            docPositions.add(positions);
+        }
+        docIds.put(product.getId(), doc);
+
+        for (int slot = 0; slot < termArray.length; slot++) {
+            String term = termArray[slot];
+            Postings termPostings = postings.get(term);
+            if (termPostings == null) {
+                termPostings = new Postings();
+                postings.put(term, termPostings);
+                deletionsOf(term).forEach(deletion -> deletions.computeIfAbsent(deletion, d -> new HashSet<>()).add(term));
+            }
+            positions[slot] = termPostings.add(doc << 1 | (terms.get(term) ? 1 : 0), slot);
+        }
+    }
+
+    private void delete(String productId) {
+        Integer doc = docIds.remove(productId);
+        if (doc == null) {
+            return;
+        }
+        String[] terms = docTerms.get(doc);
+        int[] positions = docPositions.get(doc);
+        for (int slot = 0; slot < terms.length; slot++) {
+            String term = terms[slot];
+            Postings termPostings = postings.get(term);
+            int position = positions[slot];
+            termPostings.removeAt(position);
+            if (position < termPostings.size) {
+                // The last posting of the term moved into the freed position
+                docPositions.get(termPostings.entries[position] >>> 1)[termPostings.slots[position]] = position;
+            }
+            if (termPostings.size == 0) {
+                postings.remove(term);
+                deletionsOf(term).forEach(deletion -> {
+                    Set<String> origins = deletions.get(deletion);
+                    origins.remove(term);
+                    if (origins.isEmpty()) {
+                        deletions.remove(deletion);
+                    }
+                });
+            }
+        }
+        productIds.set(doc, null);
+        docTerms.set(doc, null);
+        docPositions.set(doc, null);
+        freeDocIds.push(doc);
+    }
+
+    private static Collection<String> deletionsOf(String term) {
+        if (term.length() < MIN_TYPO_LENGTH - 1) {
+            return List.of();
+        }
+        Set<String> variants = new HashSet<>();
+        for (int i = 0; i < term.length(); i++) {
+            variants.add(term.substring(0, i) + term.substring(i + 1));
+        }
+        return variants;
+    }
+
+    /**
+     * Optimal string alignment distance of at most one: one insertion, deletion,
+     * substitution or transposition of adjacent characters
+     */
+    static boolean withinOneEdit(String a, String b) {
+        int la = a.length();
+        int lb = b.length();
+        if (Math.abs(la - lb) > 1) {
+            return false;
+        }
+        int i = 0;
+        while (i < Math.min(la, lb) && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        if (la == lb) {
+            if (i == la) {
+                return true;
+            }
+            if (a.substring(i + 1).equals(b.substring(i + 1))) {
+                return true;
+            }
+            return i + 1 < la && a.charAt(i) == b.charAt(i + 1) && a.charAt(i + 1) == b.charAt(i)
+                    && a.substring(i + 2).equals(b.substring(i + 2));
+        }
+        return la > lb ? a.substring(i + 1).equals(b.substring(i)) : a.substring(i).equals(b.substring(i + 1));
+    }
+
+    /**
+     * Unordered growable array of postings, each encoded as {@code doc << 1 | inName}, with the
+     * slot of the term in the terms of its document. A posting is removed by moving the last one
+     * into its position, so removing a document costs one step per term of that document whatever
+     * the length of the postings.
+     */
+    private static final class Postings {
+        private int[] entries = new int[4];
+        private int[] slots = new int[4];
+        private int size;
+
+        /**
+         * Append a posting and return its position
+         */
+        int add(int posting, int slot) {
+            if (size == entries.length) {
+                entries = Arrays.copyOf(entries, size * 2);
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+            entries[size] = posting;
+            slots[size] = slot;
+            return size++;
+        }
+
+        void removeAt(int position) {
+            size--;
+            entries[position] = entries[size];
+            slots[position] = slots[size];
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package org.marzouki.productservice.search;
+
+import java.util.List;
+
+/**
+ * One page of search results: product IDs in rank order and the total number of matches
+ */
+public record SearchHits(List<String> productIds, int total) {
+
+    public static final SearchHits EMPTY = new SearchHits(List.of(), 0);
+}
@@ -0,0 +1,17 @@
+package org.marzouki.productservice.service;
+
+import lombok.Getter;
+
+/**
+ * Thrown when a change feed cursor is older than the purged delete entries: the reader may
+ * have missed deletions and must reload the whole catalog
+ */
+@Getter
+public class ChangeFeedExpiredException extends RuntimeException {
+    private final long since;
+
+    public ChangeFeedExpiredException(long since) {
+        super("Product changes since " + since + " are no longer available");
+        this.since = since;
+    }
+}
@@ -0,0 +1,16 @@
+package org.marzouki.productservice.service;
+
+import lombok.Getter;
+
+/**
+ * Thrown when a product is created with the ID of an existing one
+ */
+@Getter
+public class DuplicateProductException extends RuntimeException {
+    private final String productId;
+
+    public DuplicateProductException(String productId) {
+        super("Product " + productId + " already exists");
+        this.productId = productId;
+    }
+}
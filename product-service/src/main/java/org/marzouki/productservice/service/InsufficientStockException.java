@@ -0,0 +1,16 @@
+package org.marzouki.productservice.service;
+
+import lombok.Getter;
+
+/**
+ * Thrown when a reservation asks for more units than a product has in stock
+ */
+@Getter
+public class InsufficientStockException extends RuntimeException {
+    private final String productId;
+
+    public InsufficientStockException(String productId) {
+        super("Insufficient stock for product " + productId);
+        this.productId = productId;
+    }
+}
@@ -0,0 +1,114 @@
+package org.marzouki.productservice.service;
+
+import org.marzouki.productservice.entities.Product;
+import org.marzouki.productservice.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Product writes. Each one records its change in the outbox of {@link ProductChangeService}
+ * within the same transaction; product rows are flushed first so the outbox head is always the
+ * last row a writer locks.
+ */
+@Service
+public class ProductCatalogService {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductChangeService productChangeService;
+
+    /**
+     * Save a new product, with a generated ID when none is given and no units reserved
+     *
+     * @throws DuplicateProductException if a product with the given ID exists, which would
+     *                                   otherwise be overwritten, reservations included
+     */
+    @Transactional
+    public Product createProduct(Product product) {
+        if (product.getId() == null || product.getId().isEmpty()) {
+            product.setId(UUID.randomUUID().toString());
+        } else if (productRepository.existsById(product.getId())) {
+            throw new DuplicateProductException(product.getId());
+        }
+        product.setReserved(0);
+        Product savedProduct = productRepository.saveAndFlush(product);
+        productChangeService.recordUpserts(List.of(savedProduct.getId()));
+        return savedProduct;
+    }
+
+    /**
+     * Update the given fields of a product: name and description when not null, price when
+     * positive, quantity when not negative
+     */
+    @Transactional
+    public Optional<Product> updateProduct(String id, Product productDetails) {
+        Optional<Product> product = productRepository.findById(id);
+        product.ifPresent(existing -> {
+            applyChanges(existing, productDetails);
+            productRepository.flush();
+            productChangeService.recordUpserts(List.of(id));
+        });
+        return product;
+    }
+
+    /**
+     * Update many products at once, all or nothing, with the rules of {@link #updateProduct}
+     *
+     * @throws NoSuchElementException if one of the products does not exist
+     */
+    @Transactional
+    public List<Product> updateProducts(List<Product> productDetails) {
+        Map<String, Product> products = new HashMap<>();
+        productRepository.findAllById(productDetails.stream().map(Product::getId).toList())
+                .forEach(product -> products.put(product.getId(), product));
+        for (Product details : productDetails) {
+            Product product = products.get(details.getId());
+            if (product == null) {
+                throw new NoSuchElementException("Unknown product " + details.getId());
+            }
+            applyChanges(product, details);
+        }
+        productRepository.flush();
+        productChangeService.recordUpserts(products.keySet());
+        return List.copyOf(products.values());
+    }
+
+    /**
+     * Delete a product, false when it does not exist
+     */
+    @Transactional
+    public boolean deleteProduct(String id) {
+        Optional<Product> product = productRepository.findById(id);
+        product.ifPresent(existing -> {
+            productRepository.delete(existing);
+            productRepository.flush();
+            productChangeService.recordDelete(id);
+        });
+        return product.isPresent();
+    }
+
+    private static void applyChanges(Product product, Product productDetails) {
+        if (productDetails.getName() != null) {
+            product.setName(productDetails.getName());
+        }
+        if (productDetails.getDescription() != null) {
+            product.setDescription(productDetails.getDescription());
+        }
+        if (productDetails.getPrice() > 0) {
+            product.setPrice(productDetails.getPrice());
+        }
+        if (productDetails.getQuantity() >= 0) {
+            product.setQuantity(productDetails.getQuantity());
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package org.marzouki.productservice.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.marzouki.productservice.entities.Product;
+import org.marzouki.productservice.entities.ProductChange;
+import org.marzouki.productservice.entities.ProductChangeHead;
+import org.marzouki.productservice.model.CatalogAggregates;
+import org.marzouki.productservice.model.ProductChanges;
+import org.marzouki.productservice.model.UnpublishedStockChanges;
+import org.marzouki.productservice.repository.ProductChangeHeadRepository;
+import org.marzouki.productservice.repository.ProductChangeRepository;
+import org.marzouki.productservice.repository.ProductRepository;
+import org.marzouki.shared.web.ResourceVersion;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Transactional outbox of product changes and the change feed read from it.
+ * <p>
+ * Writers record the IDs of the products they created, updated or deleted in their own
+ * transaction, after their product rows are written. Sequence numbers come from the locked
+ * {@link ProductChangeHead} row, so the head is the last lock a writer takes and changes become
+ * visible in sequence order. Readers page through the feed with the last sequence number they
+ * saw and get each changed product's current state, so a replica stays in sync in O(changes).
+ * <p>
+ * Stock reservations and releases are counted on their product row instead, which they lock
+ * anyway, and published here in batches: one transaction per batch takes the head lock, records
+ * each counted product once and counts its published changes out. Checkouts never wait for the
+ * head, and each reservation shows in the feed within {@code product.changes.stock-publish-interval}.
+ * <p>
+ * Compaction keeps only the latest entry of each product; delete entries are kept for
+ * {@code product.changes.tombstone-retention}, after which readers resuming from before them get
+ * {@link ChangeFeedExpiredException} and must reload the catalog.
+ */
+@Service
+public class ProductChangeService implements SmartInitializingSingleton {
+
+    /** Products published per head-lock transaction */
+    static final int STOCK_PUBLISH_BATCH = 500;
+
+    @Autowired
+    private ProductChangeRepository productChangeRepository;
+
+    @Autowired
+    private ProductChangeHeadRepository productChangeHeadRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Duration tombstoneRetention;
+
+    public ProductChangeService(PlatformTransactionManager transactionManager,
+                                @Value("${product.changes.tombstone-retention:P7D}") Duration tombstoneRetention) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.tombstoneRetention = tombstoneRetention;
+    }
+
+    /**
+     * Create the head row on first start, before anything writes products
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!productChangeHeadRepository.existsById(ProductChangeHead.ID)) {
+                productChangeHeadRepository.save(new ProductChangeHead(ProductChangeHead.ID, 0, 0));
+            }
+        });
+    }
+
+    /**
+     * Record that products were created or updated. Must join the transaction of the change.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordUpserts(Collection<String> productIds) {
+        record(productIds, ProductChange.Type.UPSERT);
+    }
+
+    /**
+     * Record that a product was deleted. Must join the transaction of the change.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordDelete(String productId) {
+        record(List.of(productId), ProductChange.Type.DELETE);
+    }
+
+    /**
+     * Sequence number of the latest change, a cursor to follow the feed from now on
+     */
+    @Transactional(readOnly = true)
+    public long currentCursor() {
+        return productChangeHeadRepository.findById(ProductChangeHead.ID).orElseThrow().getLastSeq();
+    }
+
+    /**
+     * Version of the whole catalog, without loading it: the current cursor, which moves with
+     * every recorded create, update and delete, with the number of products and their latest
+     * modification
+     */
+    @Transactional(readOnly = true)
+    public ResourceVersion catalogVersion() {
+        long cursor = currentCursor();
+        CatalogAggregates catalog = productRepository.findCatalogAggregates();
+        return ResourceVersion.ofCollection(cursor, catalog.getSize(), catalog.getModifiedAt());
+    }
+
+    /**
+     * Up to {@code limit} changes after {@code since}, oldest first, with the current state of
+     * each product. {@code since} = 0 reads the whole compacted feed.
+     *
+     * @throws ChangeFeedExpiredException if delete entries after {@code since} were purged
+     */
+    @Transactional(readOnly = true)
+    public ProductChanges changesSince(long since, int limit) {
+        ProductChangeHead head = productChangeHeadRepository.findById(ProductChangeHead.ID).orElseThrow();
+        if (since > 0 && since < head.getPurgedThrough()) {
+            throw new ChangeFeedExpiredException(since);
+        }
+        List<ProductChange> changes = productChangeRepository.findBySeqGreaterThanOrderBySeqAsc(since, Limit.of(limit + 1));
+        boolean hasMore = changes.size() > limit;
+        if (hasMore) {
+            changes = changes.subList(0, limit);
+        }
+
+        Map<String, Product> products = new HashMap<>();
+        productRepository.findAllById(changes.stream().map(ProductChange::getProductId).distinct().toList())
+                .forEach(product -> products.put(product.getId(), product));
+        List<ProductChanges.Change> page = changes.stream().map(change -> {
+            Product product = products.get(change.getProductId());
+            // The state is read now: a product deleted after this entry is reported deleted already
+            ProductChange.Type type = product != null ? ProductChange.Type.UPSERT : ProductChange.Type.DELETE;
+            return new ProductChanges.Change(change.getSeq(), type, change.getProductId(), product);
+        }).toList();
+        long next = changes.isEmpty() ? since : changes.getLast().getSeq();
+        return new ProductChanges(next, hasMore, page);
+    }
+
+    /**
+     * Remove the entries superseded by a later change of the same product, then the delete
+     * entries older than the retention. Returns the number of removed entries.
+     */
+    @Scheduled(fixedDelayString = "${product.changes.compaction-interval:PT1M}",
+            initialDelayString = "${product.changes.compaction-interval:PT1M}")
+    @Transactional
+    public int compact() {
+        int removed = productChangeRepository.deleteSuperseded();
+        LocalDateTime before = LocalDateTime.now().minus(tombstoneRetention);
+        Long purgeThrough = productChangeRepository.findLastSeqBefore(ProductChange.Type.DELETE, before);
+        if (purgeThrough != null) {
+            ProductChangeHead head = productChangeHeadRepository.lockById(ProductChangeHead.ID).orElseThrow();
+            removed += productChangeRepository.deleteThrough(ProductChange.Type.DELETE, purgeThrough);
+            head.setPurgedThrough(Math.max(head.getPurgedThrough(), purgeThrough));
+        }
+        return removed;
+    }
+
+    /**
+     * Record the products whose stock changed since the last run, in batches. Returns the number
+     * of recorded products.
+     */
+    @Scheduled(fixedDelayString = "${product.changes.stock-publish-interval:PT1S}",
+            initialDelayString = "${product.changes.stock-publish-interval:PT1S}")
+    public int publishStockChanges() {
+        int published = 0;
+        List<String> batch;
+        do {
+            batch = transactionTemplate.execute(status -> publishStockChangeBatch());
+            published += batch.size();
+        } while (batch.size() == STOCK_PUBLISH_BATCH);
+        return published;
+    }
+
+    private List<String> publishStockChangeBatch() {
+        List<String> productIds = new ArrayList<>();
+        // Product rows first, in ID order like reservations, then the head: the lock order of every writer
+        for (UnpublishedStockChanges changes : productRepository.findUnpublishedStockChanges(Limit.of(STOCK_PUBLISH_BATCH))) {
+            if (productRepository.markStockChangesPublished(changes.getId(), changes.getCount()) > 0) {
+                productIds.add(changes.getId());
+            }
+        }
+        if (!productIds.isEmpty()) {
+            record(productIds, ProductChange.Type.UPSERT);
+        }
+        return productIds;
+    }
+
+    private void record(Collection<String> productIds, ProductChange.Type type) {
+        ProductChangeHead head = productChangeHeadRepository.lockById(ProductChangeHead.ID).orElseThrow();
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        long seq = head.getLastSeq();
+        for (String productId : productIds) {
+            // Assigned IDs: persist inserts without a lookup, and the inserts are batched at flush
+            entityManager.persist(new ProductChange(++seq, productId, type, now));
+        }
+        head.setLastSeq(seq);
+    }
+}
@@ -0,0 +1,135 @@
+package org.marzouki.productservice.service;
+
+import org.marzouki.productservice.model.ReservationLine;
+import org.marzouki.productservice.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+
+/**
+ * Stock reservations built on conditional atomic updates ({@code UPDATE ... WHERE quantity >= ?}).
+ * <p>
+ * The database checks and decrements the stock in one statement, so concurrent checkouts can
+ * never oversell and only the rows of the reserved products are locked, until commit. Reserved
+ * units are counted on the product, and a release can only put back units that an earlier
+ * reservation took out.
+ * <p>
+ * Each reservation and release also counts an unpublished stock change on the row it updates,
+ * which {@link ProductChangeService} records in the change feed shortly after commit. Recording
+ * directly would take the lock on the single feed head row until commit and serialize every
+ * checkout of every product.
+ */
+@Service
+public class StockReservationService {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    /**
+     * Reserve quantity units of a product
+     *
+     * @throws IllegalArgumentException   if the product ID is blank or the quantity not positive
+     * @throws NoSuchElementException     if the product does not exist
+     * @throws InsufficientStockException if fewer than quantity units are in stock
+     */
+    @Transactional
+    public void reserve(String productId, int quantity) {
+        take(productId, quantity);
+    }
+
+    /**
+     * Put quantity previously reserved units of a product back into stock
+     *
+     * @throws IllegalArgumentException  if the product ID is blank or the quantity not positive
+     * @throws NoSuchElementException    if the product does not exist
+     * @throws UnreservedStockException  if fewer than quantity units of the product are reserved
+     */
+    @Transactional
+    public void release(String productId, int quantity) {
+        putBack(productId, quantity);
+    }
+
+    /**
+     * Reserve all lines of an order, or none of them. Lines are applied in product ID order so
+     * that concurrent multi-product reservations always lock rows in the same order.
+     */
+    @Transactional
+    public void reserveAll(List<ReservationLine> lines) {
+        merge(lines).forEach(this::take);
+    }
+
+    /**
+     * Release all lines of an order, or none of them
+     */
+    @Transactional
+    public void releaseAll(List<ReservationLine> lines) {
+        merge(lines).forEach(this::putBack);
+    }
+
+    private void take(String productId, int quantity) {
+        requireValid(productId, quantity);
+        if (productRepository.reserve(productId, quantity, now()) == 0) {
+            throw unknownOr(productId, new InsufficientStockException(productId));
+        }
+    }
+
+    private void putBack(String productId, int quantity) {
+        requireValid(productId, quantity);
+        if (productRepository.release(productId, quantity, now()) == 0) {
+            throw unknownOr(productId, new UnreservedStockException(productId));
+        }
+    }
+
+    /**
+     * Quantities per product, validated before any row is touched
+     */
+    private static Map<String, Integer> merge(List<ReservationLine> lines) {
+        if (lines == null) {
+            throw new IllegalArgumentException("Reservation lines are required");
+        }
+        Map<String, Integer> quantities = new TreeMap<>();
+        for (ReservationLine line : lines) {
+            if (line == null) {
+                throw new IllegalArgumentException("Reservation line is required");
+            }
+            requireValid(line.productId(), line.quantity());
+            quantities.merge(line.productId(), line.quantity(), StockReservationService::sum);
+        }
+        return quantities;
+    }
+
+    private static int sum(int a, int b) {
+        int total = a + b;
+        if (total < 0) {
+            throw new IllegalArgumentException("Quantity too large: " + ((long) a + b));
+        }
+        return total;
+    }
+
+    private RuntimeException unknownOr(String productId, RuntimeException failure) {
+        if (!productRepository.existsById(productId)) {
+            return new NoSuchElementException("Unknown product " + productId);
+        }
+        return failure;
+    }
+
+    private static void requireValid(String productId, int quantity) {
+        if (productId == null || productId.isBlank()) {
+            throw new IllegalArgumentException("Product ID is required");
+        }
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive: " + quantity);
+        }
+    }
+
+    private static LocalDateTime now() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+    }
+}
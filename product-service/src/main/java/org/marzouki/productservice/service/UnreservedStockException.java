@@ -0,0 +1,16 @@
+package org.marzouki.productservice.service;
+
+import lombok.Getter;
+
+/**
+ * Thrown when a release puts back more units of a product than its reservations took
+ */
+@Getter
+public class UnreservedStockException extends RuntimeException {
+    private final String productId;
+
+    public UnreservedStockException(String productId) {
+        super("Release exceeds the reserved stock of product " + productId);
+        this.productId = productId;
+    }
+}
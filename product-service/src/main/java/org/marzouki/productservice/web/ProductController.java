@@ -1,57 +1,184 @@
 package org.marzouki.productservice.web;
 
 import org.marzouki.productservice.entities.Product;
+import org.marzouki.productservice.model.ProductChanges;
+import org.marzouki.productservice.model.ReservationLine;
 import org.marzouki.productservice.repository.ProductRepository;
+import org.marzouki.productservice.search.ProductSearchIndex;
+import org.marzouki.productservice.search.SearchHits;
+import org.marzouki.productservice.service.ChangeFeedExpiredException;
+import org.marzouki.productservice.service.DuplicateProductException;
+import org.marzouki.productservice.service.InsufficientStockException;
+import org.marzouki.productservice.service.ProductCatalogService;
+import org.marzouki.productservice.service.ProductChangeService;
+import org.marzouki.productservice.service.StockReservationService;
+import org.marzouki.productservice.service.UnreservedStockException;
+import org.marzouki.shared.web.ConditionalGet;
+import org.marzouki.shared.web.ResourceVersion;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.UUID;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/products")
-@CrossOrigin("*")
+@CrossOrigin(origins = "*", exposedHeaders = {ProductController.TOTAL_COUNT_HEADER, ProductController.CHANGE_CURSOR_HEADER, HttpHeaders.ETAG})
 public class ProductController {
 
+    /**
+     * Upper bound on the number of ids accepted by a single batch lookup
+     */
+    static final int MAX_BATCH_SIZE = 500;
+
+    static final int MAX_SEARCH_PAGE_SIZE = 100;
+
+    static final int DEFAULT_CHANGES_PAGE_SIZE = 500;
+
+    static final int MAX_CHANGES_PAGE_SIZE = 1000;
+
+    static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+
+    /**
+     * Change feed position a full catalog read is consistent with
+     */
+    static final String CHANGE_CURSOR_HEADER = "X-Change-Cursor";
+
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private ProductCatalogService productCatalogService;
+
+    @Autowired
+    private ProductChangeService productChangeService;
+
     /**
-     * GET /api/products - Get all products (accessible to ADMIN and CLIENT)
+     * GET /api/products - Get all products (accessible to ADMIN and CLIENT).
+     * Returns 304 without loading the catalog when the client's ETag is still current.
+     * The X-Change-Cursor header is where a replica of this catalog follows the change feed from.
      */
     @GetMapping
-    public ResponseEntity<List<Product>> getAllProducts() {
+    public ResponseEntity<List<Product>> getAllProducts(@RequestHeader HttpHeaders headers) {
+        ResourceVersion version = productChangeService.catalogVersion();
+        if (ConditionalGet.notModified(headers, version)) {
+            return ConditionalGet.notModifiedResponse(version);
+        }
+        // Read before the catalog: changes after it may be replayed, none can be missed
+        long cursor = productChangeService.currentCursor();
         List<Product> products = productRepository.findAll();
-        return ResponseEntity.ok(products);
+        return ConditionalGet.ok(version)
+                .header(CHANGE_CURSOR_HEADER, String.valueOf(cursor))
+                .body(products);
+    }
+
+    /**
+     * GET /api/products/changes?since=&limit= - Products created, updated or deleted after the
+     * cursor, oldest first, with their current state; deleted products come without one. Pass the
+     * returned next cursor as since to get the following page. since=0 reads every live product
+     * once, but its pages expire like any cursor. Returns 410 when deletions after the cursor were
+     * purged: reload GET /api/products and follow its X-Change-Cursor instead.
+     */
+    @GetMapping("/changes")
+    public ResponseEntity<ProductChanges> getChanges(
+            @RequestParam(defaultValue = "0") long since,
+            @RequestParam(defaultValue = "" + DEFAULT_CHANGES_PAGE_SIZE) int limit) {
+        if (since < 0 || limit < 1 || limit > MAX_CHANGES_PAGE_SIZE) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+        try {
+            return ResponseEntity.ok(productChangeService.changesSince(since, limit));
+        } catch (ChangeFeedExpiredException e) {
+            return ResponseEntity.status(HttpStatus.GONE).build();
+        }
+    }
+
+    /**
+     * GET /api/products/search?q=&page=&size= - Ranked full-text search on name and description.
+     * Tolerates one typo per word and matches word prefixes. The total number of matches is
+     * returned in the X-Total-Count header.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<List<Product>> searchProducts(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        if (page < 0 || size < 1 || size > MAX_SEARCH_PAGE_SIZE) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+        SearchHits hits = productSearchIndex.search(q, page, size);
+        Map<String, Product> products = new HashMap<>();
+        productRepository.findAllById(hits.productIds()).forEach(product -> products.put(product.getId(), product));
+        List<Product> ranked = hits.productIds().stream()
+                .map(products::get)
+                .filter(Objects::nonNull)
+                .toList();
+        return ResponseEntity.ok()
+                .header(TOTAL_COUNT_HEADER, String.valueOf(hits.total()))
+                .body(ranked);
     }
 
     /**
-     * GET /api/products/{id} - Get product by ID (accessible to ADMIN and CLIENT)
+     * GET /api/products/{id} - Get product by ID (accessible to ADMIN and CLIENT).
+     * Returns 304 without loading the product when the client's ETag is still current.
      */
     @GetMapping("/{id}")
-    public ResponseEntity<Product> getProductById(@PathVariable String id) {
+    public ResponseEntity<Product> getProductById(@PathVariable String id, @RequestHeader HttpHeaders headers) {
+        Optional<ResourceVersion> version = productRepository.findVersionById(id);
+        if (version.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+        if (ConditionalGet.notModified(headers, version.get())) {
+            return ConditionalGet.notModifiedResponse(version.get());
+        }
         Optional<Product> product = productRepository.findById(id);
         if (product.isPresent()) {
-            return ResponseEntity.ok(product.get());
+            return ConditionalGet.ok(version.get()).body(product.get());
         }
         return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
     }
 
     /**
-     * POST /api/products - Create new product
+     * POST /api/products/batch - Get the products matching a set of IDs in one call.
+     * Unknown IDs are simply absent from the response.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<List<Product>> getProductsByIds(@RequestBody Set<String> ids) {
+        if (ids.size() > MAX_BATCH_SIZE) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+        if (ids.isEmpty()) {
+            return ResponseEntity.ok(List.of());
+        }
+        return ResponseEntity.ok(productRepository.findAllById(ids));
+    }
+
+    /**
+     * POST /api/products - Create new product. Returns 409 if a product with the given ID exists.
      */
     @PostMapping
     public ResponseEntity<Product> createProduct(@RequestBody Product product) {
         try {
-            // Generate UUID if not provided
-            if (product.getId() == null || product.getId().isEmpty()) {
-                product.setId(UUID.randomUUID().toString());
-            }
-            Product savedProduct = productRepository.save(product);
+            // A UUID is generated if no ID is provided
+            Product savedProduct = productCatalogService.createProduct(product);
+            productSearchIndex.index(savedProduct);
             return ResponseEntity.status(HttpStatus.CREATED).body(savedProduct);
+        } catch (DuplicateProductException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
         }
@@ -64,38 +191,112 @@ public class ProductController {
     public ResponseEntity<Product> updateProduct(
             @PathVariable String id,
             @RequestBody Product productDetails) {
-        Optional<Product> optionalProduct = productRepository.findById(id);
-        if (optionalProduct.isPresent()) {
-            Product product = optionalProduct.get();
-            
-            // Update fields
-            if (productDetails.getName() != null) {
-                product.setName(productDetails.getName());
-            }
-            if (productDetails.getDescription() != null) {
-                product.setDescription(productDetails.getDescription());
-            }
-            if (productDetails.getPrice() > 0) {
-                product.setPrice(productDetails.getPrice());
-            }
-            if (productDetails.getQuantity() >= 0) {
-                product.setQuantity(productDetails.getQuantity());
-            }
-            
-            Product updatedProduct = productRepository.save(product);
-            return ResponseEntity.ok(updatedProduct);
+        Optional<Product> updatedProduct = productCatalogService.updateProduct(id, productDetails);
+        if (updatedProduct.isPresent()) {
+            productSearchIndex.index(updatedProduct.get());
+            return ResponseEntity.ok(updatedProduct.get());
         }
         return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
     }
 
+    /**
+     * PUT /api/products/batch - Update many products in one transaction, all or nothing, with
+     * the same rules as PUT /api/products/{id}. Returns 404 if one of them does not exist.
+     */
+    @PutMapping("/batch")
+    public ResponseEntity<List<Product>> updateProducts(@RequestBody List<Product> productDetails) {
+        if (productDetails.size() > MAX_BATCH_SIZE
+                || productDetails.stream().anyMatch(details -> details.getId() == null)) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+        try {
+            List<Product> updatedProducts = productCatalogService.updateProducts(productDetails);
+            updatedProducts.forEach(productSearchIndex::index);
+            return ResponseEntity.ok(updatedProducts);
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+    }
+
+    /**
+     * POST /api/products/{id}/reserve?quantity=n - Take n units out of stock.
+     * Returns 409 when fewer than n units are available, without changing the stock.
+     */
+    @PostMapping("/{id}/reserve")
+    public ResponseEntity<Product> reserveProduct(@PathVariable String id, @RequestParam int quantity) {
+        try {
+            stockReservationService.reserve(id, quantity);
+            return ResponseEntity.ok(productRepository.findById(id).orElseThrow());
+        } catch (InsufficientStockException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+    }
+
+    /**
+     * POST /api/products/{id}/release?quantity=n - Put n previously reserved units back into stock.
+     * Returns 409 when fewer than n units are reserved, without changing the stock.
+     */
+    @PostMapping("/{id}/release")
+    public ResponseEntity<Product> releaseProduct(@PathVariable String id, @RequestParam int quantity) {
+        try {
+            stockReservationService.release(id, quantity);
+            return ResponseEntity.ok(productRepository.findById(id).orElseThrow());
+        } catch (UnreservedStockException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+    }
+
+    /**
+     * POST /api/products/reserve - Reserve all lines of an order in one call, all or nothing.
+     * Returns 409 with the ID of the first product short of stock.
+     */
+    @PostMapping("/reserve")
+    public ResponseEntity<String> reserveProducts(@RequestBody List<ReservationLine> lines) {
+        try {
+            stockReservationService.reserveAll(lines);
+            return ResponseEntity.noContent().build();
+        } catch (InsufficientStockException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getProductId());
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+    }
+
+    /**
+     * POST /api/products/release - Release all lines of an order in one call, all or nothing.
+     * Returns 409 with the ID of the first product with fewer units reserved than released.
+     */
+    @PostMapping("/release")
+    public ResponseEntity<String> releaseProducts(@RequestBody List<ReservationLine> lines) {
+        try {
+            stockReservationService.releaseAll(lines);
+            return ResponseEntity.noContent().build();
+        } catch (UnreservedStockException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getProductId());
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+    }
+
     /**
      * DELETE /api/products/{id} - Delete product
      */
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteProduct(@PathVariable String id) {
-        Optional<Product> product = productRepository.findById(id);
-        if (product.isPresent()) {
-            productRepository.deleteById(id);
+        if (productCatalogService.deleteProduct(id)) {
+            productSearchIndex.remove(id);
             return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
         }
         return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
@@ -0,0 +1,30 @@
+-- Schema of the product entities, applied by Flyway in the persistent profile
+
+create table product (
+    id varchar(255) not null,
+    name varchar(255) not null,
+    description varchar(500),
+    price float(53) not null,
+    quantity integer not null,
+    date_creation timestamp(6) not null,
+    date_modification timestamp(6) not null,
+    primary key (id)
+);
+
+-- Change feed outbox
+create table product_change_head (
+    id bigint not null,
+    last_seq bigint not null,
+    purged_through bigint not null,
+    primary key (id)
+);
+
+create table product_changes (
+    seq bigint not null,
+    product_id varchar(255) not null,
+    type enum ('DELETE','UPSERT') not null,
+    changed_at timestamp(6) not null,
+    primary key (seq)
+);
+
+create index idx_product_changes_product_seq on product_changes (product_id, seq);
@@ -0,0 +1,3 @@
+-- Units held by stock reservations, which bound what a release can put back
+
+alter table product add column reserved integer default 0 not null;
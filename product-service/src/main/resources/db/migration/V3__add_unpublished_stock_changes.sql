@@ -0,0 +1,5 @@
+-- Reservations and releases not yet recorded in the change feed, published in batches by
+-- ProductChangeService so that checkouts never wait for the feed head row
+
+alter table product add column unpublished_stock_changes integer default 0 not null;
+create index idx_product_unpublished_stock_changes on product (unpublished_stock_changes);
@@ -0,0 +1,43 @@
+package org.marzouki.productservice;
+
+import org.junit.jupiter.api.Test;
+import org.marzouki.productservice.repository.ProductRepository;
+import org.marzouki.productservice.search.ProductSearchIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * With seed.deferred, as in the aot profile, startup does not wait for the seeding but the
+ * products still arrive, and can be searched even though the search index was built before.
+ */
+@SpringBootTest(properties = {
+        "eureka.client.enabled=false",
+        "spring.cloud.config.enabled=false",
+        "spring.datasource.url=jdbc:h2:mem:deferred-seeding-db",
+        "seed.deferred=true"
+})
+class DeferredSeedingTests {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Test
+    void seedingCompletesInTheBackground() throws InterruptedException {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (productSearchIndex.size() < 3 && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(3, productRepository.count());
+        assertEquals(3, productSearchIndex.size());
+        for (String query : List.of("computer", "printer", "smartphone")) {
+            assertEquals(1, productSearchIndex.search(query, 0, 10).total(), query);
+        }
+    }
+}
@@ -1,13 +1,39 @@
 package org.marzouki.productservice;
 
 import org.junit.jupiter.api.Test;
+import org.marzouki.productservice.entities.Product;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import tools.jackson.databind.json.JsonMapper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 
 @SpringBootTest
 class ProductServiceApplicationTests {
 
+    @Autowired
+    private JsonMapper jsonMapper;
+
     @Test
     void contextLoads() {
     }
 
+    @Test
+    void productPayloadsNeedNotCarryReservedStock() {
+        Product product = jsonMapper.readValue(
+                "{\"id\":\"P-1\",\"name\":\"Kettle\",\"price\":25,\"quantity\":3}", Product.class);
+        assertEquals(0, product.getReserved());
+        assertEquals(0, product.getUnpublishedStockChanges());
+    }
+
+    @Test
+    void feedBookkeepingStaysOutOfProductPayloads() {
+        Product product = jsonMapper.readValue(
+                "{\"id\":\"P-1\",\"name\":\"Kettle\",\"price\":25,\"quantity\":3,\"unpublishedStockChanges\":-5}", Product.class);
+        assertEquals(0, product.getUnpublishedStockChanges());
+        product.setUnpublishedStockChanges(2);
+        assertFalse(jsonMapper.writeValueAsString(product).contains("unpublishedStockChanges"));
+    }
+
 }
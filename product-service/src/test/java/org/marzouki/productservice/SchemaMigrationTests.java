@@ -0,0 +1,63 @@
+package org.marzouki.productservice;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.marzouki.productservice.entities.Product;
+import org.marzouki.productservice.repository.ProductRepository;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The versioned migrations: a database left at an older version is brought up to date by the
+ * persistent profile on its next start, keeping its rows, and Hibernate validates the result
+ * against the entities.
+ */
+class SchemaMigrationTests {
+
+    @TempDir
+    private Path storageDir;
+
+    @Test
+    void startMigratesADatabaseWithoutReservedStock() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:file:" + storageDir.resolve("products-db"), "", "");
+        Flyway.configure().dataSource(dataSource).target("1").load().migrate();
+        new JdbcTemplate(dataSource).update("INSERT INTO product (id, name, price, quantity, date_creation, " +
+                "date_modification) VALUES ('p1', 'Computer', 3200, 11, LOCALTIMESTAMP, LOCALTIMESTAMP)");
+
+        try (ConfigurableApplicationContext context = start()) {
+            assertEquals(List.of("1", "2", "3"), context.getBean(JdbcTemplate.class).queryForList(
+                    "SELECT \"version\" FROM \"flyway_schema_history\" WHERE \"type\" = 'SQL' AND \"success\" ORDER BY \"installed_rank\"",
+                    String.class));
+            Product product = context.getBean(ProductRepository.class).findById("p1").orElseThrow();
+            assertEquals(11, product.getQuantity());
+            assertEquals(0, product.getReserved());
+            assertEquals(0, product.getUnpublishedStockChanges());
+            // The existing product was kept, so nothing was seeded
+            assertEquals(1, context.getBean(ProductRepository.class).count());
+        }
+    }
+
+    /**
+     * Start the service on the database of storageDir
+     */
+    private ConfigurableApplicationContext start() {
+        // Arguments rather than default properties, which application-persistent.properties overrides
+        return new SpringApplicationBuilder(ProductServiceApplication.class)
+                .profiles("persistent")
+                .run("--spring.main.web-application-type=none",
+                        "--spring.cloud.config.enabled=false",
+                        "--spring.config.import=",
+                        "--eureka.client.enabled=false",
+                        "--storage.dir=" + storageDir,
+                        "--logging.level.root=WARN");
+    }
+}
@@ -0,0 +1,98 @@
+package org.marzouki.productservice.search;
+
+import org.junit.jupiter.api.Test;
+import org.marzouki.productservice.entities.Product;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductSearchIndexTests {
+
+    private final ProductSearchIndex index = new ProductSearchIndex();
+
+    ProductSearchIndexTests() {
+        index.index(product("computer", "Computer", "High-performance laptop computer"));
+        index.index(product("printer", "Printer", "Professional laser printer"));
+        index.index(product("phone", "Smart Phone", "Latest generation smartphone"));
+        index.index(product("case", "Protective cover", "Protective case for your smart phone"));
+    }
+
+    @Test
+    void nameMatchesRankAboveDescriptionMatches() {
+        SearchHits hits = index.search("phone", 0, 10);
+
+        assertEquals(2, hits.total());
+        assertEquals(List.of("phone", "case"), hits.productIds());
+    }
+
+    @Test
+    void matchesPrefixesTyposAndAccents() {
+        assertEquals(List.of("computer"), index.search("lapt", 0, 10).productIds());
+        assertEquals(List.of("printer"), index.search("pirnter", 0, 10).productIds());
+        assertEquals(List.of("printer"), index.search("PROFESSIONNAL", 0, 10).productIds());
+        assertEquals(List.of("computer"), index.search("Computér", 0, 10).productIds());
+    }
+
+    @Test
+    void everyTokenMustMatch() {
+        assertEquals(List.of("case"), index.search("smart protective", 0, 10).productIds());
+        assertEquals(0, index.search("laser phone", 0, 10).total());
+    }
+
+    @Test
+    void resultsArePaginated() {
+        SearchHits first = index.search("smart", 0, 1);
+        SearchHits second = index.search("smart", 1, 1);
+
+        assertEquals(2, first.total());
+        assertEquals(1, first.productIds().size());
+        assertEquals(1, second.productIds().size());
+        assertNotEquals(first.productIds(), second.productIds());
+        assertTrue(index.search("smart", 2, 1).productIds().isEmpty());
+    }
+
+    @Test
+    void updatesAndRemovalsAreVisibleImmediately() {
+        index.index(product("printer", "Scanner", "Flatbed scanner"));
+        assertEquals(0, index.search("printer", 0, 10).total());
+        assertEquals(List.of("printer"), index.search("scanner", 0, 10).productIds());
+
+        index.remove("printer");
+        assertEquals(0, index.search("scanner", 0, 10).total());
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void removalsKeepTheRemainingPostingsOfSharedTerms() {
+        for (int i = 0; i < 100; i++) {
+            index.index(product("cable-" + i, "Cable " + (i % 2 == 0 ? "usb" : "hdmi"), "Braided cable"));
+        }
+        // Removed out of order, with slots reused by the products indexed in between
+        for (int i = 0; i < 100; i += 3) {
+            index.remove("cable-" + i);
+        }
+        index.index(product("cable-200", "Cable usb", "Braided cable"));
+
+        assertEquals(67, index.search("braided", 0, 200).total());
+        SearchHits usb = index.search("cable usb", 0, 200);
+        assertEquals(34, usb.total());
+        assertTrue(usb.productIds().contains("cable-200"));
+        assertFalse(usb.productIds().contains("cable-0"));
+        assertEquals(33, index.search("hdmi", 0, 200).total());
+        assertEquals(4 + 67, index.size());
+    }
+
+    @Test
+    void editDistanceOfOne() {
+        assertTrue(ProductSearchIndex.withinOneEdit("printer", "pirnter"));
+        assertTrue(ProductSearchIndex.withinOneEdit("printer", "priter"));
+        assertTrue(ProductSearchIndex.withinOneEdit("printer", "prrinter"));
+        assertTrue(ProductSearchIndex.withinOneEdit("printer", "prenter"));
+        assertFalse(ProductSearchIndex.withinOneEdit("printer", "prentre"));
+    }
+
+    private static Product product(String id, String name, String description) {
+        return Product.builder().id(id).name(name).description(description).price(1).quantity(1).build();
+    }
+}
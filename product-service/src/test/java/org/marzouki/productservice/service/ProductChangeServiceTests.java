@@ -0,0 +1,243 @@
+package org.marzouki.productservice.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.marzouki.productservice.entities.Product;
+import org.marzouki.productservice.entities.ProductChange;
+import org.marzouki.productservice.model.ProductChanges;
+import org.marzouki.productservice.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "eureka.client.enabled=false",
+        "spring.cloud.config.enabled=false",
+        // Own database: replicas are compared with the whole catalog
+        "spring.datasource.url=jdbc:h2:mem:product-changes-db",
+        // Compaction purges every delete entry; the scheduled run stays out of the way
+        "product.changes.tombstone-retention=PT0S",
+        "product.changes.compaction-interval=PT1H",
+        // Stock changes are published by the tests, the sequence numbers they assert stay put
+        "product.changes.stock-publish-interval=PT1H"
+})
+class ProductChangeServiceTests {
+
+    @Autowired
+    private ProductChangeService productChangeService;
+
+    @Autowired
+    private ProductCatalogService productCatalogService;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    /**
+     * Publish what earlier tests reserved, so each test counts its own stock changes
+     */
+    @BeforeEach
+    void publishPendingStockChanges() {
+        productChangeService.publishStockChanges();
+    }
+
+    @Test
+    void feedListsChangesInOrderAndPagesWithTheCursor() {
+        long cursor = productChangeService.currentCursor();
+        String first = create("first", 10).getId();
+        String second = create("second", 10).getId();
+        productCatalogService.updateProduct(first, Product.builder().price(42).quantity(-1).build()).orElseThrow();
+        stockReservationService.reserve(second, 3);
+        assertEquals(1, productChangeService.publishStockChanges());
+        assertTrue(productCatalogService.deleteProduct(first));
+        assertEquals(cursor + 5, productChangeService.currentCursor());
+
+        ProductChanges page = productChangeService.changesSince(cursor, 3);
+        assertTrue(page.hasMore());
+        assertEquals(List.of(cursor + 1, cursor + 2, cursor + 3), page.changes().stream().map(ProductChanges.Change::seq).toList());
+        assertEquals(cursor + 3, page.next());
+        // Each change comes with the current state: first was deleted since
+        assertEquals(ProductChange.Type.DELETE, page.changes().getFirst().type());
+        assertNull(page.changes().getFirst().product());
+        assertEquals(7, page.changes().get(1).product().getQuantity());
+
+        ProductChanges rest = productChangeService.changesSince(page.next(), 3);
+        assertFalse(rest.hasMore());
+        assertEquals(2, rest.changes().size());
+        assertEquals(second, rest.changes().get(0).productId());
+        assertEquals(first, rest.changes().get(1).productId());
+        assertEquals(ProductChange.Type.DELETE, rest.changes().get(1).type());
+        assertEquals(productChangeService.currentCursor(), rest.next());
+
+        ProductChanges empty = productChangeService.changesSince(rest.next(), 3);
+        assertTrue(empty.changes().isEmpty());
+        assertEquals(rest.next(), empty.next());
+    }
+
+    @Test
+    void replicaFollowingTheFeedMatchesTheCatalog() {
+        // Bootstrap like GET /api/products: the cursor is read before the catalog
+        long cursor = productChangeService.currentCursor();
+        Map<String, Product> replica = new HashMap<>();
+        productRepository.findAll().forEach(product -> replica.put(product.getId(), product));
+
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            ids.add(create("product-" + i, 100).getId());
+        }
+        List<Product> prices = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            prices.add(Product.builder().id(ids.get(i)).price(1 + i).quantity(-1).build());
+        }
+        productCatalogService.updateProducts(prices);
+        for (int i = 100; i < 130; i++) {
+            productCatalogService.deleteProduct(ids.get(i));
+        }
+        stockReservationService.reserve(ids.get(150), 5);
+        productChangeService.publishStockChanges();
+        long before = cursor;
+        cursor = sync(replica, cursor);
+
+        // One entry per change, nothing more
+        assertEquals(200 + 100 + 30 + 1, cursor - before);
+        assertCatalog(replica);
+    }
+
+    @Test
+    void stockChangesArePublishedOncePerProductAndNoneIsLost() {
+        String reserved = create("reserved", 100).getId();
+        String released = create("released", 100).getId();
+        stockReservationService.reserve(released, 10);
+        productChangeService.publishStockChanges();
+        long cursor = productChangeService.currentCursor();
+
+        for (int i = 0; i < 5; i++) {
+            stockReservationService.reserve(reserved, 1);
+        }
+        stockReservationService.release(released, 4);
+        // Nothing recorded until published, so checkouts never take the feed head lock
+        assertEquals(cursor, productChangeService.currentCursor());
+
+        assertEquals(2, productChangeService.publishStockChanges());
+        ProductChanges changes = productChangeService.changesSince(cursor, 100);
+        assertEquals(Set.of(reserved, released), changes.changes().stream().map(ProductChanges.Change::productId).collect(Collectors.toSet()));
+        assertEquals(95, changes.changes().stream().filter(change -> change.productId().equals(reserved))
+                .findFirst().orElseThrow().product().getQuantity());
+
+        // Published changes are counted out; the next reservation is published again
+        assertEquals(0, productChangeService.publishStockChanges());
+        stockReservationService.reserve(reserved, 1);
+        assertEquals(1, productChangeService.publishStockChanges());
+        assertEquals(cursor + 3, productChangeService.currentCursor());
+    }
+
+    @Test
+    void stockPublishingCoversMoreProductsThanOneBatch() {
+        int count = ProductChangeService.STOCK_PUBLISH_BATCH + 10;
+        for (int i = 0; i < count; i++) {
+            stockReservationService.reserve(create("batched-" + i, 10).getId(), 1);
+        }
+        long cursor = productChangeService.currentCursor();
+
+        assertEquals(count, productChangeService.publishStockChanges());
+        assertEquals(cursor + count, productChangeService.currentCursor());
+    }
+
+    @Test
+    void compactionKeepsTheLatestChangeOfEachProduct() {
+        long cursor = productChangeService.currentCursor();
+        String id = create("compacted", 10).getId();
+        for (int i = 0; i < 20; i++) {
+            productCatalogService.updateProduct(id, Product.builder().price(1 + i).quantity(-1).build()).orElseThrow();
+        }
+
+        productChangeService.compact();
+
+        ProductChanges changes = productChangeService.changesSince(cursor, 100);
+        assertEquals(1, changes.changes().size());
+        assertEquals(cursor + 21, changes.changes().getFirst().seq());
+        assertEquals(20, changes.changes().getFirst().product().getPrice());
+
+        // The whole compacted feed holds every live product once
+        ProductChanges all = productChangeService.changesSince(0, 1000);
+        assertFalse(all.hasMore());
+        Map<String, Product> replica = new HashMap<>();
+        all.changes().stream().filter(change -> change.type() == ProductChange.Type.UPSERT)
+                .forEach(change -> assertNull(replica.put(change.productId(), change.product())));
+        assertCatalog(replica);
+    }
+
+    @Test
+    void rolledBackWritesRecordNothing() {
+        long cursor = productChangeService.currentCursor();
+        String id = create("kept", 10).getId();
+
+        List<Product> details = List.of(
+                Product.builder().id(id).price(99).quantity(-1).build(),
+                Product.builder().id("unknown").price(99).quantity(-1).build());
+        assertThrows(NoSuchElementException.class, () -> productCatalogService.updateProducts(details));
+        assertThrows(InsufficientStockException.class, () -> stockReservationService.reserve(id, 11));
+
+        assertEquals(cursor + 1, productChangeService.currentCursor());
+        assertEquals(10, productRepository.findById(id).orElseThrow().getQuantity());
+    }
+
+    @Test
+    void cursorBeforePurgedDeletionsExpires() {
+        long cursor = productChangeService.currentCursor();
+        String id = create("deleted", 10).getId();
+        productCatalogService.deleteProduct(id);
+
+        productChangeService.compact();
+
+        assertThrows(ChangeFeedExpiredException.class, () -> productChangeService.changesSince(cursor, 100));
+        // Reloading the catalog and following the feed from its cursor works again
+        assertDoesNotThrow(() -> productChangeService.changesSince(productChangeService.currentCursor(), 100));
+        assertDoesNotThrow(() -> productChangeService.changesSince(0, 100));
+    }
+
+    private Product create(String name, int quantity) {
+        return productCatalogService.createProduct(Product.builder().name(name).price(10).quantity(quantity).build());
+    }
+
+    /**
+     * Apply the changes after the cursor to the replica and return the new cursor
+     */
+    private long sync(Map<String, Product> replica, long since) {
+        ProductChanges page;
+        do {
+            page = productChangeService.changesSince(since, 50);
+            for (ProductChanges.Change change : page.changes()) {
+                if (change.type() == ProductChange.Type.DELETE) {
+                    replica.remove(change.productId());
+                } else {
+                    replica.put(change.productId(), change.product());
+                }
+            }
+            since = page.next();
+        } while (page.hasMore());
+        return since;
+    }
+
+    private void assertCatalog(Map<String, Product> replica) {
+        List<Product> catalog = productRepository.findAll();
+        assertEquals(catalog.size(), replica.size());
+        for (Product product : catalog) {
+            Product copy = replica.get(product.getId());
+            assertNotNull(copy, product.getId());
+            assertEquals(product.getPrice(), copy.getPrice());
+            assertEquals(product.getQuantity(), copy.getQuantity());
+        }
+    }
+}
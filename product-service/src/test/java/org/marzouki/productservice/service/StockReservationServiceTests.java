@@ -0,0 +1,165 @@
+package org.marzouki.productservice.service;
+
+import org.junit.jupiter.api.Test;
+import org.marzouki.productservice.entities.Product;
+import org.marzouki.productservice.model.ReservationLine;
+import org.marzouki.productservice.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {"eureka.client.enabled=false", "spring.cloud.config.enabled=false"})
+class StockReservationServiceTests {
+
+    private static final int THREADS = 32;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductCatalogService productCatalogService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void concurrentReservationsOnAHotProductNeverOversell() throws Exception {
+        String id = product(1_000);
+        int attemptsPerThread = 50;
+        AtomicInteger reserved = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(THREADS)) {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                workers.add(executor.submit(() -> {
+                    for (int i = 0; i < attemptsPerThread; i++) {
+                        try {
+                            stockReservationService.reserve(id, 1);
+                            reserved.incrementAndGet();
+                        } catch (InsufficientStockException e) {
+                            rejected.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        }
+
+        assertEquals(1_000, reserved.get());
+        assertEquals(THREADS * attemptsPerThread - 1_000, rejected.get());
+        assertEquals(0, productRepository.findById(id).orElseThrow().getQuantity());
+    }
+
+    @Test
+    void multiProductReservationIsAllOrNothing() {
+        String plenty = product(10);
+        String scarce = product(1);
+
+        assertThrows(InsufficientStockException.class, () -> stockReservationService.reserveAll(List.of(
+                new ReservationLine(plenty, 3), new ReservationLine(scarce, 2))));
+        assertEquals(10, productRepository.findById(plenty).orElseThrow().getQuantity());
+        assertEquals(1, productRepository.findById(scarce).orElseThrow().getQuantity());
+
+        stockReservationService.reserveAll(List.of(
+                new ReservationLine(plenty, 3), new ReservationLine(scarce, 1), new ReservationLine(plenty, 2)));
+        assertEquals(5, productRepository.findById(plenty).orElseThrow().getQuantity());
+        assertEquals(0, productRepository.findById(scarce).orElseThrow().getQuantity());
+
+        stockReservationService.releaseAll(List.of(new ReservationLine(plenty, 5)));
+        assertEquals(10, productRepository.findById(plenty).orElseThrow().getQuantity());
+    }
+
+    @Test
+    void releaseCannotExceedWhatWasReserved() {
+        String id = product(10);
+        assertThrows(UnreservedStockException.class, () -> stockReservationService.release(id, 1));
+
+        stockReservationService.reserve(id, 4);
+        stockReservationService.release(id, 3);
+        assertThrows(UnreservedStockException.class, () -> stockReservationService.release(id, 2));
+        // All or nothing: the first line is not released either
+        String other = product(5);
+        stockReservationService.reserve(other, 2);
+        assertThrows(UnreservedStockException.class, () -> stockReservationService.releaseAll(List.of(
+                new ReservationLine(other, 2), new ReservationLine(id, 2))));
+
+        Product product = productRepository.findById(id).orElseThrow();
+        assertEquals(9, product.getQuantity());
+        assertEquals(1, product.getReserved());
+        assertEquals(3, productRepository.findById(other).orElseThrow().getQuantity());
+    }
+
+    @Test
+    void catalogEditRacingAReservationKeepsIt() {
+        String id = product(10);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            Product loaded = productRepository.findById(id).orElseThrow();
+            // Reserved and committed after the edit loaded the product, before it is flushed
+            try (ExecutorService executor = Executors.newSingleThreadExecutor()) {
+                executor.submit(() -> stockReservationService.reserve(id, 4)).get();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            loaded.setName("Renamed SKU");
+        });
+
+        Product product = productRepository.findById(id).orElseThrow();
+        assertEquals("Renamed SKU", product.getName());
+        assertEquals(6, product.getQuantity());
+        assertEquals(4, product.getReserved());
+        stockReservationService.release(id, 4);
+    }
+
+    @Test
+    void creatingAProductWithAnExistingIdKeepsItsReservations() {
+        String id = product(10);
+        stockReservationService.reserve(id, 3);
+
+        assertThrows(DuplicateProductException.class, () -> productCatalogService.createProduct(Product.builder()
+                .id(id).name("Other SKU").price(20).quantity(50).build()));
+        Product product = productRepository.findById(id).orElseThrow();
+        assertEquals("Hot SKU", product.getName());
+        assertEquals(7, product.getQuantity());
+        assertEquals(3, product.getReserved());
+    }
+
+    @Test
+    void linesWithoutProductIdAreRejected() {
+        String id = product(10);
+        List<ReservationLine> lines = new ArrayList<>();
+        lines.add(new ReservationLine(id, 1));
+        lines.add(new ReservationLine(null, 1));
+
+        assertThrows(IllegalArgumentException.class, () -> stockReservationService.reserveAll(lines));
+        assertThrows(IllegalArgumentException.class, () -> stockReservationService.releaseAll(lines));
+        assertThrows(IllegalArgumentException.class, () -> stockReservationService.reserve(" ", 1));
+        assertEquals(10, productRepository.findById(id).orElseThrow().getQuantity());
+    }
+
+    private String product(int quantity) {
+        return productRepository.save(Product.builder()
+                .id(UUID.randomUUID().toString())
+                .name("Hot SKU")
+                .price(10)
+                .quantity(quantity)
+                .build()).getId();
+    }
+}
@@ -0,0 +1,119 @@
+package org.marzouki.productservice.web;
+
+import org.junit.jupiter.api.Test;
+import org.marzouki.productservice.entities.Product;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {"eureka.client.enabled=false", "spring.cloud.config.enabled=false"})
+class ProductConditionalGetTests {
+
+    @Autowired
+    private ProductController productController;
+
+    @Test
+    void unchangedProductIsAnsweredWithNotModified() {
+        String id = create("Conditional kettle");
+        ResponseEntity<Product> first = productController.getProductById(id, new HttpHeaders());
+        String eTag = first.getHeaders().getETag();
+        assertEquals(HttpStatus.OK, first.getStatusCode());
+        assertNotNull(eTag);
+        assertTrue(first.getHeaders().getLastModified() > 0);
+
+        ResponseEntity<Product> second = productController.getProductById(id, ifNoneMatch(eTag));
+        assertEquals(HttpStatus.NOT_MODIFIED, second.getStatusCode());
+        assertNull(second.getBody());
+        assertEquals(eTag, second.getHeaders().getETag());
+
+        HttpHeaders ifModifiedSince = new HttpHeaders();
+        ifModifiedSince.setIfModifiedSince(first.getHeaders().getLastModified());
+        assertEquals(HttpStatus.NOT_MODIFIED, productController.getProductById(id, ifModifiedSince).getStatusCode());
+    }
+
+    @Test
+    void updateChangesTheETag() {
+        String id = create("Conditional toaster");
+        String eTag = productController.getProductById(id, new HttpHeaders()).getHeaders().getETag();
+
+        Product change = new Product();
+        change.setPrice(42);
+        change.setQuantity(-1);
+        productController.updateProduct(id, change);
+
+        ResponseEntity<Product> after = productController.getProductById(id, ifNoneMatch(eTag));
+        assertEquals(HttpStatus.OK, after.getStatusCode());
+        assertEquals(42, after.getBody().getPrice());
+        assertNotEquals(eTag, after.getHeaders().getETag());
+    }
+
+    @Test
+    void catalogVersionChangesOnInsertAndDelete() {
+        String eTag = productController.getAllProducts(new HttpHeaders()).getHeaders().getETag();
+        assertEquals(HttpStatus.NOT_MODIFIED, productController.getAllProducts(ifNoneMatch(eTag)).getStatusCode());
+
+        String id = create("Conditional blender");
+        ResponseEntity<List<Product>> afterInsert = productController.getAllProducts(ifNoneMatch(eTag));
+        assertEquals(HttpStatus.OK, afterInsert.getStatusCode());
+
+        String insertedETag = afterInsert.getHeaders().getETag();
+        productController.deleteProduct(id);
+        assertEquals(HttpStatus.OK, productController.getAllProducts(ifNoneMatch(insertedETag)).getStatusCode());
+    }
+
+    @Test
+    void catalogIsValidatedByItsETagOnly() {
+        create("Conditional grinder");
+        ResponseEntity<List<Product>> first = productController.getAllProducts(new HttpHeaders());
+        assertEquals(-1, first.getHeaders().getLastModified());
+
+        HttpHeaders ifModifiedSince = new HttpHeaders();
+        ifModifiedSince.setIfModifiedSince(System.currentTimeMillis() + 60_000);
+        assertEquals(HttpStatus.OK, productController.getAllProducts(ifModifiedSince).getStatusCode());
+    }
+
+    @Test
+    void catalogVersionChangesOnDeleteFollowedByUpdateAndOnStockChanges() {
+        String deleted = create("Conditional mixer");
+        String updated = create("Conditional juicer");
+        String eTag = productController.getAllProducts(new HttpHeaders()).getHeaders().getETag();
+
+        productController.deleteProduct(deleted);
+        Product change = new Product();
+        change.setPrice(12);
+        change.setQuantity(-1);
+        productController.updateProduct(updated, change);
+        ResponseEntity<List<Product>> afterChanges = productController.getAllProducts(ifNoneMatch(eTag));
+        assertEquals(HttpStatus.OK, afterChanges.getStatusCode());
+
+        String changedETag = afterChanges.getHeaders().getETag();
+        productController.reserveProduct(updated, 1);
+        assertEquals(HttpStatus.OK, productController.getAllProducts(ifNoneMatch(changedETag)).getStatusCode());
+    }
+
+    @Test
+    void unknownProductIsNotFound() {
+        assertEquals(HttpStatus.NOT_FOUND,
+                productController.getProductById("missing", ifNoneMatch("\"missing-0\"")).getStatusCode());
+    }
+
+    private String create(String name) {
+        Product product = new Product();
+        product.setName(name);
+        product.setPrice(10);
+        product.setQuantity(5);
+        return productController.createProduct(product).getBody().getId();
+    }
+
+    private static HttpHeaders ifNoneMatch(String eTag) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch(eTag);
+        return headers;
+    }
+}
@@ -0,0 +1,51 @@
+package org.marzouki.shared.feign;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * Walks an endpoint serving its items in key order, one page of up to {@code size} items after a
+ * given key at a time. Each page is a separate call, so a Feign client guarded by a circuit breaker
+ * and a bulkhead guards every page on its own instead of the whole walk.
+ */
+public final class KeysetPages {
+
+    private KeysetPages() {
+    }
+
+    /**
+     * One page: the items whose key follows {@code after}, at most {@code size} of them
+     */
+    @FunctionalInterface
+    public interface Fetch<T> {
+
+        List<T> after(long after, int size);
+    }
+
+    /**
+     * Hand every non-empty page following {@code after} to {@code consumer}, which returns the key
+     * to continue after. Stops after the first page shorter than {@code size}.
+     */
+    public static <T> void forEach(long after, int size, Fetch<T> fetch, ToLongFunction<List<T>> consumer) {
+        List<T> page;
+        do {
+            page = fetch.after(after, size);
+            if (!page.isEmpty()) {
+                after = consumer.applyAsLong(page);
+            }
+        } while (page.size() == size);
+    }
+
+    /**
+     * Every item, from the first key on
+     */
+    public static <T> List<T> all(int size, Fetch<T> fetch, ToLongFunction<T> key) {
+        List<T> items = new ArrayList<>();
+        forEach(0, size, fetch, page -> {
+            items.addAll(page);
+            return key.applyAsLong(page.getLast());
+        });
+        return items;
+    }
+}
@@ -0,0 +1,51 @@
+package org.marzouki.shared.web;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * Evaluation of If-None-Match and If-Modified-Since against a {@link ResourceVersion}, so that
+ * an unchanged resource is answered with 304 before it is loaded. Collections and derived
+ * representations are only validated by their ETag: they send no Last-Modified and
+ * If-Modified-Since is ignored.
+ */
+public final class ConditionalGet {
+
+    private ConditionalGet() {
+    }
+
+    /**
+     * True when the client already holds this version. If-None-Match wins over
+     * If-Modified-Since, which has a one second resolution.
+     */
+    public static boolean notModified(HttpHeaders request, ResourceVersion version) {
+        String eTag = version.eTag();
+        if (request.containsHeader(HttpHeaders.IF_NONE_MATCH)) {
+            return request.getIfNoneMatch().stream()
+                    .map(tag -> tag.startsWith("W/") ? tag.substring(2) : tag)
+                    .anyMatch(tag -> tag.equals("*") || tag.equals(eTag));
+        }
+        if (version.isETagOnly()) {
+            return false;
+        }
+        long ifModifiedSince = request.getIfModifiedSince();
+        return ifModifiedSince != -1 && version.lastModified() / 1000 * 1000 <= ifModifiedSince;
+    }
+
+    public static <T> ResponseEntity<T> notModifiedResponse(ResourceVersion version) {
+        return validators(ResponseEntity.status(HttpStatus.NOT_MODIFIED), version).build();
+    }
+
+    public static ResponseEntity.BodyBuilder ok(ResourceVersion version) {
+        return validators(ResponseEntity.ok(), version);
+    }
+
+    private static ResponseEntity.BodyBuilder validators(ResponseEntity.BodyBuilder response, ResourceVersion version) {
+        response.eTag(version.eTag());
+        if (!version.isETagOnly()) {
+            response.lastModified(version.lastModified());
+        }
+        return response;
+    }
+}
@@ -0,0 +1,77 @@
+package org.marzouki.shared.web;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.StringJoiner;
+
+/**
+ * Version of a resource or of a collection, read without loading the entities.
+ * <p>
+ * A resource is versioned by its ID and last modification. A collection is versioned by
+ * aggregates of its members chosen so that every insert, update and delete changes at least one
+ * of them; it has no modification date, since its latest modification alone does not move when
+ * a member is deleted. A representation that also shows data read elsewhere has no modification
+ * date either: it is versioned by its own version and a digest of that data.
+ *
+ * @param key        resource ID, or the aggregates of a collection
+ * @param modifiedAt last modification of a resource, null when validated by the ETag only
+ */
+public record ResourceVersion(String key, LocalDateTime modifiedAt) {
+
+    /**
+     * Version of a collection from its aggregates, null ones (those of an empty collection)
+     * counting as zero
+     */
+    public static ResourceVersion ofCollection(Object... aggregates) {
+        StringJoiner key = new StringJoiner("-", "c", "");
+        for (Object aggregate : aggregates) {
+            key.add(aggregate == null ? "0"
+                    : aggregate instanceof LocalDateTime time ? Long.toHexString(micros(time))
+                    : aggregate.toString());
+        }
+        return new ResourceVersion(key.toString(), null);
+    }
+
+    /**
+     * Version of a representation built from this version and from data it does not cover, such
+     * as details fetched from other services, given as a digest of that data
+     */
+    public ResourceVersion including(String digest) {
+        return new ResourceVersion(tag() + "-" + digest, null);
+    }
+
+    /**
+     * True for collections and derived representations, which send no Last-Modified
+     */
+    public boolean isETagOnly() {
+        return modifiedAt == null;
+    }
+
+    /**
+     * Strong entity tag, quoted
+     */
+    public String eTag() {
+        return "\"" + tag() + "\"";
+    }
+
+    /**
+     * Last modification of a resource in epoch millis
+     *
+     * @throws IllegalStateException for a version validated by its ETag only
+     */
+    public long lastModified() {
+        if (isETagOnly()) {
+            throw new IllegalStateException("Only the ETag validates this version");
+        }
+        return modifiedAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private String tag() {
+        return isETagOnly() ? key : key + "-" + Long.toHexString(micros(modifiedAt));
+    }
+
+    private static long micros(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + time.getNano() / 1_000;
+    }
+}